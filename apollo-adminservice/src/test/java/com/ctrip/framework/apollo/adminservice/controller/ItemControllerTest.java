@@ -0,0 +1,37 @@
+package com.ctrip.framework.apollo.adminservice.controller;
+
+import com.ctrip.framework.apollo.common.dto.NamespaceViewDTO;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.context.jdbc.Sql.ExecutionPhase;
+
+public class ItemControllerTest extends AbstractControllerTest {
+
+  @Test
+  @Sql(scripts = "/controller/test-namespace-views.sql", executionPhase = ExecutionPhase.BEFORE_TEST_METHOD)
+  @Sql(scripts = "/controller/cleanup.sql", executionPhase = ExecutionPhase.AFTER_TEST_METHOD)
+  public void testFindNamespaceViews() {
+    NamespaceViewDTO[] namespaceViews = restTemplate.getForObject(
+        url("/apps/{appId}/clusters/{clusterName}/namespace-views"), NamespaceViewDTO[].class,
+        "namespaceViewAppId", "default");
+
+    Assert.assertEquals(2, namespaceViews.length);
+    Map<String, NamespaceViewDTO> namespaceViewMap = Arrays.stream(namespaceViews)
+        .collect(Collectors.toMap(view -> view.getNamespace().getNamespaceName(), Function.identity()));
+
+    NamespaceViewDTO unreleased = namespaceViewMap.get("application");
+    Assert.assertEquals(3, unreleased.getItems().size());
+    Assert.assertNull(unreleased.getLatestRelease());
+    Assert.assertTrue(unreleased.getDeletedItems().isEmpty());
+
+    NamespaceViewDTO released = namespaceViewMap.get("someNamespace");
+    Assert.assertEquals(1, released.getItems().size());
+    Assert.assertEquals("NAMESPACE-VIEW-RELEASE-KEY", released.getLatestRelease().getReleaseKey());
+    Assert.assertTrue(released.getDeletedItems().isEmpty());
+  }
+}
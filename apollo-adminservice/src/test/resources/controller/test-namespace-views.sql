@@ -0,0 +1,16 @@
+INSERT INTO App (AppId, Name, OwnerName, OwnerEmail) VALUES ('namespaceViewAppId','namespaceViewAppName','someOwnerName','someOwnerName@ctrip.com');
+
+INSERT INTO Cluster (AppId, Name) VALUES ('namespaceViewAppId', 'default');
+
+INSERT INTO AppNamespace (AppId, Name) VALUES ('namespaceViewAppId', 'application');
+INSERT INTO AppNamespace (AppId, Name) VALUES ('namespaceViewAppId', 'someNamespace');
+
+INSERT INTO Namespace (Id, AppId, ClusterName, NamespaceName) VALUES (200, 'namespaceViewAppId', 'default', 'application');
+INSERT INTO Namespace (Id, AppId, ClusterName, NamespaceName) VALUES (201, 'namespaceViewAppId', 'default', 'someNamespace');
+
+INSERT INTO Item (NamespaceId, `Key`, Value, Comment) VALUES (200, 'k1', 'v1', 'comment1');
+INSERT INTO Item (NamespaceId, `Key`, Value, Comment) VALUES (200, 'k2', 'v2', 'comment1');
+INSERT INTO Item (NamespaceId, `Key`, Value, Comment) VALUES (200, 'k3', 'v3', 'comment1');
+INSERT INTO Item (NamespaceId, `Key`, Value, Comment) VALUES (201, 'k1', 'v1', 'comment1');
+
+INSERT INTO Release (ReleaseKey, Name, Comment, AppId, ClusterName, NamespaceName, Configurations) VALUES ('NAMESPACE-VIEW-RELEASE-KEY', 'REV1', 'First Release', 'namespaceViewAppId', 'default', 'someNamespace', '{"k1":"v1"}');
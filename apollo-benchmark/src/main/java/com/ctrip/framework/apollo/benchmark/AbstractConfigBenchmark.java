@@ -0,0 +1,93 @@
+package com.ctrip.framework.apollo.benchmark;
+
+import com.ctrip.framework.apollo.internals.AbstractConfig;
+import com.ctrip.framework.apollo.internals.DefaultConfig;
+import com.ctrip.framework.apollo.model.IntProperty;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The typed getters of {@link AbstractConfig}, which are served from the typed caches, compared with the bound
+ * properties.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class AbstractConfigBenchmark {
+  private static final String NAMESPACE = "benchmark";
+
+  @Param({"1000", "50000"})
+  private int size;
+
+  private DefaultConfig config;
+  private IntProperty boundIntProperty;
+  private String intKey;
+  private String booleanKey;
+  private String durationKey;
+  private String arrayKey;
+
+  @Setup
+  public void setUp() {
+    Properties properties = new Properties();
+    // a quarter of the keys of each type
+    for (int i = 0; i < size / 4; i++) {
+      properties.setProperty("int.key." + i, String.valueOf(i));
+      properties.setProperty("boolean.key." + i, String.valueOf(i % 2 == 0));
+      properties.setProperty("duration.key." + i, (i % 60) + "m" + (i % 60) + "s");
+      properties.setProperty("array.key." + i, "a" + i + ",b" + i + ",c" + i);
+    }
+    config = new DefaultConfig(NAMESPACE, new StaticConfigRepository(properties));
+    int index = size / 8;
+    intKey = "int.key." + index;
+    booleanKey = "boolean.key." + index;
+    durationKey = "duration.key." + index;
+    arrayKey = "array.key." + index;
+    boundIntProperty = config.bindIntProperty(intKey, -1);
+  }
+
+  @Benchmark
+  public Integer getIntProperty() {
+    return config.getIntProperty(intKey, -1);
+  }
+
+  @Benchmark
+  public Long getLongProperty() {
+    return config.getLongProperty(intKey, -1L);
+  }
+
+  @Benchmark
+  public Boolean getBooleanProperty() {
+    return config.getBooleanProperty(booleanKey, false);
+  }
+
+  @Benchmark
+  public long getDurationProperty() {
+    return config.getDurationProperty(durationKey, -1);
+  }
+
+  @Benchmark
+  public String[] getArrayProperty() {
+    return config.getArrayProperty(arrayKey, ",", null);
+  }
+
+  @Benchmark
+  public int getBoundIntProperty() {
+    return boundIntProperty.get();
+  }
+}
@@ -0,0 +1,85 @@
+package com.ctrip.framework.apollo.benchmark;
+
+import com.ctrip.framework.apollo.internals.DefaultConfig;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares {@link DefaultConfig#getProperty(String, String)} with the lookup it replaced, which checked the system
+ * properties, the config properties, the env variables and the resource properties one by one.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class DefaultConfigBenchmark {
+  private static final String NAMESPACE = "benchmark";
+
+  @Param({"100", "1000"})
+  private int size;
+
+  private DefaultConfig config;
+  private Properties configProperties;
+  private String existingKey;
+  private String missingKey;
+
+  @Setup
+  public void setUp() {
+    configProperties = new Properties();
+    for (int i = 0; i < size; i++) {
+      configProperties.setProperty("some.key." + i, "someValue" + i);
+    }
+    config = new DefaultConfig(NAMESPACE, new StaticConfigRepository(configProperties));
+    existingKey = "some.key." + (size / 2);
+    missingKey = "some.missing.key";
+  }
+
+  @Benchmark
+  public String getExistingProperty() {
+    return config.getProperty(existingKey, null);
+  }
+
+  @Benchmark
+  public String getMissingProperty() {
+    return config.getProperty(missingKey, null);
+  }
+
+  @Benchmark
+  public String getExistingPropertyBySources() {
+    return getPropertyBySources(existingKey, null);
+  }
+
+  @Benchmark
+  public String getMissingPropertyBySources() {
+    return getPropertyBySources(missingKey, null);
+  }
+
+  /**
+   * The previous implementation of DefaultConfig#getProperty, without the resource properties as there are none.
+   */
+  private String getPropertyBySources(String key, String defaultValue) {
+    String value = System.getProperty(key);
+    if (value == null) {
+      value = configProperties.getProperty(key);
+    }
+    if (value == null) {
+      value = System.getenv(key);
+    }
+    return value == null ? defaultValue : value;
+  }
+}
@@ -0,0 +1,100 @@
+package com.ctrip.framework.apollo.benchmark;
+
+import com.ctrip.framework.apollo.configservice.util.DeferredResultRegistry;
+import com.ctrip.framework.apollo.configservice.wrapper.DeferredResultWrapper;
+import com.ctrip.framework.apollo.core.dto.ApolloConfigNotification;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * A long poll parking on and leaving the {@link DeferredResultRegistry} of a config service, which already has many
+ * long polls parked, each one watching a few of the popular watch keys. Run with as many threads as the request
+ * threads of a busy config service, alone and mixed with release messages notifying the long polls of a watch key the
+ * way NotificationControllerV2 does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(64)
+public class DeferredResultRegistryBenchmark {
+  private static final int WATCH_KEYS = 1000;
+  private static final int WATCH_KEYS_PER_POLL = 3;
+  private static final long LONG_POLLING_TIMEOUT = TimeUnit.SECONDS.toMillis(60);
+
+  @Param({"10000", "200000"})
+  private int parkedPolls;
+
+  private DeferredResultRegistry registry;
+  private String[] watchKeys;
+
+  @Setup
+  public void setUp() {
+    registry = new DeferredResultRegistry();
+    watchKeys = new String[WATCH_KEYS];
+    for (int i = 0; i < WATCH_KEYS; i++) {
+      watchKeys[i] = "someAppId" + i + "+default+application";
+    }
+    for (int i = 0; i < parkedPolls; i++) {
+      DeferredResultWrapper deferredResult = new DeferredResultWrapper(LONG_POLLING_TIMEOUT);
+      for (int j = 0; j < WATCH_KEYS_PER_POLL; j++) {
+        registry.register(watchKeys[(i + j) % WATCH_KEYS], deferredResult);
+      }
+    }
+  }
+
+  @Benchmark
+  public long registerAndUnregister() {
+    return park();
+  }
+
+  @Benchmark
+  @Group("parkAndNotify")
+  @GroupThreads(60)
+  public long parkWhileNotifying() {
+    return park();
+  }
+
+  @Benchmark
+  @Group("parkAndNotify")
+  @GroupThreads(4)
+  public int notifyWatchKey() {
+    String watchKey = watchKeys[ThreadLocalRandom.current().nextInt(WATCH_KEYS)];
+    ApolloConfigNotification notification = new ApolloConfigNotification("application", 1);
+    int notified = 0;
+    //iterate the live view while the other threads park and leave
+    for (DeferredResultWrapper deferredResult : registry.get(watchKey)) {
+      deferredResult.setResult(notification);
+      notified++;
+    }
+    return notified;
+  }
+
+  private long park() {
+    DeferredResultWrapper deferredResult = new DeferredResultWrapper(LONG_POLLING_TIMEOUT);
+    int first = ThreadLocalRandom.current().nextInt(WATCH_KEYS);
+    for (int j = 0; j < WATCH_KEYS_PER_POLL; j++) {
+      registry.register(watchKeys[(first + j) % WATCH_KEYS], deferredResult);
+    }
+    for (int j = 0; j < WATCH_KEYS_PER_POLL; j++) {
+      registry.unregister(watchKeys[(first + j) % WATCH_KEYS], deferredResult);
+    }
+    return registry.size();
+  }
+}
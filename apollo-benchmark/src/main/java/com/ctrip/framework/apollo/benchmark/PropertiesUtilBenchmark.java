@@ -0,0 +1,50 @@
+package com.ctrip.framework.apollo.benchmark;
+
+import com.ctrip.framework.apollo.core.utils.PropertiesUtil;
+import java.io.IOException;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link PropertiesUtil#toString(Properties)}, which renders the properties config files.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class PropertiesUtilBenchmark {
+
+  @Param({"1000", "50000"})
+  private int size;
+
+  private Properties properties;
+
+  @Setup
+  public void setUp() {
+    properties = new Properties();
+    for (int i = 0; i < size; i++) {
+      // with some characters to escape, like the real configs
+      properties.setProperty("some.key." + i, "http://some.host:8080/some/path?some=value&index=" + i);
+    }
+  }
+
+  @Benchmark
+  public String toPropertiesString() throws IOException {
+    return PropertiesUtil.toString(properties);
+  }
+}
@@ -0,0 +1,44 @@
+package com.ctrip.framework.apollo.benchmark;
+
+import com.ctrip.framework.apollo.enums.ConfigSourceType;
+import com.ctrip.framework.apollo.internals.ConfigRepository;
+import com.ctrip.framework.apollo.internals.RepositoryChangeListener;
+import java.util.Properties;
+
+/**
+ * A config repository of fixed properties, so that the benchmarks don't need a config service.
+ */
+class StaticConfigRepository implements ConfigRepository {
+  private final Properties properties;
+
+  StaticConfigRepository(Properties properties) {
+    this.properties = properties;
+  }
+
+  @Override
+  public Properties getConfig() {
+    Properties result = new Properties();
+    result.putAll(properties);
+    return result;
+  }
+
+  @Override
+  public void setUpstreamRepository(ConfigRepository upstreamConfigRepository) {
+    // do nothing
+  }
+
+  @Override
+  public void addChangeListener(RepositoryChangeListener listener) {
+    // do nothing
+  }
+
+  @Override
+  public void removeChangeListener(RepositoryChangeListener listener) {
+    // do nothing
+  }
+
+  @Override
+  public ConfigSourceType getSourceType() {
+    return ConfigSourceType.LOCAL;
+  }
+}
@@ -0,0 +1,60 @@
+package com.ctrip.framework.apollo.benchmark;
+
+import com.ctrip.framework.apollo.util.yaml.YamlParser;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link YamlParser#yamlToProperties(String)}, which is run whenever a yaml namespace is loaded or changed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class YamlParserBenchmark {
+  private static final int KEYS_PER_SECTION = 10;
+
+  @Param({"1000", "50000"})
+  private int size;
+
+  private YamlParser yamlParser;
+  private String yaml;
+
+  @Setup
+  public void setUp() {
+    yamlParser = new YamlParser();
+    // nested sections of keys, with a list in each section, e.g. section0.group0.key0 and section0.list[0]
+    StringBuilder builder = new StringBuilder();
+    for (int i = 0; i < size / KEYS_PER_SECTION; i++) {
+      builder.append("section").append(i).append(":\n");
+      builder.append("  group").append(i % 7).append(":\n");
+      for (int j = 0; j < KEYS_PER_SECTION - 2; j++) {
+        builder.append("    key").append(j).append(": value").append(i).append('.').append(j).append('\n');
+      }
+      builder.append("  list:\n");
+      builder.append("    - ").append(i).append('\n');
+      builder.append("    - ").append(i + 1).append('\n');
+    }
+    yaml = builder.toString();
+  }
+
+  @Benchmark
+  public Properties yamlToProperties() {
+    return yamlParser.yamlToProperties(yaml);
+  }
+}
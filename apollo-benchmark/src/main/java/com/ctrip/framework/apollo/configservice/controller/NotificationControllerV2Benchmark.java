@@ -0,0 +1,83 @@
+package com.ctrip.framework.apollo.configservice.controller;
+
+import com.ctrip.framework.apollo.biz.config.BizConfig;
+import com.ctrip.framework.apollo.biz.entity.ReleaseMessage;
+import com.ctrip.framework.apollo.biz.message.Topics;
+import com.ctrip.framework.apollo.configservice.util.DeferredResultRegistry;
+import com.ctrip.framework.apollo.configservice.wrapper.DeferredResultWrapper;
+import com.ctrip.framework.apollo.core.ConfigConsts;
+import com.google.common.base.Joiner;
+import com.google.gson.Gson;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The fan out of {@link NotificationControllerV2#handleMessage(ReleaseMessage, String)} to all the long polls parked
+ * on the released namespace, e.g. the application namespace of an app with many instances.
+ *
+ * <p>The long polls are parked again before each invocation, as a long poll is only notified once.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 20)
+@Fork(1)
+public class NotificationControllerV2Benchmark {
+  private static final long LONG_POLLING_TIMEOUT = TimeUnit.SECONDS.toMillis(60);
+  private static final String WATCH_KEY = Joiner.on(ConfigConsts.CLUSTER_NAMESPACE_SEPARATOR)
+      .join("someAppId", ConfigConsts.CLUSTER_NAME_DEFAULT, ConfigConsts.NAMESPACE_APPLICATION);
+
+  @Param({"10000", "200000"})
+  private int parkedPolls;
+
+  private NotificationControllerV2 controller;
+  private ReleaseMessage releaseMessage;
+  private long notificationId;
+
+  @Setup
+  public void setUp() {
+    BizConfig bizConfig = new BizConfig(null) {
+      @Override
+      public int releaseMessageNotificationBatch() {
+        // notify in the calling thread, to measure the fan out itself
+        return Integer.MAX_VALUE;
+      }
+
+      @Override
+      public int releaseMessageNotificationThreads() {
+        return 1;
+      }
+    };
+    controller = new NotificationControllerV2(null, null, null, null, new Gson(), bizConfig);
+    releaseMessage = new ReleaseMessage(WATCH_KEY);
+  }
+
+  @Setup(Level.Invocation)
+  public void parkPolls() {
+    DeferredResultRegistry registry = controller.getDeferredResults();
+    for (DeferredResultWrapper result : registry.get(WATCH_KEY)) {
+      registry.unregister(WATCH_KEY, result);
+    }
+    for (int i = 0; i < parkedPolls; i++) {
+      registry.register(WATCH_KEY, new DeferredResultWrapper(LONG_POLLING_TIMEOUT));
+    }
+    releaseMessage.setId(++notificationId);
+  }
+
+  @Benchmark
+  public void handleMessage() {
+    controller.handleMessage(releaseMessage, Topics.APOLLO_RELEASE_TOPIC);
+  }
+}
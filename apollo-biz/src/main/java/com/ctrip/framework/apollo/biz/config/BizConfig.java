@@ -24,11 +24,14 @@ public class BizConfig extends RefreshableConfig {
   private static final int DEFAULT_APPNAMESPACE_CACHE_SCAN_INTERVAL = 1; //1s
   private static final int DEFAULT_ACCESSKEY_CACHE_SCAN_INTERVAL = 1; //1s
   private static final int DEFAULT_ACCESSKEY_CACHE_REBUILD_INTERVAL = 60; //60s
-  private static final int DEFAULT_RELEASE_MESSAGE_CACHE_SCAN_INTERVAL = 1; //1s
   private static final int DEFAULT_RELEASE_MESSAGE_SCAN_INTERVAL_IN_MS = 1000; //1000ms
   private static final int DEFAULT_RELEASE_MESSAGE_NOTIFICATION_BATCH = 100;
   private static final int DEFAULT_RELEASE_MESSAGE_NOTIFICATION_BATCH_INTERVAL_IN_MILLI = 100;//100ms
+  private static final int DEFAULT_RELEASE_MESSAGE_NOTIFICATION_THREADS = 4;
+  private static final int DEFAULT_RELEASE_MESSAGE_PUSH_TIMEOUT_IN_MILLI = 1000;//1s
+  private static final int DEFAULT_RELEASE_MESSAGE_PUSH_FALLBACK_SCAN_INTERVAL_IN_MILLI = 10000;//10s
   private static final int DEFAULT_LONG_POLLING_TIMEOUT = 60; //60s
+  private static final int DEFAULT_CONFIG_SERVICE_CACHE_SNAPSHOT_INTERVAL = 300; //300s
 
   private static final Gson GSON = new Gson();
 
@@ -139,15 +142,6 @@ public class BizConfig extends RefreshableConfig {
     return TimeUnit.SECONDS;
   }
 
-  public int releaseMessageCacheScanInterval() {
-    int interval = getIntProperty("apollo.release-message-cache-scan.interval", DEFAULT_RELEASE_MESSAGE_CACHE_SCAN_INTERVAL);
-    return checkInt(interval, 1, Integer.MAX_VALUE, DEFAULT_RELEASE_MESSAGE_CACHE_SCAN_INTERVAL);
-  }
-
-  public TimeUnit releaseMessageCacheScanIntervalTimeUnit() {
-    return TimeUnit.SECONDS;
-  }
-
   public int releaseMessageScanIntervalInMilli() {
     int interval = getIntProperty("apollo.message-scan.interval", DEFAULT_RELEASE_MESSAGE_SCAN_INTERVAL_IN_MS);
     return checkInt(interval, 100, Integer.MAX_VALUE, DEFAULT_RELEASE_MESSAGE_SCAN_INTERVAL_IN_MS);
@@ -163,10 +157,76 @@ public class BizConfig extends RefreshableConfig {
     return checkInt(interval, 10, Integer.MAX_VALUE, DEFAULT_RELEASE_MESSAGE_NOTIFICATION_BATCH_INTERVAL_IN_MILLI);
   }
 
+  public int releaseMessageNotificationThreads() {
+    int threads = getIntProperty("apollo.release-message.notification.threads", DEFAULT_RELEASE_MESSAGE_NOTIFICATION_THREADS);
+    return checkInt(threads, 1, 64, DEFAULT_RELEASE_MESSAGE_NOTIFICATION_THREADS);
+  }
+
+  /**
+   * max notifications delivered per second by one config service node for large batches,
+   * defaults to the throughput of the batch & batch interval settings
+   */
+  public int releaseMessageNotificationRate() {
+    int defaultRate = (int) Math.max(1L,
+        releaseMessageNotificationBatch() * 1000L / releaseMessageNotificationBatchIntervalInMilli());
+    int rate = getIntProperty("apollo.release-message.notification.rate", defaultRate);
+    return checkInt(rate, 1, Integer.MAX_VALUE, defaultRate);
+  }
+
+  /**
+   * whether admin services push release messages to config services directly. Config services only accept the pushes
+   * if it is enabled in their startup configuration, and the pushes are authenticated with admin-service.access.tokens.
+   * A config service only scans the database less often while it is actually receiving pushes.
+   */
+  public boolean isReleaseMessagePushEnabled() {
+    return getBooleanProperty("apollo.release-message.push.enabled", false);
+  }
+
+  /**
+   * config service urls to push release messages to, discovered from the registry if not specified
+   */
+  public List<String> releaseMessagePushConfigServiceUrls() {
+    String configuration = getValue("apollo.release-message.push.config-service.urls", "");
+    if (Strings.isNullOrEmpty(configuration)) {
+      return Collections.emptyList();
+    }
+
+    return splitter.splitToList(configuration);
+  }
+
+  public int releaseMessagePushTimeoutInMilli() {
+    int timeout = getIntProperty("apollo.release-message.push.timeout", DEFAULT_RELEASE_MESSAGE_PUSH_TIMEOUT_IN_MILLI);
+    return checkInt(timeout, 10, Integer.MAX_VALUE, DEFAULT_RELEASE_MESSAGE_PUSH_TIMEOUT_IN_MILLI);
+  }
+
+  public int releaseMessagePushFallbackScanIntervalInMilli() {
+    int interval = getIntProperty("apollo.release-message.push.fallback-scan.interval",
+        DEFAULT_RELEASE_MESSAGE_PUSH_FALLBACK_SCAN_INTERVAL_IN_MILLI);
+    return checkInt(interval, 100, Integer.MAX_VALUE, DEFAULT_RELEASE_MESSAGE_PUSH_FALLBACK_SCAN_INTERVAL_IN_MILLI);
+  }
+
   public boolean isConfigServiceCacheEnabled() {
     return getBooleanProperty("config-service.cache.enabled", false);
   }
 
+  /**
+   * whether to persist the hot entries of the config cache, so that they are warm after restart, the snapshot is only
+   * written if config-service.cache.snapshot.path is set as well
+   */
+  public boolean isConfigServiceCacheSnapshotEnabled() {
+    return getBooleanProperty("config-service.cache.snapshot.enabled", false);
+  }
+
+  public String configServiceCacheSnapshotPath() {
+    return getValue("config-service.cache.snapshot.path");
+  }
+
+  public int configServiceCacheSnapshotIntervalInSecond() {
+    int interval = getIntProperty("config-service.cache.snapshot.interval",
+        DEFAULT_CONFIG_SERVICE_CACHE_SNAPSHOT_INTERVAL);
+    return checkInt(interval, 10, Integer.MAX_VALUE, DEFAULT_CONFIG_SERVICE_CACHE_SNAPSHOT_INTERVAL);
+  }
+
   int checkInt(int value, int min, int max, int defaultValue) {
     if (value >= min && value <= max) {
       return value;
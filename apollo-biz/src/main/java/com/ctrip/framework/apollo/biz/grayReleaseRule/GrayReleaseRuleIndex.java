@@ -0,0 +1,184 @@
+package com.ctrip.framework.apollo.biz.grayReleaseRule;
+
+import com.ctrip.framework.apollo.common.constants.NamespaceBranchStatus;
+import com.ctrip.framework.apollo.common.dto.GrayReleaseRuleItemDTO;
+import com.ctrip.framework.apollo.common.utils.IpSubnet;
+import com.ctrip.framework.apollo.core.ConfigConsts;
+import com.google.common.base.Joiner;
+import com.google.common.collect.Maps;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * An immutable index of the active gray release rules, rebuilt whenever the rules change.
+ *
+ * <p>The rules are looked up by hash of (config key, client app id) or (client app id, namespace), and then the client
+ * ip is matched by a hash lookup for the exact ips plus a binary trie for the subnets, so neither the rules nor the ips
+ * are scanned one by one.</p>
+ *
+ * @see GrayReleaseRuleItemDTO
+ */
+class GrayReleaseRuleIndex {
+  static final GrayReleaseRuleIndex EMPTY = new GrayReleaseRuleIndex(
+      Collections.<String, Map<String, ClientIpIndex>>emptyMap(), Collections.<String, ClientIpIndex>emptyMap());
+
+  private static final Joiner STRING_JOINER = Joiner.on(ConfigConsts.CLUSTER_NAMESPACE_SEPARATOR);
+
+  //store configAppId+configCluster+configNamespace -> clientAppId -> rules
+  private final Map<String, Map<String, ClientIpIndex>> rules;
+  //store clientAppId+clientNamespace -> rules
+  private final Map<String, ClientIpIndex> reversedRules;
+
+  private GrayReleaseRuleIndex(Map<String, Map<String, ClientIpIndex>> rules,
+      Map<String, ClientIpIndex> reversedRules) {
+    this.rules = rules;
+    this.reversedRules = reversedRules;
+  }
+
+  /**
+   * @param ruleCaches configAppId+configCluster+configNamespace -> rules
+   */
+  static GrayReleaseRuleIndex build(Map<String, Collection<GrayReleaseRuleCache>> ruleCaches) {
+    Map<String, Map<String, ClientIpIndex>> rules = Maps.newHashMap();
+    Map<String, ClientIpIndex> reversedRules = Maps.newHashMap();
+
+    for (Map.Entry<String, Collection<GrayReleaseRuleCache>> entry : ruleCaches.entrySet()) {
+      String configKey = normalize(entry.getKey());
+      for (GrayReleaseRuleCache ruleCache : entry.getValue()) {
+        if (ruleCache.getBranchStatus() != NamespaceBranchStatus.ACTIVE) {
+          continue;
+        }
+        for (GrayReleaseRuleItemDTO ruleItem : ruleCache.getRuleItems()) {
+          String clientAppId = normalize(ruleItem.getClientAppId());
+          ClientIpIndex ipIndex = rules.computeIfAbsent(configKey, key -> Maps.newHashMap())
+              .computeIfAbsent(clientAppId, key -> new ClientIpIndex());
+          ClientIpIndex reversedIpIndex = reversedRules.computeIfAbsent(
+              assembleReversedKey(clientAppId, normalize(ruleCache.getNamespaceName())), key -> new ClientIpIndex());
+          for (String clientIp : ruleItem.getClientIpList()) {
+            ipIndex.add(clientIp, ruleCache);
+            reversedIpIndex.add(clientIp, ruleCache);
+          }
+        }
+      }
+    }
+
+    return new GrayReleaseRuleIndex(rules, reversedRules);
+  }
+
+  /**
+   * @return the first matched rule by rule id, or null if none is matched
+   */
+  GrayReleaseRuleCache findRule(String configKey, String clientAppId, String clientIp) {
+    Map<String, ClientIpIndex> rulesOfConfig = rules.get(normalize(configKey));
+    if (rulesOfConfig == null) {
+      return null;
+    }
+    ClientIpIndex ipIndex = rulesOfConfig.get(normalize(clientAppId));
+    return ipIndex == null ? null : ipIndex.find(clientIp);
+  }
+
+  boolean hasRule(String clientAppId, String clientNamespaceName, String clientIp) {
+    ClientIpIndex ipIndex = reversedRules.get(assembleReversedKey(normalize(clientAppId),
+        normalize(clientNamespaceName)));
+    return ipIndex != null && ipIndex.find(clientIp) != null;
+  }
+
+  private static String assembleReversedKey(String clientAppId, String clientNamespaceName) {
+    return STRING_JOINER.join(clientAppId, clientNamespaceName);
+  }
+
+  private static String normalize(String key) {
+    // app ids and namespace names are case insensitive
+    return key == null ? null : key.toLowerCase(Locale.ROOT);
+  }
+
+  /**
+   * Matches the client ip against the wildcard, the exact ips and the subnets of the rules, keeping the rule with the
+   * smallest id when several ones match.
+   */
+  private static class ClientIpIndex {
+    private final Map<String, GrayReleaseRuleCache> exactIps = Maps.newHashMap();
+    private final TrieNode ipv4Subnets = new TrieNode();
+    private final TrieNode ipv6Subnets = new TrieNode();
+    private GrayReleaseRuleCache wildcard;
+
+    void add(String clientIp, GrayReleaseRuleCache rule) {
+      if (GrayReleaseRuleItemDTO.ALL_IP.equals(clientIp)) {
+        wildcard = min(wildcard, rule);
+        return;
+      }
+      IpSubnet subnet = IpSubnet.parse(clientIp);
+      if (subnet == null) {
+        exactIps.put(clientIp, min(exactIps.get(clientIp), rule));
+        return;
+      }
+      byte[] address = subnet.getAddress();
+      TrieNode node = address.length == 4 ? ipv4Subnets : ipv6Subnets;
+      for (int i = 0; i < subnet.getPrefixLength(); i++) {
+        node = node.child(IpSubnet.bitAt(address, i));
+      }
+      node.rule = min(node.rule, rule);
+    }
+
+    GrayReleaseRuleCache find(String clientIp) {
+      GrayReleaseRuleCache matched = min(wildcard, exactIps.get(clientIp));
+      if (clientIp == null) {
+        return matched;
+      }
+      // only parse the client ip when there are subnets
+      if (ipv4Subnets.isEmpty() && ipv6Subnets.isEmpty()) {
+        return matched;
+      }
+      byte[] address = IpSubnet.toBytes(clientIp);
+      if (address == null) {
+        return matched;
+      }
+      TrieNode node = address.length == 4 ? ipv4Subnets : ipv6Subnets;
+      int bits = address.length * 8;
+      for (int i = 0; node != null; i++) {
+        matched = min(matched, node.rule);
+        if (i == bits) {
+          break;
+        }
+        node = IpSubnet.bitAt(address, i) == 0 ? node.zero : node.one;
+      }
+      return matched;
+    }
+
+    private static GrayReleaseRuleCache min(GrayReleaseRuleCache some, GrayReleaseRuleCache another) {
+      if (some == null) {
+        return another;
+      }
+      if (another == null) {
+        return some;
+      }
+      return some.compareTo(another) <= 0 ? some : another;
+    }
+  }
+
+  private static class TrieNode {
+    private TrieNode zero;
+    private TrieNode one;
+    private GrayReleaseRuleCache rule;
+
+    TrieNode child(int bit) {
+      if (bit == 0) {
+        if (zero == null) {
+          zero = new TrieNode();
+        }
+        return zero;
+      }
+      if (one == null) {
+        one = new TrieNode();
+      }
+      return one;
+    }
+
+    boolean isEmpty() {
+      return zero == null && one == null && rule == null;
+    }
+  }
+}
@@ -4,6 +4,7 @@ import com.google.common.base.Joiner;
 import com.google.common.base.Splitter;
 import com.google.common.base.Strings;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.Multimaps;
 import com.google.common.collect.Ordering;
@@ -30,7 +31,9 @@ import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.util.CollectionUtils;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
@@ -55,8 +58,8 @@ public class GrayReleaseRulesHolder implements ReleaseMessageListener, Initializ
   private ScheduledExecutorService executorService;
   //store configAppId+configCluster+configNamespace -> GrayReleaseRuleCache map
   private Multimap<String, GrayReleaseRuleCache> grayReleaseRuleCache;
-  //store clientAppId+clientNamespace+ip -> ruleId map
-  private Multimap<String, Long> reversedGrayReleaseRuleCache;
+  //read-optimized index of the active rules, rebuilt after the rules are changed
+  private volatile GrayReleaseRuleIndex grayReleaseRuleIndex;
   //an auto increment version to indicate the age of rules
   private AtomicLong loadVersion;
 
@@ -64,8 +67,7 @@ public class GrayReleaseRulesHolder implements ReleaseMessageListener, Initializ
     loadVersion = new AtomicLong();
     grayReleaseRuleCache = Multimaps.synchronizedSetMultimap(
         TreeMultimap.create(String.CASE_INSENSITIVE_ORDER, Ordering.natural()));
-    reversedGrayReleaseRuleCache = Multimaps.synchronizedSetMultimap(
-        TreeMultimap.create(String.CASE_INSENSITIVE_ORDER, Ordering.natural()));
+    grayReleaseRuleIndex = GrayReleaseRuleIndex.EMPTY;
     executorService = Executors.newScheduledThreadPool(1, ApolloThreadFactory
         .create("GrayReleaseRulesHolder", true));
   }
@@ -101,6 +103,7 @@ public class GrayReleaseRulesHolder implements ReleaseMessageListener, Initializ
         .findByAppIdAndClusterNameAndNamespaceName(appId, cluster, namespace);
 
     mergeGrayReleaseRules(rules);
+    rebuildGrayReleaseRuleIndex();
   }
 
   private void periodicScanRules() {
@@ -109,6 +112,7 @@ public class GrayReleaseRulesHolder implements ReleaseMessageListener, Initializ
     try {
       loadVersion.incrementAndGet();
       scanGrayReleaseRules();
+      rebuildGrayReleaseRuleIndex();
       transaction.setStatus(Transaction.SUCCESS);
     } catch (Throwable ex) {
       transaction.setStatus(ex);
@@ -121,21 +125,8 @@ public class GrayReleaseRulesHolder implements ReleaseMessageListener, Initializ
   public Long findReleaseIdFromGrayReleaseRule(String clientAppId, String clientIp, String
       configAppId, String configCluster, String configNamespaceName) {
     String key = assembleGrayReleaseRuleKey(configAppId, configCluster, configNamespaceName);
-    if (!grayReleaseRuleCache.containsKey(key)) {
-      return null;
-    }
-    //create a new list to avoid ConcurrentModificationException
-    List<GrayReleaseRuleCache> rules = Lists.newArrayList(grayReleaseRuleCache.get(key));
-    for (GrayReleaseRuleCache rule : rules) {
-      //check branch status
-      if (rule.getBranchStatus() != NamespaceBranchStatus.ACTIVE) {
-        continue;
-      }
-      if (rule.matches(clientAppId, clientIp)) {
-        return rule.getReleaseId();
-      }
-    }
-    return null;
+    GrayReleaseRuleCache rule = grayReleaseRuleIndex.findRule(key, clientAppId, clientIp);
+    return rule == null ? null : rule.getReleaseId();
   }
 
   /**
@@ -144,10 +135,18 @@ public class GrayReleaseRulesHolder implements ReleaseMessageListener, Initializ
    * load gray releases. Because gray release rules actually apply to one more dimension - cluster.
    */
   public boolean hasGrayReleaseRule(String clientAppId, String clientIp, String namespaceName) {
-    return reversedGrayReleaseRuleCache.containsKey(assembleReversedGrayReleaseRuleKey(clientAppId,
-        namespaceName, clientIp)) || reversedGrayReleaseRuleCache.containsKey
-        (assembleReversedGrayReleaseRuleKey(clientAppId, namespaceName, GrayReleaseRuleItemDTO
-            .ALL_IP));
+    return grayReleaseRuleIndex.hasRule(clientAppId, namespaceName, clientIp);
+  }
+
+  private synchronized void rebuildGrayReleaseRuleIndex() {
+    Map<String, Collection<GrayReleaseRuleCache>> ruleCaches;
+    synchronized (grayReleaseRuleCache) {
+      ruleCaches = Maps.newHashMap();
+      for (Map.Entry<String, Collection<GrayReleaseRuleCache>> entry : grayReleaseRuleCache.asMap().entrySet()) {
+        ruleCaches.put(entry.getKey(), Lists.newArrayList(entry.getValue()));
+      }
+    }
+    grayReleaseRuleIndex = GrayReleaseRuleIndex.build(ruleCaches);
   }
 
   private void scanGrayReleaseRules() {
@@ -213,25 +212,11 @@ public class GrayReleaseRulesHolder implements ReleaseMessageListener, Initializ
   }
 
   private void addCache(String key, GrayReleaseRuleCache ruleCache) {
-    if (ruleCache.getBranchStatus() == NamespaceBranchStatus.ACTIVE) {
-      for (GrayReleaseRuleItemDTO ruleItemDTO : ruleCache.getRuleItems()) {
-        for (String clientIp : ruleItemDTO.getClientIpList()) {
-          reversedGrayReleaseRuleCache.put(assembleReversedGrayReleaseRuleKey(ruleItemDTO
-              .getClientAppId(), ruleCache.getNamespaceName(), clientIp), ruleCache.getRuleId());
-        }
-      }
-    }
     grayReleaseRuleCache.put(key, ruleCache);
   }
 
   private void removeCache(String key, GrayReleaseRuleCache ruleCache) {
     grayReleaseRuleCache.remove(key, ruleCache);
-    for (GrayReleaseRuleItemDTO ruleItemDTO : ruleCache.getRuleItems()) {
-      for (String clientIp : ruleItemDTO.getClientIpList()) {
-        reversedGrayReleaseRuleCache.remove(assembleReversedGrayReleaseRuleKey(ruleItemDTO
-            .getClientAppId(), ruleCache.getNamespaceName(), clientIp), ruleCache.getRuleId());
-      }
-    }
   }
 
   private GrayReleaseRuleCache transformRuleToRuleCache(GrayReleaseRule grayReleaseRule) {
@@ -268,9 +253,4 @@ public class GrayReleaseRulesHolder implements ReleaseMessageListener, Initializ
     return STRING_JOINER.join(configAppId, configCluster, configNamespaceName);
   }
 
-  private String assembleReversedGrayReleaseRuleKey(String clientAppId, String
-      clientNamespaceName, String clientIp) {
-    return STRING_JOINER.join(clientAppId, clientNamespaceName, clientIp);
-  }
-
 }
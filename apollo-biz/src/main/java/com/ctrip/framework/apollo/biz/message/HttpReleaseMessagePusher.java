@@ -0,0 +1,127 @@
+package com.ctrip.framework.apollo.biz.message;
+
+import com.ctrip.framework.apollo.biz.config.BizConfig;
+import com.ctrip.framework.apollo.biz.entity.ReleaseMessage;
+import com.ctrip.framework.apollo.core.ServiceNameConsts;
+import com.ctrip.framework.apollo.core.utils.ApolloThreadFactory;
+import com.ctrip.framework.apollo.tracer.Tracer;
+import com.ctrip.framework.apollo.tracer.spi.Transaction;
+import com.google.common.base.Splitter;
+import com.google.common.base.Strings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Pushes the ids of release messages to every config service instance over http, the config services then load the
+ * messages from database. The pushes are authenticated with the first of the admin service access tokens, so they are
+ * rejected if no token is configured.
+ */
+@Component
+public class HttpReleaseMessagePusher implements ReleaseMessagePusher {
+  private static final Logger logger = LoggerFactory.getLogger(HttpReleaseMessagePusher.class);
+  private static final Splitter ACCESS_TOKEN_SPLITTER = Splitter.on(",").omitEmptyStrings().trimResults();
+  private static final String PUSH_PATH = "release-messages?id={id}";
+  private static final int MAX_PENDING_PUSHES = 1000;
+
+  private final BizConfig bizConfig;
+  private final ObjectProvider<DiscoveryClient> discoveryClientProvider;
+  private final ExecutorService pushExecutorService;
+  private volatile RestTemplate restTemplate;
+  private volatile int restTemplateTimeout;
+
+  public HttpReleaseMessagePusher(final BizConfig bizConfig,
+      final ObjectProvider<DiscoveryClient> discoveryClientProvider) {
+    this.bizConfig = bizConfig;
+    this.discoveryClientProvider = discoveryClientProvider;
+    //single thread to keep the messages in order, so that config services don't see false gaps
+    this.pushExecutorService = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+        new LinkedBlockingQueue<>(MAX_PENDING_PUSHES), ApolloThreadFactory.create("HttpReleaseMessagePusher", true),
+        new ThreadPoolExecutor.DiscardPolicy());
+  }
+
+  @Override
+  public void push(ReleaseMessage message) {
+    //config services reject pushes without access token, so the messages are left to the database scanning
+    if (!bizConfig.isReleaseMessagePushEnabled() || Strings.isNullOrEmpty(bizConfig.getAdminServiceAccessTokens())) {
+      return;
+    }
+    //if the queue is full, the message is discarded and left to the database scanning
+    pushExecutorService.execute(() -> doPush(message));
+  }
+
+  private void doPush(ReleaseMessage message) {
+    HttpEntity<Void> entity = new HttpEntity<>(assembleHeaders());
+    for (String configServiceUrl : findConfigServiceUrls()) {
+      Transaction transaction = Tracer.newTransaction("Apollo.ReleaseMessagePush", configServiceUrl);
+      try {
+        getRestTemplate().exchange(normalize(configServiceUrl) + PUSH_PATH, HttpMethod.POST, entity, Void.class,
+            message.getId());
+        transaction.setStatus(Transaction.SUCCESS);
+      } catch (Throwable ex) {
+        transaction.setStatus(ex);
+        logger.warn("Push release message {} to {} failed, will be picked up by database scanning", message,
+            configServiceUrl, ex);
+      } finally {
+        transaction.complete();
+      }
+    }
+  }
+
+  private List<String> findConfigServiceUrls() {
+    List<String> urls = bizConfig.releaseMessagePushConfigServiceUrls();
+    if (!urls.isEmpty()) {
+      return urls;
+    }
+    DiscoveryClient discoveryClient = discoveryClientProvider.getIfAvailable();
+    if (discoveryClient == null) {
+      return Collections.emptyList();
+    }
+    return discoveryClient.getInstances(ServiceNameConsts.APOLLO_CONFIGSERVICE).stream()
+        .map(ServiceInstance::getUri).map(String::valueOf).collect(Collectors.toList());
+  }
+
+  private HttpHeaders assembleHeaders() {
+    HttpHeaders headers = new HttpHeaders();
+    String accessTokens = bizConfig.getAdminServiceAccessTokens();
+    if (!Strings.isNullOrEmpty(accessTokens)) {
+      List<String> tokens = ACCESS_TOKEN_SPLITTER.splitToList(accessTokens);
+      if (!tokens.isEmpty()) {
+        headers.set(HttpHeaders.AUTHORIZATION, tokens.get(0));
+      }
+    }
+    return headers;
+  }
+
+  private RestTemplate getRestTemplate() {
+    int timeout = bizConfig.releaseMessagePushTimeoutInMilli();
+    if (restTemplate == null || restTemplateTimeout != timeout) {
+      SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+      requestFactory.setConnectTimeout(timeout);
+      requestFactory.setReadTimeout(timeout);
+      restTemplate = new RestTemplate(requestFactory);
+      restTemplateTimeout = timeout;
+    }
+    return restTemplate;
+  }
+
+  private static String normalize(String url) {
+    return url.endsWith("/") ? url : url + "/";
+  }
+}
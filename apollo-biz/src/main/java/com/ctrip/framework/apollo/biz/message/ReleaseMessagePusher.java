@@ -0,0 +1,15 @@
+package com.ctrip.framework.apollo.biz.message;
+
+import com.ctrip.framework.apollo.biz.entity.ReleaseMessage;
+
+/**
+ * Pushes persisted release messages to config services, so they don't have to wait for the next database scan
+ */
+public interface ReleaseMessagePusher {
+
+  /**
+   * Push the release message, it should not block the caller and failures must not be propagated since the
+   * database scanning will pick the message up anyway
+   */
+  void push(ReleaseMessage message);
+}
@@ -4,6 +4,7 @@ import java.util.List;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -20,6 +21,9 @@ import com.ctrip.framework.apollo.tracer.spi.Transaction;
 import com.google.common.collect.Lists;
 
 /**
+ * The single tailer of the ReleaseMessage table in a config service, it owns the cursor and dispatches the release
+ * messages to all listeners strictly in id order.
+ *
  * @author Jason Song(song_s@ctrip.com)
  */
 public class ReleaseMessageScanner implements InitializingBean {
@@ -31,7 +35,12 @@ public class ReleaseMessageScanner implements InitializingBean {
   private int databaseScanInterval;
   private List<ReleaseMessageListener> listeners;
   private ScheduledExecutorService executorService;
-  private long maxIdScanned;
+  private final AtomicBoolean pushedScanPending = new AtomicBoolean();
+  private volatile long maxIdScanned;
+  private volatile long lastScanTimeInMillis;
+  private volatile long lastPushTimeInMillis;
+  private volatile long lagInMillis;
+  private Long startMessageId;
 
   public ReleaseMessageScanner() {
     listeners = Lists.newCopyOnWriteArrayList();
@@ -42,22 +51,85 @@ public class ReleaseMessageScanner implements InitializingBean {
   @Override
   public void afterPropertiesSet() throws Exception {
     databaseScanInterval = bizConfig.releaseMessageScanIntervalInMilli();
-    maxIdScanned = loadLargestMessageId();
+    maxIdScanned = startMessageId != null ? startMessageId : loadLargestMessageId();
     executorService.scheduleWithFixedDelay(() -> {
-      Transaction transaction = Tracer.newTransaction("Apollo.ReleaseMessageScanner", "scanMessage");
-      try {
-        scanMessages();
-        transaction.setStatus(Transaction.SUCCESS);
-      } catch (Throwable ex) {
-        transaction.setStatus(ex);
-        logger.error("Scan and send message failed", ex);
-      } finally {
-        transaction.complete();
+      if (isFallbackScanNotDue()) {
+        return;
       }
+      scanMessagesWithTransaction();
     }, databaseScanInterval, databaseScanInterval, TimeUnit.MILLISECONDS);
 
   }
 
+  /**
+   * Handle a release message id pushed by admin service. The push is only a hint that there are new messages, the
+   * database is scanned right away on the scanner thread, so listeners only see the messages saved in database and
+   * the cursor is only advanced by the scanning.
+   * @param messageId the id of the pushed release message
+   */
+  public void onMessagePushed(long messageId) {
+    lastPushTimeInMillis = System.currentTimeMillis();
+    if (messageId <= maxIdScanned) {
+      return;
+    }
+    Tracer.logEvent("Apollo.ReleaseMessageScanner.Pushed", String.valueOf(messageId));
+    //pushes arriving before the scan starts are merged into one scan
+    if (pushedScanPending.compareAndSet(false, true)) {
+      executorService.execute(() -> {
+        pushedScanPending.set(false);
+        scanMessagesWithTransaction();
+      });
+    }
+  }
+
+  /**
+   * While release messages are being pushed to this config service, the database is only scanned every fallback
+   * interval to fill the gaps. The pushes received are the only signal, as the admin services may not push at all,
+   * e.g. without the access tokens or with push disabled on their side, so the normal interval is resumed as soon as
+   * no push is received within the fallback interval.
+   */
+  private boolean isFallbackScanNotDue() {
+    long now = System.currentTimeMillis();
+    int fallbackScanInterval = bizConfig.releaseMessagePushFallbackScanIntervalInMilli();
+    return now - lastPushTimeInMillis < fallbackScanInterval && now - lastScanTimeInMillis < fallbackScanInterval;
+  }
+
+  private void scanMessagesWithTransaction() {
+    Transaction transaction = Tracer.newTransaction("Apollo.ReleaseMessageScanner", "scanMessage");
+    try {
+      scanMessages();
+      transaction.setStatus(Transaction.SUCCESS);
+    } catch (Throwable ex) {
+      transaction.setStatus(ex);
+      logger.error("Scan and send message failed", ex);
+    } finally {
+      transaction.complete();
+    }
+  }
+
+  /**
+   * Start tailing after the given message id instead of the largest one in database, so that a component which
+   * loaded the history on its own doesn't miss the messages in between
+   * @param startMessageId the last message id already handled
+   */
+  public void setStartMessageId(long startMessageId) {
+    this.startMessageId = startMessageId;
+  }
+
+  /**
+   * @return the id of the last message dispatched to listeners
+   */
+  public long getMaxIdScanned() {
+    return maxIdScanned;
+  }
+
+  /**
+   * @return the delay between the last dispatched message being saved and it being dispatched to listeners
+   */
+  public long getLagInMillis() {
+    return lagInMillis;
+  }
+
   /**
    * add message listeners for release message
    * @param listener
@@ -69,13 +141,15 @@ public class ReleaseMessageScanner implements InitializingBean {
   }
 
   /**
-   * Scan messages, continue scanning until there is no more messages
+   * Scan messages, continue scanning until there is no more messages. Only called on the single scanner thread, so
+   * the messages are dispatched in id order.
    */
   private void scanMessages() {
     boolean hasMoreMessages = true;
     while (hasMoreMessages && !Thread.currentThread().isInterrupted()) {
       hasMoreMessages = scanAndSendMessages();
     }
+    lastScanTimeInMillis = System.currentTimeMillis();
   }
 
   /**
@@ -111,6 +185,9 @@ public class ReleaseMessageScanner implements InitializingBean {
    */
   private void fireMessageScanned(List<ReleaseMessage> messages) {
     for (ReleaseMessage message : messages) {
+      if (message.getDataChangeLastModifiedTime() != null) {
+        lagInMillis = Math.max(0, System.currentTimeMillis() - message.getDataChangeLastModifiedTime().getTime());
+      }
       for (ReleaseMessageListener listener : listeners) {
         try {
           listener.handleMessage(message, Topics.APOLLO_RELEASE_TOPIC);
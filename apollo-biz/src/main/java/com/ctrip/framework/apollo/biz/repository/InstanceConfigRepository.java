@@ -9,6 +9,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.PagingAndSortingRepository;
 import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 import java.util.Set;
@@ -18,6 +19,9 @@ public interface InstanceConfigRepository extends PagingAndSortingRepository<Ins
   InstanceConfig findByInstanceIdAndConfigAppIdAndConfigNamespaceName(long instanceId, String
       configAppId, String configNamespaceName);
 
+  List<InstanceConfig> findByConfigAppIdAndConfigNamespaceNameAndInstanceIdIn(String configAppId,
+      String configNamespaceName, Collection<Long> instanceIds);
+
   Page<InstanceConfig> findByReleaseKeyAndDataChangeLastModifiedTimeAfter(String releaseKey, Date
       validDate, Pageable pageable);
 
@@ -31,6 +35,16 @@ public interface InstanceConfigRepository extends PagingAndSortingRepository<Ins
   @Query("delete from InstanceConfig  where ConfigAppId=?1 and ConfigClusterName=?2 and ConfigNamespaceName = ?3")
   int batchDelete(String appId, String clusterName, String namespaceName);
 
+  @Modifying(clearAutomatically = true)
+  @Query("update InstanceConfig set configClusterName = ?1, releaseKey = ?2, releaseDeliveryTime = ?3, "
+      + "dataChangeLastModifiedTime = ?4 where id in ?5")
+  int batchUpdateReleaseKey(String configClusterName, String releaseKey, Date releaseDeliveryTime,
+      Date lastModifiedTime, Collection<Long> ids);
+
+  @Modifying(clearAutomatically = true)
+  @Query("update InstanceConfig set dataChangeLastModifiedTime = ?1 where id in ?2")
+  int batchUpdateLastModifiedTime(Date lastModifiedTime, Collection<Long> ids);
+
   @Query(
       value = "select b.Id from `InstanceConfig` a inner join `Instance` b on b.Id =" +
           " a.`InstanceId` where a.`ConfigAppId` = :configAppId and a.`ConfigClusterName` = " +
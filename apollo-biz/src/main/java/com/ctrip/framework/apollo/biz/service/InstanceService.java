@@ -16,6 +16,7 @@ import org.springframework.util.CollectionUtils;
 
 import java.math.BigInteger;
 import java.util.Calendar;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
 import java.util.List;
@@ -61,6 +62,15 @@ public class InstanceService {
             instanceId, configAppId, configNamespaceName);
   }
 
+  public List<InstanceConfig> findInstanceConfigs(String configAppId, String configNamespaceName,
+      Collection<Long> instanceIds) {
+    if (CollectionUtils.isEmpty(instanceIds)) {
+      return Collections.emptyList();
+    }
+    return instanceConfigRepository.findByConfigAppIdAndConfigNamespaceNameAndInstanceIdIn(configAppId,
+        configNamespaceName, instanceIds);
+  }
+
   public Page<InstanceConfig> findActiveInstanceConfigsByReleaseKey(String releaseKey, Pageable
       pageable) {
     return instanceConfigRepository.findByReleaseKeyAndDataChangeLastModifiedTimeAfter(releaseKey,
@@ -169,6 +179,35 @@ public class InstanceService {
     return instanceConfigRepository.save(existedInstanceConfig);
   }
 
+  /**
+   * Create the instance configs in one transaction, if any of them already exists, none is created
+   */
+  @Transactional
+  public List<InstanceConfig> batchCreateInstanceConfigs(List<InstanceConfig> instanceConfigs) {
+    for (InstanceConfig instanceConfig : instanceConfigs) {
+      instanceConfig.setId(0); //protection
+    }
+    return Lists.newArrayList(instanceConfigRepository.saveAll(instanceConfigs));
+  }
+
+  /**
+   * Update the release of the instance configs with one statement, the last modified time is updated as well
+   */
+  @Transactional
+  public int batchUpdateInstanceConfigReleaseKey(String configClusterName, String releaseKey,
+      Date releaseDeliveryTime, Collection<Long> instanceConfigIds) {
+    return instanceConfigRepository.batchUpdateReleaseKey(configClusterName, releaseKey, releaseDeliveryTime,
+        new Date(), instanceConfigIds);
+  }
+
+  /**
+   * Update the last modified time of the instance configs with one statement, so that they are still regarded active
+   */
+  @Transactional
+  public int batchUpdateInstanceConfigLastModifiedTime(Collection<Long> instanceConfigIds) {
+    return instanceConfigRepository.batchUpdateLastModifiedTime(new Date(), instanceConfigIds);
+  }
+
   @Transactional
   public int batchDeleteInstanceConfig(String configAppId, String configClusterName, String configNamespaceName){
     return instanceConfigRepository.batchDelete(configAppId, configClusterName, configNamespaceName);
@@ -13,9 +13,20 @@ import org.junit.Test;
 import org.mockito.Mock;
 import org.springframework.test.util.ReflectionTestUtils;
 
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
+import static org.awaitility.Awaitility.await;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
@@ -78,6 +89,140 @@ public class ReleaseMessageScannerTest extends AbstractUnitTest {
 
   }
 
+  @Test
+  public void testPushedMessageNotifiesListenersOfAllNodes() throws Exception {
+    ReleaseMessageRepository pushedMessageRepository = mock(ReleaseMessageRepository.class);
+    int nodes = 3;
+    List<ReleaseMessageScanner> scanners = Lists.newArrayList();
+    for (int i = 0; i < nodes; i++) {
+      scanners.add(assembleReleaseMessageScanner(pushedMessageRepository));
+    }
+    List<SettableFuture<Thread>> listenerFutures = Lists.newArrayList();
+    for (ReleaseMessageScanner scanner : scanners) {
+      SettableFuture<Thread> listenerFuture = SettableFuture.create();
+      scanner.addMessageListener((message, channel) -> listenerFuture.set(Thread.currentThread()));
+      listenerFutures.add(listenerFuture);
+    }
+
+    String someMessage = "someMessage";
+    long someId = 1;
+    ReleaseMessage someReleaseMessage = assembleReleaseMessage(someId, someMessage);
+    when(releaseMessageRepository.save(any(ReleaseMessage.class))).thenReturn(someReleaseMessage);
+    when(pushedMessageRepository.findFirst500ByIdGreaterThanOrderByIdAsc(0L)).thenReturn(
+        Lists.newArrayList(someReleaseMessage));
+
+    ReleaseMessagePusher inProcessPusher =
+        message -> scanners.forEach(scanner -> scanner.onMessagePushed(message.getId()));
+    DatabaseMessageSender messageSender = new DatabaseMessageSender(releaseMessageRepository, inProcessPusher);
+
+    messageSender.sendMessage(someMessage, Topics.APOLLO_RELEASE_TOPIC);
+
+    for (int i = 0; i < nodes; i++) {
+      ReleaseMessageScanner scanner = scanners.get(i);
+      //the listeners are notified by the scanner thread, not the thread handling the push
+      assertNotSame(Thread.currentThread(), listenerFutures.get(i).get(5000, TimeUnit.MILLISECONDS));
+      await().atMost(5000, TimeUnit.MILLISECONDS).untilAsserted(() -> assertEquals(someId, scanner.getMaxIdScanned()));
+    }
+  }
+
+  @Test
+  public void testPushedMessageIsLoadedFromDatabase() throws Exception {
+    ReleaseMessageRepository pushedMessageRepository = mock(ReleaseMessageRepository.class);
+    ReleaseMessageScanner scanner = assembleReleaseMessageScanner(pushedMessageRepository);
+    List<ReleaseMessage> received = Lists.newCopyOnWriteArrayList();
+    scanner.addMessageListener((message, channel) -> received.add(message));
+
+    ReleaseMessage someReleaseMessage = assembleReleaseMessage(1, "someMessage");
+    ReleaseMessage anotherReleaseMessage = assembleReleaseMessage(2, "anotherMessage");
+    ReleaseMessage yetAnotherReleaseMessage = assembleReleaseMessage(3, "yetAnotherMessage");
+
+    when(pushedMessageRepository.findFirst500ByIdGreaterThanOrderByIdAsc(0L)).thenReturn(
+        Lists.newArrayList(someReleaseMessage, anotherReleaseMessage, yetAnotherReleaseMessage));
+
+    scanner.onMessagePushed(yetAnotherReleaseMessage.getId());
+
+    await().atMost(5000, TimeUnit.MILLISECONDS).untilAsserted(() -> assertEquals(3, scanner.getMaxIdScanned()));
+
+    assertEquals(3, received.size());
+    assertEquals(1, received.get(0).getId());
+    assertEquals(2, received.get(1).getId());
+    assertEquals(3, received.get(2).getId());
+
+    //pushes of messages already scanned are ignored
+    scanner.onMessagePushed(someReleaseMessage.getId());
+    verify(pushedMessageRepository, times(1)).findFirst500ByIdGreaterThanOrderByIdAsc(anyLong());
+  }
+
+  @Test
+  public void testPushedMessageIdNotInDatabase() throws Exception {
+    ReleaseMessageRepository pushedMessageRepository = mock(ReleaseMessageRepository.class);
+    ReleaseMessageScanner scanner = assembleReleaseMessageScanner(pushedMessageRepository);
+    List<ReleaseMessage> received = Lists.newCopyOnWriteArrayList();
+    scanner.addMessageListener((message, channel) -> received.add(message));
+
+    long someId = 100;
+    when(pushedMessageRepository.findFirst500ByIdGreaterThanOrderByIdAsc(0L)).thenReturn(Collections.emptyList());
+
+    scanner.onMessagePushed(someId);
+
+    await().atMost(5000, TimeUnit.MILLISECONDS).untilAsserted(
+        () -> verify(pushedMessageRepository).findFirst500ByIdGreaterThanOrderByIdAsc(0L));
+    //the cursor is never advanced by the pushed id
+    assertEquals(0, scanner.getMaxIdScanned());
+    assertTrue(received.isEmpty());
+  }
+
+  @Test
+  public void testScanIntervalBacksOffOnlyWhilePushed() throws Exception {
+    when(bizConfig.releaseMessagePushFallbackScanIntervalInMilli()).thenReturn(500);
+
+    //no push received, so the database is scanned every scan interval
+    assertEquals(false, (boolean) ReflectionTestUtils.invokeMethod(releaseMessageScanner, "isFallbackScanNotDue"));
+
+    ReflectionTestUtils.setField(releaseMessageScanner, "lastScanTimeInMillis", System.currentTimeMillis());
+    releaseMessageScanner.onMessagePushed(0);
+    assertEquals(true, (boolean) ReflectionTestUtils.invokeMethod(releaseMessageScanner, "isFallbackScanNotDue"));
+
+    //no more pushes within the fallback interval
+    ReflectionTestUtils.setField(releaseMessageScanner, "lastPushTimeInMillis", System.currentTimeMillis() - 600);
+    assertEquals(false, (boolean) ReflectionTestUtils.invokeMethod(releaseMessageScanner, "isFallbackScanNotDue"));
+  }
+
+  @Test
+  public void testScanFromStartMessageId() throws Exception {
+    long someStartMessageId = 5;
+    long someId = someStartMessageId + 1;
+    ReleaseMessage someReleaseMessage = assembleReleaseMessage(someId, "someMessage");
+    someReleaseMessage.setDataChangeLastModifiedTime(new Date());
+
+    when(releaseMessageRepository.findFirst500ByIdGreaterThanOrderByIdAsc(someStartMessageId)).thenReturn(
+        Lists.newArrayList(someReleaseMessage));
+
+    ReleaseMessageScanner scanner = new ReleaseMessageScanner();
+    scanner.setStartMessageId(someStartMessageId);
+    SettableFuture<ReleaseMessage> someListenerFuture = SettableFuture.create();
+    scanner.addMessageListener((message, channel) -> someListenerFuture.set(message));
+    ReflectionTestUtils.setField(scanner, "releaseMessageRepository", releaseMessageRepository);
+    ReflectionTestUtils.setField(scanner, "bizConfig", bizConfig);
+    scanner.afterPropertiesSet();
+
+    assertEquals(someId, someListenerFuture.get(5000, TimeUnit.MILLISECONDS).getId());
+    await().atMost(5000, TimeUnit.MILLISECONDS).untilAsserted(() -> assertEquals(someId, scanner.getMaxIdScanned()));
+    assertTrue(scanner.getLagInMillis() >= 0);
+  }
+
+  /**
+   * a scanner that doesn't scan the database periodically within the test, so only the pushes trigger the scanning
+   */
+  private ReleaseMessageScanner assembleReleaseMessageScanner(ReleaseMessageRepository repository) throws Exception {
+    when(bizConfig.releaseMessageScanIntervalInMilli()).thenReturn((int) TimeUnit.HOURS.toMillis(1));
+    ReleaseMessageScanner scanner = new ReleaseMessageScanner();
+    ReflectionTestUtils.setField(scanner, "releaseMessageRepository", repository);
+    ReflectionTestUtils.setField(scanner, "bizConfig", bizConfig);
+    scanner.afterPropertiesSet();
+    return scanner;
+  }
+
   private ReleaseMessage assembleReleaseMessage(long id, String message) {
     ReleaseMessage releaseMessage = new ReleaseMessage();
     releaseMessage.setId(id);
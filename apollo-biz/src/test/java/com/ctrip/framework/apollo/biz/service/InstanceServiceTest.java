@@ -110,6 +110,47 @@ public class InstanceServiceTest extends AbstractIntegrationTest {
     assertEquals(anotherReleaseKey, updated.getReleaseKey());
   }
 
+  @Test
+  @Rollback
+  public void testBatchCreateAndUpdateInstanceConfigs() throws Exception {
+    long someInstanceId = 1;
+    long anotherInstanceId = 2;
+    String someConfigAppId = "someConfigAppId";
+    String someConfigClusterName = "someConfigClusterName";
+    String anotherConfigClusterName = "anotherConfigClusterName";
+    String someConfigNamespaceName = "someConfigNamespaceName";
+    String someReleaseKey = "someReleaseKey";
+    String anotherReleaseKey = "anotherReleaseKey";
+    Date someReleaseDeliveryTime = new Date();
+
+    List<InstanceConfig> created = instanceService.batchCreateInstanceConfigs(Lists.newArrayList(
+        assembleInstanceConfig(someInstanceId, someConfigAppId, someConfigClusterName,
+            someConfigNamespaceName, someReleaseKey),
+        assembleInstanceConfig(anotherInstanceId, someConfigAppId, someConfigClusterName,
+            someConfigNamespaceName, someReleaseKey)));
+
+    List<InstanceConfig> instanceConfigs = instanceService.findInstanceConfigs(someConfigAppId,
+        someConfigNamespaceName, Lists.newArrayList(someInstanceId, anotherInstanceId));
+
+    assertEquals(2, created.size());
+    assertEquals(2, instanceConfigs.size());
+
+    int updated = instanceService.batchUpdateInstanceConfigReleaseKey(anotherConfigClusterName,
+        anotherReleaseKey, someReleaseDeliveryTime, Lists.newArrayList(created.get(0).getId()));
+
+    InstanceConfig someInstanceConfig = instanceService.findInstanceConfig(someInstanceId,
+        someConfigAppId, someConfigNamespaceName);
+    InstanceConfig anotherInstanceConfig = instanceService.findInstanceConfig(anotherInstanceId,
+        someConfigAppId, someConfigNamespaceName);
+
+    assertEquals(1, updated);
+    assertEquals(anotherConfigClusterName, someInstanceConfig.getConfigClusterName());
+    assertEquals(anotherReleaseKey, someInstanceConfig.getReleaseKey());
+    assertEquals(someReleaseKey, anotherInstanceConfig.getReleaseKey());
+    assertEquals(1, instanceService.batchUpdateInstanceConfigLastModifiedTime(
+        Lists.newArrayList(anotherInstanceConfig.getId())));
+  }
+
   @Test
   @Rollback
   public void testFindActiveInstanceConfigs() throws Exception {
@@ -0,0 +1,61 @@
+package com.ctrip.framework.apollo;
+
+import com.ctrip.framework.apollo.model.BooleanProperty;
+import com.ctrip.framework.apollo.model.IntProperty;
+import com.ctrip.framework.apollo.model.LongProperty;
+
+/**
+ * Config that binds properties to handles, whose values are kept up to date with the config changes, so that reading
+ * them involves no lookup or parsing. The configs created by the default
+ * {@link com.ctrip.framework.apollo.spi.ConfigFactory} implement it.
+ *
+ * @since 1.8.0
+ */
+public interface BindableConfig extends Config {
+
+  /**
+   * Bind an integer property, whose value is updated as soon as the property is changed.
+   *
+   * @param key          the property name
+   * @param defaultValue the default value when key is not found or any error occurred
+   * @return the bound property, the same one is returned for the same key and default value
+   *
+   * @since 1.8.0
+   */
+  IntProperty bindIntProperty(String key, int defaultValue);
+
+  /**
+   * Bind a long property, whose value is updated as soon as the property is changed.
+   *
+   * @param key          the property name
+   * @param defaultValue the default value when key is not found or any error occurred
+   * @return the bound property, the same one is returned for the same key and default value
+   *
+   * @since 1.8.0
+   */
+  LongProperty bindLongProperty(String key, long defaultValue);
+
+  /**
+   * Bind a boolean property, whose value is updated as soon as the property is changed.
+   *
+   * @param key          the property name
+   * @param defaultValue the default value when key is not found or any error occurred
+   * @return the bound property, the same one is returned for the same key and default value
+   *
+   * @since 1.8.0
+   */
+  BooleanProperty bindBooleanProperty(String key, boolean defaultValue);
+
+  /**
+   * Bind a duration property, whose value is updated as soon as the property is changed.
+   *
+   * @param key          the property name
+   * @param defaultValue the default value when key is not found or any error occurred
+   * @return the bound property with the duration in milliseconds, the same one is returned for the same key and
+   * default value
+   * @see #getDurationProperty(String, long) for the duration format
+   *
+   * @since 1.8.0
+   */
+  LongProperty bindDurationProperty(String key, long defaultValue);
+}
@@ -6,6 +6,8 @@ import com.ctrip.framework.apollo.core.enums.ConfigFileFormat;
 import com.ctrip.framework.apollo.internals.ConfigManager;
 import com.ctrip.framework.apollo.spi.ConfigFactory;
 import com.ctrip.framework.apollo.spi.ConfigRegistry;
+import java.util.Collection;
+import java.util.Map;
 
 /**
  * Entry point for client config use
@@ -61,6 +63,16 @@ public class ConfigService {
     return s_instance.getManager().getConfig(namespace);
   }
 
+  /**
+   * Get the config instances for the namespaces, which are loaded together if not loaded yet.
+   *
+   * @param namespaces the namespaces of the configs
+   * @return config instances keyed by namespace
+   */
+  public static Map<String, Config> getConfigs(Collection<String> namespaces) {
+    return s_instance.getManager().getConfigs(namespaces);
+  }
+
   public static ConfigFile getConfigFile(String namespace, ConfigFileFormat configFileFormat) {
     return s_instance.getManager().getConfigFile(namespace, configFileFormat);
   }
@@ -1,13 +1,19 @@
 package com.ctrip.framework.apollo.internals;
 
-import com.ctrip.framework.apollo.Config;
+import com.ctrip.framework.apollo.BindableConfig;
 import com.ctrip.framework.apollo.ConfigChangeListener;
 import com.ctrip.framework.apollo.build.ApolloInjector;
 import com.ctrip.framework.apollo.core.utils.ApolloThreadFactory;
 import com.ctrip.framework.apollo.enums.PropertyChangeType;
 import com.ctrip.framework.apollo.exceptions.ApolloConfigException;
+import com.ctrip.framework.apollo.internals.BoundProperty.BoundBooleanProperty;
+import com.ctrip.framework.apollo.internals.BoundProperty.BoundIntProperty;
+import com.ctrip.framework.apollo.internals.BoundProperty.BoundLongProperty;
+import com.ctrip.framework.apollo.model.BooleanProperty;
 import com.ctrip.framework.apollo.model.ConfigChange;
 import com.ctrip.framework.apollo.model.ConfigChangeEvent;
+import com.ctrip.framework.apollo.model.IntProperty;
+import com.ctrip.framework.apollo.model.LongProperty;
 import com.ctrip.framework.apollo.tracer.Tracer;
 import com.ctrip.framework.apollo.tracer.spi.Transaction;
 import com.ctrip.framework.apollo.util.ConfigUtil;
@@ -37,7 +43,7 @@ import java.util.concurrent.atomic.AtomicLong;
 /**
  * @author Jason Song(song_s@ctrip.com)
  */
-public abstract class AbstractConfig implements Config {
+public abstract class AbstractConfig implements BindableConfig {
   private static final Logger logger = LoggerFactory.getLogger(AbstractConfig.class);
 
   private static final ExecutorService m_executorService;
@@ -57,6 +63,7 @@ public abstract class AbstractConfig implements Config {
   private volatile Cache<String, Long> m_durationCache;
   private final Map<String, Cache<String, String[]>> m_arrayCache;
   private final List<Cache> allCaches;
+  private final Map<String, List<BoundProperty>> m_boundProperties;
   private final AtomicLong m_configVersion; //indicate config version
 
   protected PropertiesFactory propertiesFactory;
@@ -71,6 +78,7 @@ public abstract class AbstractConfig implements Config {
     m_configVersion = new AtomicLong();
     m_arrayCache = Maps.newConcurrentMap();
     allCaches = Lists.newArrayList();
+    m_boundProperties = Maps.newConcurrentMap();
     propertiesFactory = ApolloInjector.getInstance(PropertiesFactory.class);
   }
 
@@ -385,6 +393,46 @@ public abstract class AbstractConfig implements Config {
     return defaultValue;
   }
 
+  @Override
+  public IntProperty bindIntProperty(String key, int defaultValue) {
+    return (IntProperty) bind(new BoundIntProperty(key, defaultValue));
+  }
+
+  @Override
+  public LongProperty bindLongProperty(String key, long defaultValue) {
+    return (LongProperty) bind(new BoundLongProperty(key, defaultValue, false));
+  }
+
+  @Override
+  public BooleanProperty bindBooleanProperty(String key, boolean defaultValue) {
+    return (BooleanProperty) bind(new BoundBooleanProperty(key, defaultValue));
+  }
+
+  @Override
+  public LongProperty bindDurationProperty(String key, long defaultValue) {
+    return (LongProperty) bind(new BoundLongProperty(key, defaultValue, true));
+  }
+
+  /**
+   * @return the existing property of the same binding, or the new one
+   */
+  private synchronized BoundProperty bind(BoundProperty property) {
+    // synchronized with the config changes, so that no change is missed between calculating and registering the value
+    List<BoundProperty> properties = m_boundProperties.get(property.getKey());
+    if (properties == null) {
+      properties = Lists.newCopyOnWriteArrayList();
+      m_boundProperties.put(property.getKey(), properties);
+    }
+    for (BoundProperty existing : properties) {
+      if (existing.isSameBinding(property)) {
+        return existing;
+      }
+    }
+    property.update(this);
+    properties.add(property);
+    return property;
+  }
+
   private <T> T getValueFromCache(String key, Function<String, T> parser, Cache<String, T> cache, T defaultValue) {
     T result = cache.getIfPresent(key);
 
@@ -424,6 +472,45 @@ public abstract class AbstractConfig implements Config {
     return cache;
   }
 
+  /**
+   * Clear the config cache of the changed keys only, so that the cached values of the other keys are still valid
+   *
+   * @param changedKeys the keys changed
+   */
+  protected void clearConfigCache(Set<String> changedKeys) {
+    synchronized (this) {
+      for (Cache c : allCaches) {
+        if (c != null) {
+          c.invalidateAll(changedKeys);
+        }
+      }
+      m_configVersion.incrementAndGet();
+    }
+  }
+
+  /**
+   * Recalculate the values of the bound properties of the changed keys, should be called after the config cache is
+   * cleared
+   *
+   * @param changedKeys the keys changed
+   */
+  protected void updateBoundProperties(Set<String> changedKeys) {
+    if (m_boundProperties.isEmpty()) {
+      return;
+    }
+    synchronized (this) {
+      for (String key : changedKeys) {
+        List<BoundProperty> properties = m_boundProperties.get(key);
+        if (properties == null) {
+          continue;
+        }
+        for (BoundProperty property : properties) {
+          property.update(this);
+        }
+      }
+    }
+  }
+
   /**
    * Clear config cache
    */
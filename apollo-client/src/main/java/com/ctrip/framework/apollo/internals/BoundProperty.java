@@ -0,0 +1,120 @@
+package com.ctrip.framework.apollo.internals;
+
+import com.ctrip.framework.apollo.Config;
+import com.ctrip.framework.apollo.model.BooleanProperty;
+import com.ctrip.framework.apollo.model.IntProperty;
+import com.ctrip.framework.apollo.model.LongProperty;
+
+/**
+ * A typed property bound to a config, whose value is recalculated by the config when the property is changed.
+ *
+ * @see AbstractConfig#updateBoundProperties(java.util.Set)
+ */
+abstract class BoundProperty {
+  private final String key;
+
+  BoundProperty(String key) {
+    this.key = key;
+  }
+
+  public String getKey() {
+    return key;
+  }
+
+  /**
+   * @return whether the other property is bound with the same key, type and default value
+   */
+  abstract boolean isSameBinding(BoundProperty other);
+
+  abstract void update(Config config);
+
+  static class BoundIntProperty extends BoundProperty implements IntProperty {
+    private final int defaultValue;
+    private volatile int value;
+
+    BoundIntProperty(String key, int defaultValue) {
+      super(key);
+      this.defaultValue = defaultValue;
+    }
+
+    @Override
+    public int get() {
+      return value;
+    }
+
+    @Override
+    boolean isSameBinding(BoundProperty other) {
+      return other instanceof BoundIntProperty && getKey().equals(other.getKey())
+          && defaultValue == ((BoundIntProperty) other).defaultValue;
+    }
+
+    @Override
+    void update(Config config) {
+      value = config.getIntProperty(getKey(), defaultValue);
+    }
+  }
+
+  static class BoundLongProperty extends BoundProperty implements LongProperty {
+    private final long defaultValue;
+    private final boolean duration;
+    private volatile long value;
+
+    /**
+     * @param duration whether the value is a duration, e.g. 2D3H, parsed to milliseconds
+     */
+    BoundLongProperty(String key, long defaultValue, boolean duration) {
+      super(key);
+      this.defaultValue = defaultValue;
+      this.duration = duration;
+    }
+
+    @Override
+    public long get() {
+      return value;
+    }
+
+    @Override
+    boolean isSameBinding(BoundProperty other) {
+      if (!(other instanceof BoundLongProperty) || !getKey().equals(other.getKey())) {
+        return false;
+      }
+      BoundLongProperty that = (BoundLongProperty) other;
+      return defaultValue == that.defaultValue && duration == that.duration;
+    }
+
+    @Override
+    void update(Config config) {
+      if (duration) {
+        value = config.getDurationProperty(getKey(), defaultValue);
+      } else {
+        value = config.getLongProperty(getKey(), defaultValue);
+      }
+    }
+  }
+
+  static class BoundBooleanProperty extends BoundProperty implements BooleanProperty {
+    private final boolean defaultValue;
+    private volatile boolean value;
+
+    BoundBooleanProperty(String key, boolean defaultValue) {
+      super(key);
+      this.defaultValue = defaultValue;
+    }
+
+    @Override
+    public boolean get() {
+      return value;
+    }
+
+    @Override
+    boolean isSameBinding(BoundProperty other) {
+      return other instanceof BoundBooleanProperty && getKey().equals(other.getKey())
+          && defaultValue == ((BoundBooleanProperty) other).defaultValue;
+    }
+
+    @Override
+    void update(Config config) {
+      value = config.getBooleanProperty(getKey(), defaultValue);
+    }
+  }
+}
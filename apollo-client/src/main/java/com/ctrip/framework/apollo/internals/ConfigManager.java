@@ -3,6 +3,8 @@ package com.ctrip.framework.apollo.internals;
 import com.ctrip.framework.apollo.Config;
 import com.ctrip.framework.apollo.ConfigFile;
 import com.ctrip.framework.apollo.core.enums.ConfigFileFormat;
+import java.util.Collection;
+import java.util.Map;
 
 /**
  * @author Jason Song(song_s@ctrip.com)
@@ -15,6 +17,13 @@ public interface ConfigManager {
    */
   Config getConfig(String namespace);
 
+  /**
+   * Get the config instances for the namespaces specified, the ones not created yet are loaded together.
+   * @param namespaces the namespaces
+   * @return the config instances keyed by namespace, in the order of the namespaces
+   */
+  Map<String, Config> getConfigs(Collection<String> namespaces);
+
   /**
    * Get the config file instance for the namespace specified.
    * @param namespace the namespace
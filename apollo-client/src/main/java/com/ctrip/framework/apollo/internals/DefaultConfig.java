@@ -4,6 +4,7 @@ import com.ctrip.framework.apollo.enums.ConfigSourceType;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -22,6 +23,7 @@ import com.ctrip.framework.apollo.model.ConfigChangeEvent;
 import com.ctrip.framework.apollo.tracer.Tracer;
 import com.ctrip.framework.apollo.util.ExceptionUtil;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Sets;
 import com.google.common.util.concurrent.RateLimiter;
 
 
@@ -37,6 +39,7 @@ public class DefaultConfig extends AbstractConfig implements RepositoryChangeLis
   private final RateLimiter m_warnLogRateLimiter;
 
   private volatile ConfigSourceType m_sourceType = ConfigSourceType.NONE;
+  private volatile PropertiesSnapshot m_snapshot;
 
   /**
    * Constructor.
@@ -50,6 +53,7 @@ public class DefaultConfig extends AbstractConfig implements RepositoryChangeLis
     m_configRepository = configRepository;
     m_configProperties = new AtomicReference<>();
     m_warnLogRateLimiter = RateLimiter.create(0.017); // 1 warning log output per minute
+    m_snapshot = mergeSnapshot(null);
     initialize();
   }
 
@@ -70,25 +74,19 @@ public class DefaultConfig extends AbstractConfig implements RepositoryChangeLis
   @Override
   public String getProperty(String key, String defaultValue) {
     // step 1: check system properties, i.e. -Dkey=value
+    // they could be changed at runtime without any notification, so they are not part of the snapshot
     String value = System.getProperty(key);
 
-    // step 2: check local cached properties file
-    if (value == null && m_configProperties.get() != null) {
-      value = m_configProperties.get().getProperty(key);
-    }
-
     /**
-     * step 3: check env variable, i.e. PATH=...
-     * normally system environment variables are in UPPERCASE, however there might be exceptions.
-     * so the caller should provide the key in the right case
+     * step 2: check the snapshot merged from the following sources, in order:
+     * 1. local cached properties file
+     * 2. env variable, i.e. PATH=...
+     *    normally system environment variables are in UPPERCASE, however there might be exceptions.
+     *    so the caller should provide the key in the right case
+     * 3. properties file from classpath
      */
     if (value == null) {
-      value = System.getenv(key);
-    }
-
-    // step 4: check properties file from classpath
-    if (value == null && m_resourceProperties != null) {
-      value = m_resourceProperties.getProperty(key);
+      value = m_snapshot.get(key);
     }
 
     if (value == null && m_configProperties.get() == null && m_warnLogRateLimiter.tryAcquire()) {
@@ -149,10 +147,37 @@ public class DefaultConfig extends AbstractConfig implements RepositoryChangeLis
   }
 
   private void updateConfig(Properties newConfigProperties, ConfigSourceType sourceType) {
+    m_snapshot = mergeSnapshot(newConfigProperties);
     m_configProperties.set(newConfigProperties);
     m_sourceType = sourceType;
   }
 
+  /**
+   * Merge the config properties, env variables and resource properties into one snapshot, so that getProperty only
+   * needs one lookup instead of one per source.
+   */
+  private PropertiesSnapshot mergeSnapshot(Properties configProperties) {
+    Map<String, String> merged = new HashMap<>();
+    if (m_resourceProperties != null) {
+      putStringProperties(merged, m_resourceProperties);
+    }
+    merged.putAll(System.getenv());
+    if (configProperties != null) {
+      putStringProperties(merged, configProperties);
+    }
+    return PropertiesSnapshot.of(merged);
+  }
+
+  private void putStringProperties(Map<String, String> target, Properties properties) {
+    for (Map.Entry<Object, Object> e : properties.entrySet()) {
+      Object k = e.getKey();
+      Object v = e.getValue();
+      if (k instanceof String && v instanceof String) {
+        target.put((String) k, (String) v);
+      }
+    }
+  }
+
   private Map<String, ConfigChange> updateAndCalcConfigChanges(Properties newConfigProperties,
       ConfigSourceType sourceType) {
     List<ConfigChange> configChanges =
@@ -168,9 +193,14 @@ public class DefaultConfig extends AbstractConfig implements RepositoryChangeLis
       change.setOldValue(this.getProperty(change.getPropertyName(), change.getOldValue()));
     }
 
-    //2. update m_configProperties
+    //2. update m_configProperties, and clear the cache of the changed keys
+    Set<String> changedKeys = Sets.newHashSetWithExpectedSize(configChanges.size());
+    for (ConfigChange change : configChanges) {
+      changedKeys.add(change.getPropertyName());
+    }
     updateConfig(newConfigProperties, sourceType);
-    clearConfigCache();
+    clearConfigCache(changedKeys);
+    updateBoundProperties(changedKeys);
 
     //3. use getProperty to update configChange's new value and calc the final changes
     for (ConfigChange change : configChanges) {
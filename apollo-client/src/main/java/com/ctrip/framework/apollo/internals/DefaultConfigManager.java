@@ -1,5 +1,7 @@
 package com.ctrip.framework.apollo.internals;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 
 import com.ctrip.framework.apollo.Config;
@@ -8,6 +10,9 @@ import com.ctrip.framework.apollo.build.ApolloInjector;
 import com.ctrip.framework.apollo.core.enums.ConfigFileFormat;
 import com.ctrip.framework.apollo.spi.ConfigFactory;
 import com.ctrip.framework.apollo.spi.ConfigFactoryManager;
+import com.ctrip.framework.apollo.spi.DefaultConfigFactory;
+import com.ctrip.framework.apollo.util.ConfigUtil;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 
 /**
@@ -15,12 +20,16 @@ import com.google.common.collect.Maps;
  */
 public class DefaultConfigManager implements ConfigManager {
   private ConfigFactoryManager m_factoryManager;
+  private RemoteConfigBatchLoader m_batchLoader;
+  private ConfigUtil m_configUtil;
 
   private Map<String, Config> m_configs = Maps.newConcurrentMap();
   private Map<String, ConfigFile> m_configFiles = Maps.newConcurrentMap();
 
   public DefaultConfigManager() {
     m_factoryManager = ApolloInjector.getInstance(ConfigFactoryManager.class);
+    m_batchLoader = ApolloInjector.getInstance(RemoteConfigBatchLoader.class);
+    m_configUtil = ApolloInjector.getInstance(ConfigUtil.class);
   }
 
   @Override
@@ -43,6 +52,57 @@ public class DefaultConfigManager implements ConfigManager {
     return config;
   }
 
+  @Override
+  public Map<String, Config> getConfigs(Collection<String> namespaces) {
+    DefaultConfigFactory defaultFactory = null;
+    List<String> toBeCreated = Lists.newArrayList();
+    for (String namespace : namespaces) {
+      ConfigFactory factory = m_factoryManager.getFactory(namespace);
+      //only the default factory loads configs from the config service
+      if (!m_configs.containsKey(namespace) && factory instanceof DefaultConfigFactory) {
+        defaultFactory = (DefaultConfigFactory) factory;
+        toBeCreated.add(namespace);
+      }
+    }
+
+    if (toBeCreated.size() > 1) {
+      createConfigs(defaultFactory, toBeCreated);
+    }
+
+    Map<String, Config> configs = Maps.newLinkedHashMap();
+    for (String namespace : namespaces) {
+      configs.put(namespace, getConfig(namespace));
+    }
+
+    return configs;
+  }
+
+  /**
+   * Load the new namespaces together, in one request if possible, and concurrently within the time budget otherwise.
+   */
+  private synchronized void createConfigs(DefaultConfigFactory factory, List<String> namespaces) {
+    List<String> toBeCreated = Lists.newArrayList();
+    for (String namespace : namespaces) {
+      if (!m_configs.containsKey(namespace)) {
+        toBeCreated.add(namespace);
+      }
+    }
+    if (toBeCreated.isEmpty()) {
+      return;
+    }
+
+    //their repositories take the prefetched configs when created
+    if (toBeCreated.size() > 1) {
+      m_batchLoader.prefetch(toBeCreated);
+    }
+    try {
+      m_configs.putAll(factory.create(toBeCreated, m_configUtil.getBootstrapTimeoutInMillis()));
+    } finally {
+      //e.g. local mode
+      m_batchLoader.clearPrefetched();
+    }
+  }
+
   @Override
   public ConfigFile getConfigFile(String namespace, ConfigFileFormat configFileFormat) {
     String namespaceFileName = String.format("%s.%s", namespace, configFileFormat.getValue());
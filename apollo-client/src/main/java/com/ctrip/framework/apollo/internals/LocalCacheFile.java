@@ -0,0 +1,288 @@
+package com.ctrip.framework.apollo.internals;
+
+import com.ctrip.framework.apollo.core.utils.ApolloThreadFactory;
+import com.ctrip.framework.apollo.exceptions.ApolloConfigException;
+import com.ctrip.framework.apollo.tracer.Tracer;
+import com.ctrip.framework.apollo.tracer.spi.Transaction;
+import com.ctrip.framework.apollo.util.ExceptionUtil;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The local cache files of a namespace: the properties file, and optionally the binary file, which is much faster to
+ * load than the properties file.
+ *
+ * <p>The binary file is a header with the length and CRC32 checksum of the payload, followed by the payload: the
+ * release key and the properties as length-prefixed UTF-8 strings.</p>
+ *
+ * <p>The files are written by a single background thread, via temp files and atomic renames, so the config changes
+ * don't wait on disk I/O. The changes to the same file which are not written yet are coalesced, only the latest one is
+ * written. The writer thread is not a daemon, so the pending changes are written before the jvm exits normally, and it
+ * stops once idle.</p>
+ *
+ * @see LocalFileConfigRepository
+ */
+class LocalCacheFile {
+  private static final Logger logger = LoggerFactory.getLogger(LocalCacheFile.class);
+  private static final int MAGIC = 0x41504346; // APCF
+  private static final int VERSION = 1;
+  private static final int HEADER_SIZE = 4 + 4 + 4 + 8;
+  private static final int NULL_STRING = -1;
+  private static final long WRITER_KEEP_ALIVE_IN_SECONDS = 1;
+  private static final Object WRITE_LOCK = new Object();
+  private static final ConcurrentMap<File, PendingWrite> PENDING_WRITES = new ConcurrentHashMap<>();
+  private static final ThreadPoolExecutor WRITER = createWriter();
+
+  private final String releaseKey;
+  private final Properties properties;
+
+  /**
+   * @param properties the properties, which should not be modified afterwards
+   */
+  LocalCacheFile(String releaseKey, Properties properties) {
+    this.releaseKey = releaseKey;
+    this.properties = properties;
+  }
+
+  String getReleaseKey() {
+    return releaseKey;
+  }
+
+  Properties getProperties() {
+    return properties;
+  }
+
+  /**
+   * @param properties the properties to load into, so that its type, e.g. ordered or not, is kept
+   */
+  static LocalCacheFile read(File file, Properties properties) throws IOException {
+    ByteBuffer buffer;
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      long size = channel.size();
+      if (size < HEADER_SIZE || size > Integer.MAX_VALUE) {
+        throw corrupted(file);
+      }
+      // read the whole file at once, it is not memory mapped as it could not be unmapped before being replaced
+      buffer = ByteBuffer.allocate((int) size);
+      while (buffer.hasRemaining()) {
+        if (channel.read(buffer) < 0) {
+          throw corrupted(file);
+        }
+      }
+      buffer.flip();
+    }
+
+    if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+      throw new IOException(String.format("Unknown local cache file format: %s", file.getAbsolutePath()));
+    }
+    int length = buffer.getInt();
+    long checksum = buffer.getLong();
+    if (length != buffer.remaining() || checksum != checksum(buffer.array(), buffer.position(), length)) {
+      throw corrupted(file);
+    }
+
+    try {
+      String releaseKey = readString(buffer);
+      int size = buffer.getInt();
+      for (int i = 0; i < size; i++) {
+        String key = readString(buffer);
+        String value = readString(buffer);
+        properties.setProperty(key, value);
+      }
+      return new LocalCacheFile(releaseKey, properties);
+    } catch (RuntimeException ex) {
+      throw new IOException(String.format("Local cache file is corrupted: %s", file.getAbsolutePath()), ex);
+    }
+  }
+
+  /**
+   * Write the files in the background, the content could be read by {@link #getPendingWrite(File)} before written.
+   *
+   * @param propertiesFile the properties file
+   * @param binaryFile the binary file, or null if the binary format is not enabled
+   */
+  static void writeBehind(final File propertiesFile, File binaryFile, LocalCacheFile content) {
+    if (PENDING_WRITES.put(propertiesFile, new PendingWrite(content, binaryFile)) != null) {
+      // the previous change is not written yet, and it would be replaced by this one
+      return;
+    }
+    WRITER.submit(new Runnable() {
+      @Override
+      public void run() {
+        flush(propertiesFile);
+      }
+    });
+  }
+
+  /**
+   * @return the latest content of the properties file not written yet, or null if none
+   */
+  static LocalCacheFile getPendingWrite(File file) {
+    PendingWrite pendingWrite = PENDING_WRITES.get(file);
+    return pendingWrite == null ? null : pendingWrite.content;
+  }
+
+  /**
+   * Write all the pending changes on the calling thread.
+   */
+  static void flushPendingWrites() {
+    for (File file : PENDING_WRITES.keySet()) {
+      flush(file);
+    }
+  }
+
+  private static void flush(File file) {
+    synchronized (WRITE_LOCK) {
+      while (true) {
+        PendingWrite pendingWrite = PENDING_WRITES.get(file);
+        if (pendingWrite == null) {
+          return;
+        }
+        pendingWrite.content.persist(file, pendingWrite.binaryFile);
+        // the content might be changed again while being written
+        if (PENDING_WRITES.remove(file, pendingWrite)) {
+          return;
+        }
+      }
+    }
+  }
+
+  private void persist(File propertiesFile, File binaryFile) {
+    persist(propertiesFile, false);
+    if (binaryFile != null) {
+      persist(binaryFile, true);
+    }
+  }
+
+  private void persist(File file, boolean binary) {
+    Transaction transaction = Tracer.newTransaction("Apollo.ConfigService", "persistLocalConfigFile");
+    transaction.addData("LocalConfigFile", file.getAbsolutePath());
+    try {
+      if (binary) {
+        write(file);
+      } else {
+        writeProperties(file);
+      }
+      transaction.setStatus(Transaction.SUCCESS);
+    } catch (Throwable ex) {
+      ApolloConfigException exception =
+          new ApolloConfigException(
+              String.format("Persist local cache file %s failed", file.getAbsolutePath()), ex);
+      Tracer.logError(exception);
+      transaction.setStatus(exception);
+      logger.warn("Persist local cache file {} failed, reason: {}.", file.getAbsolutePath(),
+          ExceptionUtil.getDetailMessage(ex));
+    } finally {
+      transaction.complete();
+    }
+  }
+
+  void writeProperties(File file) throws IOException {
+    Path path = file.toPath();
+    Path tempFile = path.resolveSibling(path.getFileName() + ".tmp");
+    try (OutputStream out = Files.newOutputStream(tempFile)) {
+      properties.store(out, "Persisted by DefaultConfig");
+    }
+    replace(tempFile, path);
+  }
+
+  void write(File file) throws IOException {
+    ByteArrayOutputStream payload = new ByteArrayOutputStream();
+    DataOutputStream data = new DataOutputStream(payload);
+    writeString(data, releaseKey);
+    Set<String> keys = properties.stringPropertyNames();
+    data.writeInt(keys.size());
+    for (String key : keys) {
+      writeString(data, key);
+      writeString(data, properties.getProperty(key));
+    }
+    data.flush();
+    byte[] bytes = payload.toByteArray();
+
+    Path path = file.toPath();
+    Path tempFile = path.resolveSibling(path.getFileName() + ".tmp");
+    try (OutputStream out = Files.newOutputStream(tempFile)) {
+      ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+      header.putInt(MAGIC).putInt(VERSION).putInt(bytes.length).putLong(checksum(bytes, 0, bytes.length));
+      out.write(header.array());
+      out.write(bytes);
+    }
+    replace(tempFile, path);
+  }
+
+  private static void replace(Path tempFile, Path path) throws IOException {
+    try {
+      Files.move(tempFile, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (AtomicMoveNotSupportedException ex) {
+      Files.move(tempFile, path, StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+
+  private static ThreadPoolExecutor createWriter() {
+    ThreadPoolExecutor writer = new ThreadPoolExecutor(1, 1, WRITER_KEEP_ALIVE_IN_SECONDS, TimeUnit.SECONDS,
+        new LinkedBlockingQueue<Runnable>(), ApolloThreadFactory.create("LocalCacheFileWriter", false));
+    writer.allowCoreThreadTimeOut(true);
+    return writer;
+  }
+
+  private static void writeString(DataOutputStream data, String value) throws IOException {
+    if (value == null) {
+      data.writeInt(NULL_STRING);
+      return;
+    }
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    data.writeInt(bytes.length);
+    data.write(bytes);
+  }
+
+  private static String readString(ByteBuffer buffer) {
+    int length = buffer.getInt();
+    if (length == NULL_STRING) {
+      return null;
+    }
+    String value = new String(buffer.array(), buffer.position(), length, StandardCharsets.UTF_8);
+    buffer.position(buffer.position() + length);
+    return value;
+  }
+
+  private static long checksum(byte[] bytes, int offset, int length) {
+    CRC32 crc32 = new CRC32();
+    crc32.update(bytes, offset, length);
+    return crc32.getValue();
+  }
+
+  private static IOException corrupted(File file) {
+    return new IOException(String.format("Local cache file is corrupted: %s", file.getAbsolutePath()));
+  }
+
+  private static class PendingWrite {
+    private final LocalCacheFile content;
+    private final File binaryFile;
+
+    PendingWrite(LocalCacheFile content, File binaryFile) {
+      this.content = content;
+      this.binaryFile = binaryFile;
+    }
+  }
+}
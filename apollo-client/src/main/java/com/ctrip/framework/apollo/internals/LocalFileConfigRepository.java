@@ -3,10 +3,8 @@ package com.ctrip.framework.apollo.internals;
 import com.ctrip.framework.apollo.enums.ConfigSourceType;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -17,6 +15,7 @@ import org.slf4j.LoggerFactory;
 
 import com.ctrip.framework.apollo.build.ApolloInjector;
 import com.ctrip.framework.apollo.core.ConfigConsts;
+import com.ctrip.framework.apollo.core.dto.ApolloConfig;
 import com.ctrip.framework.apollo.core.utils.ClassLoaderUtil;
 import com.ctrip.framework.apollo.exceptions.ApolloConfigException;
 import com.ctrip.framework.apollo.tracer.Tracer;
@@ -102,9 +101,15 @@ public class LocalFileConfigRepository extends AbstractConfigRepository
     if (m_upstream != null) {
       m_upstream.removeChangeListener(this);
     }
+    Properties previous = m_fileProperties;
     m_upstream = upstreamConfigRepository;
     trySyncFromUpstream();
     upstreamConfigRepository.addChangeListener(this);
+    //e.g. the upstream is set after the config is loaded from the local cache file
+    Properties current = m_fileProperties;
+    if (current != null && !current.equals(previous)) {
+      this.fireRepositoryChange(m_namespace, getConfig());
+    }
   }
 
   @Override
@@ -184,6 +189,31 @@ public class LocalFileConfigRepository extends AbstractConfigRepository
     Preconditions.checkNotNull(baseDir, "Basedir cannot be null");
 
     File file = assembleLocalCacheFile(baseDir, namespace);
+    LocalCacheFile pendingWrite = LocalCacheFile.getPendingWrite(file);
+    if (pendingWrite != null) {
+      Properties properties = propertiesFactory.getPropertiesInstance();
+      properties.putAll(pendingWrite.getProperties());
+      return properties;
+    }
+
+    if (m_configUtil.isLocalCacheBinaryFormatEnabled()) {
+      File binaryFile = assembleBinaryLocalCacheFile(baseDir, namespace);
+      //the properties file takes precedence if it is newer, e.g. written by an older client or put by hand
+      if (binaryFile.isFile() && (!file.exists() || binaryFile.lastModified() >= file.lastModified())) {
+        try {
+          LocalCacheFile localCacheFile = LocalCacheFile.read(binaryFile, propertiesFactory.getPropertiesInstance());
+          logger.debug("Loading local config file {} with release key {} successfully!",
+              binaryFile.getAbsolutePath(), localCacheFile.getReleaseKey());
+          return localCacheFile.getProperties();
+        } catch (IOException ex) {
+          //fall back to the properties file
+          Tracer.logError(ex);
+          logger.warn("Loading config from local cache file {} failed, reason: {}.", binaryFile.getAbsolutePath(),
+              ExceptionUtil.getDetailMessage(ex));
+        }
+      }
+    }
+
     Properties properties = null;
 
     if (file.isFile() && file.canRead()) {
@@ -219,34 +249,19 @@ public class LocalFileConfigRepository extends AbstractConfigRepository
     if (baseDir == null) {
       return;
     }
-    File file = assembleLocalCacheFile(baseDir, namespace);
-
-    OutputStream out = null;
+    //written in the background, so that the config changes don't wait on disk I/O
+    File binaryFile = m_configUtil.isLocalCacheBinaryFormatEnabled() ? assembleBinaryLocalCacheFile(baseDir, namespace)
+        : null;
+    LocalCacheFile.writeBehind(assembleLocalCacheFile(baseDir, namespace), binaryFile,
+        new LocalCacheFile(getUpstreamReleaseKey(), m_fileProperties));
+  }
 
-    Transaction transaction = Tracer.newTransaction("Apollo.ConfigService", "persistLocalConfigFile");
-    transaction.addData("LocalConfigFile", file.getAbsolutePath());
-    try {
-      out = new FileOutputStream(file);
-      m_fileProperties.store(out, "Persisted by DefaultConfig");
-      transaction.setStatus(Transaction.SUCCESS);
-    } catch (IOException ex) {
-      ApolloConfigException exception =
-          new ApolloConfigException(
-              String.format("Persist local cache file %s failed", file.getAbsolutePath()), ex);
-      Tracer.logError(exception);
-      transaction.setStatus(exception);
-      logger.warn("Persist local cache file {} failed, reason: {}.", file.getAbsolutePath(),
-          ExceptionUtil.getDetailMessage(ex));
-    } finally {
-      if (out != null) {
-        try {
-          out.close();
-        } catch (IOException ex) {
-          //ignore
-        }
-      }
-      transaction.complete();
+  private String getUpstreamReleaseKey() {
+    if (!(m_upstream instanceof RemoteConfigRepository)) {
+      return null;
     }
+    ApolloConfig apolloConfig = ((RemoteConfigRepository) m_upstream).getApolloConfig();
+    return apolloConfig == null ? null : apolloConfig.getReleaseKey();
   }
 
   private void checkLocalConfigCacheDir(File baseDir) {
@@ -279,4 +294,14 @@ public class LocalFileConfigRepository extends AbstractConfigRepository
             .join(m_configUtil.getAppId(), m_configUtil.getCluster(), namespace));
     return new File(baseDir, fileName);
   }
+
+  /**
+   * @return the binary file written along with the properties file if the binary format is enabled
+   */
+  File assembleBinaryLocalCacheFile(File baseDir, String namespace) {
+    String fileName =
+        String.format("%s.cache", Joiner.on(ConfigConsts.CLUSTER_NAMESPACE_SEPARATOR)
+            .join(m_configUtil.getAppId(), m_configUtil.getCluster(), namespace));
+    return new File(baseDir, fileName);
+  }
 }
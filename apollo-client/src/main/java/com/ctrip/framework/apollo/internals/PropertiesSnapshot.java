@@ -0,0 +1,81 @@
+package com.ctrip.framework.apollo.internals;
+
+import java.util.Map;
+
+/**
+ * An immutable string map optimized for lookups, backed by open addressing with linear probing over two plain arrays.
+ *
+ * <p>Lookups neither lock nor allocate, which matters as {@link DefaultConfig#getProperty(String, String)} is called on
+ * the hot paths of the applications.</p>
+ */
+final class PropertiesSnapshot {
+  private static final PropertiesSnapshot EMPTY = new PropertiesSnapshot(new String[2], new String[2], 0);
+
+  private final String[] m_keys;
+  private final String[] m_values;
+  private final int m_mask;
+  private final int m_size;
+
+  private PropertiesSnapshot(String[] keys, String[] values, int size) {
+    m_keys = keys;
+    m_values = values;
+    m_mask = keys.length - 1;
+    m_size = size;
+  }
+
+  static PropertiesSnapshot of(Map<String, String> properties) {
+    if (properties.isEmpty()) {
+      return EMPTY;
+    }
+    // keep the load factor under 0.5 so that probe sequences stay short
+    int capacity = Integer.highestOneBit(properties.size()) << 2;
+    String[] keys = new String[capacity];
+    String[] values = new String[capacity];
+    int mask = capacity - 1;
+    int size = 0;
+
+    for (Map.Entry<String, String> entry : properties.entrySet()) {
+      String key = entry.getKey();
+      String value = entry.getValue();
+      if (key == null || value == null) {
+        continue;
+      }
+      int index = spread(key.hashCode()) & mask;
+      while (keys[index] != null && !keys[index].equals(key)) {
+        index = (index + 1) & mask;
+      }
+      if (keys[index] == null) {
+        size++;
+      }
+      keys[index] = key;
+      values[index] = value;
+    }
+
+    return new PropertiesSnapshot(keys, values, size);
+  }
+
+  String get(String key) {
+    if (key == null) {
+      return null;
+    }
+    String[] keys = m_keys;
+    int index = spread(key.hashCode()) & m_mask;
+    String candidate;
+    while ((candidate = keys[index]) != null) {
+      if (candidate == key || candidate.equals(key)) {
+        return m_values[index];
+      }
+      index = (index + 1) & m_mask;
+    }
+    return null;
+  }
+
+  int size() {
+    return m_size;
+  }
+
+  private static int spread(int hash) {
+    // same as HashMap, so that keys differing only in the higher bits won't collide
+    return hash ^ (hash >>> 16);
+  }
+}
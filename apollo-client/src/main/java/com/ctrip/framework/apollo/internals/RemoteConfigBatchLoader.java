@@ -0,0 +1,243 @@
+package com.ctrip.framework.apollo.internals;
+
+import com.ctrip.framework.apollo.build.ApolloInjector;
+import com.ctrip.framework.apollo.core.ConfigConsts;
+import com.ctrip.framework.apollo.core.dto.ApolloConfig;
+import com.ctrip.framework.apollo.core.dto.ApolloNotificationMessages;
+import com.ctrip.framework.apollo.core.dto.ServiceDTO;
+import com.ctrip.framework.apollo.core.signature.Signature;
+import com.ctrip.framework.apollo.core.utils.StringUtils;
+import com.ctrip.framework.apollo.exceptions.ApolloConfigException;
+import com.ctrip.framework.apollo.exceptions.ApolloConfigStatusCodeException;
+import com.ctrip.framework.apollo.tracer.Tracer;
+import com.ctrip.framework.apollo.tracer.spi.Transaction;
+import com.ctrip.framework.apollo.util.ConfigUtil;
+import com.ctrip.framework.apollo.util.ExceptionUtil;
+import com.ctrip.framework.apollo.util.http.HttpRequest;
+import com.ctrip.framework.apollo.util.http.HttpResponse;
+import com.ctrip.framework.apollo.util.http.HttpUtil;
+import com.google.common.base.Joiner;
+import com.google.common.base.Strings;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.escape.Escaper;
+import com.google.common.net.UrlEscapers;
+import com.google.common.reflect.TypeToken;
+import com.google.gson.Gson;
+import java.lang.reflect.Type;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Loads the configs of several namespaces from the config service in one request.
+ *
+ * <p>Used at startup to prefetch the configs of all the namespaces before their repositories are created, and on long
+ * polling notifications to refresh all the notified namespaces together.</p>
+ */
+public class RemoteConfigBatchLoader {
+  private static final Logger logger = LoggerFactory.getLogger(RemoteConfigBatchLoader.class);
+  private static final Joiner STRING_JOINER = Joiner.on(ConfigConsts.CLUSTER_NAMESPACE_SEPARATOR);
+  private static final Joiner BATCH_PARAM_JOINER = Joiner.on(",");
+  private static final Joiner.MapJoiner MAP_JOINER = Joiner.on("&").withKeyValueSeparator("=");
+  private static final Escaper pathEscaper = UrlEscapers.urlPathSegmentEscaper();
+  private static final Escaper queryParamEscaper = UrlEscapers.urlFormParameterEscaper();
+  private static final String NO_RELEASE_KEY = "-1";
+  //keep in line with the limit of the config service
+  private static final int MAX_BATCH_NAMESPACES = 100;
+  private static final Gson GSON = new Gson();
+
+  private final ConfigUtil m_configUtil;
+  private final HttpUtil m_httpUtil;
+  private volatile ConfigServiceLocator m_serviceLocator;
+  private final ConcurrentMap<String, ApolloConfig> m_prefetchedConfigs;
+  private final AtomicBoolean m_batchUnsupported;
+  private final Type m_responseType;
+
+  public RemoteConfigBatchLoader() {
+    m_configUtil = ApolloInjector.getInstance(ConfigUtil.class);
+    m_httpUtil = ApolloInjector.getInstance(HttpUtil.class);
+    m_prefetchedConfigs = Maps.newConcurrentMap();
+    m_batchUnsupported = new AtomicBoolean(false);
+    m_responseType = new TypeToken<List<ApolloConfig>>() {
+    }.getType();
+  }
+
+  /**
+   * @return whether batch requests should be tried, they are given up once the config service turns out not to
+   * support them
+   */
+  public boolean isEnabled() {
+    return m_configUtil.isConfigBatchLoadEnabled() && !m_batchUnsupported.get();
+  }
+
+  /**
+   * Load the configs of the namespaces and keep them until the repositories of the namespaces take them.
+   */
+  public void prefetch(Collection<String> namespaces) {
+    if (!isEnabled() || m_configUtil.isInLocalMode() || namespaces.size() < 2) {
+      return;
+    }
+    Map<String, String> releaseKeys = Maps.newLinkedHashMap();
+    for (String namespace : namespaces) {
+      releaseKeys.put(namespace, null);
+    }
+    try {
+      m_prefetchedConfigs.putAll(loadConfigs(null, releaseKeys, null));
+    } catch (Throwable ex) {
+      //the namespaces will be loaded one by one
+      logger.warn("Prefetch configs failed for namespaces {}, reason: {}", namespaces,
+          ExceptionUtil.getDetailMessage(ex));
+    }
+  }
+
+  /**
+   * @return the prefetched config of the namespace, or null if there is none
+   */
+  public ApolloConfig takePrefetched(String namespace) {
+    return m_prefetchedConfigs.remove(namespace);
+  }
+
+  /**
+   * Drop the prefetched configs no repository has taken.
+   */
+  public void clearPrefetched() {
+    m_prefetchedConfigs.clear();
+  }
+
+  /**
+   * Load the configs of the namespaces in one request, or a few if there are too many namespaces.
+   *
+   * @param preferredService the service to try first, e.g. the one which notified the client, may be null
+   * @param releaseKeys the namespaces and their current release keys, release key is null if not loaded yet
+   * @param remoteMessages the notification messages of the namespaces, may be null
+   * @return the configs of the namespaces which are changed, the ones not found or not modified are left out
+   */
+  public Map<String, ApolloConfig> loadConfigs(ServiceDTO preferredService, Map<String, String> releaseKeys,
+                                               ApolloNotificationMessages remoteMessages) {
+    Map<String, ApolloConfig> result = Maps.newHashMap();
+    List<String> namespaces = Lists.newArrayList(releaseKeys.keySet());
+    for (List<String> partition : Lists.partition(namespaces, MAX_BATCH_NAMESPACES)) {
+      List<String> partitionReleaseKeys = Lists.newArrayListWithCapacity(partition.size());
+      for (String namespace : partition) {
+        String releaseKey = releaseKeys.get(namespace);
+        partitionReleaseKeys.add(releaseKey == null ? NO_RELEASE_KEY : releaseKey);
+      }
+      for (ApolloConfig apolloConfig : doLoadConfigs(preferredService, partition, partitionReleaseKeys,
+          remoteMessages)) {
+        result.put(apolloConfig.getNamespaceName(), apolloConfig);
+      }
+    }
+    return result;
+  }
+
+  private List<ApolloConfig> doLoadConfigs(ServiceDTO preferredService, List<String> namespaces,
+                                           List<String> releaseKeys, ApolloNotificationMessages remoteMessages) {
+    String appId = m_configUtil.getAppId();
+    String cluster = m_configUtil.getCluster();
+    String dataCenter = m_configUtil.getDataCenter();
+    String secret = m_configUtil.getAccessKeySecret();
+
+    List<ServiceDTO> configServices = Lists.newLinkedList(getConfigServices());
+    Collections.shuffle(configServices);
+    if (preferredService != null) {
+      configServices.add(0, preferredService);
+    }
+
+    Throwable exception = null;
+    String url = null;
+    //a failed batch is not retried much, as the namespaces could still be loaded one by one
+    for (ServiceDTO configService : configServices.subList(0, Math.min(2, configServices.size()))) {
+      url = assembleQueryConfigsUrl(configService.getHomepageUrl(), appId, cluster, namespaces, dataCenter,
+          releaseKeys, remoteMessages);
+
+      logger.debug("Loading configs from {}", url);
+
+      HttpRequest request = new HttpRequest(url);
+      if (!StringUtils.isBlank(secret)) {
+        Map<String, String> headers = Signature.buildHttpHeaders(url, appId, secret);
+        request.setHeaders(headers);
+      }
+
+      Transaction transaction = Tracer.newTransaction("Apollo.ConfigService", "queryConfigs");
+      transaction.addData("Url", url);
+      try {
+        HttpResponse<List<ApolloConfig>> response = m_httpUtil.doGet(request, m_responseType);
+        transaction.addData("StatusCode", response.getStatusCode());
+        transaction.setStatus(Transaction.SUCCESS);
+
+        List<ApolloConfig> result = response.getBody();
+        return result == null ? Collections.<ApolloConfig>emptyList() : result;
+      } catch (ApolloConfigStatusCodeException ex) {
+        transaction.setStatus(ex);
+        //the config service is too old to have the batch endpoint
+        if (ex.getStatusCode() == 404 || ex.getStatusCode() == 405) {
+          m_batchUnsupported.set(true);
+          Tracer.logEvent("Apollo.Client.ConfigBatchUnsupported", STRING_JOINER.join(appId, cluster));
+          throw ex;
+        }
+        exception = ex;
+      } catch (Throwable ex) {
+        Tracer.logEvent("ApolloConfigException", ExceptionUtil.getDetailMessage(ex));
+        transaction.setStatus(ex);
+        exception = ex;
+      } finally {
+        transaction.complete();
+      }
+    }
+
+    String message = String.format(
+        "Load Apollo Configs failed - appId: %s, cluster: %s, namespaces: %s, url: %s",
+        appId, cluster, namespaces, url);
+    throw new ApolloConfigException(message, exception);
+  }
+
+  String assembleQueryConfigsUrl(String uri, String appId, String cluster, List<String> namespaces,
+                                 String dataCenter, List<String> releaseKeys,
+                                 ApolloNotificationMessages remoteMessages) {
+    String path = String.format("configs/%s/%s", pathEscaper.escape(appId), pathEscaper.escape(cluster));
+    Map<String, String> queryParams = Maps.newLinkedHashMap();
+    queryParams.put("namespaces", queryParamEscaper.escape(BATCH_PARAM_JOINER.join(namespaces)));
+    queryParams.put("releaseKeys", queryParamEscaper.escape(BATCH_PARAM_JOINER.join(releaseKeys)));
+
+    if (m_configUtil.isConfigDeltaSyncEnabled()) {
+      queryParams.put("delta", "true");
+    }
+
+    if (!Strings.isNullOrEmpty(dataCenter)) {
+      queryParams.put("dataCenter", queryParamEscaper.escape(dataCenter));
+    }
+
+    String localIp = m_configUtil.getLocalIp();
+    if (!Strings.isNullOrEmpty(localIp)) {
+      queryParams.put("ip", queryParamEscaper.escape(localIp));
+    }
+
+    if (remoteMessages != null) {
+      queryParams.put("messages", queryParamEscaper.escape(GSON.toJson(remoteMessages)));
+    }
+
+    if (!uri.endsWith("/")) {
+      uri += "/";
+    }
+    return uri + path + "?" + MAP_JOINER.join(queryParams);
+  }
+
+  private List<ServiceDTO> getConfigServices() {
+    //resolved lazily, as most of the time batch loading is not needed
+    if (m_serviceLocator == null) {
+      m_serviceLocator = ApolloInjector.getInstance(ConfigServiceLocator.class);
+    }
+    List<ServiceDTO> services = m_serviceLocator.getConfigServices();
+    if (services.size() == 0) {
+      throw new ApolloConfigException("No available config service");
+    }
+
+    return services;
+  }
+}
@@ -2,6 +2,7 @@ package com.ctrip.framework.apollo.internals;
 
 import com.ctrip.framework.apollo.build.ApolloInjector;
 import com.ctrip.framework.apollo.core.ConfigConsts;
+import com.ctrip.framework.apollo.core.dto.ApolloConfig;
 import com.ctrip.framework.apollo.core.dto.ApolloConfigNotification;
 import com.ctrip.framework.apollo.core.dto.ApolloNotificationMessages;
 import com.ctrip.framework.apollo.core.dto.ServiceDTO;
@@ -67,6 +68,7 @@ public class RemoteConfigLongPollService {
   private ConfigUtil m_configUtil;
   private HttpUtil m_httpUtil;
   private ConfigServiceLocator m_serviceLocator;
+  private RemoteConfigBatchLoader m_batchLoader;
 
   /**
    * Constructor.
@@ -86,6 +88,7 @@ public class RemoteConfigLongPollService {
     m_configUtil = ApolloInjector.getInstance(ConfigUtil.class);
     m_httpUtil = ApolloInjector.getInstance(HttpUtil.class);
     m_serviceLocator = ApolloInjector.getInstance(ConfigServiceLocator.class);
+    m_batchLoader = ApolloInjector.getInstance(RemoteConfigBatchLoader.class);
     m_longPollRateLimiter = RateLimiter.create(m_configUtil.getLongPollQPS());
   }
 
@@ -212,23 +215,106 @@ public class RemoteConfigLongPollService {
     if (notifications == null || notifications.isEmpty()) {
       return;
     }
+    Map<RemoteConfigRepository, ApolloNotificationMessages> toBeNotified = Maps.newLinkedHashMap();
     for (ApolloConfigNotification notification : notifications) {
       String namespaceName = notification.getNamespaceName();
       //create a new list to avoid ConcurrentModificationException
-      List<RemoteConfigRepository> toBeNotified =
+      List<RemoteConfigRepository> namespaceRepositories =
           Lists.newArrayList(m_longPollNamespaces.get(namespaceName));
       ApolloNotificationMessages originalMessages = m_remoteNotificationMessages.get(namespaceName);
       ApolloNotificationMessages remoteMessages = originalMessages == null ? null : originalMessages.clone();
       //since .properties are filtered out by default, so we need to check if there is any listener for it
-      toBeNotified.addAll(m_longPollNamespaces
+      namespaceRepositories.addAll(m_longPollNamespaces
           .get(String.format("%s.%s", namespaceName, ConfigFileFormat.Properties.getValue())));
-      for (RemoteConfigRepository remoteConfigRepository : toBeNotified) {
+      for (RemoteConfigRepository remoteConfigRepository : namespaceRepositories) {
+        toBeNotified.put(remoteConfigRepository, remoteMessages);
+      }
+    }
+
+    if (m_batchLoader.isEnabled()) {
+      toBeNotified = notifyInBatch(lastServiceDto, toBeNotified);
+    }
+
+    for (Map.Entry<RemoteConfigRepository, ApolloNotificationMessages> entry : toBeNotified.entrySet()) {
+      try {
+        entry.getKey().onLongPollNotified(lastServiceDto, entry.getValue());
+      } catch (Throwable ex) {
+        Tracer.logError(ex);
+      }
+    }
+  }
+
+  /**
+   * Load the configs of the notified namespaces together, only the repositories already having configs are batched.
+   * The batch is loaded on the executor of the repositories, so the long polling is not held back.
+   *
+   * @return the repositories left to load their configs one by one
+   */
+  private Map<RemoteConfigRepository, ApolloNotificationMessages> notifyInBatch(final ServiceDTO lastServiceDto,
+      Map<RemoteConfigRepository, ApolloNotificationMessages> toBeNotified) {
+    Map<RemoteConfigRepository, ApolloNotificationMessages> notBatched = Maps.newLinkedHashMap();
+    final Map<RemoteConfigRepository, ApolloNotificationMessages> batched = Maps.newLinkedHashMap();
+    final Map<String, String> releaseKeys = Maps.newLinkedHashMap();
+    ApolloNotificationMessages mergedMessages = null;
+    for (Map.Entry<RemoteConfigRepository, ApolloNotificationMessages> entry : toBeNotified.entrySet()) {
+      RemoteConfigRepository remoteConfigRepository = entry.getKey();
+      ApolloConfig current = remoteConfigRepository.getApolloConfig();
+      String namespace = remoteConfigRepository.getNamespace();
+      if (current == null || namespace == null
+          || (releaseKeys.containsKey(namespace) && !current.getReleaseKey().equals(releaseKeys.get(namespace)))) {
+        notBatched.put(remoteConfigRepository, entry.getValue());
+        continue;
+      }
+      releaseKeys.put(namespace, current.getReleaseKey());
+      batched.put(remoteConfigRepository, entry.getValue());
+      if (entry.getValue() != null) {
+        if (mergedMessages == null) {
+          mergedMessages = new ApolloNotificationMessages();
+        }
+        mergedMessages.mergeFrom(entry.getValue());
+      }
+    }
+
+    if (releaseKeys.size() < 2) {
+      return toBeNotified;
+    }
+
+    final ApolloNotificationMessages batchMessages = mergedMessages;
+    RemoteConfigRepository.execute(new Runnable() {
+      @Override
+      public void run() {
+        loadInBatch(lastServiceDto, batched, releaseKeys, batchMessages);
+      }
+    });
+    return notBatched;
+  }
+
+  private void loadInBatch(ServiceDTO lastServiceDto, Map<RemoteConfigRepository, ApolloNotificationMessages> batched,
+      Map<String, String> releaseKeys, ApolloNotificationMessages mergedMessages) {
+    Map<String, ApolloConfig> loaded;
+    try {
+      loaded = m_batchLoader.loadConfigs(lastServiceDto, releaseKeys, mergedMessages);
+    } catch (Throwable ex) {
+      logger.warn("Batch load configs failed, will load them one by one, reason: {}",
+          ExceptionUtil.getDetailMessage(ex));
+      for (Map.Entry<RemoteConfigRepository, ApolloNotificationMessages> entry : batched.entrySet()) {
         try {
-          remoteConfigRepository.onLongPollNotified(lastServiceDto, remoteMessages);
-        } catch (Throwable ex) {
-          Tracer.logError(ex);
+          entry.getKey().onLongPollNotified(lastServiceDto, entry.getValue());
+        } catch (Throwable e) {
+          Tracer.logError(e);
         }
       }
+      return;
+    }
+
+    for (Map.Entry<RemoteConfigRepository, ApolloNotificationMessages> entry : batched.entrySet()) {
+      String namespace = entry.getKey().getNamespace();
+      try {
+        entry.getKey().onBatchLoaded(lastServiceDto, entry.getValue(), releaseKeys.get(namespace),
+            loaded.get(namespace));
+      } catch (Throwable ex) {
+        Tracer.logError(ex);
+      }
     }
   }
 
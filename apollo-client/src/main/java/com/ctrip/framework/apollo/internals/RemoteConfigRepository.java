@@ -32,6 +32,7 @@ import com.google.gson.Gson;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Properties;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
@@ -55,6 +56,7 @@ public class RemoteConfigRepository extends AbstractConfigRepository {
   private final HttpUtil m_httpUtil;
   private final ConfigUtil m_configUtil;
   private final RemoteConfigLongPollService remoteConfigLongPollService;
+  private final RemoteConfigBatchLoader m_batchLoader;
   private volatile AtomicReference<ApolloConfig> m_configCache;
   private final String m_namespace;
   private final static ScheduledExecutorService m_executorService;
@@ -62,6 +64,8 @@ public class RemoteConfigRepository extends AbstractConfigRepository {
   private final AtomicReference<ApolloNotificationMessages> m_remoteMessages;
   private final RateLimiter m_loadConfigRateLimiter;
   private final AtomicBoolean m_configNeedForceRefresh;
+  private final AtomicBoolean m_configNeedFullSync;
+  private final AtomicReference<ApolloConfig> m_batchLoadedConfig;
   private final SchedulePolicy m_loadConfigFailSchedulePolicy;
   private static final Gson GSON = new Gson();
 
@@ -82,10 +86,13 @@ public class RemoteConfigRepository extends AbstractConfigRepository {
     m_httpUtil = ApolloInjector.getInstance(HttpUtil.class);
     m_serviceLocator = ApolloInjector.getInstance(ConfigServiceLocator.class);
     remoteConfigLongPollService = ApolloInjector.getInstance(RemoteConfigLongPollService.class);
+    m_batchLoader = ApolloInjector.getInstance(RemoteConfigBatchLoader.class);
     m_longPollServiceDto = new AtomicReference<>();
     m_remoteMessages = new AtomicReference<>();
     m_loadConfigRateLimiter = RateLimiter.create(m_configUtil.getLoadConfigQPS());
     m_configNeedForceRefresh = new AtomicBoolean(true);
+    m_configNeedFullSync = new AtomicBoolean(false);
+    m_batchLoadedConfig = new AtomicReference<>(m_batchLoader.takePrefetched(namespace));
     m_loadConfigFailSchedulePolicy = new ExponentialSchedulePolicy(m_configUtil.getOnErrorRetryInterval(),
         m_configUtil.getOnErrorRetryInterval() * 8);
     this.trySync();
@@ -163,6 +170,23 @@ public class RemoteConfigRepository extends AbstractConfigRepository {
   }
 
   private ApolloConfig loadApolloConfig() {
+    ApolloConfig batchLoaded = m_batchLoadedConfig.getAndSet(null);
+    if (batchLoaded != null) {
+      if (batchLoaded.getBaseReleaseKey() == null) {
+        logger.debug("Batch loaded config for {}: {}", m_namespace, batchLoaded);
+        m_configNeedForceRefresh.set(false);
+        return batchLoaded;
+      }
+      try {
+        ApolloConfig result = applyDelta(m_configCache.get(), batchLoaded);
+        m_configNeedForceRefresh.set(false);
+        return result;
+      } catch (ApolloConfigException ex) {
+        //load the full configurations instead
+        logger.warn(ExceptionUtil.getDetailMessage(ex));
+      }
+    }
+
     if (!m_loadConfigRateLimiter.tryAcquire(5, TimeUnit.SECONDS)) {
       //wait at most 5 seconds
       try {
@@ -234,6 +258,11 @@ public class RemoteConfigRepository extends AbstractConfigRepository {
 
           logger.debug("Loaded config for {}: {}", m_namespace, result);
 
+          if (result != null && result.getBaseReleaseKey() != null) {
+            return applyDelta(m_configCache.get(), result);
+          }
+          m_configNeedFullSync.set(false);
+
           return result;
         } catch (ApolloConfigStatusCodeException ex) {
           ApolloConfigStatusCodeException statusCodeException = ex;
@@ -283,6 +312,9 @@ public class RemoteConfigRepository extends AbstractConfigRepository {
 
     if (previousConfig != null) {
       queryParams.put("releaseKey", queryParamEscaper.escape(previousConfig.getReleaseKey()));
+      if (m_configUtil.isConfigDeltaSyncEnabled() && !m_configNeedFullSync.get()) {
+        queryParams.put("delta", "true");
+      }
     }
 
     if (!Strings.isNullOrEmpty(dataCenter)) {
@@ -309,6 +341,35 @@ public class RemoteConfigRepository extends AbstractConfigRepository {
     return uri + pathExpanded;
   }
 
+  /**
+   * apply the added, changed and deleted keys to the configurations of the base release
+   */
+  ApolloConfig applyDelta(ApolloConfig previous, ApolloConfig delta) {
+    if (previous == null || !delta.getBaseReleaseKey().equals(previous.getReleaseKey())) {
+      //should not happen, ask for the full configurations next time
+      m_configNeedFullSync.set(true);
+      throw new ApolloConfigException(String.format(
+          "Delta config of namespace %s is based on release %s, but the local release is %s", m_namespace,
+          delta.getBaseReleaseKey(), previous == null ? null : previous.getReleaseKey()));
+    }
+
+    Map<String, String> configurations = Maps.newLinkedHashMap(previous.getConfigurations());
+    if (delta.getConfigurations() != null) {
+      configurations.putAll(delta.getConfigurations());
+    }
+    if (delta.getDeletedKeys() != null) {
+      for (String deletedKey : delta.getDeletedKeys()) {
+        configurations.remove(deletedKey);
+      }
+    }
+
+    ApolloConfig result = new ApolloConfig(delta.getAppId(), delta.getCluster(), delta.getNamespaceName(),
+        delta.getReleaseKey());
+    result.setConfigurations(configurations);
+    Tracer.logEvent("Apollo.Client.ConfigDelta", STRING_JOINER.join(m_namespace, delta.getReleaseKey()));
+    return result;
+  }
+
   private void scheduleLongPollingRefresh() {
     remoteConfigLongPollService.submit(m_namespace, this);
   }
@@ -325,6 +386,68 @@ public class RemoteConfigRepository extends AbstractConfigRepository {
     });
   }
 
+  String getNamespace() {
+    return m_namespace;
+  }
+
+  ApolloConfig getApolloConfig() {
+    return m_configCache.get();
+  }
+
+  /**
+   * Called on the executor of the repositories when the config of the namespace is loaded together with other
+   * namespaces after a long polling notification. The result is discarded if a newer notification came in the
+   * meantime, and the config is loaded on its own if it was refreshed since the batch load was issued.
+   *
+   * @param baseReleaseKey the release key of the config when the batch load was issued
+   * @param batchLoadedConfig the loaded config, null if not modified
+   */
+  synchronized void onBatchLoaded(ServiceDTO longPollNotifiedServiceDto, ApolloNotificationMessages remoteMessages,
+                                  String baseReleaseKey, ApolloConfig batchLoadedConfig) {
+    if (isOlder(remoteMessages, m_remoteMessages.get())) {
+      Tracer.logEvent("Apollo.Client.BatchLoad.Outdated", m_namespace);
+      return;
+    }
+    ApolloConfig current = m_configCache.get();
+    if (current == null || !Objects.equals(current.getReleaseKey(), baseReleaseKey)) {
+      onLongPollNotified(longPollNotifiedServiceDto, remoteMessages);
+      return;
+    }
+    m_remoteMessages.set(remoteMessages);
+    if (batchLoadedConfig == null) {
+      return;
+    }
+    m_longPollServiceDto.set(longPollNotifiedServiceDto);
+    m_batchLoadedConfig.set(batchLoadedConfig);
+    //sync right away while holding the lock, so that the config could not be changed in between
+    m_configNeedForceRefresh.set(true);
+    trySync();
+  }
+
+  /**
+   * Run the task on the executor shared by all the repositories, e.g. loading the configs of several namespaces in
+   * batch
+   */
+  static void execute(Runnable task) {
+    m_executorService.execute(task);
+  }
+
+  /**
+   * @return whether any of the notification ids is older than the current one of the same watched key
+   */
+  private static boolean isOlder(ApolloNotificationMessages messages, ApolloNotificationMessages currentMessages) {
+    if (currentMessages == null || currentMessages.isEmpty()) {
+      return false;
+    }
+    for (Map.Entry<String, Long> entry : currentMessages.getDetails().entrySet()) {
+      Long notificationId = messages == null ? null : messages.get(entry.getKey());
+      if (notificationId == null || notificationId < entry.getValue()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
   private List<ServiceDTO> getConfigServices() {
     List<ServiceDTO> services = m_serviceLocator.getConfigServices();
     if (services.size() == 0) {
@@ -94,7 +94,8 @@ public class SimpleConfig extends AbstractConfig implements RepositoryChangeList
         });
 
     updateConfig(newConfigProperties, m_configRepository.getSourceType());
-    clearConfigCache();
+    clearConfigCache(changeMap.keySet());
+    updateBoundProperties(changeMap.keySet());
 
     this.fireConfigChange(new ConfigChangeEvent(m_namespace, changeMap));
 
@@ -0,0 +1,22 @@
+package com.ctrip.framework.apollo.model;
+
+/**
+ * A int property bound to a config, whose value is updated as soon as the property is changed.
+ *
+ * <p>Reading the value is a plain volatile read, with no lookup, parsing or boxing, so it could be used in hot code.</p>
+ *
+ * @see com.ctrip.framework.apollo.BindableConfig#bindIntProperty
+ * @since 1.8.0
+ */
+public interface IntProperty {
+
+  /**
+   * @return the property name
+   */
+  String getKey();
+
+  /**
+   * @return the current property value, or the default value if the property doesn't exist or is invalid
+   */
+  int get();
+}
@@ -0,0 +1,23 @@
+package com.ctrip.framework.apollo.model;
+
+/**
+ * A long property bound to a config, whose value is updated as soon as the property is changed.
+ *
+ * <p>Reading the value is a plain volatile read, with no lookup, parsing or boxing, so it could be used in hot code.</p>
+ *
+ * @see com.ctrip.framework.apollo.BindableConfig#bindLongProperty
+ * @see com.ctrip.framework.apollo.BindableConfig#bindDurationProperty
+ * @since 1.8.0
+ */
+public interface LongProperty {
+
+  /**
+   * @return the property name
+   */
+  String getKey();
+
+  /**
+   * @return the current property value, or the default value if the property doesn't exist or is invalid
+   */
+  long get();
+}
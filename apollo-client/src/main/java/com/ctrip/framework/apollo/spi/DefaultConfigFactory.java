@@ -4,6 +4,27 @@ import com.ctrip.framework.apollo.ConfigService;
 import com.ctrip.framework.apollo.PropertiesCompatibleConfigFile;
 import com.ctrip.framework.apollo.internals.PropertiesCompatibleFileConfigRepository;
 import com.ctrip.framework.apollo.internals.TxtConfigFile;
+import com.ctrip.framework.apollo.core.utils.ApolloThreadFactory;
+import com.ctrip.framework.apollo.exceptions.ApolloConfigException;
+import com.ctrip.framework.apollo.tracer.Tracer;
+import com.ctrip.framework.apollo.tracer.spi.Transaction;
+import com.ctrip.framework.apollo.util.ExceptionUtil;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -42,6 +63,143 @@ public class DefaultConfigFactory implements ConfigFactory {
     return new DefaultConfig(namespace, createLocalConfigRepository(namespace));
   }
 
+  /**
+   * Create the configs of the namespaces, whose remote repositories are created concurrently, as each of them blocks
+   * until loaded from the config service. The namespaces not loaded within the time budget are served from their local
+   * cache files, and switch to the config service once loaded.
+   *
+   * @param timeoutInMillis the time budget, 0 means no time budget
+   * @return the configs in the order of the namespaces
+   */
+  public Map<String, Config> create(Collection<String> namespaces, long timeoutInMillis) {
+    List<String> remoteNamespaces = Lists.newArrayList();
+    if (!m_configUtil.isInLocalMode()) {
+      for (String namespace : namespaces) {
+        if (!ConfigFileFormat.isPropertiesCompatible(determineFileFormat(namespace))) {
+          remoteNamespaces.add(namespace);
+        }
+      }
+    }
+
+    Map<String, Config> configs = Maps.newLinkedHashMap();
+    if (remoteNamespaces.size() < 2) {
+      for (String namespace : namespaces) {
+        configs.put(namespace, create(namespace));
+      }
+      return configs;
+    }
+
+    Transaction transaction = Tracer.newTransaction("Apollo.Client.Bootstrap", String.valueOf(remoteNamespaces.size()));
+    long start = System.nanoTime();
+    ConcurrentMap<String, Long> elapsedInMillis = Maps.newConcurrentMap();
+    Map<String, ListenableFuture<RemoteConfigRepository>> remoteRepositories = createRemoteConfigRepositories(
+        remoteNamespaces, start, elapsedInMillis);
+
+    long deadline = start + TimeUnit.MILLISECONDS.toNanos(timeoutInMillis);
+    List<String> timedOutNamespaces = Lists.newArrayList();
+    try {
+      for (String namespace : namespaces) {
+        ListenableFuture<RemoteConfigRepository> remoteRepository = remoteRepositories.get(namespace);
+        if (remoteRepository == null) {
+          configs.put(namespace, create(namespace));
+          continue;
+        }
+        RemoteConfigRepository loaded = await(namespace, remoteRepository, timeoutInMillis > 0 ? deadline : 0);
+        if (loaded != null) {
+          configs.put(namespace, new DefaultConfig(namespace, new LocalFileConfigRepository(namespace, loaded)));
+          continue;
+        }
+        timedOutNamespaces.add(namespace);
+        configs.put(namespace, createWithLocalFallback(namespace, remoteRepository));
+      }
+      transaction.setStatus(Transaction.SUCCESS);
+    } catch (RuntimeException ex) {
+      transaction.setStatus(ex);
+      throw ex;
+    } finally {
+      for (Map.Entry<String, Long> entry : elapsedInMillis.entrySet()) {
+        transaction.addData(entry.getKey(), entry.getValue());
+      }
+      transaction.complete();
+    }
+
+    logger.info("Loaded {} namespaces in {} ms, elapsed by namespace in ms: {}, served from local cache files: {}",
+        remoteNamespaces.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), elapsedInMillis,
+        timedOutNamespaces);
+
+    return configs;
+  }
+
+  private Map<String, ListenableFuture<RemoteConfigRepository>> createRemoteConfigRepositories(
+      List<String> namespaces, final long start, final ConcurrentMap<String, Long> elapsedInMillis) {
+    ListeningExecutorService executorService = MoreExecutors.listeningDecorator(Executors.newFixedThreadPool(
+        Math.min(namespaces.size(), m_configUtil.getBootstrapThreads()),
+        ApolloThreadFactory.create("ConfigBootstrap", true)));
+    Map<String, ListenableFuture<RemoteConfigRepository>> remoteRepositories = Maps.newHashMap();
+    try {
+      for (final String namespace : namespaces) {
+        remoteRepositories.put(namespace, executorService.submit(new Callable<RemoteConfigRepository>() {
+          @Override
+          public RemoteConfigRepository call() throws Exception {
+            RemoteConfigRepository remoteConfigRepository = createRemoteConfigRepository(namespace);
+            elapsedInMillis.put(namespace, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            return remoteConfigRepository;
+          }
+        }));
+      }
+    } finally {
+      //the threads exit once the submitted tasks are done
+      executorService.shutdown();
+    }
+    return remoteRepositories;
+  }
+
+  /**
+   * @param deadline the deadline in nanos, 0 means no deadline
+   * @return the remote repository, or null if it is not created before the deadline
+   */
+  private RemoteConfigRepository await(String namespace, ListenableFuture<RemoteConfigRepository> remoteRepository,
+      long deadline) {
+    try {
+      if (deadline == 0) {
+        return remoteRepository.get();
+      }
+      return remoteRepository.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+    } catch (TimeoutException ex) {
+      return null;
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      return null;
+    } catch (ExecutionException ex) {
+      throw new ApolloConfigException(String.format("Create remote config repository for %s failed", namespace),
+          ex.getCause());
+    }
+  }
+
+  private Config createWithLocalFallback(final String namespace,
+      ListenableFuture<RemoteConfigRepository> remoteRepository) {
+    logger.warn("Config for namespace {} is not loaded in time, serving it from the local cache file until loaded",
+        namespace);
+    Tracer.logEvent("Apollo.Client.BootstrapTimeout", namespace);
+    final LocalFileConfigRepository localRepository = new LocalFileConfigRepository(namespace);
+    Config config = new DefaultConfig(namespace, localRepository);
+    //set the upstream after the config listens to the local repository, so that it gets the changes
+    Futures.addCallback(remoteRepository, new FutureCallback<RemoteConfigRepository>() {
+      @Override
+      public void onSuccess(RemoteConfigRepository result) {
+        localRepository.setUpstreamRepository(result);
+      }
+
+      @Override
+      public void onFailure(Throwable t) {
+        Tracer.logError(t);
+        logger.warn("Create remote config repository for {} failed, reason: {}", namespace,
+            ExceptionUtil.getDetailMessage(t));
+      }
+    }, MoreExecutors.directExecutor());
+    return config;
+  }
+
   @Override
   public ConfigFile createConfigFile(String namespace, ConfigFileFormat configFileFormat) {
     ConfigRepository configRepository = createLocalConfigRepository(namespace);
@@ -10,6 +10,7 @@ import com.ctrip.framework.apollo.util.factory.PropertiesFactory;
 import com.google.common.base.Splitter;
 import com.google.common.base.Strings;
 import java.util.List;
+import java.util.Map;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.boot.SpringApplication;
@@ -42,6 +43,12 @@ import org.springframework.core.env.ConfigurableEnvironment;
  *   apollo.bootstrap.namespaces = application,FX.apollo
  * </pre>
  *
+ * The namespaces are loaded concurrently. To limit the startup time when the config service is slow, set a time budget,
+ * the namespaces not loaded in time are served from the local cache files until loaded
+ * <pre class="code">
+ *   apollo.bootstrap.timeoutInMillis = 5000
+ * </pre>
+ *
  *
  * If you want to load Apollo configurations even before Logging System Initialization Phase,
  *  add
@@ -62,7 +69,8 @@ public class ApolloApplicationContextInitializer implements
   private static final Logger logger = LoggerFactory.getLogger(ApolloApplicationContextInitializer.class);
   private static final Splitter NAMESPACE_SPLITTER = Splitter.on(",").omitEmptyStrings().trimResults();
   private static final String[] APOLLO_SYSTEM_PROPERTIES = {"app.id", ConfigConsts.APOLLO_CLUSTER_KEY,
-      "apollo.cacheDir", "apollo.accesskey.secret", ConfigConsts.APOLLO_META_KEY, PropertiesFactory.APOLLO_PROPERTY_ORDER_ENABLE};
+      "apollo.cacheDir", "apollo.accesskey.secret", ConfigConsts.APOLLO_META_KEY, PropertiesFactory.APOLLO_PROPERTY_ORDER_ENABLE,
+      "apollo.bootstrap.threads", "apollo.bootstrap.timeoutInMillis"};
 
   private final ConfigPropertySourceFactory configPropertySourceFactory = SpringInjector
       .getInstance(ConfigPropertySourceFactory.class);
@@ -100,10 +108,10 @@ public class ApolloApplicationContextInitializer implements
     List<String> namespaceList = NAMESPACE_SPLITTER.splitToList(namespaces);
 
     CompositePropertySource composite = new CompositePropertySource(PropertySourcesConstants.APOLLO_BOOTSTRAP_PROPERTY_SOURCE_NAME);
-    for (String namespace : namespaceList) {
-      Config config = ConfigService.getConfig(namespace);
-
-      composite.addPropertySource(configPropertySourceFactory.getConfigPropertySource(namespace, config));
+    Map<String, Config> configs = ConfigService.getConfigs(namespaceList);
+    for (Map.Entry<String, Config> entry : configs.entrySet()) {
+      composite.addPropertySource(configPropertySourceFactory.getConfigPropertySource(entry.getKey(),
+          entry.getValue()));
     }
 
     environment.getPropertySources().addFirst(composite);
@@ -27,6 +27,7 @@ import org.springframework.core.env.Environment;
 
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.Map;
 import org.springframework.core.env.MutablePropertySources;
 import org.springframework.core.env.PropertySource;
 
@@ -68,14 +69,21 @@ public class PropertySourcesProcessor implements BeanFactoryPostProcessor, Envir
 
     //sort by order asc
     ImmutableSortedSet<Integer> orders = ImmutableSortedSet.copyOf(NAMESPACE_NAMES.keySet());
+
+    //load the namespaces of all the orders together, so that they are loaded concurrently
+    Set<String> namespaces = Sets.newLinkedHashSet();
+    for (int order : orders) {
+      namespaces.addAll(NAMESPACE_NAMES.get(order));
+    }
+    Map<String, Config> configs = ConfigService.getConfigs(namespaces);
+
     Iterator<Integer> iterator = orders.iterator();
 
     while (iterator.hasNext()) {
       int order = iterator.next();
       for (String namespace : NAMESPACE_NAMES.get(order)) {
-        Config config = ConfigService.getConfig(namespace);
-
-        composite.addPropertySource(configPropertySourceFactory.getConfigPropertySource(namespace, config));
+        composite.addPropertySource(configPropertySourceFactory.getConfigPropertySource(namespace,
+            configs.get(namespace)));
       }
     }
 
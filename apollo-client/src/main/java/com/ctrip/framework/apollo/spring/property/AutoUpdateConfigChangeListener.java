@@ -3,10 +3,14 @@ package com.ctrip.framework.apollo.spring.property;
 import com.ctrip.framework.apollo.ConfigChangeListener;
 import com.ctrip.framework.apollo.model.ConfigChangeEvent;
 import com.ctrip.framework.apollo.spring.util.SpringInjector;
+import com.google.common.collect.Maps;
+import com.google.common.primitives.Primitives;
 import com.google.gson.Gson;
 import java.lang.reflect.Field;
+import java.lang.reflect.Member;
 import java.lang.reflect.Type;
 import java.util.Collection;
+import java.util.Map;
 import java.util.Set;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -21,6 +25,8 @@ import org.springframework.util.CollectionUtils;
  */
 public class AutoUpdateConfigChangeListener implements ConfigChangeListener{
   private static final Logger logger = LoggerFactory.getLogger(AutoUpdateConfigChangeListener.class);
+  private static final String EXPRESSION_PREFIX = "#{";
+  private static final char RESOLVED_VALUE_KEY_SEPARATOR = '\u0000';
 
   private final boolean typeConverterHasConvertIfNecessaryWithFieldParameter;
   private final Environment environment;
@@ -46,23 +52,47 @@ public class AutoUpdateConfigChangeListener implements ConfigChangeListener{
     if (CollectionUtils.isEmpty(keys)) {
       return;
     }
+    // 1. find the relevant spring values, each field or method is updated only once even if several of its keys are
+    // changed, e.g. ${a:${b}} with both a and b changed
+    Map<InjectionPoint, SpringValue> targetValues = Maps.newLinkedHashMap();
     for (String key : keys) {
-      // 1. check whether the changed key is relevant
-      Collection<SpringValue> targetValues = springValueRegistry.get(beanFactory, key);
-      if (targetValues == null || targetValues.isEmpty()) {
+      Collection<SpringValue> springValues = springValueRegistry.get(beanFactory, key);
+      if (springValues == null || springValues.isEmpty()) {
         continue;
       }
-
-      // 2. update the value
-      for (SpringValue val : targetValues) {
-        updateSpringValue(val);
+      for (SpringValue springValue : springValues) {
+        Object bean = springValue.getBean();
+        if (bean == null) {
+          continue;
+        }
+        InjectionPoint injectionPoint = new InjectionPoint(bean, springValue.getMember());
+        if (!targetValues.containsKey(injectionPoint)) {
+          targetValues.put(injectionPoint, springValue);
+        }
       }
     }
+
+    // 2. update the values, the values of the same placeholder and type are resolved only once in this change
+    Map<String, Object> resolvedValues = Maps.newHashMap();
+    for (SpringValue val : targetValues.values()) {
+      updateSpringValue(val, resolvedValues);
+    }
   }
 
-  private void updateSpringValue(SpringValue springValue) {
+  private void updateSpringValue(SpringValue springValue, Map<String, Object> resolvedValues) {
     try {
-      Object value = resolvePropertyValue(springValue);
+      Object value;
+      if (isShareable(springValue)) {
+        String resolvedValueKey = springValue.getPlaceholder() + RESOLVED_VALUE_KEY_SEPARATOR
+            + springValue.getTargetType().getName();
+        value = resolvedValues.get(resolvedValueKey);
+        if (value == null) {
+          value = resolvePropertyValue(springValue);
+          resolvedValues.put(resolvedValueKey, value);
+        }
+      } else {
+        value = resolvePropertyValue(springValue);
+      }
       springValue.update(value);
 
       logger.info("Auto update apollo changed value successfully, new value: {}, {}", value,
@@ -72,6 +102,27 @@ public class AutoUpdateConfigChangeListener implements ConfigChangeListener{
     }
   }
 
+  /**
+   * The resolved value could be shared by the spring values of the same placeholder and type, as long as it is
+   * immutable, and it doesn't depend on the bean, e.g. the expressions evaluated in the bean's scope, or the formatting
+   * annotations on the field.
+   */
+  private boolean isShareable(SpringValue springValue) {
+    if (springValue.isJson() || springValue.getPlaceholder().contains(EXPRESSION_PREFIX)) {
+      return false;
+    }
+    Class<?> targetType = springValue.getTargetType();
+    if (!(targetType == String.class || targetType.isEnum() || Primitives.allPrimitiveTypes().contains(targetType)
+        || Primitives.allWrapperTypes().contains(targetType))) {
+      return false;
+    }
+    if (springValue.isField()) {
+      // only the @Value annotation
+      return springValue.getField().getAnnotations().length <= 1;
+    }
+    return springValue.getMethodParameter().getParameterAnnotations().length == 0;
+  }
+
   /**
    * Logic transplanted from DefaultListableBeanFactory
    * @see org.springframework.beans.factory.support.DefaultListableBeanFactory#doResolveDependency(org.springframework.beans.factory.config.DependencyDescriptor, java.lang.String, java.util.Set, org.springframework.beans.TypeConverter)
@@ -119,4 +170,34 @@ public class AutoUpdateConfigChangeListener implements ConfigChangeListener{
 
     return true;
   }
+
+  /**
+   * The field or method of a bean, compared by the identity of the bean.
+   */
+  private static class InjectionPoint {
+    private final Object bean;
+    private final Member member;
+
+    InjectionPoint(Object bean, Member member) {
+      this.bean = bean;
+      this.member = member;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof InjectionPoint)) {
+        return false;
+      }
+      InjectionPoint that = (InjectionPoint) o;
+      return bean == that.bean && member.equals(that.member);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * System.identityHashCode(bean) + member.hashCode();
+    }
+  }
 }
@@ -3,6 +3,7 @@ package com.ctrip.framework.apollo.spring.property;
 import java.lang.ref.WeakReference;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Member;
 import java.lang.reflect.Method;
 import java.lang.reflect.Type;
 import org.springframework.core.MethodParameter;
@@ -112,6 +113,20 @@ public class SpringValue {
     return isJson;
   }
 
+  /**
+   * @return the target bean, or null if it is garbage collected
+   */
+  Object getBean() {
+    return beanRef.get();
+  }
+
+  /**
+   * @return the field or the method injected
+   */
+  Member getMember() {
+    return isField() ? field : methodParameter.getMethod();
+  }
+
   boolean isTargetBeanValid() {
     return beanRef.get() != null;
   }
@@ -1,36 +1,80 @@
 package com.ctrip.framework.apollo.spring.property;
 
 import com.ctrip.framework.apollo.core.utils.ApolloThreadFactory;
-import com.google.common.collect.LinkedListMultimap;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.MapMaker;
 import com.google.common.collect.Maps;
-import com.google.common.collect.Multimap;
+import com.google.common.collect.Sets;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
 import java.util.Collection;
-import java.util.Iterator;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
-import com.google.common.collect.Multimaps;
 import org.springframework.beans.factory.BeanFactory;
 
+/**
+ * The spring values indexed by the keys of their placeholders, e.g. the spring value of <code>${a:${b}}</code> is
+ * registered with both <code>a</code> and <code>b</code>.
+ *
+ * <p>The spring values of a bean are unregistered once the bean is garbage collected, which is told by a reference
+ * queue, so the registry is never scanned in full.</p>
+ */
 public class SpringValueRegistry {
   private static final long CLEAN_INTERVAL_IN_SECONDS = 5;
-  private final Map<BeanFactory, Multimap<String, SpringValue>> registry = Maps.newConcurrentMap();
+  private final Map<BeanFactory, ConcurrentMap<String, Set<SpringValue>>> registry = Maps.newConcurrentMap();
+  //bean -> its registrations, the beans are weak keys compared by identity
+  private final ConcurrentMap<Object, BeanReference> beanReferences = new MapMaker().weakKeys().makeMap();
+  //the bean references must be reachable until enqueued
+  private final Set<BeanReference> pendingBeanReferences = Sets.newConcurrentHashSet();
+  private final ReferenceQueue<Object> collectedBeans = new ReferenceQueue<>();
   private final AtomicBoolean initialized = new AtomicBoolean(false);
   private final Object LOCK = new Object();
 
   public void register(BeanFactory beanFactory, String key, SpringValue springValue) {
+    Object bean = springValue.getBean();
+    if (bean == null) {
+      return;
+    }
+
     if (!registry.containsKey(beanFactory)) {
       synchronized (LOCK) {
         if (!registry.containsKey(beanFactory)) {
-          registry.put(beanFactory, Multimaps.synchronizedListMultimap(LinkedListMultimap.<String, SpringValue>create()));
+          registry.put(beanFactory, Maps.<String, Set<SpringValue>>newConcurrentMap());
         }
       }
     }
 
-    registry.get(beanFactory).put(key, springValue);
+    ConcurrentMap<String, Set<SpringValue>> springValues = registry.get(beanFactory);
+    Set<SpringValue> keySpringValues = springValues.get(key);
+    if (keySpringValues == null) {
+      // keep the registration order, which is the order of the updates
+      Set<SpringValue> newSpringValues = Collections.synchronizedSet(Sets.<SpringValue>newLinkedHashSet());
+      keySpringValues = springValues.putIfAbsent(key, newSpringValues);
+      if (keySpringValues == null) {
+        keySpringValues = newSpringValues;
+      }
+    }
+    keySpringValues.add(springValue);
+
+    BeanReference beanReference = beanReferences.get(bean);
+    if (beanReference == null) {
+      BeanReference newBeanReference = new BeanReference(bean, collectedBeans);
+      beanReference = beanReferences.putIfAbsent(bean, newBeanReference);
+      if (beanReference == null) {
+        beanReference = newBeanReference;
+        pendingBeanReferences.add(beanReference);
+      }
+    }
+    beanReference.add(new Registration(beanFactory, key, springValue));
 
     // lazy initialize
     if (initialized.compareAndSet(false, true)) {
@@ -38,12 +82,21 @@ public class SpringValueRegistry {
     }
   }
 
+  /**
+   * @return a snapshot of the spring values registered with the key, or null if there is none
+   */
   public Collection<SpringValue> get(BeanFactory beanFactory, String key) {
-    Multimap<String, SpringValue> beanFactorySpringValues = registry.get(beanFactory);
+    Map<String, Set<SpringValue>> beanFactorySpringValues = registry.get(beanFactory);
     if (beanFactorySpringValues == null) {
       return null;
     }
-    return beanFactorySpringValues.get(key);
+    Set<SpringValue> springValues = beanFactorySpringValues.get(key);
+    if (springValues == null) {
+      return null;
+    }
+    synchronized (springValues) {
+      return ImmutableList.copyOf(springValues);
+    }
   }
 
   private void initialize() {
@@ -52,7 +105,7 @@ public class SpringValueRegistry {
           @Override
           public void run() {
             try {
-              scanAndClean();
+              clean();
             } catch (Throwable ex) {
               ex.printStackTrace();
             }
@@ -60,18 +113,51 @@ public class SpringValueRegistry {
         }, CLEAN_INTERVAL_IN_SECONDS, CLEAN_INTERVAL_IN_SECONDS, TimeUnit.SECONDS);
   }
 
-  private void scanAndClean() {
-    Iterator<Multimap<String, SpringValue>> iterator = registry.values().iterator();
-    while (!Thread.currentThread().isInterrupted() && iterator.hasNext()) {
-      Multimap<String, SpringValue> springValues = iterator.next();
-      Iterator<Entry<String, SpringValue>> springValueIterator = springValues.entries().iterator();
-      while (springValueIterator.hasNext()) {
-        Entry<String, SpringValue> springValue = springValueIterator.next();
-        if (!springValue.getValue().isTargetBeanValid()) {
-          // clear unused spring values
-          springValueIterator.remove();
+  /**
+   * Unregister the spring values of the beans garbage collected since last time.
+   */
+  void clean() {
+    Reference<?> reference;
+    while (!Thread.currentThread().isInterrupted() && (reference = collectedBeans.poll()) != null) {
+      pendingBeanReferences.remove(reference);
+      for (Registration registration : ((BeanReference) reference).getRegistrations()) {
+        Map<String, Set<SpringValue>> springValues = registry.get(registration.beanFactory);
+        if (springValues == null) {
+          continue;
+        }
+        Set<SpringValue> keySpringValues = springValues.get(registration.key);
+        if (keySpringValues != null) {
+          keySpringValues.remove(registration.springValue);
         }
       }
     }
   }
+
+  private static class BeanReference extends WeakReference<Object> {
+    private final List<Registration> registrations = Lists.newArrayList();
+
+    BeanReference(Object bean, ReferenceQueue<Object> queue) {
+      super(bean, queue);
+    }
+
+    synchronized void add(Registration registration) {
+      registrations.add(registration);
+    }
+
+    synchronized List<Registration> getRegistrations() {
+      return Lists.newArrayList(registrations);
+    }
+  }
+
+  private static class Registration {
+    private final BeanFactory beanFactory;
+    private final String key;
+    private final SpringValue springValue;
+
+    Registration(BeanFactory beanFactory, String key, SpringValue springValue) {
+      this.beanFactory = beanFactory;
+      this.key = key;
+      this.springValue = springValue;
+    }
+  }
 }
@@ -40,6 +40,12 @@ public class ConfigUtil {
   private boolean autoUpdateInjectedSpringProperties = true;
   private final RateLimiter warnLogRateLimiter;
   private boolean propertiesOrdered = false;
+  private boolean configDeltaSyncEnabled = false;
+  private boolean configBatchLoadEnabled = true;
+  private boolean localCacheBinaryFormatEnabled = false;
+  private int httpMaxConnectionsPerHost = 10;
+  private int bootstrapThreads = 8;
+  private long bootstrapTimeoutInMillis = 0;//no time budget
 
   public ConfigUtil() {
     warnLogRateLimiter = RateLimiter.create(0.017); // 1 warning log output per minute
@@ -52,6 +58,11 @@ public class ConfigUtil {
     initLongPollingInitialDelayInMills();
     initAutoUpdateInjectedSpringProperties();
     initPropertiesOrdered();
+    initConfigDeltaSyncEnabled();
+    initConfigBatchLoadEnabled();
+    initLocalCacheBinaryFormatEnabled();
+    initHttpTransport();
+    initBootstrap();
   }
 
   /**
@@ -339,4 +350,115 @@ public class ConfigUtil {
   public boolean isPropertiesOrderEnabled() {
     return propertiesOrdered;
   }
+
+  private void initConfigDeltaSyncEnabled() {
+    // 1. Get from System Property
+    String enableDeltaSync = System.getProperty("apollo.config.deltaSync.enabled");
+    if (Strings.isNullOrEmpty(enableDeltaSync)) {
+      // 2. Get from app.properties
+      enableDeltaSync = Foundation.app().getProperty("apollo.config.deltaSync.enabled", null);
+    }
+    if (!Strings.isNullOrEmpty(enableDeltaSync)) {
+      configDeltaSyncEnabled = Boolean.parseBoolean(enableDeltaSync.trim());
+    }
+  }
+
+  /**
+   * @return whether to ask the config service for the changed keys only instead of the full configurations
+   */
+  public boolean isConfigDeltaSyncEnabled() {
+    return configDeltaSyncEnabled;
+  }
+
+  private void initConfigBatchLoadEnabled() {
+    // 1. Get from System Property
+    String enableBatchLoad = System.getProperty("apollo.config.batchLoad.enabled");
+    if (Strings.isNullOrEmpty(enableBatchLoad)) {
+      // 2. Get from app.properties
+      enableBatchLoad = Foundation.app().getProperty("apollo.config.batchLoad.enabled", null);
+    }
+    if (!Strings.isNullOrEmpty(enableBatchLoad)) {
+      configBatchLoadEnabled = Boolean.parseBoolean(enableBatchLoad.trim());
+    }
+  }
+
+  /**
+   * @return whether to load the configs of several namespaces in one request at startup and on notifications
+   */
+  public boolean isConfigBatchLoadEnabled() {
+    return configBatchLoadEnabled;
+  }
+
+  private void initLocalCacheBinaryFormatEnabled() {
+    // 1. Get from System Property
+    String enableBinaryFormat = System.getProperty("apollo.cache.binaryFormat.enabled");
+    if (Strings.isNullOrEmpty(enableBinaryFormat)) {
+      // 2. Get from app.properties
+      enableBinaryFormat = Foundation.app().getProperty("apollo.cache.binaryFormat.enabled", null);
+    }
+    if (!Strings.isNullOrEmpty(enableBinaryFormat)) {
+      localCacheBinaryFormatEnabled = Boolean.parseBoolean(enableBinaryFormat.trim());
+    }
+  }
+
+  /**
+   * @return whether to also write the local cache as binary files, which are faster to load than the properties files
+   */
+  public boolean isLocalCacheBinaryFormatEnabled() {
+    return localCacheBinaryFormatEnabled;
+  }
+
+  private void initHttpTransport() {
+    httpMaxConnectionsPerHost = getPositiveIntProperty("apollo.http.maxConnectionsPerHost",
+        httpMaxConnectionsPerHost);
+  }
+
+  private void initBootstrap() {
+    bootstrapThreads = getPositiveIntProperty("apollo.bootstrap.threads", bootstrapThreads);
+    bootstrapTimeoutInMillis = getPositiveIntProperty("apollo.bootstrap.timeoutInMillis",
+        (int) bootstrapTimeoutInMillis);
+  }
+
+  private int getPositiveIntProperty(String key, int defaultValue) {
+    // 1. Get from System Property
+    String customizedValue = System.getProperty(key);
+    if (Strings.isNullOrEmpty(customizedValue)) {
+      // 2. Get from app.properties
+      customizedValue = Foundation.app().getProperty(key, null);
+    }
+    if (!Strings.isNullOrEmpty(customizedValue)) {
+      try {
+        int value = Integer.parseInt(customizedValue.trim());
+        if (value > 0) {
+          return value;
+        }
+      } catch (Throwable ex) {
+        // ignore
+      }
+      logger.error("Config for {} is invalid: {}", key, customizedValue);
+    }
+    return defaultValue;
+  }
+
+  /**
+   * @return the max concurrent requests to one config service or meta server instance
+   */
+  public int getHttpMaxConnectionsPerHost() {
+    return httpMaxConnectionsPerHost;
+  }
+
+  /**
+   * @return the max namespaces loaded concurrently from the config service when they are requested together
+   */
+  public int getBootstrapThreads() {
+    return bootstrapThreads;
+  }
+
+  /**
+   * @return the time budget to load the namespaces requested together, the ones not loaded in time are served from
+   * the local cache files until loaded, 0 means no time budget
+   */
+  public long getBootstrapTimeoutInMillis() {
+    return bootstrapTimeoutInMillis;
+  }
 }
@@ -0,0 +1,189 @@
+package com.ctrip.framework.apollo.util.http;
+
+import com.ctrip.framework.apollo.build.ApolloInjector;
+import com.ctrip.framework.apollo.exceptions.ApolloConfigException;
+import com.ctrip.framework.apollo.exceptions.ApolloConfigStatusCodeException;
+import com.ctrip.framework.apollo.util.ConfigUtil;
+import com.google.common.base.Function;
+import com.google.common.collect.Maps;
+import com.google.common.io.ByteStreams;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * The default transport based on {@link HttpURLConnection}.
+ *
+ * <p>The connections are kept alive and reused by the JDK as long as the response bodies are fully read, and the
+ * concurrent requests to each host are limited. The requests over the limit wait for their turn within their read
+ * timeout, as the long polling request holds its permit for as long as the config service holds the request.</p>
+ *
+ * <p>Responses are requested with gzip encoding and parsed directly from the response stream, so large namespaces
+ * are neither transferred nor held in memory as a whole string.</p>
+ */
+public class DefaultHttpTransport implements HttpTransport {
+  private static final String ACCEPT_ENCODING = "Accept-Encoding";
+  private static final String GZIP = "gzip";
+
+  private final ConfigUtil m_configUtil;
+  private final ConcurrentMap<String, Semaphore> m_hostPermits;
+
+  public DefaultHttpTransport() {
+    m_configUtil = ApolloInjector.getInstance(ConfigUtil.class);
+    m_hostPermits = Maps.newConcurrentMap();
+  }
+
+  @Override
+  public <T> HttpResponse<T> doGet(HttpRequest httpRequest, Function<Reader, T> serializeFunction) {
+    Semaphore permits = acquirePermit(httpRequest);
+    try {
+      return doGetWithSerializeFunction(httpRequest, serializeFunction);
+    } finally {
+      permits.release();
+    }
+  }
+
+  @Override
+  public int getOrder() {
+    return LOWEST_PRECEDENCE;
+  }
+
+  private Semaphore acquirePermit(HttpRequest httpRequest) {
+    String host = HttpUtil.extractHost(httpRequest.getUrl());
+    Semaphore permits = m_hostPermits.get(host);
+    if (permits == null) {
+      Semaphore newPermits = new Semaphore(m_configUtil.getHttpMaxConnectionsPerHost());
+      permits = m_hostPermits.putIfAbsent(host, newPermits);
+      if (permits == null) {
+        permits = newPermits;
+      }
+    }
+
+    boolean acquired = false;
+    try {
+      acquired = permits.tryAcquire(resolveReadTimeout(httpRequest), TimeUnit.MILLISECONDS);
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    }
+    if (!acquired) {
+      throw new ApolloConfigException(String.format("Too many concurrent requests to %s, the limit is %d", host,
+          m_configUtil.getHttpMaxConnectionsPerHost()));
+    }
+    return permits;
+  }
+
+  private int resolveConnectTimeout(HttpRequest httpRequest) {
+    int connectTimeout = httpRequest.getConnectTimeout();
+    return connectTimeout < 0 ? m_configUtil.getConnectTimeout() : connectTimeout;
+  }
+
+  private int resolveReadTimeout(HttpRequest httpRequest) {
+    int readTimeout = httpRequest.getReadTimeout();
+    return readTimeout < 0 ? m_configUtil.getReadTimeout() : readTimeout;
+  }
+
+  private <T> HttpResponse<T> doGetWithSerializeFunction(HttpRequest httpRequest,
+                                                         Function<Reader, T> serializeFunction) {
+    InputStream is = null;
+    InputStream es = null;
+    int statusCode;
+    try {
+      HttpURLConnection conn = (HttpURLConnection) new URL(httpRequest.getUrl()).openConnection();
+
+      conn.setRequestMethod("GET");
+
+      Map<String, String> headers = httpRequest.getHeaders();
+      if (headers != null && headers.size() > 0) {
+        for (Map.Entry<String, String> entry : headers.entrySet()) {
+          conn.setRequestProperty(entry.getKey(), entry.getValue());
+        }
+      }
+      if (conn.getRequestProperty(ACCEPT_ENCODING) == null) {
+        conn.setRequestProperty(ACCEPT_ENCODING, GZIP);
+      }
+
+      conn.setConnectTimeout(resolveConnectTimeout(httpRequest));
+      conn.setReadTimeout(resolveReadTimeout(httpRequest));
+
+      conn.connect();
+
+      statusCode = conn.getResponseCode();
+
+      try {
+        is = conn.getInputStream();
+      } catch (IOException ex) {
+        /**
+         * according to https://docs.oracle.com/javase/7/docs/technotes/guides/net/http-keepalive.html,
+         * we should clean up the connection by reading the response body so that the connection
+         * could be reused.
+         */
+        es = conn.getErrorStream();
+
+        if (es != null) {
+          try {
+            ByteStreams.exhaust(es);
+          } catch (IOException ioe) {
+            //ignore
+          }
+        }
+
+        // 200 and 304 should not trigger IOException, thus we must throw the original exception out
+        if (statusCode == 200 || statusCode == 304) {
+          throw ex;
+        }
+        // for status codes like 404, IOException is expected when calling conn.getInputStream()
+        throw new ApolloConfigStatusCodeException(statusCode, ex);
+      }
+
+      if (statusCode == 200) {
+        InputStream body = is;
+        if (GZIP.equalsIgnoreCase(conn.getContentEncoding())) {
+          body = new GZIPInputStream(is);
+        }
+        // parse from the stream directly so that large responses are never buffered as a whole
+        T result = serializeFunction.apply(new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8)));
+        // drain what the parser left, e.g. trailing whitespaces or the gzip trailer, to keep the connection alive
+        ByteStreams.exhaust(is);
+        return new HttpResponse<>(statusCode, result);
+      }
+
+      if (statusCode == 304) {
+        ByteStreams.exhaust(is);
+        return new HttpResponse<>(statusCode, null);
+      }
+    } catch (ApolloConfigStatusCodeException ex) {
+      throw ex;
+    } catch (Throwable ex) {
+      throw new ApolloConfigException("Could not complete get operation", ex);
+    } finally {
+      if (is != null) {
+        try {
+          is.close();
+        } catch (IOException ex) {
+          // ignore
+        }
+      }
+
+      if (es != null) {
+        try {
+          es.close();
+        } catch (IOException ex) {
+          // ignore
+        }
+      }
+    }
+
+    throw new ApolloConfigStatusCodeException(statusCode,
+        String.format("Get operation failed for %s", httpRequest.getUrl()));
+  }
+}
@@ -0,0 +1,77 @@
+package com.ctrip.framework.apollo.util.http;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Request metrics of one host, e.g. a config service or meta server instance.
+ */
+public class HttpHostMetrics {
+  private final String m_host;
+  private final AtomicLong m_requests = new AtomicLong();
+  private final AtomicLong m_failures = new AtomicLong();
+  private final AtomicLong m_inFlight = new AtomicLong();
+  private final AtomicLong m_totalLatencyInMillis = new AtomicLong();
+  private final AtomicLong m_maxLatencyInMillis = new AtomicLong();
+
+  public HttpHostMetrics(String host) {
+    this.m_host = host;
+  }
+
+  void onStart() {
+    m_requests.incrementAndGet();
+    m_inFlight.incrementAndGet();
+  }
+
+  void onComplete(long latencyInMillis, boolean success) {
+    m_inFlight.decrementAndGet();
+    if (!success) {
+      m_failures.incrementAndGet();
+    }
+    m_totalLatencyInMillis.addAndGet(latencyInMillis);
+    long max = m_maxLatencyInMillis.get();
+    while (latencyInMillis > max && !m_maxLatencyInMillis.compareAndSet(max, latencyInMillis)) {
+      max = m_maxLatencyInMillis.get();
+    }
+  }
+
+  public String getHost() {
+    return m_host;
+  }
+
+  public long getRequests() {
+    return m_requests.get();
+  }
+
+  public long getFailures() {
+    return m_failures.get();
+  }
+
+  public long getInFlight() {
+    return m_inFlight.get();
+  }
+
+  public long getMaxLatencyInMillis() {
+    return m_maxLatencyInMillis.get();
+  }
+
+  /**
+   * @return the average latency of the completed requests, long polling requests included
+   */
+  public long getAverageLatencyInMillis() {
+    long completed = m_requests.get() - m_inFlight.get();
+    return completed <= 0 ? 0 : m_totalLatencyInMillis.get() / completed;
+  }
+
+  @Override
+  public String toString() {
+    final StringBuilder sb = new StringBuilder("HttpHostMetrics{");
+    sb.append("host='").append(m_host).append('\'');
+    sb.append(", requests=").append(getRequests());
+    sb.append(", failures=").append(getFailures());
+    sb.append(", inFlight=").append(getInFlight());
+    sb.append(", averageLatencyInMillis=").append(getAverageLatencyInMillis());
+    sb.append(", maxLatencyInMillis=").append(getMaxLatencyInMillis());
+    sb.append('}');
+    return sb.toString();
+  }
+}
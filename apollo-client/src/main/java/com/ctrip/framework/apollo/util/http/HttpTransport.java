@@ -0,0 +1,28 @@
+package com.ctrip.framework.apollo.util.http;
+
+import com.ctrip.framework.apollo.core.spi.Ordered;
+import com.ctrip.framework.apollo.exceptions.ApolloConfigException;
+import com.ctrip.framework.apollo.exceptions.ApolloConfigStatusCodeException;
+import com.google.common.base.Function;
+import java.io.Reader;
+
+/**
+ * The transport {@link HttpUtil} sends the requests with, the one with the highest priority is used.
+ *
+ * <p>Implementations are shared by all the namespaces and apps in the JVM, so they should limit the connections and
+ * threads they hold.</p>
+ */
+public interface HttpTransport extends Ordered {
+
+  /**
+   * Do get operation for the http request, blocking until the response is read.
+   *
+   * @param httpRequest       the request
+   * @param serializeFunction converts the response body, which should be read as a stream instead of being
+   *                          buffered into a string
+   * @return the response
+   * @throws ApolloConfigStatusCodeException if the response code is neither 200 nor 304
+   * @throws ApolloConfigException           if any other error happened
+   */
+  <T> HttpResponse<T> doGet(HttpRequest httpRequest, Function<Reader, T> serializeFunction);
+}
@@ -1,33 +1,33 @@
 package com.ctrip.framework.apollo.util.http;
 
-import com.ctrip.framework.apollo.build.ApolloInjector;
 import com.ctrip.framework.apollo.exceptions.ApolloConfigException;
 import com.ctrip.framework.apollo.exceptions.ApolloConfigStatusCodeException;
-import com.ctrip.framework.apollo.util.ConfigUtil;
+import com.ctrip.framework.foundation.internals.ServiceBootstrap;
 import com.google.common.base.Function;
-import com.google.common.io.CharStreams;
+import com.google.common.collect.Maps;
 import com.google.gson.Gson;
-import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.io.Reader;
 import java.lang.reflect.Type;
-import java.net.HttpURLConnection;
-import java.net.URL;
-import java.nio.charset.StandardCharsets;
+import java.net.URI;
+import java.util.Collections;
 import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * @author Jason Song(song_s@ctrip.com)
  */
 public class HttpUtil {
-  private ConfigUtil m_configUtil;
   private static final Gson GSON = new Gson();
+  private static final String UNKNOWN_HOST = "unknown";
+  private final HttpTransport m_transport;
+  private final ConcurrentMap<String, HttpHostMetrics> m_hostMetrics;
 
   /**
    * Constructor.
    */
   public HttpUtil() {
-    m_configUtil = ApolloInjector.getInstance(ConfigUtil.class);
+    m_transport = ServiceBootstrap.loadPrimary(HttpTransport.class);
+    m_hostMetrics = Maps.newConcurrentMap();
   }
 
   /**
@@ -39,9 +39,9 @@ public class HttpUtil {
    * @throws ApolloConfigException if any error happened or response code is neither 200 nor 304
    */
   public <T> HttpResponse<T> doGet(HttpRequest httpRequest, final Class<T> responseType) {
-    Function<String, T> convertResponse = new Function<String, T>() {
+    Function<Reader, T> convertResponse = new Function<Reader, T>() {
       @Override
-      public T apply(String input) {
+      public T apply(Reader input) {
         return GSON.fromJson(input, responseType);
       }
     };
@@ -58,9 +58,9 @@ public class HttpUtil {
    * @throws ApolloConfigException if any error happened or response code is neither 200 nor 304
    */
   public <T> HttpResponse<T> doGet(HttpRequest httpRequest, final Type responseType) {
-    Function<String, T> convertResponse = new Function<String, T>() {
+    Function<Reader, T> convertResponse = new Function<Reader, T>() {
       @Override
-      public T apply(String input) {
+      public T apply(Reader input) {
         return GSON.fromJson(input, responseType);
       }
     };
@@ -68,100 +68,50 @@ public class HttpUtil {
     return doGetWithSerializeFunction(httpRequest, convertResponse);
   }
 
+  /**
+   * @return the request metrics keyed by host, e.g. someHost:8080
+   */
+  public Map<String, HttpHostMetrics> getHostMetrics() {
+    return Collections.unmodifiableMap(m_hostMetrics);
+  }
+
   private <T> HttpResponse<T> doGetWithSerializeFunction(HttpRequest httpRequest,
-                                                         Function<String, T> serializeFunction) {
-    InputStreamReader isr = null;
-    InputStreamReader esr = null;
-    int statusCode;
+                                                         Function<Reader, T> serializeFunction) {
+    HttpHostMetrics metrics = getOrCreateHostMetrics(httpRequest.getUrl());
+    long start = System.currentTimeMillis();
+    boolean success = false;
+    metrics.onStart();
     try {
-      HttpURLConnection conn = (HttpURLConnection) new URL(httpRequest.getUrl()).openConnection();
-
-      conn.setRequestMethod("GET");
-
-      Map<String, String> headers = httpRequest.getHeaders();
-      if (headers != null && headers.size() > 0) {
-        for (Map.Entry<String, String> entry : headers.entrySet()) {
-          conn.setRequestProperty(entry.getKey(), entry.getValue());
-        }
-      }
-
-      int connectTimeout = httpRequest.getConnectTimeout();
-      if (connectTimeout < 0) {
-        connectTimeout = m_configUtil.getConnectTimeout();
-      }
-
-      int readTimeout = httpRequest.getReadTimeout();
-      if (readTimeout < 0) {
-        readTimeout = m_configUtil.getReadTimeout();
-      }
-
-      conn.setConnectTimeout(connectTimeout);
-      conn.setReadTimeout(readTimeout);
-
-      conn.connect();
-
-      statusCode = conn.getResponseCode();
-      String response;
-
-      try {
-        isr = new InputStreamReader(conn.getInputStream(), StandardCharsets.UTF_8);
-        response = CharStreams.toString(isr);
-      } catch (IOException ex) {
-        /**
-         * according to https://docs.oracle.com/javase/7/docs/technotes/guides/net/http-keepalive.html,
-         * we should clean up the connection by reading the response body so that the connection
-         * could be reused.
-         */
-        InputStream errorStream = conn.getErrorStream();
-
-        if (errorStream != null) {
-          esr = new InputStreamReader(errorStream, StandardCharsets.UTF_8);
-          try {
-            CharStreams.toString(esr);
-          } catch (IOException ioe) {
-            //ignore
-          }
-        }
-
-        // 200 and 304 should not trigger IOException, thus we must throw the original exception out
-        if (statusCode == 200 || statusCode == 304) {
-          throw ex;
-        }
-        // for status codes like 404, IOException is expected when calling conn.getInputStream()
-        throw new ApolloConfigStatusCodeException(statusCode, ex);
-      }
+      HttpResponse<T> response = m_transport.doGet(httpRequest, serializeFunction);
+      success = true;
+      return response;
+    } finally {
+      metrics.onComplete(System.currentTimeMillis() - start, success);
+    }
+  }
 
-      if (statusCode == 200) {
-        return new HttpResponse<>(statusCode, serializeFunction.apply(response));
+  private HttpHostMetrics getOrCreateHostMetrics(String url) {
+    String host = extractHost(url);
+    HttpHostMetrics metrics = m_hostMetrics.get(host);
+    if (metrics == null) {
+      HttpHostMetrics newMetrics = new HttpHostMetrics(host);
+      metrics = m_hostMetrics.putIfAbsent(host, newMetrics);
+      if (metrics == null) {
+        metrics = newMetrics;
       }
+    }
+    return metrics;
+  }
 
-      if (statusCode == 304) {
-        return new HttpResponse<>(statusCode, null);
+  static String extractHost(String url) {
+    try {
+      URI uri = URI.create(url);
+      if (uri.getHost() == null) {
+        return UNKNOWN_HOST;
       }
-    } catch (ApolloConfigStatusCodeException ex) {
-      throw ex;
+      return uri.getPort() < 0 ? uri.getHost() : uri.getHost() + ":" + uri.getPort();
     } catch (Throwable ex) {
-      throw new ApolloConfigException("Could not complete get operation", ex);
-    } finally {
-      if (isr != null) {
-        try {
-          isr.close();
-        } catch (IOException ex) {
-          // ignore
-        }
-      }
-
-      if (esr != null) {
-        try {
-          esr.close();
-        } catch (IOException ex) {
-          // ignore
-        }
-      }
+      return UNKNOWN_HOST;
     }
-
-    throw new ApolloConfigStatusCodeException(statusCode,
-        String.format("Get operation failed for %s", httpRequest.getUrl()));
   }
-
 }
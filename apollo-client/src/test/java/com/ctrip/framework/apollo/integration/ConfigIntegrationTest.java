@@ -9,10 +9,12 @@ import com.ctrip.framework.apollo.util.OrderedProperties;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.util.*;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
 
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
@@ -110,6 +112,19 @@ public class ConfigIntegrationTest extends BaseIntegrationTest {
     assertEquals(someDefaultValue, config.getProperty(someNonExistedKey, someDefaultValue));
   }
 
+  @Test
+  public void testGetConfigWithGzippedRemoteConfig() throws Exception {
+    String someKey = "someKey";
+    String someValue = "someValue";
+    ApolloConfig apolloConfig = assembleApolloConfig(ImmutableMap.of(someKey, someValue));
+    ContextHandler handler = mockGzippedConfigServerHandler(apolloConfig);
+    startServerWithHandlers(handler);
+
+    Config config = ConfigService.getAppConfig();
+
+    assertEquals(someValue, config.getProperty(someKey, null));
+  }
+
   @Test
   public void testOrderGetConfigWithNoLocalFileButWithRemoteConfig() throws Exception {
     setPropertiesOrderEnabled(true);
@@ -526,6 +541,26 @@ public class ConfigIntegrationTest extends BaseIntegrationTest {
   }
 
 
+  private ContextHandler mockGzippedConfigServerHandler(final ApolloConfig result) {
+    ContextHandler context = new ContextHandler("/configs/*");
+    context.setHandler(new AbstractHandler() {
+      @Override
+      public void handle(String target, Request baseRequest, HttpServletRequest request,
+          HttpServletResponse response) throws IOException, ServletException {
+        assertEquals("gzip", request.getHeader("Accept-Encoding"));
+
+        response.setContentType("application/json;charset=UTF-8");
+        response.setHeader("Content-Encoding", "gzip");
+        response.setStatus(HttpServletResponse.SC_OK);
+        try (GZIPOutputStream out = new GZIPOutputStream(response.getOutputStream())) {
+          out.write(gson.toJson(result).getBytes(StandardCharsets.UTF_8));
+        }
+        baseRequest.setHandled(true);
+      }
+    });
+    return context;
+  }
+
   private ContextHandler mockConfigServerHandler(int statusCode, ApolloConfig result) {
     return mockConfigServerHandler(statusCode, result, false);
   }
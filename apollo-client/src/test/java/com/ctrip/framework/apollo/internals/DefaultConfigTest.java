@@ -4,8 +4,11 @@ import static org.awaitility.Awaitility.await;
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -38,8 +41,11 @@ import com.ctrip.framework.apollo.ConfigChangeListener;
 import com.ctrip.framework.apollo.build.MockInjector;
 import com.ctrip.framework.apollo.core.utils.ClassLoaderUtil;
 import com.ctrip.framework.apollo.enums.PropertyChangeType;
+import com.ctrip.framework.apollo.model.BooleanProperty;
 import com.ctrip.framework.apollo.model.ConfigChange;
 import com.ctrip.framework.apollo.model.ConfigChangeEvent;
+import com.ctrip.framework.apollo.model.IntProperty;
+import com.ctrip.framework.apollo.model.LongProperty;
 import com.ctrip.framework.apollo.util.ConfigUtil;
 import com.google.common.base.Charsets;
 import com.google.common.base.Joiner;
@@ -176,18 +182,18 @@ public class DefaultConfigTest {
     Integer someDefaultValue = -1;
 
     //set up config repo
-    someProperties = mock(Properties.class);
-    when(someProperties.getProperty(someKey)).thenReturn(String.valueOf(someValue));
+    someProperties = new Properties();
+    someProperties.setProperty(someKey, String.valueOf(someValue));
     when(configRepository.getConfig()).thenReturn(someProperties);
 
     DefaultConfig defaultConfig =
-        new DefaultConfig(someNamespace, configRepository);
+        spy(new DefaultConfig(someNamespace, configRepository));
 
     assertEquals(someValue, defaultConfig.getIntProperty(someKey, someDefaultValue));
     assertEquals(someValue, defaultConfig.getIntProperty(someKey, someDefaultValue));
     assertEquals(someValue, defaultConfig.getIntProperty(someKey, someDefaultValue));
 
-    verify(someProperties, times(1)).getProperty(someKey);
+    verify(defaultConfig, times(1)).getProperty(someKey, null);
   }
 
   @Test
@@ -216,6 +222,79 @@ public class DefaultConfigTest {
     assertEquals(anotherValue, defaultConfig.getIntProperty(someKey, someDefaultValue));
   }
 
+  @Test
+  public void testGetArrayPropertyWithUnrelatedPropertyChanges() throws Exception {
+    String someKey = "someKey";
+    String someDelimiter = ",";
+    String anotherKey = "anotherKey";
+
+    someProperties = new Properties();
+    someProperties.setProperty(someKey, "a,b,c");
+    someProperties.setProperty(anotherKey, "someValue");
+    when(configRepository.getConfig()).thenReturn(someProperties);
+
+    DefaultConfig defaultConfig =
+        new DefaultConfig(someNamespace, configRepository);
+
+    String[] someValue = defaultConfig.getArrayProperty(someKey, someDelimiter, null);
+
+    Properties anotherProperties = new Properties();
+    anotherProperties.setProperty(someKey, "a,b,c");
+    anotherProperties.setProperty(anotherKey, "anotherValue");
+    defaultConfig.onRepositoryChange(someNamespace, anotherProperties);
+
+    // still cached as only another key is changed
+    assertSame(someValue, defaultConfig.getArrayProperty(someKey, someDelimiter, null));
+
+    Properties yetAnotherProperties = new Properties();
+    yetAnotherProperties.setProperty(someKey, "d,e");
+    yetAnotherProperties.setProperty(anotherKey, "anotherValue");
+    defaultConfig.onRepositoryChange(someNamespace, yetAnotherProperties);
+
+    assertArrayEquals(new String[]{"d", "e"}, defaultConfig.getArrayProperty(someKey, someDelimiter, null));
+  }
+
+  @Test
+  public void testBindProperties() throws Exception {
+    String someIntKey = "someIntKey";
+    String someLongKey = "someLongKey";
+    String someBooleanKey = "someBooleanKey";
+    String someDurationKey = "someDurationKey";
+
+    someProperties = new Properties();
+    someProperties.setProperty(someIntKey, "1");
+    someProperties.setProperty(someLongKey, "2");
+    someProperties.setProperty(someDurationKey, "3s");
+    when(configRepository.getConfig()).thenReturn(someProperties);
+
+    DefaultConfig defaultConfig =
+        new DefaultConfig(someNamespace, configRepository);
+
+    IntProperty someIntProperty = defaultConfig.bindIntProperty(someIntKey, -1);
+    LongProperty someLongProperty = defaultConfig.bindLongProperty(someLongKey, -1);
+    BooleanProperty someBooleanProperty = defaultConfig.bindBooleanProperty(someBooleanKey, false);
+    LongProperty someDurationProperty = defaultConfig.bindDurationProperty(someDurationKey, -1);
+
+    assertEquals(1, someIntProperty.get());
+    assertEquals(2, someLongProperty.get());
+    assertFalse(someBooleanProperty.get());
+    assertEquals(3000, someDurationProperty.get());
+    assertSame(someIntProperty, defaultConfig.bindIntProperty(someIntKey, -1));
+    assertNotSame(someIntProperty, defaultConfig.bindIntProperty(someIntKey, -2));
+    assertNotSame(someLongProperty, defaultConfig.bindDurationProperty(someLongKey, -1));
+
+    Properties anotherProperties = new Properties();
+    anotherProperties.setProperty(someIntKey, "someInvalidValue");
+    anotherProperties.setProperty(someLongKey, "4");
+    anotherProperties.setProperty(someBooleanKey, "true");
+    defaultConfig.onRepositoryChange(someNamespace, anotherProperties);
+
+    assertEquals(-1, someIntProperty.get());
+    assertEquals(4, someLongProperty.get());
+    assertTrue(someBooleanProperty.get());
+    assertEquals(-1, someDurationProperty.get());
+  }
+
   @Test
   public void testGetIntPropertyMultipleTimesWithSmallCache() throws Exception {
     String someKey = "someKey";
@@ -229,27 +308,27 @@ public class DefaultConfigTest {
     MockInjector.setInstance(ConfigUtil.class, new MockConfigUtilWithSmallCache());
 
     //set up config repo
-    someProperties = mock(Properties.class);
-    when(someProperties.getProperty(someKey)).thenReturn(String.valueOf(someValue));
-    when(someProperties.getProperty(anotherKey)).thenReturn(String.valueOf(anotherValue));
+    someProperties = new Properties();
+    someProperties.setProperty(someKey, String.valueOf(someValue));
+    someProperties.setProperty(anotherKey, String.valueOf(anotherValue));
     when(configRepository.getConfig()).thenReturn(someProperties);
 
     DefaultConfig defaultConfig =
-        new DefaultConfig(someNamespace, configRepository);
+        spy(new DefaultConfig(someNamespace, configRepository));
 
     assertEquals(someValue, defaultConfig.getIntProperty(someKey, someDefaultValue));
     assertEquals(someValue, defaultConfig.getIntProperty(someKey, someDefaultValue));
 
-    verify(someProperties, times(1)).getProperty(someKey);
+    verify(defaultConfig, times(1)).getProperty(someKey, null);
 
     assertEquals(anotherValue, defaultConfig.getIntProperty(anotherKey, someDefaultValue));
     assertEquals(anotherValue, defaultConfig.getIntProperty(anotherKey, someDefaultValue));
 
-    verify(someProperties, times(1)).getProperty(anotherKey);
+    verify(defaultConfig, times(1)).getProperty(anotherKey, null);
 
     assertEquals(someValue, defaultConfig.getIntProperty(someKey, someDefaultValue));
 
-    verify(someProperties, times(2)).getProperty(someKey);
+    verify(defaultConfig, times(2)).getProperty(someKey, null);
   }
 
   @Test
@@ -262,17 +341,17 @@ public class DefaultConfigTest {
     MockInjector.setInstance(ConfigUtil.class, new MockConfigUtilWithShortExpireTime());
 
     //set up config repo
-    someProperties = mock(Properties.class);
-    when(someProperties.getProperty(someKey)).thenReturn(String.valueOf(someValue));
+    someProperties = new Properties();
+    someProperties.setProperty(someKey, String.valueOf(someValue));
     when(configRepository.getConfig()).thenReturn(someProperties);
 
     final DefaultConfig defaultConfig =
-        new DefaultConfig(someNamespace, configRepository);
+        spy(new DefaultConfig(someNamespace, configRepository));
 
     assertEquals(someValue, defaultConfig.getIntProperty(someKey, someDefaultValue));
     assertEquals(someValue, defaultConfig.getIntProperty(someKey, someDefaultValue));
 
-    verify(someProperties, times(1)).getProperty(someKey);
+    verify(defaultConfig, times(1)).getProperty(someKey, null);
 
     await().atMost(500, TimeUnit.MILLISECONDS).untilAsserted(new ThrowingRunnable() {
       @Override
@@ -280,7 +359,7 @@ public class DefaultConfigTest {
         assertEquals(someValue, defaultConfig.getIntProperty(someKey, someDefaultValue));
         assertEquals(someValue, defaultConfig.getIntProperty(someKey, someDefaultValue));
 
-        verify(someProperties, times(2)).getProperty(someKey);
+        verify(defaultConfig, times(2)).getProperty(someKey, null);
       }
     });
   }
@@ -459,24 +538,24 @@ public class DefaultConfigTest {
     String[] someDefaultValue = new String[]{"1", "2"};
 
     //set up config repo
-    someProperties = mock(Properties.class);
-    when(someProperties.getProperty(someKey)).thenReturn(someValue);
+    someProperties = new Properties();
+    someProperties.setProperty(someKey, someValue);
     when(configRepository.getConfig()).thenReturn(someProperties);
 
     DefaultConfig defaultConfig =
-        new DefaultConfig(someNamespace, configRepository);
+        spy(new DefaultConfig(someNamespace, configRepository));
 
     assertArrayEquals(values, defaultConfig.getArrayProperty(someKey, someDelimiter, someDefaultValue));
     assertArrayEquals(values, defaultConfig.getArrayProperty(someKey, someDelimiter, someDefaultValue));
 
-    verify(someProperties, times(1)).getProperty(someKey);
+    verify(defaultConfig, times(1)).getProperty(someKey, null);
 
     assertArrayEquals(someDefaultValue, defaultConfig.getArrayProperty(someKey, someInvalidDelimiter,
         someDefaultValue));
     assertArrayEquals(someDefaultValue, defaultConfig.getArrayProperty(someKey, someInvalidDelimiter,
         someDefaultValue));
 
-    verify(someProperties, times(3)).getProperty(someKey);
+    verify(defaultConfig, times(3)).getProperty(someKey, null);
   }
 
   @Test
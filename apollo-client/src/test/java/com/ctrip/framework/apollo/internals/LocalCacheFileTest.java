@@ -0,0 +1,128 @@
+package com.ctrip.framework.apollo.internals;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import com.ctrip.framework.apollo.util.OrderedProperties;
+import com.google.common.collect.Lists;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.util.Properties;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class LocalCacheFileTest {
+  private File someBaseDir;
+  private File someFile;
+
+  @Before
+  public void setUp() throws Exception {
+    someBaseDir = new File("src/test/resources/local-cache-file");
+    someBaseDir.mkdir();
+    someFile = new File(someBaseDir, "someApp+someCluster+someNamespace.cache");
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    LocalCacheFile.flushPendingWrites();
+    for (File file : someBaseDir.listFiles()) {
+      file.delete();
+    }
+    someBaseDir.delete();
+  }
+
+  @Test
+  public void testWriteAndRead() throws Exception {
+    String someReleaseKey = "someReleaseKey";
+    Properties someProperties = new OrderedProperties();
+    someProperties.setProperty("someKey", "someValue\nxxx");
+    someProperties.setProperty("anotherKey", "\u4e2d\u6587");
+    someProperties.setProperty("emptyKey", "");
+
+    new LocalCacheFile(someReleaseKey, someProperties).write(someFile);
+
+    LocalCacheFile result = LocalCacheFile.read(someFile, new OrderedProperties());
+
+    assertEquals(someReleaseKey, result.getReleaseKey());
+    assertEquals(someProperties, result.getProperties());
+    assertEquals(Lists.newArrayList(someProperties.stringPropertyNames()),
+        Lists.newArrayList(result.getProperties().stringPropertyNames()));
+  }
+
+  @Test
+  public void testWriteAndReadWithoutReleaseKey() throws Exception {
+    new LocalCacheFile(null, new Properties()).write(someFile);
+
+    LocalCacheFile result = LocalCacheFile.read(someFile, new Properties());
+
+    assertNull(result.getReleaseKey());
+    assertEquals(new Properties(), result.getProperties());
+  }
+
+  @Test(expected = IOException.class)
+  public void testReadCorruptedFile() throws Exception {
+    Properties someProperties = new Properties();
+    someProperties.setProperty("someKey", "someValue");
+    new LocalCacheFile("someReleaseKey", someProperties).write(someFile);
+
+    try (RandomAccessFile file = new RandomAccessFile(someFile, "rw")) {
+      file.seek(file.length() - 1);
+      int value = file.read();
+      file.seek(file.length() - 1);
+      file.write(value ^ 0xFF);
+    }
+
+    LocalCacheFile.read(someFile, new Properties());
+  }
+
+  @Test
+  public void testWriteBehind() throws Exception {
+    File somePropertiesFile = new File(someBaseDir, "someApp+someCluster+someNamespace.properties");
+    Properties someProperties = new Properties();
+    someProperties.setProperty("someKey", "someValue");
+    Properties anotherProperties = new Properties();
+    anotherProperties.setProperty("someKey", "anotherValue");
+    LocalCacheFile anotherContent = new LocalCacheFile("anotherReleaseKey", anotherProperties);
+
+    LocalCacheFile.writeBehind(somePropertiesFile, someFile, new LocalCacheFile("someReleaseKey", someProperties));
+    LocalCacheFile.writeBehind(somePropertiesFile, someFile, anotherContent);
+
+    LocalCacheFile pendingWrite = LocalCacheFile.getPendingWrite(somePropertiesFile);
+    if (pendingWrite != null) {
+      assertSame(anotherContent, pendingWrite);
+    }
+
+    LocalCacheFile.flushPendingWrites();
+
+    assertNull(LocalCacheFile.getPendingWrite(somePropertiesFile));
+    assertEquals(anotherProperties, LocalCacheFile.read(someFile, new Properties()).getProperties());
+    assertEquals(anotherProperties, loadProperties(somePropertiesFile));
+  }
+
+  @Test
+  public void testWriteBehindWithoutBinaryFile() throws Exception {
+    File somePropertiesFile = new File(someBaseDir, "someApp+someCluster+someNamespace.properties");
+    Properties someProperties = new Properties();
+    someProperties.setProperty("someKey", "someValue");
+
+    LocalCacheFile.writeBehind(somePropertiesFile, null, new LocalCacheFile("someReleaseKey", someProperties));
+    LocalCacheFile.flushPendingWrites();
+
+    assertEquals(someProperties, loadProperties(somePropertiesFile));
+    assertFalse(someFile.exists());
+  }
+
+  private Properties loadProperties(File file) throws IOException {
+    Properties properties = new Properties();
+    try (InputStream in = new FileInputStream(file)) {
+      properties.load(in);
+    }
+    return properties;
+  }
+}
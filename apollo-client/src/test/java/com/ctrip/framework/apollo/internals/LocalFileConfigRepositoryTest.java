@@ -2,7 +2,9 @@ package com.ctrip.framework.apollo.internals;
 
 import static org.hamcrest.core.IsEqual.equalTo;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
@@ -12,6 +14,7 @@ import static org.mockito.Mockito.when;
 import com.ctrip.framework.apollo.enums.ConfigSourceType;
 import com.ctrip.framework.apollo.util.factory.PropertiesFactory;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.util.Properties;
@@ -72,6 +75,7 @@ public class LocalFileConfigRepositoryTest {
 
   @After
   public void tearDown() throws Exception {
+    LocalCacheFile.flushPendingWrites();
     MockInjector.reset();
     recursiveDelete(someBaseDir);
   }
@@ -195,6 +199,89 @@ public class LocalFileConfigRepositoryTest {
     assertEquals(anotherSourceType, localFileConfigRepository.getSourceType());
   }
 
+  @Test
+  public void testPersistLocalCacheFile() throws Exception {
+    // different from the ones cached in the default local cache dir by the other tests
+    someProperties.setProperty("someKey", "someValue");
+
+    LocalFileConfigRepository localRepo = new LocalFileConfigRepository(someNamespace);
+    localRepo.setLocalCacheDir(someBaseDir, false);
+    localRepo.setUpstreamRepository(upstreamRepo);
+
+    LocalCacheFile.flushPendingWrites();
+
+    File file = localRepo.assembleLocalCacheFile(someBaseDir, someNamespace);
+    assertEquals(someProperties, loadLocalCachePropertyFile(file));
+    assertFalse(localRepo.assembleBinaryLocalCacheFile(someBaseDir, someNamespace).exists());
+  }
+
+  @Test
+  public void testPersistLocalCacheFileWithBinaryFormat() throws Exception {
+    MockInjector.setInstance(ConfigUtil.class, new MockConfigUtilWithBinaryFormat());
+
+    // different from the ones cached in the default local cache dir by the other tests
+    someProperties.setProperty("someKey", "someValue");
+
+    LocalFileConfigRepository localRepo = new LocalFileConfigRepository(someNamespace);
+    localRepo.setLocalCacheDir(someBaseDir, false);
+    localRepo.setUpstreamRepository(upstreamRepo);
+
+    LocalCacheFile.flushPendingWrites();
+
+    File file = localRepo.assembleLocalCacheFile(someBaseDir, someNamespace);
+    File binaryFile = localRepo.assembleBinaryLocalCacheFile(someBaseDir, someNamespace);
+    // the properties file is still written, for the older clients and the operators
+    assertEquals(someProperties, loadLocalCachePropertyFile(file));
+    assertEquals(someProperties, LocalCacheFile.read(binaryFile, new Properties()).getProperties());
+
+    LocalFileConfigRepository anotherLocalRepo = new LocalFileConfigRepository(someNamespace);
+    anotherLocalRepo.setLocalCacheDir(someBaseDir, true);
+
+    assertEquals(someProperties, anotherLocalRepo.getConfig());
+    assertEquals(ConfigSourceType.LOCAL, anotherLocalRepo.getSourceType());
+  }
+
+  @Test
+  public void testLoadNewerPropertiesFileWithBinaryFormat() throws Exception {
+    MockInjector.setInstance(ConfigUtil.class, new MockConfigUtilWithBinaryFormat());
+
+    // different from the ones cached in the default local cache dir by the other tests
+    someProperties.setProperty("someKey", "someValue");
+
+    LocalFileConfigRepository localRepo = new LocalFileConfigRepository(someNamespace);
+    localRepo.setLocalCacheDir(someBaseDir, false);
+    localRepo.setUpstreamRepository(upstreamRepo);
+
+    LocalCacheFile.flushPendingWrites();
+
+    // e.g. written by an older client later
+    Properties anotherProperties = new Properties();
+    anotherProperties.setProperty(defaultKey, "anotherValue");
+    File file = createLocalCachePropertyFile(anotherProperties);
+    File binaryFile = localRepo.assembleBinaryLocalCacheFile(someBaseDir, someNamespace);
+    binaryFile.setLastModified(file.lastModified() - 10000);
+
+    LocalFileConfigRepository anotherLocalRepo = new LocalFileConfigRepository(someNamespace);
+    anotherLocalRepo.setLocalCacheDir(someBaseDir, true);
+
+    assertEquals(anotherProperties, anotherLocalRepo.getConfig());
+  }
+
+  @Test
+  public void testLoadCorruptedBinaryFileWithBinaryFormat() throws Exception {
+    MockInjector.setInstance(ConfigUtil.class, new MockConfigUtilWithBinaryFormat());
+
+    File file = createLocalCachePropertyFile(someProperties);
+    LocalFileConfigRepository localRepo = new LocalFileConfigRepository(someNamespace);
+    File binaryFile = localRepo.assembleBinaryLocalCacheFile(someBaseDir, someNamespace);
+    Files.write("corrupted", binaryFile, Charsets.UTF_8);
+    binaryFile.setLastModified(file.lastModified() + 10000);
+
+    localRepo.setLocalCacheDir(someBaseDir, true);
+
+    assertEquals(someProperties, localRepo.getConfig());
+  }
+
   public static class MockConfigUtil extends ConfigUtil {
     @Override
     public String getAppId() {
@@ -207,6 +294,24 @@ public class LocalFileConfigRepositoryTest {
     }
   }
 
+  public static class MockConfigUtilWithBinaryFormat extends MockConfigUtil {
+    @Override
+    public boolean isLocalCacheBinaryFormatEnabled() {
+      return true;
+    }
+  }
+
+  private Properties loadLocalCachePropertyFile(File file) throws IOException {
+    Properties properties = new Properties();
+    FileInputStream in = new FileInputStream(file);
+    try {
+      properties.load(in);
+    } finally {
+      in.close();
+    }
+    return properties;
+  }
+
   private File createLocalCachePropertyFile(Properties properties) throws IOException {
     File file = new File(someBaseDir, assembleLocalCacheFileName());
     FileOutputStream in = null;
@@ -0,0 +1,40 @@
+package com.ctrip.framework.apollo.internals;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import com.google.common.collect.Maps;
+import java.util.Collections;
+import java.util.Map;
+import org.junit.Test;
+
+public class PropertiesSnapshotTest {
+
+  @Test
+  public void testGet() throws Exception {
+    Map<String, String> properties = Maps.newHashMap();
+    for (int i = 0; i < 1000; i++) {
+      properties.put("someKey" + i, "someValue" + i);
+    }
+    // "Aa" and "BB" have the same hash code
+    properties.put("Aa", "someValue");
+    properties.put("BB", "anotherValue");
+
+    PropertiesSnapshot snapshot = PropertiesSnapshot.of(properties);
+
+    assertEquals(properties.size(), snapshot.size());
+    for (Map.Entry<String, String> entry : properties.entrySet()) {
+      assertEquals(entry.getValue(), snapshot.get(entry.getKey()));
+    }
+    assertNull(snapshot.get("someMissingKey"));
+    assertNull(snapshot.get(null));
+  }
+
+  @Test
+  public void testEmpty() throws Exception {
+    PropertiesSnapshot snapshot = PropertiesSnapshot.of(Collections.<String, String>emptyMap());
+
+    assertEquals(0, snapshot.size());
+    assertNull(snapshot.get("someKey"));
+  }
+}
@@ -0,0 +1,157 @@
+package com.ctrip.framework.apollo.internals;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.ctrip.framework.apollo.build.MockInjector;
+import com.ctrip.framework.apollo.core.dto.ApolloConfig;
+import com.ctrip.framework.apollo.core.dto.ServiceDTO;
+import com.ctrip.framework.apollo.exceptions.ApolloConfigStatusCodeException;
+import com.ctrip.framework.apollo.util.ConfigUtil;
+import com.ctrip.framework.apollo.util.http.HttpRequest;
+import com.ctrip.framework.apollo.util.http.HttpResponse;
+import com.ctrip.framework.apollo.util.http.HttpUtil;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import java.lang.reflect.Type;
+import java.util.List;
+import java.util.Map;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+
+@RunWith(MockitoJUnitRunner.class)
+public class RemoteConfigBatchLoaderTest {
+  private RemoteConfigBatchLoader remoteConfigBatchLoader;
+  @Mock
+  private HttpUtil httpUtil;
+  @Mock
+  private ConfigServiceLocator configServiceLocator;
+  @Mock
+  private HttpResponse<List<ApolloConfig>> someResponse;
+  private Type responseType;
+  private String someServerUrl;
+  private String someNamespace;
+  private String anotherNamespace;
+
+  @Before
+  public void setUp() throws Exception {
+    someServerUrl = "http://someServer";
+    someNamespace = "someNamespace";
+    anotherNamespace = "anotherNamespace";
+
+    ServiceDTO serviceDTO = mock(ServiceDTO.class);
+    when(serviceDTO.getHomepageUrl()).thenReturn(someServerUrl);
+    when(configServiceLocator.getConfigServices()).thenReturn(Lists.newArrayList(serviceDTO));
+
+    MockInjector.setInstance(HttpUtil.class, httpUtil);
+    MockInjector.setInstance(ConfigServiceLocator.class, configServiceLocator);
+    MockInjector.setInstance(ConfigUtil.class, new MockConfigUtil());
+
+    remoteConfigBatchLoader = new RemoteConfigBatchLoader();
+    responseType = (Type) ReflectionTestUtils.getField(remoteConfigBatchLoader, "m_responseType");
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    MockInjector.reset();
+  }
+
+  @Test
+  public void testLoadConfigs() throws Exception {
+    ApolloConfig someConfig = new ApolloConfig("someAppId", "someCluster", someNamespace, "someReleaseKey");
+
+    when(someResponse.getStatusCode()).thenReturn(200);
+    when(someResponse.getBody()).thenReturn(Lists.newArrayList(someConfig));
+    when(httpUtil.<List<ApolloConfig>>doGet(any(HttpRequest.class), eq(responseType))).thenReturn(someResponse);
+
+    Map<String, String> releaseKeys = Maps.newLinkedHashMap();
+    releaseKeys.put(someNamespace, null);
+    releaseKeys.put(anotherNamespace, "anotherReleaseKey");
+
+    Map<String, ApolloConfig> result = remoteConfigBatchLoader.loadConfigs(null, releaseKeys, null);
+
+    ArgumentCaptor<HttpRequest> captor = ArgumentCaptor.forClass(HttpRequest.class);
+    verify(httpUtil).doGet(captor.capture(), eq(responseType));
+    String url = captor.getValue().getUrl();
+
+    assertEquals(ImmutableMap.of(someNamespace, someConfig), result);
+    assertTrue(url.startsWith(someServerUrl + "/configs/someAppId/someCluster?"));
+    assertTrue(url.contains("namespaces=someNamespace%2CanotherNamespace"));
+    assertTrue(url.contains("releaseKeys=-1%2CanotherReleaseKey"));
+  }
+
+  @Test
+  public void testPrefetch() throws Exception {
+    ApolloConfig someConfig = new ApolloConfig("someAppId", "someCluster", someNamespace, "someReleaseKey");
+
+    when(someResponse.getBody()).thenReturn(Lists.newArrayList(someConfig));
+    when(httpUtil.<List<ApolloConfig>>doGet(any(HttpRequest.class), eq(responseType))).thenReturn(someResponse);
+
+    remoteConfigBatchLoader.prefetch(Lists.newArrayList(someNamespace, anotherNamespace));
+
+    assertSame(someConfig, remoteConfigBatchLoader.takePrefetched(someNamespace));
+    assertNull(remoteConfigBatchLoader.takePrefetched(someNamespace));
+    assertNull(remoteConfigBatchLoader.takePrefetched(anotherNamespace));
+  }
+
+  @Test
+  public void testBatchUnsupported() throws Exception {
+    when(httpUtil.<List<ApolloConfig>>doGet(any(HttpRequest.class), eq(responseType)))
+        .thenThrow(new ApolloConfigStatusCodeException(404, "some error"));
+
+    assertTrue(remoteConfigBatchLoader.isEnabled());
+
+    remoteConfigBatchLoader.prefetch(Lists.newArrayList(someNamespace, anotherNamespace));
+
+    assertFalse(remoteConfigBatchLoader.isEnabled());
+    assertNull(remoteConfigBatchLoader.takePrefetched(someNamespace));
+
+    remoteConfigBatchLoader.prefetch(Lists.newArrayList(someNamespace, anotherNamespace));
+
+    //not tried again
+    verify(httpUtil, times(1)).doGet(any(HttpRequest.class), eq(responseType));
+  }
+
+  public static class MockConfigUtil extends ConfigUtil {
+    @Override
+    public String getAppId() {
+      return "someAppId";
+    }
+
+    @Override
+    public String getCluster() {
+      return "someCluster";
+    }
+
+    @Override
+    public String getDataCenter() {
+      return null;
+    }
+
+    @Override
+    public String getAccessKeySecret() {
+      return null;
+    }
+
+    @Override
+    public String getLocalIp() {
+      return null;
+    }
+  }
+}
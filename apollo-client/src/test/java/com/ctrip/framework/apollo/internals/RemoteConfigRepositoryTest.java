@@ -3,6 +3,7 @@ package com.ctrip.framework.apollo.internals;
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.any;
@@ -10,6 +11,7 @@ import static org.mockito.Mockito.atLeast;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -32,6 +34,7 @@ import com.ctrip.framework.apollo.util.http.HttpUtil;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 import com.google.common.net.HttpHeaders;
 import com.google.common.net.UrlEscapers;
 import com.google.common.util.concurrent.SettableFuture;
@@ -311,6 +314,76 @@ public class RemoteConfigRepositoryTest {
     assertTrue(request.getUrl().contains("messages=%7B%22details%22%3A%7B%22someKey%22%3A1%7D%7D"));
   }
 
+  @Test
+  public void testOnBatchLoaded() throws Exception {
+    ApolloConfig someApolloConfig = assembleApolloConfig(ImmutableMap.of("someKey", "someValue"));
+
+    when(someResponse.getStatusCode()).thenReturn(200);
+    when(someResponse.getBody()).thenReturn(someApolloConfig);
+
+    RemoteConfigRepository remoteConfigRepository = new RemoteConfigRepository(someNamespace);
+    remoteConfigLongPollService.stopLongPollingRefresh();
+    RepositoryChangeListener someListener = mock(RepositoryChangeListener.class);
+    remoteConfigRepository.addChangeListener(someListener);
+
+    Map<String, String> newConfigurations = ImmutableMap.of("someKey", "anotherValue");
+    ApolloConfig newApolloConfig = new ApolloConfig(someApolloConfig.getAppId(), someApolloConfig.getCluster(),
+        someNamespace, "2");
+    newApolloConfig.setConfigurations(newConfigurations);
+
+    remoteConfigRepository.onBatchLoaded(null, assembleNotificationMessages(1), someApolloConfig.getReleaseKey(),
+        newApolloConfig);
+
+    assertEquals("2", remoteConfigRepository.getApolloConfig().getReleaseKey());
+    verify(someListener, times(1)).onRepositoryChange(eq(someNamespace), eq(asProperties(newConfigurations)));
+  }
+
+  @Test
+  public void testOnBatchLoadedWithOutdatedNotification() throws Exception {
+    ApolloConfig someApolloConfig = assembleApolloConfig(ImmutableMap.of("someKey", "someValue"));
+
+    when(someResponse.getStatusCode()).thenReturn(200);
+    when(someResponse.getBody()).thenReturn(someApolloConfig);
+
+    RemoteConfigRepository remoteConfigRepository = new RemoteConfigRepository(someNamespace);
+    remoteConfigLongPollService.stopLongPollingRefresh();
+
+    ApolloConfig newApolloConfig = new ApolloConfig(someApolloConfig.getAppId(), someApolloConfig.getCluster(),
+        someNamespace, "2");
+    newApolloConfig.setConfigurations(ImmutableMap.of("someKey", "anotherValue"));
+
+    //the newer notification is handled first
+    remoteConfigRepository.onBatchLoaded(null, assembleNotificationMessages(2), someApolloConfig.getReleaseKey(),
+        null);
+    remoteConfigRepository.onBatchLoaded(null, assembleNotificationMessages(1), someApolloConfig.getReleaseKey(),
+        newApolloConfig);
+
+    assertSame(someApolloConfig, remoteConfigRepository.getApolloConfig());
+  }
+
+  @Test
+  public void testOnBatchLoadedWithConfigChangedInTheMeantime() throws Exception {
+    ApolloConfig someApolloConfig = assembleApolloConfig(ImmutableMap.of("someKey", "someValue"));
+
+    when(someResponse.getStatusCode()).thenReturn(200);
+    when(someResponse.getBody()).thenReturn(someApolloConfig);
+
+    RemoteConfigRepository remoteConfigRepository = new RemoteConfigRepository(someNamespace);
+    remoteConfigLongPollService.stopLongPollingRefresh();
+
+    ApolloConfig newApolloConfig = new ApolloConfig(someApolloConfig.getAppId(), someApolloConfig.getCluster(),
+        someNamespace, "2");
+    newApolloConfig.setConfigurations(ImmutableMap.of("someKey", "anotherValue"));
+    String someOutdatedReleaseKey = "0";
+
+    remoteConfigRepository.onBatchLoaded(null, assembleNotificationMessages(1), someOutdatedReleaseKey,
+        newApolloConfig);
+
+    //the config is loaded on its own instead
+    verify(httpUtil, timeout(5000).times(2)).doGet(any(HttpRequest.class), eq(ApolloConfig.class));
+    assertSame(someApolloConfig, remoteConfigRepository.getApolloConfig());
+  }
+
   @Test
   public void testAssembleQueryConfigUrl() throws Exception {
     Gson gson = new Gson();
@@ -347,6 +420,60 @@ public class RemoteConfigRepositoryTest {
             .escape(gson.toJson(notificationMessages))));
   }
 
+  @Test
+  public void testApplyDelta() throws Exception {
+    Map<String, String> configurations = ImmutableMap.of("someKey", "someValue", "anotherKey", "anotherValue",
+        "deletedKey", "deletedValue");
+    ApolloConfig someApolloConfig = assembleApolloConfig(configurations);
+
+    when(someResponse.getStatusCode()).thenReturn(200);
+    when(someResponse.getBody()).thenReturn(someApolloConfig);
+
+    RemoteConfigRepository remoteConfigRepository = new RemoteConfigRepository(someNamespace);
+
+    ApolloConfig delta = new ApolloConfig(someApolloConfig.getAppId(), someApolloConfig.getCluster(),
+        someNamespace, "2");
+    delta.setBaseReleaseKey(someApolloConfig.getReleaseKey());
+    delta.setConfigurations(ImmutableMap.of("anotherKey", "newValue", "newKey", "newValue"));
+    delta.setDeletedKeys(Sets.newHashSet("deletedKey"));
+
+    ApolloConfig result = remoteConfigRepository.applyDelta(someApolloConfig, delta);
+
+    remoteConfigLongPollService.stopLongPollingRefresh();
+    assertEquals("2", result.getReleaseKey());
+    assertEquals(ImmutableMap.of("someKey", "someValue", "anotherKey", "newValue", "newKey", "newValue"),
+        result.getConfigurations());
+  }
+
+  @Test(expected = ApolloConfigException.class)
+  public void testApplyDeltaWithUnknownBase() throws Exception {
+    ApolloConfig someApolloConfig = assembleApolloConfig(ImmutableMap.of("someKey", "someValue"));
+
+    when(someResponse.getStatusCode()).thenReturn(200);
+    when(someResponse.getBody()).thenReturn(someApolloConfig);
+
+    RemoteConfigRepository remoteConfigRepository = new RemoteConfigRepository(someNamespace);
+    remoteConfigLongPollService.stopLongPollingRefresh();
+
+    ApolloConfig delta = new ApolloConfig(someApolloConfig.getAppId(), someApolloConfig.getCluster(),
+        someNamespace, "3");
+    delta.setBaseReleaseKey("2");
+
+    remoteConfigRepository.applyDelta(someApolloConfig, delta);
+  }
+
+  private ApolloNotificationMessages assembleNotificationMessages(long notificationId) {
+    ApolloNotificationMessages notificationMessages = new ApolloNotificationMessages();
+    notificationMessages.put("someKey", notificationId);
+    return notificationMessages;
+  }
+
+  private Properties asProperties(Map<String, String> configurations) {
+    Properties properties = new Properties();
+    properties.putAll(configurations);
+    return properties;
+  }
+
   private ApolloConfig assembleApolloConfig(Map<String, String> configurations) {
     String someAppId = "appId";
     String someClusterName = "cluster";
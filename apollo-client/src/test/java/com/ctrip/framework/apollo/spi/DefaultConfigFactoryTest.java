@@ -5,17 +5,28 @@ import static org.hamcrest.core.IsInstanceOf.instanceOf;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.when;
 
+import com.ctrip.framework.apollo.enums.ConfigSourceType;
 import com.ctrip.framework.apollo.internals.PropertiesCompatibleFileConfigRepository;
+import com.ctrip.framework.apollo.internals.RemoteConfigRepository;
+import com.google.common.collect.Lists;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import org.springframework.test.util.ReflectionTestUtils;
 
 import com.ctrip.framework.apollo.Config;
@@ -153,6 +164,74 @@ public class DefaultConfigFactoryTest {
 
   }
 
+  @Test
+  public void testCreateConcurrently() throws Exception {
+    final List<String> someNamespaces = Lists.newArrayList("someName", "anotherName", "yetAnotherName");
+    final CountDownLatch allStarted = new CountDownLatch(someNamespaces.size());
+
+    for (final String namespace : someNamespaces) {
+      doAnswer(new Answer<RemoteConfigRepository>() {
+        @Override
+        public RemoteConfigRepository answer(InvocationOnMock invocation) throws Throwable {
+          allStarted.countDown();
+          //would time out if the namespaces were loaded one by one
+          assertTrue(allStarted.await(5, TimeUnit.SECONDS));
+          return mockRemoteConfigRepository("someKey", namespace);
+        }
+      }).when(defaultConfigFactory).createRemoteConfigRepository(namespace);
+    }
+
+    Map<String, Config> result = defaultConfigFactory.create(someNamespaces, 0);
+
+    assertEquals(someNamespaces, Lists.newArrayList(result.keySet()));
+    for (String namespace : someNamespaces) {
+      assertEquals(namespace, result.get(namespace).getProperty("someKey", null));
+    }
+  }
+
+  @Test
+  public void testCreateWithTimeout() throws Exception {
+    String someNamespace = "someName";
+    final String someTimedOutNamespace = "someTimedOutName" + System.nanoTime();
+    String someKey = "someKey";
+    final CountDownLatch timedOutLoaded = new CountDownLatch(1);
+
+    doReturn(mockRemoteConfigRepository(someKey, someNamespace)).when(defaultConfigFactory)
+        .createRemoteConfigRepository(someNamespace);
+    doAnswer(new Answer<RemoteConfigRepository>() {
+      @Override
+      public RemoteConfigRepository answer(InvocationOnMock invocation) throws Throwable {
+        timedOutLoaded.await(5, TimeUnit.SECONDS);
+        return mockRemoteConfigRepository("someKey", someTimedOutNamespace);
+      }
+    }).when(defaultConfigFactory).createRemoteConfigRepository(someTimedOutNamespace);
+
+    Map<String, Config> result = defaultConfigFactory.create(
+        Lists.newArrayList(someNamespace, someTimedOutNamespace), 100);
+
+    Config timedOutConfig = result.get(someTimedOutNamespace);
+    assertEquals(someNamespace, result.get(someNamespace).getProperty(someKey, null));
+    //no local cache file
+    assertNull(timedOutConfig.getProperty(someKey, null));
+
+    timedOutLoaded.countDown();
+
+    long deadline = System.currentTimeMillis() + 5000;
+    while (timedOutConfig.getProperty(someKey, null) == null && System.currentTimeMillis() < deadline) {
+      TimeUnit.MILLISECONDS.sleep(10);
+    }
+    assertEquals(someTimedOutNamespace, timedOutConfig.getProperty(someKey, null));
+  }
+
+  private RemoteConfigRepository mockRemoteConfigRepository(String key, String value) {
+    Properties properties = new Properties();
+    properties.setProperty(key, value);
+    RemoteConfigRepository remoteConfigRepository = mock(RemoteConfigRepository.class);
+    when(remoteConfigRepository.getConfig()).thenReturn(properties);
+    when(remoteConfigRepository.getSourceType()).thenReturn(ConfigSourceType.REMOTE);
+    return remoteConfigRepository;
+  }
+
   @Test
   public void testDetermineFileFormat() throws Exception {
     checkFileFormat("abc", ConfigFileFormat.Properties);
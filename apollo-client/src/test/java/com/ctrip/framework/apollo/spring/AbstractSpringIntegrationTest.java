@@ -20,6 +20,7 @@ import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.nio.charset.StandardCharsets;
 import java.util.Calendar;
+import java.util.Collection;
 import java.util.Date;
 import java.util.Map;
 
@@ -186,6 +187,15 @@ public abstract class AbstractSpringIntegrationTest {
       return delegate.getConfig(namespace);
     }
 
+    @Override
+    public Map<String, Config> getConfigs(Collection<String> namespaces) {
+      Map<String, Config> configs = Maps.newLinkedHashMap();
+      for (String namespace : namespaces) {
+        configs.put(namespace, getConfig(namespace));
+      }
+      return configs;
+    }
+
     @Override
     public ConfigFile getConfigFile(String namespace, ConfigFileFormat configFileFormat) {
       ConfigFile configFile = CONFIG_FILE_REGISTRY.get(String.format("%s.%s", namespace, configFileFormat.getValue()));
@@ -792,6 +792,35 @@ public class JavaConfigPlaceholderAutoUpdateTest extends AbstractSpringIntegrati
     assertEquals(someNewValue, bean.getNestedProperty());
   }
 
+  @Test
+  public void testAutoUpdateWithNestedPropertyUpdatedOnce() throws Exception {
+    String someValue = "someValue";
+    String someNewValue = "someNewValue";
+    String anotherValue = "anotherValue";
+    String anotherNewValue = "anotherNewValue";
+
+    Properties properties = assembleProperties(SOME_KEY_PROPERTY, someValue, ANOTHER_KEY_PROPERTY, anotherValue);
+
+    SimpleConfig config = prepareConfig(ConfigConsts.NAMESPACE_APPLICATION, properties);
+
+    AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext(NestedPropertyConfig3.class);
+
+    TestNestedPropertySetterBean bean = context.getBean(TestNestedPropertySetterBean.class);
+
+    assertEquals(someValue, bean.getNestedProperty());
+    assertEquals(1, bean.getUpdateCount());
+
+    Properties newProperties = assembleProperties(SOME_KEY_PROPERTY, someNewValue, ANOTHER_KEY_PROPERTY,
+        anotherNewValue);
+
+    config.onRepositoryChange(ConfigConsts.NAMESPACE_APPLICATION, newProperties);
+
+    TimeUnit.MILLISECONDS.sleep(100);
+
+    assertEquals(someNewValue, bean.getNestedProperty());
+    assertEquals(2, bean.getUpdateCount());
+  }
+
   @Test
   public void testAutoUpdateWithAllKindsOfDataTypes() throws Exception {
     int someInt = 1000;
@@ -969,6 +998,41 @@ public class JavaConfigPlaceholderAutoUpdateTest extends AbstractSpringIntegrati
     assertEquals(1, newJsonBean.getB());
   }
 
+  @Test
+  public void testAutoUpdateWithValueAndJsonValueInSeveralBeans() throws Exception {
+    String someString = "someString";
+    String someNewString = "someNewString";
+    String someJsonProperty = "{\"a\":\"someString\", \"b\":10}";
+    String someNewJsonProperty = "{\"a\":\"someNewString\", \"b\":20}";
+
+    Properties properties = assembleProperties("stringProperty", someString, "jsonProperty", someJsonProperty);
+
+    SimpleConfig config = prepareConfig(ConfigConsts.NAMESPACE_APPLICATION, properties);
+
+    AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext(AppConfig15.class);
+
+    TestValueAndJsonValueBean someBean = context.getBean("someBean", TestValueAndJsonValueBean.class);
+    TestValueAndJsonValueBean anotherBean = context.getBean("anotherBean", TestValueAndJsonValueBean.class);
+
+    assertEquals(someString, someBean.getStringProperty());
+    assertEquals("someString", someBean.getJsonBean().getA());
+
+    Properties newProperties = assembleProperties("stringProperty", someNewString, "jsonProperty",
+        someNewJsonProperty);
+
+    config.onRepositoryChange(ConfigConsts.NAMESPACE_APPLICATION, newProperties);
+
+    TimeUnit.MILLISECONDS.sleep(100);
+
+    for (TestValueAndJsonValueBean bean : new TestValueAndJsonValueBean[]{someBean, anotherBean}) {
+      assertEquals(someNewString, bean.getStringProperty());
+      assertEquals("someNewString", bean.getJsonBean().getA());
+      assertEquals(20, bean.getJsonBean().getB());
+    }
+    // the json values are mutable, so each bean has its own instance
+    assertTrue(someBean.getJsonBean() != anotherBean.getJsonBean());
+  }
+
   @Configuration
   @EnableApolloConfig
   static class AppConfig1 {
@@ -1085,6 +1149,15 @@ public class JavaConfigPlaceholderAutoUpdateTest extends AbstractSpringIntegrati
     }
   }
 
+  @Configuration
+  @EnableApolloConfig
+  static class NestedPropertyConfig3 {
+    @Bean
+    TestNestedPropertySetterBean testNestedPropertyBean() {
+      return new TestNestedPropertySetterBean();
+    }
+  }
+
   @Configuration
   @EnableApolloConfig
   static class AppConfig10 {
@@ -1133,6 +1206,21 @@ public class JavaConfigPlaceholderAutoUpdateTest extends AbstractSpringIntegrati
     }
   }
 
+  @Configuration
+  @EnableApolloConfig
+  static class AppConfig15 {
+
+    @Bean
+    TestValueAndJsonValueBean someBean() {
+      return new TestValueAndJsonValueBean();
+    }
+
+    @Bean
+    TestValueAndJsonValueBean anotherBean() {
+      return new TestValueAndJsonValueBean();
+    }
+  }
+
   static class TestJavaConfigBean {
 
     @Value("${timeout:100}")
@@ -1260,6 +1348,26 @@ public class JavaConfigPlaceholderAutoUpdateTest extends AbstractSpringIntegrati
     }
   }
 
+  static class TestNestedPropertySetterBean {
+
+    private String nestedProperty;
+    private int updateCount;
+
+    @Value("${someKey:${anotherKey}}")
+    public void setNestedProperty(String nestedProperty) {
+      this.nestedProperty = nestedProperty;
+      updateCount++;
+    }
+
+    public String getNestedProperty() {
+      return nestedProperty;
+    }
+
+    public int getUpdateCount() {
+      return updateCount;
+    }
+  }
+
   static class TestAllKindsOfDataTypesBean {
 
     @Value("${intProperty}")
@@ -1360,4 +1468,21 @@ public class JavaConfigPlaceholderAutoUpdateTest extends AbstractSpringIntegrati
     }
   }
 
+  static class TestValueAndJsonValueBean {
+
+    @Value("${stringProperty}")
+    private String stringProperty;
+
+    @ApolloJsonValue("${jsonProperty}")
+    private JsonBean jsonBean;
+
+    public String getStringProperty() {
+      return stringProperty;
+    }
+
+    public JsonBean getJsonBean() {
+      return jsonBean;
+    }
+  }
+
 }
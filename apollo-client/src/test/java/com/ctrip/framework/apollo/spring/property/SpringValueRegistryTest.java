@@ -0,0 +1,74 @@
+package com.ctrip.framework.apollo.spring.property;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import com.google.common.collect.Lists;
+import java.lang.reflect.Field;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.BeanFactory;
+
+public class SpringValueRegistryTest {
+  private static final String SOME_KEY = "someKey";
+  private static final String ANOTHER_KEY = "anotherKey";
+  private static final String SOME_PLACEHOLDER = "${someKey:${anotherKey}}";
+
+  private SpringValueRegistry springValueRegistry;
+  private BeanFactory someBeanFactory;
+  private Field someField;
+
+  @Before
+  public void setUp() throws Exception {
+    springValueRegistry = new SpringValueRegistry();
+    someBeanFactory = mock(BeanFactory.class);
+    someField = SomeBean.class.getDeclaredField("value");
+  }
+
+  @Test
+  public void testGet() throws Exception {
+    SomeBean someBean = new SomeBean();
+    SomeBean anotherBean = new SomeBean();
+    SpringValue someValue = new SpringValue(SOME_KEY, SOME_PLACEHOLDER, someBean, "someBean", someField, false);
+    SpringValue anotherValue = new SpringValue(ANOTHER_KEY, SOME_PLACEHOLDER, someBean, "someBean", someField, false);
+    SpringValue yetAnotherValue = new SpringValue(SOME_KEY, SOME_PLACEHOLDER, anotherBean, "anotherBean", someField,
+        false);
+
+    springValueRegistry.register(someBeanFactory, SOME_KEY, someValue);
+    springValueRegistry.register(someBeanFactory, ANOTHER_KEY, anotherValue);
+    springValueRegistry.register(someBeanFactory, SOME_KEY, yetAnotherValue);
+
+    assertEquals(Lists.newArrayList(someValue, yetAnotherValue), springValueRegistry.get(someBeanFactory, SOME_KEY));
+    assertEquals(Lists.newArrayList(anotherValue), springValueRegistry.get(someBeanFactory, ANOTHER_KEY));
+    assertNull(springValueRegistry.get(someBeanFactory, "someMissingKey"));
+    assertNull(springValueRegistry.get(mock(BeanFactory.class), SOME_KEY));
+  }
+
+  @Test
+  public void testCleanGarbageCollectedBeans() throws Exception {
+    SomeBean someBean = new SomeBean();
+    springValueRegistry.register(someBeanFactory, SOME_KEY,
+        new SpringValue(SOME_KEY, SOME_PLACEHOLDER, someBean, "someBean", someField, false));
+    springValueRegistry.register(someBeanFactory, SOME_KEY,
+        new SpringValue(SOME_KEY, SOME_PLACEHOLDER, new SomeBean(), "anotherBean", someField, false));
+
+    Collection<SpringValue> springValues = springValueRegistry.get(someBeanFactory, SOME_KEY);
+    for (int i = 0; i < 50 && springValues.size() > 1; i++) {
+      System.gc();
+      TimeUnit.MILLISECONDS.sleep(10);
+      springValueRegistry.clean();
+      springValues = springValueRegistry.get(someBeanFactory, SOME_KEY);
+    }
+
+    assertEquals(1, springValues.size());
+    assertTrue(springValues.iterator().next().getBean() == someBean);
+  }
+
+  private static class SomeBean {
+    private String value;
+  }
+}
@@ -29,6 +29,7 @@ public class ConfigUtilTest {
     System.clearProperty("apollo.autoUpdateInjectedSpringProperties");
     System.clearProperty("apollo.cacheDir");
     System.clearProperty(PropertiesFactory.APOLLO_PROPERTY_ORDER_ENABLE);
+    System.clearProperty("apollo.http.maxConnectionsPerHost");
   }
 
   @Test
@@ -236,4 +237,23 @@ public class ConfigUtilTest {
     assertEquals(propertiesOrdered,
         configUtil.isPropertiesOrderEnabled());
   }
+
+  @Test
+  public void testCustomizeHttpTransport() throws Exception {
+    int someMaxConnectionsPerHost = 20;
+    System.setProperty("apollo.http.maxConnectionsPerHost", String.valueOf(someMaxConnectionsPerHost));
+
+    ConfigUtil configUtil = new ConfigUtil();
+
+    assertEquals(someMaxConnectionsPerHost, configUtil.getHttpMaxConnectionsPerHost());
+  }
+
+  @Test
+  public void testCustomizeInvalidHttpTransport() throws Exception {
+    System.setProperty("apollo.http.maxConnectionsPerHost", "0");
+
+    ConfigUtil configUtil = new ConfigUtil();
+
+    assertTrue(configUtil.getHttpMaxConnectionsPerHost() > 0);
+  }
 }
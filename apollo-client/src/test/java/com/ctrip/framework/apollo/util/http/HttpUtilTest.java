@@ -0,0 +1,63 @@
+package com.ctrip.framework.apollo.util.http;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.when;
+
+import com.ctrip.framework.apollo.exceptions.ApolloConfigStatusCodeException;
+import com.google.common.base.Function;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+
+@RunWith(MockitoJUnitRunner.class)
+public class HttpUtilTest {
+  private HttpUtil httpUtil;
+  @Mock
+  private HttpTransport httpTransport;
+  @Mock
+  private HttpResponse<String> someResponse;
+  private HttpRequest someRequest;
+
+  @Before
+  public void setUp() throws Exception {
+    httpUtil = new HttpUtil();
+    ReflectionTestUtils.setField(httpUtil, "m_transport", httpTransport);
+
+    someRequest = new HttpRequest("http://someHost:8080/configs/someAppId");
+  }
+
+  @Test
+  public void testDoGetRecordsHostMetrics() throws Exception {
+    when(httpTransport.doGet(any(HttpRequest.class), any(Function.class))).thenReturn(someResponse)
+        .thenThrow(new ApolloConfigStatusCodeException(404, "some error"));
+
+    HttpResponse<String> response = httpUtil.doGet(someRequest, String.class);
+
+    try {
+      httpUtil.doGet(someRequest, String.class);
+      fail();
+    } catch (ApolloConfigStatusCodeException ex) {
+      // expected
+    }
+
+    HttpHostMetrics metrics = httpUtil.getHostMetrics().get("someHost:8080");
+
+    assertSame(someResponse, response);
+    assertEquals(2, metrics.getRequests());
+    assertEquals(1, metrics.getFailures());
+    assertEquals(0, metrics.getInFlight());
+  }
+
+  @Test
+  public void testExtractHost() throws Exception {
+    assertEquals("someHost:8080", HttpUtil.extractHost("http://someHost:8080/some/path?a=b"));
+    assertEquals("someHost", HttpUtil.extractHost("http://someHost/some/path"));
+    assertEquals("unknown", HttpUtil.extractHost("some invalid url"));
+  }
+}
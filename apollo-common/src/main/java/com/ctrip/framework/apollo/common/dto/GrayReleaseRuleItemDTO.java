@@ -1,5 +1,6 @@
 package com.ctrip.framework.apollo.common.dto;
 
+import com.ctrip.framework.apollo.common.utils.IpSubnet;
 import com.google.common.collect.Sets;
 
 import java.util.Set;
@@ -10,6 +11,9 @@ import static com.google.common.base.MoreObjects.toStringHelper;
  * @author Jason Song(song_s@ctrip.com)
  */
 public class GrayReleaseRuleItemDTO {
+  /**
+   * besides the exact ips, the client ip list could contain this wildcard or subnets in CIDR notation, e.g. 10.1.0.0/16
+   */
   public static final String ALL_IP = "*";
 
   private String clientAppId;
@@ -41,7 +45,16 @@ public class GrayReleaseRuleItemDTO {
   }
 
   private boolean ipMatches(String clientIp) {
-    return this.clientIpList.contains(ALL_IP) || clientIpList.contains(clientIp);
+    if (this.clientIpList.contains(ALL_IP) || clientIpList.contains(clientIp)) {
+      return true;
+    }
+    for (String ip : clientIpList) {
+      IpSubnet subnet = IpSubnet.parse(ip);
+      if (subnet != null && subnet.contains(clientIp)) {
+        return true;
+      }
+    }
+    return false;
   }
 
   @Override
@@ -0,0 +1,50 @@
+package com.ctrip.framework.apollo.common.dto;
+
+import java.util.List;
+
+/**
+ * A namespace with its items, latest active release and the items deleted since the release, which is everything the
+ * portal needs to show the namespace.
+ */
+public class NamespaceViewDTO {
+
+  private NamespaceDTO namespace;
+
+  private List<ItemDTO> items;
+
+  private ReleaseDTO latestRelease;
+
+  private List<ItemDTO> deletedItems;
+
+  public NamespaceDTO getNamespace() {
+    return namespace;
+  }
+
+  public void setNamespace(NamespaceDTO namespace) {
+    this.namespace = namespace;
+  }
+
+  public List<ItemDTO> getItems() {
+    return items;
+  }
+
+  public void setItems(List<ItemDTO> items) {
+    this.items = items;
+  }
+
+  public ReleaseDTO getLatestRelease() {
+    return latestRelease;
+  }
+
+  public void setLatestRelease(ReleaseDTO latestRelease) {
+    this.latestRelease = latestRelease;
+  }
+
+  public List<ItemDTO> getDeletedItems() {
+    return deletedItems;
+  }
+
+  public void setDeletedItems(List<ItemDTO> deletedItems) {
+    this.deletedItems = deletedItems;
+  }
+}
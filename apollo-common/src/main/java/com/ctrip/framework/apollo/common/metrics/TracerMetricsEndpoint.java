@@ -0,0 +1,25 @@
+package com.ctrip.framework.apollo.common.metrics;
+
+import com.ctrip.framework.apollo.tracer.metrics.TracerMetrics;
+import java.util.Map;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Exposes the metrics aggregated from the tracer messages, e.g. the long polling, cache and scanner metrics, at
+ * /tracermetrics. Only available with -Dapollo.tracer.metrics.enabled=true, and empty when CAT is used.
+ *
+ * @see TracerMetrics#snapshot()
+ */
+@Component
+@ConditionalOnProperty(name = "apollo.tracer.metrics.enabled", havingValue = "true")
+@Endpoint(id = "tracermetrics")
+public class TracerMetricsEndpoint {
+
+  @ReadOperation
+  public Map<String, Object> metrics() {
+    return TracerMetrics.getInstance().snapshot();
+  }
+}
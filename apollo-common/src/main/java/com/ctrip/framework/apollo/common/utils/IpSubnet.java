@@ -0,0 +1,89 @@
+package com.ctrip.framework.apollo.common.utils;
+
+import com.google.common.net.InetAddresses;
+
+/**
+ * An ip subnet in CIDR notation, e.g. 10.1.0.0/16 or 2001:db8::/32.
+ */
+public class IpSubnet {
+  private static final char PREFIX_SEPARATOR = '/';
+
+  private final byte[] address;
+  private final int prefixLength;
+
+  private IpSubnet(byte[] address, int prefixLength) {
+    this.address = address;
+    this.prefixLength = prefixLength;
+  }
+
+  /**
+   * @return the subnet, or null if the value is not in CIDR notation
+   */
+  public static IpSubnet parse(String value) {
+    if (value == null) {
+      return null;
+    }
+    int separatorIndex = value.indexOf(PREFIX_SEPARATOR);
+    if (separatorIndex <= 0) {
+      return null;
+    }
+    byte[] address = toBytes(value.substring(0, separatorIndex).trim());
+    if (address == null) {
+      return null;
+    }
+    int prefixLength;
+    try {
+      prefixLength = Integer.parseInt(value.substring(separatorIndex + 1).trim());
+    } catch (NumberFormatException ex) {
+      return null;
+    }
+    if (prefixLength < 0 || prefixLength > address.length * 8) {
+      return null;
+    }
+    return new IpSubnet(address, prefixLength);
+  }
+
+  /**
+   * Convert the ip literal to bytes without any dns lookup.
+   *
+   * @return the 4 bytes of an ipv4 address or the 16 bytes of an ipv6 address, or null if the value is not an ip
+   */
+  public static byte[] toBytes(String ip) {
+    if (ip == null || !InetAddresses.isInetAddress(ip)) {
+      return null;
+    }
+    return InetAddresses.forString(ip).getAddress();
+  }
+
+  public boolean contains(String ip) {
+    byte[] bytes = toBytes(ip);
+    return bytes != null && contains(bytes);
+  }
+
+  public boolean contains(byte[] ip) {
+    if (ip.length != address.length) {
+      return false;
+    }
+    for (int i = 0; i < prefixLength; i++) {
+      if (bitAt(ip, i) != bitAt(address, i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  public byte[] getAddress() {
+    return address.clone();
+  }
+
+  public int getPrefixLength() {
+    return prefixLength;
+  }
+
+  /**
+   * @return the bit of the address at the index, counting from the most significant bit
+   */
+  public static int bitAt(byte[] address, int index) {
+    return (address[index >>> 3] >>> (7 - (index & 7))) & 1;
+  }
+}
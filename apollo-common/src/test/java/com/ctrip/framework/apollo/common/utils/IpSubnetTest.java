@@ -0,0 +1,40 @@
+package com.ctrip.framework.apollo.common.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class IpSubnetTest {
+
+  @Test
+  public void testParse() throws Exception {
+    IpSubnet subnet = IpSubnet.parse("10.1.0.0/16");
+
+    assertEquals(16, subnet.getPrefixLength());
+    assertEquals(4, subnet.getAddress().length);
+    assertEquals(128, IpSubnet.parse("2001:db8::/128").getPrefixLength());
+
+    assertNull(IpSubnet.parse(null));
+    assertNull(IpSubnet.parse("10.1.0.0"));
+    assertNull(IpSubnet.parse("10.1.0.0/33"));
+    assertNull(IpSubnet.parse("10.1.0.0/a"));
+    assertNull(IpSubnet.parse("someHost/16"));
+  }
+
+  @Test
+  public void testContains() throws Exception {
+    IpSubnet subnet = IpSubnet.parse("10.1.128.0/17");
+
+    assertTrue(subnet.contains("10.1.128.1"));
+    assertTrue(subnet.contains("10.1.255.255"));
+    assertFalse(subnet.contains("10.1.127.255"));
+    assertFalse(subnet.contains("2001:db8::1"));
+    assertFalse(subnet.contains("someInvalidIp"));
+
+    assertTrue(IpSubnet.parse("0.0.0.0/0").contains("1.2.3.4"));
+    assertTrue(IpSubnet.parse("2001:db8::/32").contains("2001:db8:ffff::1"));
+  }
+}
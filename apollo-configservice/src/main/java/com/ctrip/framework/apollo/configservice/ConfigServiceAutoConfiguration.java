@@ -3,6 +3,7 @@ package com.ctrip.framework.apollo.configservice;
 import com.ctrip.framework.apollo.biz.config.BizConfig;
 import com.ctrip.framework.apollo.biz.grayReleaseRule.GrayReleaseRulesHolder;
 import com.ctrip.framework.apollo.biz.message.ReleaseMessageScanner;
+import com.ctrip.framework.apollo.configservice.controller.ConfigController;
 import com.ctrip.framework.apollo.configservice.controller.ConfigFileController;
 import com.ctrip.framework.apollo.configservice.controller.NotificationController;
 import com.ctrip.framework.apollo.configservice.controller.NotificationControllerV2;
@@ -12,6 +13,8 @@ import com.ctrip.framework.apollo.configservice.service.config.ConfigService;
 import com.ctrip.framework.apollo.configservice.service.config.ConfigServiceWithCache;
 import com.ctrip.framework.apollo.configservice.service.config.DefaultConfigService;
 import com.ctrip.framework.apollo.configservice.util.AccessKeyUtil;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
 import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -62,6 +65,7 @@ public class ConfigServiceAutoConfiguration {
   @Configuration
   static class MessageScannerConfiguration {
     private final NotificationController notificationController;
+    private final ConfigController configController;
     private final ConfigFileController configFileController;
     private final NotificationControllerV2 notificationControllerV2;
     private final GrayReleaseRulesHolder grayReleaseRulesHolder;
@@ -70,12 +74,14 @@ public class ConfigServiceAutoConfiguration {
 
     public MessageScannerConfiguration(
         final NotificationController notificationController,
+        final ConfigController configController,
         final ConfigFileController configFileController,
         final NotificationControllerV2 notificationControllerV2,
         final GrayReleaseRulesHolder grayReleaseRulesHolder,
         final ReleaseMessageServiceWithCache releaseMessageServiceWithCache,
         final ConfigService configService) {
       this.notificationController = notificationController;
+      this.configController = configController;
       this.configFileController = configFileController;
       this.notificationControllerV2 = notificationControllerV2;
       this.grayReleaseRulesHolder = grayReleaseRulesHolder;
@@ -86,18 +92,29 @@ public class ConfigServiceAutoConfiguration {
     @Bean
     public ReleaseMessageScanner releaseMessageScanner() {
       ReleaseMessageScanner releaseMessageScanner = new ReleaseMessageScanner();
+      //the only tailer of release messages, starts right after the history loaded into the release message cache
+      releaseMessageScanner.setStartMessageId(releaseMessageServiceWithCache.getMaxIdScanned());
       //0. handle release message cache
       releaseMessageScanner.addMessageListener(releaseMessageServiceWithCache);
       //1. handle gray release rule
       releaseMessageScanner.addMessageListener(grayReleaseRulesHolder);
       //2. handle server cache
       releaseMessageScanner.addMessageListener(configService);
+      releaseMessageScanner.addMessageListener(configController);
       releaseMessageScanner.addMessageListener(configFileController);
       //3. notify clients
       releaseMessageScanner.addMessageListener(notificationControllerV2);
       releaseMessageScanner.addMessageListener(notificationController);
       return releaseMessageScanner;
     }
+
+    @Bean
+    public MeterBinder releaseMessageScannerMetrics(final ReleaseMessageScanner releaseMessageScanner) {
+      return registry -> Gauge.builder("apollo.release-message.scanner.lag", releaseMessageScanner,
+          ReleaseMessageScanner::getLagInMillis).baseUnit("milliseconds")
+          .description("The delay between the last release message being saved and it being dispatched")
+          .register(registry);
+    }
   }
 
 }
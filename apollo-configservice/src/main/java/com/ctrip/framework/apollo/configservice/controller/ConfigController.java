@@ -1,21 +1,36 @@
 package com.ctrip.framework.apollo.configservice.controller;
 
 import com.ctrip.framework.apollo.biz.entity.Release;
+import com.ctrip.framework.apollo.biz.entity.ReleaseMessage;
+import com.ctrip.framework.apollo.biz.grayReleaseRule.GrayReleaseRulesHolder;
+import com.ctrip.framework.apollo.biz.message.ReleaseMessageListener;
+import com.ctrip.framework.apollo.biz.message.Topics;
+import com.ctrip.framework.apollo.biz.service.ReleaseService;
 import com.ctrip.framework.apollo.common.entity.AppNamespace;
 import com.ctrip.framework.apollo.configservice.service.AppNamespaceServiceWithCache;
 import com.ctrip.framework.apollo.configservice.service.config.ConfigService;
 import com.ctrip.framework.apollo.configservice.util.InstanceConfigAuditUtil;
 import com.ctrip.framework.apollo.configservice.util.NamespaceUtil;
+import com.ctrip.framework.apollo.configservice.wrapper.ApolloConfigResponse;
 import com.ctrip.framework.apollo.core.ConfigConsts;
 import com.ctrip.framework.apollo.core.dto.ApolloConfig;
 import com.ctrip.framework.apollo.core.dto.ApolloNotificationMessages;
 import com.ctrip.framework.apollo.tracer.Tracer;
+import com.google.common.base.Joiner;
 import com.google.common.base.Splitter;
 import com.google.common.base.Strings;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalCause;
+import com.google.common.cache.Weigher;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -24,11 +39,17 @@ import org.springframework.web.bind.annotation.RestController;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.lang.reflect.Type;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 /**
@@ -36,15 +57,38 @@ import java.util.stream.Collectors;
  */
 @RestController
 @RequestMapping("/configs")
-public class ConfigController {
+public class ConfigController implements ReleaseMessageListener {
+  private static final Logger logger = LoggerFactory.getLogger(ConfigController.class);
   private static final Splitter X_FORWARDED_FOR_SPLITTER = Splitter.on(",").omitEmptyStrings()
       .trimResults();
+  private static final Joiner STRING_JOINER = Joiner.on(ConfigConsts.CLUSTER_NAMESPACE_SEPARATOR).useForNull("");
+  private static final long MAX_CACHE_SIZE = 50 * 1024 * 1024; // 50MB
+  private static final long EXPIRE_AFTER_ACCESS = 30;
+  private static final String JSON_CONTENT_TYPE = "application/json;charset=UTF-8";
+  private static final String GZIP_ENCODING = "gzip";
+  private static final String DELTA_CACHE_KEY_MARK = "delta";
+  private static final String NO_CLIENT_SIDE_RELEASE_KEY = "-1";
+  private static final Splitter BATCH_PARAM_SPLITTER = Splitter.on(",").trimResults();
+  private static final int MAX_BATCH_NAMESPACES = 100;
+  private static final ApolloConfigResponse NOT_MODIFIED = new ApolloConfigResponse(null);
+  private static final Splitter RELEASE_KEY_SPLITTER = Splitter.on(ConfigConsts.CLUSTER_NAMESPACE_SEPARATOR);
   private final ConfigService configService;
   private final AppNamespaceServiceWithCache appNamespaceService;
   private final NamespaceUtil namespaceUtil;
   private final InstanceConfigAuditUtil instanceConfigAuditUtil;
+  private final GrayReleaseRulesHolder grayReleaseRulesHolder;
+  private final ReleaseService releaseService;
   private final Gson gson;
 
+  /**
+   * merged responses keyed by the loaded releases, since releases are immutable the entries never go stale and are
+   * only invalidated to release memory once a new release comes
+   */
+  private final Cache<String, ApolloConfigResponse> responseCache;
+  //the sets are concurrent too, so that they could be read without locking while being updated
+  private final ConcurrentMap<String, Set<String>> watchedKey2CacheKeys = new ConcurrentHashMap<>();
+  private final ConcurrentMap<String, Set<String>> cacheKey2WatchedKeys = new ConcurrentHashMap<>();
+
   private static final Type configurationTypeReference = new TypeToken<Map<String, String>>() {
       }.getType();
 
@@ -53,34 +97,174 @@ public class ConfigController {
       final AppNamespaceServiceWithCache appNamespaceService,
       final NamespaceUtil namespaceUtil,
       final InstanceConfigAuditUtil instanceConfigAuditUtil,
+      final GrayReleaseRulesHolder grayReleaseRulesHolder,
+      final ReleaseService releaseService,
       final Gson gson) {
     this.configService = configService;
     this.appNamespaceService = appNamespaceService;
     this.namespaceUtil = namespaceUtil;
     this.instanceConfigAuditUtil = instanceConfigAuditUtil;
+    this.grayReleaseRulesHolder = grayReleaseRulesHolder;
+    this.releaseService = releaseService;
     this.gson = gson;
+    this.responseCache = CacheBuilder.newBuilder()
+        .expireAfterAccess(EXPIRE_AFTER_ACCESS, TimeUnit.MINUTES)
+        .weigher((Weigher<String, ApolloConfigResponse>) (key, value) -> value.weight())
+        .maximumWeight(MAX_CACHE_SIZE)
+        .removalListener(notification -> {
+          //the replaced entry shares the same watched keys as the new one
+          if (notification.getCause() == RemovalCause.REPLACED) {
+            return;
+          }
+          unindexCacheKey((String) notification.getKey());
+        })
+        .build();
   }
 
   @GetMapping(value = "/{appId}/{clusterName}/{namespace:.+}")
-  public ApolloConfig queryConfig(@PathVariable String appId, @PathVariable String clusterName,
-                                  @PathVariable String namespace,
-                                  @RequestParam(value = "dataCenter", required = false) String dataCenter,
-                                  @RequestParam(value = "releaseKey", defaultValue = "-1") String clientSideReleaseKey,
-                                  @RequestParam(value = "ip", required = false) String clientIp,
-                                  @RequestParam(value = "messages", required = false) String messagesAsString,
+  public void queryConfigAsResponse(@PathVariable String appId, @PathVariable String clusterName,
+                                    @PathVariable String namespace,
+                                    @RequestParam(value = "dataCenter", required = false) String dataCenter,
+                                    @RequestParam(value = "releaseKey", defaultValue = "-1") String clientSideReleaseKey,
+                                    @RequestParam(value = "ip", required = false) String clientIp,
+                                    @RequestParam(value = "messages", required = false) String messagesAsString,
+                                    @RequestParam(value = "delta", defaultValue = "false") boolean delta,
+                                    HttpServletRequest request, HttpServletResponse response) throws IOException {
+    ApolloConfigResponse configResponse = loadConfigResponse(appId, clusterName, namespace, dataCenter,
+        clientSideReleaseKey, clientIp, messagesAsString, delta, request, response);
+
+    //not found or not modified, the status is already set
+    if (configResponse == null) {
+      return;
+    }
+
+    if (acceptsGzip(request)) {
+      writeResponse(response, configResponse.getGzippedJson(gson), true);
+    } else {
+      writeResponse(response, configResponse.getJson(gson), false);
+    }
+  }
+
+  /**
+   * Query the configs of several namespaces in one request, the namespaces not found or not modified are left out of
+   * the result
+   */
+  @GetMapping(value = "/{appId}/{clusterName}", params = "namespaces")
+  public void queryConfigsAsResponse(@PathVariable String appId, @PathVariable String clusterName,
+                                     @RequestParam(value = "namespaces") String namespacesAsString,
+                                     @RequestParam(value = "dataCenter", required = false) String dataCenter,
+                                     @RequestParam(value = "releaseKeys", required = false) String releaseKeysAsString,
+                                     @RequestParam(value = "ip", required = false) String clientIp,
+                                     @RequestParam(value = "messages", required = false) String messagesAsString,
+                                     @RequestParam(value = "delta", defaultValue = "false") boolean delta,
+                                     HttpServletRequest request, HttpServletResponse response) throws IOException {
+    List<String> namespaces = BATCH_PARAM_SPLITTER.splitToList(namespacesAsString);
+    List<String> clientSideReleaseKeys = Strings.isNullOrEmpty(releaseKeysAsString) ? Collections.emptyList()
+        : BATCH_PARAM_SPLITTER.splitToList(releaseKeysAsString);
+    if (namespaces.isEmpty() || namespaces.size() > MAX_BATCH_NAMESPACES
+        || (!clientSideReleaseKeys.isEmpty() && clientSideReleaseKeys.size() != namespaces.size())) {
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST, String.format(
+          "Invalid namespaces: %s or release keys: %s, at most %d namespaces are allowed", namespacesAsString,
+          releaseKeysAsString, MAX_BATCH_NAMESPACES));
+      return;
+    }
+
+    if (Strings.isNullOrEmpty(clientIp)) {
+      clientIp = tryToGetClientIp(request);
+    }
+    ApolloNotificationMessages clientMessages = transformMessages(messagesAsString);
+
+    //concatenate the pre-serialized configs instead of serializing them all over again
+    ByteArrayOutputStream body = new ByteArrayOutputStream();
+    body.write('[');
+    boolean first = true;
+    for (int i = 0; i < namespaces.size(); i++) {
+      String clientSideReleaseKey = clientSideReleaseKeys.isEmpty() ? NO_CLIENT_SIDE_RELEASE_KEY
+          : clientSideReleaseKeys.get(i);
+      ApolloConfigResponse configResponse = findConfigResponse(appId, clusterName, namespaces.get(i), dataCenter,
+          clientSideReleaseKey, clientIp, clientMessages, delta);
+      if (configResponse == null || configResponse == NOT_MODIFIED) {
+        continue;
+      }
+      if (!first) {
+        body.write(',');
+      }
+      body.write(configResponse.getJson(gson));
+      first = false;
+    }
+    body.write(']');
+    Tracer.logEvent("Apollo.Config.Batch", String.valueOf(namespaces.size()));
+
+    boolean gzip = acceptsGzip(request);
+    writeResponse(response, gzip ? ApolloConfigResponse.gzip(body.toByteArray()) : body.toByteArray(), gzip);
+  }
+
+  private boolean acceptsGzip(HttpServletRequest request) {
+    String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+    return acceptEncoding != null && acceptEncoding.contains(GZIP_ENCODING);
+  }
+
+  private void writeResponse(HttpServletResponse response, byte[] body, boolean gzipped) throws IOException {
+    if (gzipped) {
+      response.setHeader(HttpHeaders.CONTENT_ENCODING, GZIP_ENCODING);
+    }
+    response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+    response.setContentType(JSON_CONTENT_TYPE);
+    response.setContentLength(body.length);
+    response.getOutputStream().write(body);
+  }
+
+  public ApolloConfig queryConfig(String appId, String clusterName, String namespace, String dataCenter,
+                                  String clientSideReleaseKey, String clientIp, String messagesAsString,
                                   HttpServletRequest request, HttpServletResponse response) throws IOException {
-    String originalNamespace = namespace;
-    //strip out .properties suffix
-    namespace = namespaceUtil.filterNamespaceName(namespace);
-    //fix the character case issue, such as FX.apollo <-> fx.apollo
-    namespace = namespaceUtil.normalizeNamespace(appId, namespace);
+    ApolloConfigResponse configResponse = loadConfigResponse(appId, clusterName, namespace, dataCenter,
+        clientSideReleaseKey, clientIp, messagesAsString, false, request, response);
+    return configResponse == null ? null : configResponse.getApolloConfig();
+  }
 
+  private ApolloConfigResponse loadConfigResponse(String appId, String clusterName, String namespace,
+                                                  String dataCenter, String clientSideReleaseKey, String clientIp,
+                                                  String messagesAsString, boolean delta,
+                                                  HttpServletRequest request, HttpServletResponse response)
+      throws IOException {
     if (Strings.isNullOrEmpty(clientIp)) {
       clientIp = tryToGetClientIp(request);
     }
 
     ApolloNotificationMessages clientMessages = transformMessages(messagesAsString);
 
+    ApolloConfigResponse configResponse = findConfigResponse(appId, clusterName, namespace, dataCenter,
+        clientSideReleaseKey, clientIp, clientMessages, delta);
+
+    if (configResponse == null) {
+      response.sendError(HttpServletResponse.SC_NOT_FOUND,
+          String.format(
+              "Could not load configurations with appId: %s, clusterName: %s, namespace: %s",
+              appId, clusterName, namespace));
+      return null;
+    }
+
+    if (configResponse == NOT_MODIFIED) {
+      // Client side configuration is the same with server side, return 304
+      response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+      return null;
+    }
+
+    return configResponse;
+  }
+
+  /**
+   * @return the config response, null if not found or {@link #NOT_MODIFIED} if the client side is up to date
+   */
+  private ApolloConfigResponse findConfigResponse(String appId, String clusterName, String namespace,
+                                                  String dataCenter, String clientSideReleaseKey, String clientIp,
+                                                  ApolloNotificationMessages clientMessages, boolean delta) {
+    String originalNamespace = namespace;
+    //strip out .properties suffix
+    namespace = namespaceUtil.filterNamespaceName(namespace);
+    //fix the character case issue, such as FX.apollo <-> fx.apollo
+    namespace = namespaceUtil.normalizeNamespace(appId, namespace);
+
     List<Release> releases = Lists.newLinkedList();
 
     String appClusterNameLoaded = clusterName;
@@ -105,10 +289,6 @@ public class ConfigController {
     }
 
     if (releases.isEmpty()) {
-      response.sendError(HttpServletResponse.SC_NOT_FOUND,
-          String.format(
-              "Could not load configurations with appId: %s, clusterName: %s, namespace: %s",
-              appId, clusterName, originalNamespace));
       Tracer.logEvent("Apollo.Config.NotFound",
           assembleKey(appId, clusterName, originalNamespace, dataCenter));
       return null;
@@ -120,22 +300,180 @@ public class ConfigController {
             .collect(Collectors.joining(ConfigConsts.CLUSTER_NAMESPACE_SEPARATOR));
 
     if (mergedReleaseKey.equals(clientSideReleaseKey)) {
-      // Client side configuration is the same with server side, return 304
-      response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
       Tracer.logEvent("Apollo.Config.NotModified",
           assembleKey(appId, appClusterNameLoaded, originalNamespace, dataCenter));
-      return null;
+      return NOT_MODIFIED;
     }
 
-    ApolloConfig apolloConfig = new ApolloConfig(appId, appClusterNameLoaded, originalNamespace,
-        mergedReleaseKey);
-    apolloConfig.setConfigurations(mergeReleaseConfigurations(releases));
-
     Tracer.logEvent("Apollo.Config.Found", assembleKey(appId, appClusterNameLoaded,
         originalNamespace, dataCenter));
+
+    //gray release clients get releases no one else does, so don't let them pollute the cache
+    boolean cacheable = !grayReleaseRulesHolder.hasGrayReleaseRule(appId, clientIp, namespace);
+    if (!cacheable) {
+      Tracer.logEvent("Apollo.Config.Cache.GrayRelease", mergedReleaseKey);
+    }
+
+    String cacheKey = STRING_JOINER.join(appId, appClusterNameLoaded, originalNamespace, mergedReleaseKey);
+    ApolloConfigResponse configResponse = cacheable ? responseCache.getIfPresent(cacheKey) : null;
+    if (configResponse != null) {
+      Tracer.logEvent("Apollo.Config.Cache.Hit", cacheKey);
+    } else {
+      if (cacheable) {
+        Tracer.logEvent("Apollo.Config.Cache.Miss", cacheKey);
+      }
+      configResponse = new ApolloConfigResponse(assembleApolloConfig(appId, appClusterNameLoaded, originalNamespace,
+          mergedReleaseKey, releases));
+      if (cacheable) {
+        cacheResponse(cacheKey, configResponse, releases);
+      }
+    }
+
+    if (!delta || NO_CLIENT_SIDE_RELEASE_KEY.equals(clientSideReleaseKey)) {
+      return configResponse;
+    }
+
+    String deltaCacheKey = STRING_JOINER.join(cacheKey, DELTA_CACHE_KEY_MARK, clientSideReleaseKey);
+    ApolloConfigResponse deltaResponse = cacheable ? responseCache.getIfPresent(deltaCacheKey) : null;
+    if (deltaResponse != null) {
+      Tracer.logEvent("Apollo.Config.Delta.Cache.Hit", deltaCacheKey);
+      return deltaResponse;
+    }
+
+    ApolloConfig deltaConfig = assembleDeltaApolloConfig(configResponse.getApolloConfig(), clientSideReleaseKey,
+        releases);
+    //the base release is unknown, fall back to the full configurations
+    if (deltaConfig == null) {
+      Tracer.logEvent("Apollo.Config.Delta.Fallback", assembleKey(appId, appClusterNameLoaded,
+          originalNamespace, dataCenter));
+      return configResponse;
+    }
+
+    Tracer.logEvent("Apollo.Config.Delta", assembleKey(appId, appClusterNameLoaded, originalNamespace, dataCenter));
+    deltaResponse = new ApolloConfigResponse(deltaConfig);
+    if (cacheable) {
+      cacheResponse(deltaCacheKey, deltaResponse, releases);
+    }
+    return deltaResponse;
+  }
+
+  /**
+   * Put the response into cache before indexing it, so that the index never points to an entry put after it is
+   * unindexed. If a release message comes in between, the entry is left in cache until it expires, which is fine as
+   * it is only served for the same releases.
+   */
+  private void cacheResponse(String cacheKey, ApolloConfigResponse configResponse, List<Release> releases) {
+    responseCache.put(cacheKey, configResponse);
+    for (Release release : releases) {
+      String watchedKey = STRING_JOINER.join(release.getAppId(), release.getClusterName(), release.getNamespaceName());
+      addToIndex(watchedKey2CacheKeys, watchedKey, cacheKey);
+      addToIndex(cacheKey2WatchedKeys, cacheKey, watchedKey);
+    }
+    //the entry might be evicted before being indexed, then nothing would unindex it
+    if (responseCache.getIfPresent(cacheKey) == null) {
+      unindexCacheKey(cacheKey);
+    }
+  }
+
+  /**
+   * compare the current configurations with the ones of the client side releases
+   *
+   * @return the added, changed and deleted keys, or null if the client side releases could not be matched
+   */
+  private ApolloConfig assembleDeltaApolloConfig(ApolloConfig current, String clientSideReleaseKey,
+                                                 List<Release> releases) {
+    List<String> baseReleaseKeys = RELEASE_KEY_SPLITTER.splitToList(clientSideReleaseKey);
+    if (baseReleaseKeys.size() != releases.size()) {
+      return null;
+    }
+
+    Map<String, Release> baseReleasesByKey = Maps.newHashMap();
+    for (Release baseRelease : releaseService.findByReleaseKeys(Sets.newHashSet(baseReleaseKeys))) {
+      baseReleasesByKey.put(baseRelease.getReleaseKey(), baseRelease);
+    }
+
+    //the base releases must be the previous releases of the same namespaces, in the same priority
+    List<Release> baseReleases = Lists.newArrayListWithCapacity(baseReleaseKeys.size());
+    for (int i = 0; i < baseReleaseKeys.size(); i++) {
+      Release baseRelease = baseReleasesByKey.get(baseReleaseKeys.get(i));
+      Release release = releases.get(i);
+      if (baseRelease == null || !Objects.equals(baseRelease.getAppId(), release.getAppId())
+          || !Objects.equals(baseRelease.getNamespaceName(), release.getNamespaceName())) {
+        return null;
+      }
+      baseReleases.add(baseRelease);
+    }
+
+    Map<String, String> baseConfigurations = mergeReleaseConfigurations(baseReleases);
+    Map<String, String> changedConfigurations = Maps.newLinkedHashMap();
+    for (Map.Entry<String, String> entry : current.getConfigurations().entrySet()) {
+      if (!baseConfigurations.containsKey(entry.getKey())
+          || !Objects.equals(baseConfigurations.get(entry.getKey()), entry.getValue())) {
+        changedConfigurations.put(entry.getKey(), entry.getValue());
+      }
+    }
+    Set<String> deletedKeys = Sets.newLinkedHashSet(
+        Sets.difference(baseConfigurations.keySet(), current.getConfigurations().keySet()));
+
+    ApolloConfig deltaConfig = new ApolloConfig(current.getAppId(), current.getCluster(),
+        current.getNamespaceName(), current.getReleaseKey());
+    deltaConfig.setConfigurations(Collections.unmodifiableMap(changedConfigurations));
+    deltaConfig.setBaseReleaseKey(clientSideReleaseKey);
+    deltaConfig.setDeletedKeys(Collections.unmodifiableSet(deletedKeys));
+    return deltaConfig;
+  }
+
+  private ApolloConfig assembleApolloConfig(String appId, String cluster, String namespace, String mergedReleaseKey,
+                                            List<Release> releases) {
+    ApolloConfig apolloConfig = new ApolloConfig(appId, cluster, namespace, mergedReleaseKey);
+    apolloConfig.setConfigurations(Collections.unmodifiableMap(mergeReleaseConfigurations(releases)));
     return apolloConfig;
   }
 
+  @Override
+  public void handleMessage(ReleaseMessage message, String channel) {
+    String content = message.getMessage();
+    if (!Topics.APOLLO_RELEASE_TOPIC.equals(channel) || Strings.isNullOrEmpty(content)) {
+      return;
+    }
+
+    //the set is concurrent, so it could be iterated while the removal listener unindexes the cache keys
+    Set<String> cacheKeys = watchedKey2CacheKeys.getOrDefault(content, Collections.emptySet());
+
+    for (String cacheKey : cacheKeys) {
+      logger.debug("invalidate config response cache key: {}", cacheKey);
+      responseCache.invalidate(cacheKey);
+    }
+  }
+
+  private void unindexCacheKey(String cacheKey) {
+    Set<String> watchedKeys = cacheKey2WatchedKeys.remove(cacheKey);
+    if (watchedKeys == null) {
+      return;
+    }
+    for (String watchedKey : watchedKeys) {
+      removeFromIndex(watchedKey2CacheKeys, watchedKey, cacheKey);
+    }
+  }
+
+  private static void addToIndex(ConcurrentMap<String, Set<String>> index, String key, String value) {
+    //compute is atomic per key, so that the set could not be removed by removeFromIndex in the meantime
+    index.compute(key, (k, values) -> {
+      if (values == null) {
+        values = ConcurrentHashMap.newKeySet();
+      }
+      values.add(value);
+      return values;
+    });
+  }
+
+  private static void removeFromIndex(ConcurrentMap<String, Set<String>> index, String key, String value) {
+    index.computeIfPresent(key, (k, values) -> {
+      values.remove(value);
+      return values.isEmpty() ? null : values;
+    });
+  }
+
   private boolean namespaceBelongsToAppId(String appId, String namespaceName) {
     //Every app has an 'application' namespace
     if (Objects.equals(ConfigConsts.NAMESPACE_APPLICATION, namespaceName)) {
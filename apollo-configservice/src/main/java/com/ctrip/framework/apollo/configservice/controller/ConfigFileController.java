@@ -15,11 +15,10 @@ import com.google.common.base.Splitter;
 import com.google.common.base.Strings;
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalCause;
 import com.google.common.cache.Weigher;
-import com.google.common.collect.HashMultimap;
 import com.google.common.collect.Lists;
-import com.google.common.collect.Multimap;
-import com.google.common.collect.Multimaps;
+import com.google.common.hash.Hashing;
 import com.google.gson.Gson;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -34,12 +33,18 @@ import org.springframework.web.bind.annotation.RestController;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.util.ArrayList;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * @author Jason Song(song_s@ctrip.com)
@@ -51,16 +56,20 @@ public class ConfigFileController implements ReleaseMessageListener {
   private static final Joiner STRING_JOINER = Joiner.on(ConfigConsts.CLUSTER_NAMESPACE_SEPARATOR);
   private static final Splitter X_FORWARDED_FOR_SPLITTER = Splitter.on(",").omitEmptyStrings()
       .trimResults();
+  private static final Splitter ETAG_SPLITTER = Splitter.on(",").omitEmptyStrings().trimResults();
+  private static final String WEAK_ETAG_PREFIX = "W/";
+  private static final String GZIP_ETAG_SUFFIX = "-gzip";
+  private static final String GZIP = "gzip";
+  private static final int MIN_GZIP_SIZE = 1024; // 1KB
   private static final long MAX_CACHE_SIZE = 50 * 1024 * 1024; // 50MB
   private static final long EXPIRE_AFTER_WRITE = 30;
   private final HttpHeaders propertiesResponseHeaders;
   private final HttpHeaders jsonResponseHeaders;
-  private final ResponseEntity<String> NOT_FOUND_RESPONSE;
-  private Cache<String, String> localCache;
-  private final Multimap<String, String>
-      watchedKeys2CacheKey = Multimaps.synchronizedSetMultimap(HashMultimap.create());
-  private final Multimap<String, String>
-      cacheKey2WatchedKeys = Multimaps.synchronizedSetMultimap(HashMultimap.create());
+  private final ResponseEntity<byte[]> NOT_FOUND_RESPONSE;
+  private Cache<String, ConfigFile> localCache;
+  //the sets are concurrent too, so that they could be read without locking while being updated
+  private final ConcurrentMap<String, Set<String>> watchedKeys2CacheKey = new ConcurrentHashMap<>();
+  private final ConcurrentMap<String, Set<String>> cacheKey2WatchedKeys = new ConcurrentHashMap<>();
   private static final Gson GSON = new Gson();
 
   private final ConfigController configController;
@@ -75,20 +84,22 @@ public class ConfigFileController implements ReleaseMessageListener {
       final GrayReleaseRulesHolder grayReleaseRulesHolder) {
     localCache = CacheBuilder.newBuilder()
         .expireAfterWrite(EXPIRE_AFTER_WRITE, TimeUnit.MINUTES)
-        .weigher((Weigher<String, String>) (key, value) -> value == null ? 0 : value.length())
+        .weigher((Weigher<String, ConfigFile>) (key, value) -> value == null ? 0 : value.size())
         .maximumWeight(MAX_CACHE_SIZE)
         .removalListener(notification -> {
+          //the replaced entry shares the same watched keys as the new one
+          if (notification.getCause() == RemovalCause.REPLACED) {
+            return;
+          }
           String cacheKey = notification.getKey();
           logger.debug("removing cache key: {}", cacheKey);
-          if (!cacheKey2WatchedKeys.containsKey(cacheKey)) {
+          Set<String> watchedKeys = cacheKey2WatchedKeys.remove(cacheKey);
+          if (watchedKeys == null) {
             return;
           }
-          //create a new list to avoid ConcurrentModificationException
-          List<String> watchedKeys = new ArrayList<>(cacheKey2WatchedKeys.get(cacheKey));
           for (String watchedKey : watchedKeys) {
-            watchedKeys2CacheKey.remove(watchedKey, cacheKey);
+            removeFromIndex(watchedKeys2CacheKey, watchedKey, cacheKey);
           }
-          cacheKey2WatchedKeys.removeAll(cacheKey);
           logger.debug("removed cache key: {}", cacheKey);
         })
         .build();
@@ -104,7 +115,7 @@ public class ConfigFileController implements ReleaseMessageListener {
   }
 
   @GetMapping(value = "/{appId}/{clusterName}/{namespace:.+}")
-  public ResponseEntity<String> queryConfigAsProperties(@PathVariable String appId,
+  public ResponseEntity<byte[]> queryConfigAsProperties(@PathVariable String appId,
                                                         @PathVariable String clusterName,
                                                         @PathVariable String namespace,
                                                         @RequestParam(value = "dataCenter", required = false) String dataCenter,
@@ -113,19 +124,15 @@ public class ConfigFileController implements ReleaseMessageListener {
                                                         HttpServletResponse response)
       throws IOException {
 
-    String result =
+    ConfigFile result =
         queryConfig(ConfigFileOutputFormat.PROPERTIES, appId, clusterName, namespace, dataCenter,
             clientIp, request, response);
 
-    if (result == null) {
-      return NOT_FOUND_RESPONSE;
-    }
-
-    return new ResponseEntity<>(result, propertiesResponseHeaders, HttpStatus.OK);
+    return buildResponse(result, propertiesResponseHeaders, request);
   }
 
   @GetMapping(value = "/json/{appId}/{clusterName}/{namespace:.+}")
-  public ResponseEntity<String> queryConfigAsJson(@PathVariable String appId,
+  public ResponseEntity<byte[]> queryConfigAsJson(@PathVariable String appId,
                                                   @PathVariable String clusterName,
                                                   @PathVariable String namespace,
                                                   @RequestParam(value = "dataCenter", required = false) String dataCenter,
@@ -133,21 +140,75 @@ public class ConfigFileController implements ReleaseMessageListener {
                                                   HttpServletRequest request,
                                                   HttpServletResponse response) throws IOException {
 
-    String result =
+    ConfigFile result =
         queryConfig(ConfigFileOutputFormat.JSON, appId, clusterName, namespace, dataCenter,
             clientIp, request, response);
 
-    if (result == null) {
+    return buildResponse(result, jsonResponseHeaders, request);
+  }
+
+  /**
+   * Reply 304 if the client already has the same release, otherwise reply the content, gzipped if the client accepts.
+   */
+  private ResponseEntity<byte[]> buildResponse(ConfigFile configFile, HttpHeaders contentHeaders,
+                                               HttpServletRequest request) {
+    if (configFile == null) {
       return NOT_FOUND_RESPONSE;
     }
 
-    return new ResponseEntity<>(result, jsonResponseHeaders, HttpStatus.OK);
+    boolean gzip = configFile.getGzippedContent() != null && acceptsGzip(request);
+
+    HttpHeaders headers = new HttpHeaders();
+    headers.putAll(contentHeaders);
+    headers.setETag(gzip ? configFile.getGzipETag() : configFile.getETag());
+    headers.add(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+
+    if (matchesETag(request.getHeader(HttpHeaders.IF_NONE_MATCH), configFile.getETag())) {
+      Tracer.logEvent("ConfigFile.NotModified", configFile.getETag());
+      return new ResponseEntity<>(headers, HttpStatus.NOT_MODIFIED);
+    }
+
+    if (gzip) {
+      headers.set(HttpHeaders.CONTENT_ENCODING, GZIP);
+      return new ResponseEntity<>(configFile.getGzippedContent(), headers, HttpStatus.OK);
+    }
+    return new ResponseEntity<>(configFile.getContent(), headers, HttpStatus.OK);
+  }
+
+  private boolean acceptsGzip(HttpServletRequest request) {
+    String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+    return acceptEncoding != null && acceptEncoding.toLowerCase(Locale.ROOT).contains(GZIP);
+  }
+
+  /**
+   * @param ifNoneMatch the If-None-Match header, which may contain several etags, weak etags or *
+   */
+  boolean matchesETag(String ifNoneMatch, String eTag) {
+    if (Strings.isNullOrEmpty(ifNoneMatch)) {
+      return false;
+    }
+    for (String candidate : ETAG_SPLITTER.split(ifNoneMatch)) {
+      if ("*".equals(candidate)) {
+        return true;
+      }
+      if (candidate.startsWith(WEAK_ETAG_PREFIX)) {
+        candidate = candidate.substring(WEAK_ETAG_PREFIX.length());
+      }
+      //the gzipped content is the same release
+      if (candidate.endsWith(GZIP_ETAG_SUFFIX + "\"")) {
+        candidate = candidate.substring(0, candidate.length() - GZIP_ETAG_SUFFIX.length() - 1) + "\"";
+      }
+      if (eTag.equals(candidate)) {
+        return true;
+      }
+    }
+    return false;
   }
 
-  String queryConfig(ConfigFileOutputFormat outputFormat, String appId, String clusterName,
-                     String namespace, String dataCenter, String clientIp,
-                     HttpServletRequest request,
-                     HttpServletResponse response) throws IOException {
+  ConfigFile queryConfig(ConfigFileOutputFormat outputFormat, String appId, String clusterName,
+                         String namespace, String dataCenter, String clientIp,
+                         HttpServletRequest request,
+                         HttpServletResponse response) throws IOException {
     //strip out .properties suffix
     namespace = namespaceUtil.filterNamespaceName(namespace);
     //fix the character case issue, such as FX.apollo <-> fx.apollo
@@ -171,10 +232,10 @@ public class ConfigFileController implements ReleaseMessageListener {
     }
 
     //3. if not gray release, check weather cache exists, if exists, return
-    String result = localCache.getIfPresent(cacheKey);
+    ConfigFile result = localCache.getIfPresent(cacheKey);
 
     //4. if not exists, load from ConfigController
-    if (Strings.isNullOrEmpty(result)) {
+    if (result == null) {
       Tracer.logEvent("ConfigFile.Cache.Miss", cacheKey);
       result = loadConfig(outputFormat, appId, clusterName, namespace, dataCenter, clientIp,
           request, response);
@@ -197,10 +258,9 @@ public class ConfigFileController implements ReleaseMessageListener {
           watchKeysUtil.assembleAllWatchKeys(appId, clusterName, namespace, dataCenter);
 
       for (String watchedKey : watchedKeys) {
-        watchedKeys2CacheKey.put(watchedKey, cacheKey);
+        addToIndex(watchedKeys2CacheKey, watchedKey, cacheKey);
+        addToIndex(cacheKey2WatchedKeys, cacheKey, watchedKey);
       }
-
-      cacheKey2WatchedKeys.putAll(cacheKey, watchedKeys);
       logger.debug("added cache for key: {}", cacheKey);
     } else {
       Tracer.logEvent("ConfigFile.Cache.Hit", cacheKey);
@@ -209,10 +269,28 @@ public class ConfigFileController implements ReleaseMessageListener {
     return result;
   }
 
-  private String loadConfig(ConfigFileOutputFormat outputFormat, String appId, String clusterName,
-                            String namespace, String dataCenter, String clientIp,
-                            HttpServletRequest request,
-                            HttpServletResponse response) throws IOException {
+  private static void addToIndex(ConcurrentMap<String, Set<String>> index, String key, String value) {
+    //compute is atomic per key, so that the set could not be removed by removeFromIndex in the meantime
+    index.compute(key, (k, values) -> {
+      if (values == null) {
+        values = ConcurrentHashMap.newKeySet();
+      }
+      values.add(value);
+      return values;
+    });
+  }
+
+  private static void removeFromIndex(ConcurrentMap<String, Set<String>> index, String key, String value) {
+    index.computeIfPresent(key, (k, values) -> {
+      values.remove(value);
+      return values.isEmpty() ? null : values;
+    });
+  }
+
+  private ConfigFile loadConfig(ConfigFileOutputFormat outputFormat, String appId, String clusterName,
+                                String namespace, String dataCenter, String clientIp,
+                                HttpServletRequest request,
+                                HttpServletResponse response) throws IOException {
     ApolloConfig apolloConfig = configController.queryConfig(appId, clusterName, namespace,
         dataCenter, "-1", clientIp, null, request, response);
 
@@ -233,7 +311,32 @@ public class ConfigFileController implements ReleaseMessageListener {
         break;
     }
 
-    return result;
+    byte[] content = result.getBytes(StandardCharsets.UTF_8);
+    return new ConfigFile(content, gzip(content), assembleETag(outputFormat, apolloConfig.getReleaseKey(), content));
+  }
+
+  /**
+   * The etag is derived from the merged release keys, which identify the content, or the content itself if absent.
+   */
+  private String assembleETag(ConfigFileOutputFormat outputFormat, String releaseKey, byte[] content) {
+    String hash = Strings.isNullOrEmpty(releaseKey) ? Hashing.sha1().hashBytes(content).toString()
+        : Hashing.sha1().hashString(STRING_JOINER.join(outputFormat.getValue(), releaseKey), StandardCharsets.UTF_8)
+        .toString();
+    return "\"" + hash + "\"";
+  }
+
+  /**
+   * @return the gzipped content, or null if the content is too small to be worth it
+   */
+  private byte[] gzip(byte[] content) throws IOException {
+    if (content.length < MIN_GZIP_SIZE) {
+      return null;
+    }
+    ByteArrayOutputStream out = new ByteArrayOutputStream(content.length / 4);
+    try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+      gzip.write(content);
+    }
+    return out.toByteArray();
   }
 
   String assembleCacheKey(ConfigFileOutputFormat outputFormat, String appId, String clusterName,
@@ -256,12 +359,8 @@ public class ConfigFileController implements ReleaseMessageListener {
       return;
     }
 
-    if (!watchedKeys2CacheKey.containsKey(content)) {
-      return;
-    }
-
-    //create a new list to avoid ConcurrentModificationException
-    List<String> cacheKeys = new ArrayList<>(watchedKeys2CacheKey.get(content));
+    //the set is concurrent, so it could be iterated while the cache keys are being removed
+    Set<String> cacheKeys = watchedKeys2CacheKey.getOrDefault(content, Collections.emptySet());
 
     for (String cacheKey : cacheKeys) {
       logger.debug("invalidate cache key: {}", cacheKey);
@@ -283,6 +382,44 @@ public class ConfigFileController implements ReleaseMessageListener {
     }
   }
 
+  /**
+   * The pre-encoded config file, which is immutable
+   */
+  static class ConfigFile {
+    private final byte[] content;
+    private final byte[] gzippedContent;
+    private final String eTag;
+
+    ConfigFile(byte[] content, byte[] gzippedContent, String eTag) {
+      this.content = content;
+      this.gzippedContent = gzippedContent;
+      this.eTag = eTag;
+    }
+
+    byte[] getContent() {
+      return content;
+    }
+
+    byte[] getGzippedContent() {
+      return gzippedContent;
+    }
+
+    String getETag() {
+      return eTag;
+    }
+
+    /**
+     * the gzipped content is a different representation, so it needs a different strong etag
+     */
+    String getGzipETag() {
+      return eTag.substring(0, eTag.length() - 1) + GZIP_ETAG_SUFFIX + "\"";
+    }
+
+    int size() {
+      return content.length + (gzippedContent == null ? 0 : gzippedContent.length);
+    }
+  }
+
   private String tryToGetClientIp(HttpServletRequest request) {
     String forwardedFor = request.getHeader("X-FORWARDED-FOR");
     if (!Strings.isNullOrEmpty(forwardedFor)) {
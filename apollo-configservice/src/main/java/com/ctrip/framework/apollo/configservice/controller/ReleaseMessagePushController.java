@@ -0,0 +1,66 @@
+package com.ctrip.framework.apollo.configservice.controller;
+
+import com.ctrip.framework.apollo.biz.config.BizConfig;
+import com.ctrip.framework.apollo.biz.message.ReleaseMessageScanner;
+import com.google.common.base.Splitter;
+import com.google.common.base.Strings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Receives the release message ids pushed by admin services. Only registered when
+ * apollo.release-message.push.enabled is set to true in the config service's startup configuration, and every push
+ * must carry one of the admin-service.access.tokens.
+ */
+@ConditionalOnProperty(name = "apollo.release-message.push.enabled", havingValue = "true")
+@RestController
+@RequestMapping("/release-messages")
+public class ReleaseMessagePushController {
+  private static final Logger logger = LoggerFactory.getLogger(ReleaseMessagePushController.class);
+  private static final Splitter ACCESS_TOKEN_SPLITTER = Splitter.on(",").omitEmptyStrings().trimResults();
+
+  private final ReleaseMessageScanner releaseMessageScanner;
+  private final BizConfig bizConfig;
+
+  public ReleaseMessagePushController(
+      final ReleaseMessageScanner releaseMessageScanner,
+      final BizConfig bizConfig) {
+    this.releaseMessageScanner = releaseMessageScanner;
+    this.bizConfig = bizConfig;
+  }
+
+  @PostMapping
+  public ResponseEntity<Void> push(@RequestParam("id") long id,
+      @RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String token) {
+    if (!checkAccessToken(token)) {
+      logger.warn("Invalid access token: {} for pushed release message {}", token, id);
+      return new ResponseEntity<>(HttpStatus.UNAUTHORIZED);
+    }
+
+    //the id only wakes up the scanner, the message itself is always loaded from database
+    releaseMessageScanner.onMessagePushed(id);
+
+    return ResponseEntity.ok().build();
+  }
+
+  /**
+   * pushes come from admin services, so they are authenticated with the admin service access tokens, which are
+   * required even if the access control of admin services is disabled
+   */
+  private boolean checkAccessToken(String token) {
+    String accessTokens = bizConfig.getAdminServiceAccessTokens();
+    if (Strings.isNullOrEmpty(accessTokens) || Strings.isNullOrEmpty(token)) {
+      return false;
+    }
+    return ACCESS_TOKEN_SPLITTER.splitToList(accessTokens).contains(token);
+  }
+}
@@ -1,13 +1,10 @@
 package com.ctrip.framework.apollo.configservice.service;
 
-import com.ctrip.framework.apollo.biz.config.BizConfig;
 import com.ctrip.framework.apollo.biz.entity.ReleaseMessage;
 import com.ctrip.framework.apollo.biz.message.ReleaseMessageListener;
 import com.ctrip.framework.apollo.biz.message.Topics;
 import com.ctrip.framework.apollo.biz.repository.ReleaseMessageRepository;
-import com.ctrip.framework.apollo.core.utils.ApolloThreadFactory;
 import com.ctrip.framework.apollo.tracer.Tracer;
-import com.ctrip.framework.apollo.tracer.spi.Transaction;
 import com.google.common.base.Strings;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
@@ -21,12 +18,14 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.ConcurrentMap;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
+ * In-memory view of the latest release message for each message key.
+ *
+ * <p>The history is loaded once at startup, after that the cache is fed exclusively by the
+ * {@link com.ctrip.framework.apollo.biz.message.ReleaseMessageScanner}, which starts tailing right after the last
+ * message loaded here and dispatches messages in order, so there is no second scanner and no gap to detect.
+ *
  * @author Jason Song(song_s@ctrip.com)
  */
 @Service
@@ -34,31 +33,20 @@ public class ReleaseMessageServiceWithCache implements ReleaseMessageListener, I
   private static final Logger logger = LoggerFactory.getLogger(ReleaseMessageServiceWithCache
       .class);
   private final ReleaseMessageRepository releaseMessageRepository;
-  private final BizConfig bizConfig;
-
-  private int scanInterval;
-  private TimeUnit scanIntervalTimeUnit;
 
   private volatile long maxIdScanned;
 
   private ConcurrentMap<String, ReleaseMessage> releaseMessageCache;
 
-  private AtomicBoolean doScan;
-  private ExecutorService executorService;
-
   public ReleaseMessageServiceWithCache(
-      final ReleaseMessageRepository releaseMessageRepository,
-      final BizConfig bizConfig) {
+      final ReleaseMessageRepository releaseMessageRepository) {
     this.releaseMessageRepository = releaseMessageRepository;
-    this.bizConfig = bizConfig;
     initialize();
   }
 
   private void initialize() {
     releaseMessageCache = Maps.newConcurrentMap();
-    doScan = new AtomicBoolean(true);
-    executorService = Executors.newSingleThreadExecutor(ApolloThreadFactory
-        .create("ReleaseMessageServiceWithCache", true));
+    maxIdScanned = 0;
   }
 
   public ReleaseMessage findLatestReleaseMessageForMessages(Set<String> messages) {
@@ -95,10 +83,15 @@ public class ReleaseMessageServiceWithCache implements ReleaseMessageListener, I
     return releaseMessages;
   }
 
+  /**
+   * @return the largest release message id loaded, the release message scanner should start tailing from it
+   */
+  public long getMaxIdScanned() {
+    return maxIdScanned;
+  }
+
   @Override
   public void handleMessage(ReleaseMessage message, String channel) {
-    //Could stop once the ReleaseMessageScanner starts to work
-    doScan.set(false);
     logger.info("message received - channel: {}, message: {}", channel, message);
 
     String content = message.getMessage();
@@ -107,48 +100,22 @@ public class ReleaseMessageServiceWithCache implements ReleaseMessageListener, I
       return;
     }
 
-    long gap = message.getId() - maxIdScanned;
-    if (gap == 1) {
-      mergeReleaseMessage(message);
-    } else if (gap > 1) {
-      //gap found!
-      loadReleaseMessages(maxIdScanned);
-    }
+    mergeReleaseMessage(message);
   }
 
   @Override
   public void afterPropertiesSet() throws Exception {
-    populateDataBaseInterval();
     //block the startup process until load finished
     //this should happen before ReleaseMessageScanner due to autowire
     loadReleaseMessages(0);
-
-    executorService.submit(() -> {
-      while (doScan.get() && !Thread.currentThread().isInterrupted()) {
-        Transaction transaction = Tracer.newTransaction("Apollo.ReleaseMessageServiceWithCache",
-            "scanNewReleaseMessages");
-        try {
-          loadReleaseMessages(maxIdScanned);
-          transaction.setStatus(Transaction.SUCCESS);
-        } catch (Throwable ex) {
-          transaction.setStatus(ex);
-          logger.error("Scan new release messages failed", ex);
-        } finally {
-          transaction.complete();
-        }
-        try {
-          scanIntervalTimeUnit.sleep(scanInterval);
-        } catch (InterruptedException e) {
-          //ignore
-        }
-      }
-    });
   }
 
   private synchronized void mergeReleaseMessage(ReleaseMessage releaseMessage) {
     ReleaseMessage old = releaseMessageCache.get(releaseMessage.getMessage());
     if (old == null || releaseMessage.getId() > old.getId()) {
       releaseMessageCache.put(releaseMessage.getMessage(), releaseMessage);
+    }
+    if (releaseMessage.getId() > maxIdScanned) {
       maxIdScanned = releaseMessage.getId();
     }
   }
@@ -170,14 +137,8 @@ public class ReleaseMessageServiceWithCache implements ReleaseMessageListener, I
     }
   }
 
-  private void populateDataBaseInterval() {
-    scanInterval = bizConfig.releaseMessageCacheScanInterval();
-    scanIntervalTimeUnit = bizConfig.releaseMessageCacheScanIntervalTimeUnit();
-  }
-
   //only for test use
   private void reset() throws Exception {
-    executorService.shutdownNow();
     initialize();
     afterPropertiesSet();
   }
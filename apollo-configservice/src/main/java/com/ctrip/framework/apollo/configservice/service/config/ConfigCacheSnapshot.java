@@ -0,0 +1,157 @@
+package com.ctrip.framework.apollo.configservice.service.config;
+
+import com.ctrip.framework.apollo.biz.entity.Release;
+import com.google.common.collect.Lists;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The on-disk snapshot of the config cache entries, i.e. the latest release and notification id of each namespace.
+ *
+ * <p>The file is a header with the CRC32 checksum of the gzipped entries followed by the entries. It is written to a temp file first
+ * and then moved in place, so a crash while writing never leaves a half written snapshot behind.</p>
+ */
+class ConfigCacheSnapshot {
+  private static final int MAGIC = 0x41504C43; // APLC
+  private static final int VERSION = 1;
+  private static final int NO_RELEASE = -1;
+  private static final Gson GSON = new GsonBuilder().setDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSZ").create();
+
+  private final Path path;
+
+  ConfigCacheSnapshot(Path path) {
+    this.path = path;
+  }
+
+  void write(Collection<Entry> entries) throws IOException {
+    ByteArrayOutputStream payload = new ByteArrayOutputStream();
+    try (DataOutputStream data = new DataOutputStream(new GZIPOutputStream(payload))) {
+      data.writeInt(entries.size());
+      for (Entry entry : entries) {
+        data.writeUTF(entry.getKey());
+        data.writeLong(entry.getNotificationId());
+        if (entry.getRelease() == null) {
+          data.writeInt(NO_RELEASE);
+          continue;
+        }
+        byte[] release = GSON.toJson(entry.getRelease()).getBytes(StandardCharsets.UTF_8);
+        data.writeInt(release.length);
+        data.write(release);
+      }
+    }
+    byte[] bytes = payload.toByteArray();
+
+    Path parent = path.toAbsolutePath().getParent();
+    if (parent != null) {
+      Files.createDirectories(parent);
+    }
+    Path tempFile = path.resolveSibling(path.getFileName() + ".tmp");
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeInt(bytes.length);
+      out.writeLong(checksum(bytes));
+      out.write(bytes);
+    }
+
+    try {
+      Files.move(tempFile, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (AtomicMoveNotSupportedException ex) {
+      Files.move(tempFile, path, StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+
+  /**
+   * @return the entries, or empty if there is no snapshot
+   * @throws IOException if the snapshot could not be read, or it is corrupted
+   */
+  List<Entry> read() throws IOException {
+    if (!Files.isRegularFile(path)) {
+      return Lists.newArrayList();
+    }
+
+    byte[] bytes;
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+      if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+        throw new IOException(String.format("Unknown config cache snapshot format: %s", path));
+      }
+      int length = in.readInt();
+      long checksum = in.readLong();
+      if (length < 0 || length > Files.size(path)) {
+        throw new IOException(String.format("Config cache snapshot is corrupted: %s", path));
+      }
+      bytes = new byte[length];
+      in.readFully(bytes);
+      // verify the whole payload before parsing any of it
+      if (checksum != checksum(bytes)) {
+        throw new IOException(String.format("Config cache snapshot is corrupted: %s", path));
+      }
+    }
+
+    try (DataInputStream data = new DataInputStream(new GZIPInputStream(new ByteArrayInputStream(bytes)))) {
+      int size = data.readInt();
+      List<Entry> entries = Lists.newArrayListWithCapacity(size);
+      for (int i = 0; i < size; i++) {
+        String key = data.readUTF();
+        long notificationId = data.readLong();
+        int length = data.readInt();
+        Release release = null;
+        if (length != NO_RELEASE) {
+          byte[] json = new byte[length];
+          data.readFully(json);
+          release = GSON.fromJson(new String(json, StandardCharsets.UTF_8), Release.class);
+        }
+        entries.add(new Entry(key, notificationId, release));
+      }
+      return entries;
+    }
+  }
+
+  private static long checksum(byte[] bytes) {
+    CRC32 crc32 = new CRC32();
+    crc32.update(bytes, 0, bytes.length);
+    return crc32.getValue();
+  }
+
+  static class Entry {
+    private final String key;
+    private final long notificationId;
+    private final Release release;
+
+    Entry(String key, long notificationId, Release release) {
+      this.key = key;
+      this.notificationId = notificationId;
+      this.release = release;
+    }
+
+    String getKey() {
+      return key;
+    }
+
+    long getNotificationId() {
+      return notificationId;
+    }
+
+    Release getRelease() {
+      return release;
+    }
+  }
+}
@@ -6,15 +6,19 @@ import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
 
+import com.ctrip.framework.apollo.biz.config.BizConfig;
 import com.ctrip.framework.apollo.biz.entity.Release;
 import com.ctrip.framework.apollo.biz.entity.ReleaseMessage;
 import com.ctrip.framework.apollo.biz.message.Topics;
 import com.ctrip.framework.apollo.biz.service.ReleaseMessageService;
 import com.ctrip.framework.apollo.biz.service.ReleaseService;
 import com.ctrip.framework.apollo.biz.utils.ReleaseMessageKeyGenerator;
+import com.ctrip.framework.apollo.configservice.service.ReleaseMessageServiceWithCache;
 import com.ctrip.framework.apollo.core.ConfigConsts;
 import com.ctrip.framework.apollo.core.dto.ApolloNotificationMessages;
+import com.ctrip.framework.apollo.core.utils.ApolloThreadFactory;
 import com.ctrip.framework.apollo.tracer.Tracer;
 import com.ctrip.framework.apollo.tracer.spi.Transaction;
 
@@ -24,10 +28,15 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import java.nio.file.Paths;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 
 /**
  * config service with guava cache
@@ -42,6 +51,8 @@ public class ConfigServiceWithCache extends AbstractConfigService {
   private static final String TRACER_EVENT_CACHE_LOAD_ID = "ConfigCache.LoadFromDBById";
   private static final String TRACER_EVENT_CACHE_GET = "ConfigCache.Get";
   private static final String TRACER_EVENT_CACHE_GET_ID = "ConfigCache.GetById";
+  private static final String TRACER_EVENT_CACHE_SNAPSHOT_LOAD = "ConfigCache.LoadFromSnapshot";
+  private static final String TRACER_EVENT_CACHE_SNAPSHOT_WRITE = "ConfigCache.WriteSnapshot";
   private static final Splitter STRING_SPLITTER =
       Splitter.on(ConfigConsts.CLUSTER_NAMESPACE_SEPARATOR).omitEmptyStrings();
 
@@ -51,12 +62,22 @@ public class ConfigServiceWithCache extends AbstractConfigService {
   @Autowired
   private ReleaseMessageService releaseMessageService;
 
+  @Autowired
+  private ReleaseMessageServiceWithCache releaseMessageServiceWithCache;
+
+  @Autowired
+  private BizConfig bizConfig;
+
   private LoadingCache<String, ConfigCacheEntry> configCache;
 
   private LoadingCache<Long, Optional<Release>> configIdCache;
 
   private ConfigCacheEntry nullConfigCacheEntry;
 
+  private ConfigCacheSnapshot snapshot;
+
+  private ScheduledExecutorService snapshotExecutorService;
+
   public ConfigServiceWithCache() {
     nullConfigCacheEntry = new ConfigCacheEntry(ConfigConsts.NOTIFICATION_ID_PLACEHOLDER, null);
   }
@@ -120,6 +141,86 @@ public class ConfigServiceWithCache extends AbstractConfigService {
             }
           }
         });
+
+    if (bizConfig.isConfigServiceCacheSnapshotEnabled()) {
+      String snapshotPath = bizConfig.configServiceCacheSnapshotPath();
+      if (Strings.isNullOrEmpty(snapshotPath)) {
+        logger.warn("Config cache snapshot is enabled but config-service.cache.snapshot.path is not set, skipped");
+        return;
+      }
+      snapshot = new ConfigCacheSnapshot(Paths.get(snapshotPath));
+      loadSnapshot();
+      int interval = bizConfig.configServiceCacheSnapshotIntervalInSecond();
+      snapshotExecutorService = Executors.newSingleThreadScheduledExecutor(
+          ApolloThreadFactory.create("ConfigCacheSnapshot", true));
+      snapshotExecutorService.scheduleWithFixedDelay(this::writeSnapshot, interval, interval, TimeUnit.SECONDS);
+    }
+  }
+
+  @PreDestroy
+  void stopSnapshot() {
+    if (snapshotExecutorService == null) {
+      return;
+    }
+    snapshotExecutorService.shutdown();
+    writeSnapshot();
+  }
+
+  /**
+   * Warm up the cache with the snapshot entries which are still up to date, i.e. their notification ids are the same as
+   * the latest release messages, the others are just loaded from db on demand.
+   */
+  void loadSnapshot() {
+    Transaction transaction = Tracer.newTransaction(TRACER_EVENT_CACHE_SNAPSHOT_LOAD, "");
+    try {
+      List<ConfigCacheSnapshot.Entry> entries = snapshot.read();
+      int loaded = 0;
+      for (ConfigCacheSnapshot.Entry entry : entries) {
+        ReleaseMessage latestReleaseMessage = releaseMessageServiceWithCache.findLatestReleaseMessageForMessages(
+            Sets.newHashSet(entry.getKey()));
+        if (latestReleaseMessage == null || latestReleaseMessage.getId() != entry.getNotificationId()) {
+          continue;
+        }
+        configCache.put(entry.getKey(), new ConfigCacheEntry(entry.getNotificationId(), entry.getRelease()));
+        loaded++;
+      }
+      logger.info("Loaded {} of {} config cache entries from snapshot", loaded, entries.size());
+      transaction.addData("loaded", loaded);
+      transaction.addData("total", entries.size());
+      transaction.setStatus(Transaction.SUCCESS);
+    } catch (Throwable ex) {
+      //the cache would be loaded from db instead
+      logger.warn("Load config cache snapshot failed", ex);
+      transaction.setStatus(ex);
+    } finally {
+      transaction.complete();
+    }
+  }
+
+  /**
+   * Persist the cache entries, which are all hot as the cache expires after access. Only the entries with notification
+   * ids are written, as the others could not be validated when loaded.
+   */
+  void writeSnapshot() {
+    Transaction transaction = Tracer.newTransaction(TRACER_EVENT_CACHE_SNAPSHOT_WRITE, "");
+    try {
+      List<ConfigCacheSnapshot.Entry> entries = Lists.newArrayList();
+      for (Map.Entry<String, ConfigCacheEntry> entry : configCache.asMap().entrySet()) {
+        ConfigCacheEntry cacheEntry = entry.getValue();
+        if (cacheEntry.getNotificationId() > 0) {
+          entries.add(new ConfigCacheSnapshot.Entry(entry.getKey(), cacheEntry.getNotificationId(),
+              cacheEntry.getRelease()));
+        }
+      }
+      snapshot.write(entries);
+      transaction.addData("total", entries.size());
+      transaction.setStatus(Transaction.SUCCESS);
+    } catch (Throwable ex) {
+      logger.warn("Write config cache snapshot failed", ex);
+      transaction.setStatus(ex);
+    } finally {
+      transaction.complete();
+    }
   }
 
   @Override
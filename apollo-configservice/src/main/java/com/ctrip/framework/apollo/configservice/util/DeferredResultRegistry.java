@@ -0,0 +1,141 @@
+package com.ctrip.framework.apollo.configservice.util;
+
+import com.ctrip.framework.apollo.configservice.wrapper.DeferredResultWrapper;
+import com.google.common.base.Preconditions;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Registry of parked long polls keyed by watch key.
+ *
+ * <p>Watch keys are spread over a fixed number of stripes, each one a concurrent map of concurrent
+ * sets, so register/unregister are O(1) and never contend on a global monitor. Watch keys are case
+ * insensitive, same as the release messages they are matched against.
+ */
+public class DeferredResultRegistry implements MeterBinder {
+  private static final int DEFAULT_STRIPES = 16;
+
+  private final Stripe[] stripes;
+  private final int mask;
+
+  public DeferredResultRegistry() {
+    this(DEFAULT_STRIPES);
+  }
+
+  public DeferredResultRegistry(int stripes) {
+    Preconditions.checkArgument(stripes > 0, "stripes must be positive");
+    int size = Integer.highestOneBit(stripes);
+    if (size < stripes) {
+      size <<= 1;
+    }
+    this.stripes = new Stripe[size];
+    for (int i = 0; i < size; i++) {
+      this.stripes[i] = new Stripe();
+    }
+    this.mask = size - 1;
+  }
+
+  public void register(String watchKey, DeferredResultWrapper deferredResult) {
+    String key = normalize(watchKey);
+    Stripe stripe = stripeFor(key);
+    stripe.results.compute(key, (k, results) -> {
+      if (results == null) {
+        results = ConcurrentHashMap.newKeySet();
+      }
+      if (results.add(deferredResult)) {
+        stripe.parked.increment();
+      }
+      return results;
+    });
+  }
+
+  public void unregister(String watchKey, DeferredResultWrapper deferredResult) {
+    String key = normalize(watchKey);
+    Stripe stripe = stripeFor(key);
+    stripe.results.computeIfPresent(key, (k, results) -> {
+      if (results.remove(deferredResult)) {
+        stripe.parked.decrement();
+      }
+      return results.isEmpty() ? null : results;
+    });
+  }
+
+  /**
+   * @return a live, weakly consistent view of the long polls parked on the watch key, copy it before
+   * handing it over to other threads
+   */
+  public Set<DeferredResultWrapper> get(String watchKey) {
+    String key = normalize(watchKey);
+    Set<DeferredResultWrapper> results = stripeFor(key).results.get(key);
+    return results == null ? Collections.emptySet() : Collections.unmodifiableSet(results);
+  }
+
+  public boolean containsKey(String watchKey) {
+    String key = normalize(watchKey);
+    return stripeFor(key).results.containsKey(key);
+  }
+
+  /**
+   * @return the number of (watch key, long poll) registrations
+   */
+  public long size() {
+    long size = 0;
+    for (Stripe stripe : stripes) {
+      size += stripe.parked.sum();
+    }
+    return size;
+  }
+
+  public int stripes() {
+    return stripes.length;
+  }
+
+  /**
+   * Gauge of the (watch key, long poll) registrations held by one stripe
+   */
+  public long parkedInStripe(int stripe) {
+    return stripes[stripe].parked.sum();
+  }
+
+  /**
+   * Gauge of the distinct watch keys held by one stripe
+   */
+  public int watchKeysInStripe(int stripe) {
+    return stripes[stripe].results.size();
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    for (int i = 0; i < stripes.length; i++) {
+      int stripe = i;
+      Tags tags = Tags.of("stripe", String.valueOf(stripe));
+      Gauge.builder("apollo.long.poll.parked", this, results -> results.parkedInStripe(stripe)).tags(tags)
+          .description("The (watch key, long poll) registrations held by the stripe").register(registry);
+      Gauge.builder("apollo.long.poll.watch.keys", this, results -> results.watchKeysInStripe(stripe)).tags(tags)
+          .description("The distinct watch keys held by the stripe").register(registry);
+    }
+  }
+
+  private Stripe stripeFor(String normalizedKey) {
+    int h = normalizedKey.hashCode();
+    return stripes[(h ^ (h >>> 16)) & mask];
+  }
+
+  private static String normalize(String watchKey) {
+    return watchKey.toLowerCase(Locale.ROOT);
+  }
+
+  private static class Stripe {
+    private final ConcurrentMap<String, Set<DeferredResultWrapper>> results = new ConcurrentHashMap<>();
+    private final LongAdder parked = new LongAdder();
+  }
+}
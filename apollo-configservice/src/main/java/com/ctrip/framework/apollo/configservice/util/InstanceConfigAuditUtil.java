@@ -4,7 +4,9 @@ import com.google.common.base.Joiner;
 import com.google.common.base.Strings;
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Queues;
 
 import com.ctrip.framework.apollo.biz.entity.Instance;
@@ -13,99 +15,230 @@ import com.ctrip.framework.apollo.biz.service.InstanceService;
 import com.ctrip.framework.apollo.core.ConfigConsts;
 import com.ctrip.framework.apollo.core.utils.ApolloThreadFactory;
 import com.ctrip.framework.apollo.tracer.Tracer;
+import com.ctrip.framework.apollo.tracer.spi.Transaction;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
+ * Audits which releases the instances are using.
+ *
+ * <p>The audits are coalesced by instance config within a short window, dispatched to several workers by instance,
+ * and written to the database in batches, so that the audits of a large fleet keep up after a release.</p>
+ *
  * @author Jason Song(song_s@ctrip.com)
  */
 @Service
-public class InstanceConfigAuditUtil implements InitializingBean {
+public class InstanceConfigAuditUtil implements InitializingBean, MeterBinder {
+  private static final Logger logger = LoggerFactory.getLogger(InstanceConfigAuditUtil.class);
   private static final int INSTANCE_CONFIG_AUDIT_MAX_SIZE = 10000;
   private static final int INSTANCE_CACHE_MAX_SIZE = 50000;
   private static final int INSTANCE_CONFIG_CACHE_MAX_SIZE = 50000;
+  private static final int AUDIT_WORKERS = 4;
+  private static final int AUDIT_WORKER_QUEUE_SIZE = 4;
+  private static final int AUDIT_BATCH_MAX_SIZE = 500;
+  private static final long AUDIT_COALESCE_WINDOW_IN_MILLI = 200;
   private static final long OFFER_TIME_LAST_MODIFIED_TIME_THRESHOLD_IN_MILLI = TimeUnit.MINUTES.toMillis(10);//10 minutes
   private static final Joiner STRING_JOINER = Joiner.on(ConfigConsts.CLUSTER_NAMESPACE_SEPARATOR);
   private final ExecutorService auditExecutorService;
   private final AtomicBoolean auditStopped;
   private BlockingQueue<InstanceConfigAuditModel> audits = Queues.newLinkedBlockingQueue
       (INSTANCE_CONFIG_AUDIT_MAX_SIZE);
+  private final List<BlockingQueue<List<InstanceConfigAuditModel>>> workerQueues;
   private Cache<String, Long> instanceCache;
   private Cache<String, String> instanceConfigReleaseKeyCache;
+  private final AtomicLong droppedAudits;
+  private final AtomicLong writtenBatches;
+  private final AtomicLong totalWriteLatencyInMilli;
+  private final AtomicLong maxWriteLatencyInMilli;
 
   private final InstanceService instanceService;
 
   public InstanceConfigAuditUtil(final InstanceService instanceService) {
     this.instanceService = instanceService;
-    auditExecutorService = Executors.newSingleThreadExecutor(
+    auditExecutorService = Executors.newFixedThreadPool(AUDIT_WORKERS + 1,
         ApolloThreadFactory.create("InstanceConfigAuditUtil", true));
     auditStopped = new AtomicBoolean(false);
     instanceCache = CacheBuilder.newBuilder().expireAfterAccess(1, TimeUnit.HOURS)
         .maximumSize(INSTANCE_CACHE_MAX_SIZE).build();
     instanceConfigReleaseKeyCache = CacheBuilder.newBuilder().expireAfterWrite(1, TimeUnit.DAYS)
         .maximumSize(INSTANCE_CONFIG_CACHE_MAX_SIZE).build();
+    workerQueues = Lists.newArrayListWithCapacity(AUDIT_WORKERS);
+    for (int i = 0; i < AUDIT_WORKERS; i++) {
+      workerQueues.add(Queues.newArrayBlockingQueue(AUDIT_WORKER_QUEUE_SIZE));
+    }
+    droppedAudits = new AtomicLong();
+    writtenBatches = new AtomicLong();
+    totalWriteLatencyInMilli = new AtomicLong();
+    maxWriteLatencyInMilli = new AtomicLong();
   }
 
   public boolean audit(String appId, String clusterName, String dataCenter, String
       ip, String configAppId, String configClusterName, String configNamespace, String releaseKey) {
-    return this.audits.offer(new InstanceConfigAuditModel(appId, clusterName, dataCenter, ip,
+    boolean offered = this.audits.offer(new InstanceConfigAuditModel(appId, clusterName, dataCenter, ip,
         configAppId, configClusterName, configNamespace, releaseKey));
+    if (!offered) {
+      droppedAudits.incrementAndGet();
+    }
+    return offered;
   }
 
-  void doAudit(InstanceConfigAuditModel auditModel) {
-    String instanceCacheKey = assembleInstanceKey(auditModel.getAppId(), auditModel
-        .getClusterName(), auditModel.getIp(), auditModel.getDataCenter());
-    Long instanceId = instanceCache.getIfPresent(instanceCacheKey);
-    if (instanceId == null) {
-      instanceId = prepareInstanceId(auditModel);
-      instanceCache.put(instanceCacheKey, instanceId);
+  /**
+   * Take the audits offered within the coalesce window, only the latest audit of each instance config is kept.
+   *
+   * @return the coalesced audits, or empty if there is none within the timeout
+   */
+  Collection<InstanceConfigAuditModel> takeCoalescedAudits(long timeout, TimeUnit unit) throws InterruptedException {
+    InstanceConfigAuditModel first = audits.poll(timeout, unit);
+    if (first == null) {
+      return Collections.emptyList();
+    }
+    Map<String, InstanceConfigAuditModel> coalesced = Maps.newLinkedHashMap();
+    coalesced.put(assembleCoalesceKey(first), first);
+
+    long deadline = System.currentTimeMillis() + AUDIT_COALESCE_WINDOW_IN_MILLI;
+    int maxSize = AUDIT_BATCH_MAX_SIZE * AUDIT_WORKERS;
+    while (coalesced.size() < maxSize) {
+      long remaining = deadline - System.currentTimeMillis();
+      if (remaining <= 0) {
+        break;
+      }
+      InstanceConfigAuditModel model = audits.poll(remaining, TimeUnit.MILLISECONDS);
+      if (model == null) {
+        break;
+      }
+      coalesced.put(assembleCoalesceKey(model), model);
     }
+    return coalesced.values();
+  }
 
-    //load instance config release key from cache, and check if release key is the same
-    String instanceConfigCacheKey = assembleInstanceConfigKey(instanceId, auditModel
-        .getConfigAppId(), auditModel.getConfigNamespace());
-    String cacheReleaseKey = instanceConfigReleaseKeyCache.getIfPresent(instanceConfigCacheKey);
+  /**
+   * Audit the instance configs in batch, the audits should be of different instance configs.
+   */
+  void doAudits(List<InstanceConfigAuditModel> auditModels) {
+    // configAppId+configNamespace -> instanceId -> audit, so that the existing configs are loaded with one query
+    Map<String, Map<Long, InstanceConfigAuditModel>> auditsToCheck = Maps.newLinkedHashMap();
+    for (InstanceConfigAuditModel auditModel : auditModels) {
+      String instanceCacheKey = assembleInstanceKey(auditModel.getAppId(), auditModel
+          .getClusterName(), auditModel.getIp(), auditModel.getDataCenter());
+      Long instanceId = instanceCache.getIfPresent(instanceCacheKey);
+      if (instanceId == null) {
+        instanceId = prepareInstanceId(auditModel);
+        instanceCache.put(instanceCacheKey, instanceId);
+      }
 
-    //if release key is the same, then skip audit
-    if (cacheReleaseKey != null && Objects.equals(cacheReleaseKey, auditModel.getReleaseKey())) {
+      //load instance config release key from cache, and check if release key is the same
+      String instanceConfigCacheKey = assembleInstanceConfigKey(instanceId, auditModel
+          .getConfigAppId(), auditModel.getConfigNamespace());
+      String cacheReleaseKey = instanceConfigReleaseKeyCache.getIfPresent(instanceConfigCacheKey);
+
+      //if release key is the same, then skip audit
+      if (cacheReleaseKey != null && Objects.equals(cacheReleaseKey, auditModel.getReleaseKey())) {
+        continue;
+      }
+
+      instanceConfigReleaseKeyCache.put(instanceConfigCacheKey, auditModel.getReleaseKey());
+
+      auditsToCheck.computeIfAbsent(STRING_JOINER.join(auditModel.getConfigAppId(), auditModel.getConfigNamespace()),
+          key -> Maps.newLinkedHashMap()).put(instanceId, auditModel);
+    }
+
+    if (auditsToCheck.isEmpty()) {
       return;
     }
 
-    instanceConfigReleaseKeyCache.put(instanceConfigCacheKey, auditModel.getReleaseKey());
+    // configClusterName+releaseKey -> the instance configs to update
+    Map<String, InstanceConfigReleaseUpdate> releaseUpdates = Maps.newLinkedHashMap();
+    List<Long> instanceConfigsToTouch = Lists.newArrayList();
+    List<InstanceConfig> instanceConfigsToCreate = Lists.newArrayList();
 
     //if release key is not the same or cannot find in cache, then do audit
-    InstanceConfig instanceConfig = instanceService.findInstanceConfig(instanceId, auditModel
-        .getConfigAppId(), auditModel.getConfigNamespace());
-
-    if (instanceConfig != null) {
-      if (!Objects.equals(instanceConfig.getReleaseKey(), auditModel.getReleaseKey())) {
-        instanceConfig.setConfigClusterName(auditModel.getConfigClusterName());
-        instanceConfig.setReleaseKey(auditModel.getReleaseKey());
-        instanceConfig.setReleaseDeliveryTime(auditModel.getOfferTime());
-      } else if (offerTimeAndLastModifiedTimeCloseEnough(auditModel.getOfferTime(),
-          instanceConfig.getDataChangeLastModifiedTime())) {
+    for (Map<Long, InstanceConfigAuditModel> auditsOfNamespace : auditsToCheck.values()) {
+      InstanceConfigAuditModel someAudit = auditsOfNamespace.values().iterator().next();
+      Map<Long, InstanceConfig> existingInstanceConfigs = Maps.newHashMap();
+      for (List<Long> instanceIds : Iterables.partition(auditsOfNamespace.keySet(), AUDIT_BATCH_MAX_SIZE)) {
+        for (InstanceConfig instanceConfig : instanceService.findInstanceConfigs(someAudit.getConfigAppId(),
+            someAudit.getConfigNamespace(), instanceIds)) {
+          existingInstanceConfigs.put(instanceConfig.getInstanceId(), instanceConfig);
+        }
+      }
+
+      for (Map.Entry<Long, InstanceConfigAuditModel> entry : auditsOfNamespace.entrySet()) {
+        InstanceConfigAuditModel auditModel = entry.getValue();
+        InstanceConfig instanceConfig = existingInstanceConfigs.get(entry.getKey());
+
+        if (instanceConfig == null) {
+          instanceConfigsToCreate.add(assembleInstanceConfig(entry.getKey(), auditModel));
+          continue;
+        }
+
+        if (!Objects.equals(instanceConfig.getReleaseKey(), auditModel.getReleaseKey())) {
+          releaseUpdates.computeIfAbsent(
+              STRING_JOINER.join(auditModel.getConfigClusterName(), auditModel.getReleaseKey()),
+              key -> new InstanceConfigReleaseUpdate(auditModel)).add(instanceConfig.getId(), auditModel);
+        } else if (!offerTimeAndLastModifiedTimeCloseEnough(auditModel.getOfferTime(),
+            instanceConfig.getDataChangeLastModifiedTime())) {
+          //we need to update no matter the release key is the same or not, to ensure the
+          //last modified time is updated each day
+          instanceConfigsToTouch.add(instanceConfig.getId());
+        }
         //when releaseKey is the same, optimize to reduce writes if the record was updated not long ago
-        return;
       }
-      //we need to update no matter the release key is the same or not, to ensure the
-      //last modified time is updated each day
-      instanceConfig.setDataChangeLastModifiedTime(auditModel.getOfferTime());
-      instanceService.updateInstanceConfig(instanceConfig);
+    }
+
+    for (InstanceConfigReleaseUpdate releaseUpdate : releaseUpdates.values()) {
+      for (List<Long> ids : Lists.partition(releaseUpdate.instanceConfigIds, AUDIT_BATCH_MAX_SIZE)) {
+        instanceService.batchUpdateInstanceConfigReleaseKey(releaseUpdate.configClusterName,
+            releaseUpdate.releaseKey, releaseUpdate.releaseDeliveryTime, ids);
+      }
+    }
+    for (List<Long> ids : Lists.partition(instanceConfigsToTouch, AUDIT_BATCH_MAX_SIZE)) {
+      instanceService.batchUpdateInstanceConfigLastModifiedTime(ids);
+    }
+    if (!instanceConfigsToCreate.isEmpty()) {
+      createInstanceConfigs(instanceConfigsToCreate);
+    }
+  }
+
+  private void createInstanceConfigs(List<InstanceConfig> instanceConfigs) {
+    try {
+      instanceService.batchCreateInstanceConfigs(instanceConfigs);
       return;
+    } catch (DataIntegrityViolationException ex) {
+      //some are created concurrently, e.g. by other config service instances, fall back to create one by one
+    }
+    for (InstanceConfig instanceConfig : instanceConfigs) {
+      try {
+        instanceService.createInstanceConfig(instanceConfig);
+      } catch (DataIntegrityViolationException ex) {
+        //concurrent insertion, safe to ignore
+      }
     }
+  }
 
-    instanceConfig = new InstanceConfig();
+  private InstanceConfig assembleInstanceConfig(long instanceId, InstanceConfigAuditModel auditModel) {
+    InstanceConfig instanceConfig = new InstanceConfig();
     instanceConfig.setInstanceId(instanceId);
     instanceConfig.setConfigAppId(auditModel.getConfigAppId());
     instanceConfig.setConfigClusterName(auditModel.getConfigClusterName());
@@ -113,12 +246,7 @@ public class InstanceConfigAuditUtil implements InitializingBean {
     instanceConfig.setReleaseKey(auditModel.getReleaseKey());
     instanceConfig.setReleaseDeliveryTime(auditModel.getOfferTime());
     instanceConfig.setDataChangeCreatedTime(auditModel.getOfferTime());
-
-    try {
-      instanceService.createInstanceConfig(instanceConfig);
-    } catch (DataIntegrityViolationException ex) {
-      //concurrent insertion, safe to ignore
-    }
+    return instanceConfig;
   }
 
   private boolean offerTimeAndLastModifiedTimeCloseEnough(Date offerTime, Date lastModifiedTime) {
@@ -150,20 +278,116 @@ public class InstanceConfigAuditUtil implements InitializingBean {
 
   @Override
   public void afterPropertiesSet() throws Exception {
-    auditExecutorService.submit(() -> {
-      while (!auditStopped.get() && !Thread.currentThread().isInterrupted()) {
-        try {
-          InstanceConfigAuditModel model = audits.poll();
-          if (model == null) {
-            TimeUnit.SECONDS.sleep(1);
-            continue;
+    auditExecutorService.submit(this::dispatchAudits);
+    for (BlockingQueue<List<InstanceConfigAuditModel>> workerQueue : workerQueues) {
+      auditExecutorService.submit(() -> processAudits(workerQueue));
+    }
+  }
+
+  private void dispatchAudits() {
+    while (!auditStopped.get() && !Thread.currentThread().isInterrupted()) {
+      try {
+        Collection<InstanceConfigAuditModel> coalesced = takeCoalescedAudits(1, TimeUnit.SECONDS);
+        if (coalesced.isEmpty()) {
+          continue;
+        }
+        //the audits of the same instance always go to the same worker, so they are written in order
+        List<List<InstanceConfigAuditModel>> batches = Lists.newArrayListWithCapacity(AUDIT_WORKERS);
+        for (int i = 0; i < AUDIT_WORKERS; i++) {
+          batches.add(Lists.newArrayList());
+        }
+        for (InstanceConfigAuditModel model : coalesced) {
+          String instanceKey = assembleInstanceKey(model.getAppId(), model.getClusterName(), model.getIp(),
+              model.getDataCenter());
+          batches.get((instanceKey.hashCode() & Integer.MAX_VALUE) % AUDIT_WORKERS).add(model);
+        }
+        for (int i = 0; i < AUDIT_WORKERS; i++) {
+          for (List<InstanceConfigAuditModel> batch : Lists.partition(batches.get(i), AUDIT_BATCH_MAX_SIZE)) {
+            //block when the workers are busy, so that the audits queue up and are dropped when it's full
+            workerQueues.get(i).put(batch);
           }
-          doAudit(model);
-        } catch (Throwable ex) {
-          Tracer.logError(ex);
         }
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+      } catch (Throwable ex) {
+        Tracer.logError(ex);
+      }
+    }
+  }
+
+  private void processAudits(BlockingQueue<List<InstanceConfigAuditModel>> workerQueue) {
+    while (!auditStopped.get() && !Thread.currentThread().isInterrupted()) {
+      List<InstanceConfigAuditModel> batch;
+      try {
+        batch = workerQueue.take();
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+        break;
+      }
+      Transaction transaction = Tracer.newTransaction("Apollo.InstanceConfigAudit", "batch");
+      long start = System.currentTimeMillis();
+      try {
+        doAudits(batch);
+        transaction.addData("size", batch.size());
+        transaction.setStatus(Transaction.SUCCESS);
+      } catch (Throwable ex) {
+        transaction.setStatus(ex);
+        logger.error("Audit instance configs failed", ex);
+      } finally {
+        transaction.complete();
+        recordWriteLatency(System.currentTimeMillis() - start);
       }
-    });
+    }
+  }
+
+  private void recordWriteLatency(long latency) {
+    writtenBatches.incrementAndGet();
+    totalWriteLatencyInMilli.addAndGet(latency);
+    long max = maxWriteLatencyInMilli.get();
+    while (latency > max && !maxWriteLatencyInMilli.compareAndSet(max, latency)) {
+      max = maxWriteLatencyInMilli.get();
+    }
+  }
+
+  /**
+   * @return the audits waiting to be coalesced
+   */
+  public int getPendingAuditCount() {
+    return audits.size();
+  }
+
+  /**
+   * @return the audits dropped because the queue was full
+   */
+  public long getDroppedAuditCount() {
+    return droppedAudits.get();
+  }
+
+  public long getAverageWriteLatencyInMilli() {
+    long batches = writtenBatches.get();
+    return batches == 0 ? 0 : totalWriteLatencyInMilli.get() / batches;
+  }
+
+  public long getMaxWriteLatencyInMilli() {
+    return maxWriteLatencyInMilli.get();
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    Gauge.builder("apollo.instance.config.audit.pending", this, InstanceConfigAuditUtil::getPendingAuditCount)
+        .description("The audits waiting to be coalesced").register(registry);
+    FunctionCounter.builder("apollo.instance.config.audit.dropped", this,
+        InstanceConfigAuditUtil::getDroppedAuditCount)
+        .description("The audits dropped because the queue was full").register(registry);
+    Gauge.builder("apollo.instance.config.audit.write.latency.avg", this,
+        InstanceConfigAuditUtil::getAverageWriteLatencyInMilli).baseUnit("milliseconds").register(registry);
+    Gauge.builder("apollo.instance.config.audit.write.latency.max", this,
+        InstanceConfigAuditUtil::getMaxWriteLatencyInMilli).baseUnit("milliseconds").register(registry);
+  }
+
+  private String assembleCoalesceKey(InstanceConfigAuditModel model) {
+    return STRING_JOINER.join(assembleInstanceKey(model.getAppId(), model.getClusterName(), model.getIp(),
+        model.getDataCenter()), model.getConfigAppId(), model.getConfigNamespace());
   }
 
   private String assembleInstanceKey(String appId, String cluster, String ip, String datacenter) {
@@ -178,6 +402,26 @@ public class InstanceConfigAuditUtil implements InitializingBean {
     return STRING_JOINER.join(instanceId, configAppId, configNamespace);
   }
 
+  private static class InstanceConfigReleaseUpdate {
+    private final String configClusterName;
+    private final String releaseKey;
+    private final List<Long> instanceConfigIds = Lists.newArrayList();
+    private Date releaseDeliveryTime;
+
+    InstanceConfigReleaseUpdate(InstanceConfigAuditModel auditModel) {
+      this.configClusterName = auditModel.getConfigClusterName();
+      this.releaseKey = auditModel.getReleaseKey();
+    }
+
+    void add(long instanceConfigId, InstanceConfigAuditModel auditModel) {
+      instanceConfigIds.add(instanceConfigId);
+      //the audits are coalesced within a short window, so the latest offer time is used for all of them
+      if (releaseDeliveryTime == null || releaseDeliveryTime.before(auditModel.getOfferTime())) {
+        releaseDeliveryTime = auditModel.getOfferTime();
+      }
+    }
+  }
+
   public static class InstanceConfigAuditModel {
     private String appId;
     private String clusterName;
@@ -0,0 +1,107 @@
+package com.ctrip.framework.apollo.configservice.util;
+
+import com.ctrip.framework.apollo.biz.config.BizConfig;
+import com.ctrip.framework.apollo.configservice.wrapper.DeferredResultWrapper;
+import com.ctrip.framework.apollo.core.dto.ApolloConfigNotification;
+import com.ctrip.framework.apollo.core.utils.ApolloThreadFactory;
+import com.ctrip.framework.apollo.tracer.Tracer;
+import com.ctrip.framework.apollo.tracer.spi.Transaction;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.RateLimiter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Delivers a release notification to a large number of parked long polls.
+ *
+ * <p>Several messages are fanned out concurrently on a bounded pool, so a hot release does not
+ * hold back unrelated ones. All of them share one token bucket, which caps the notifications this
+ * node hands out per second and thereby the burst of config fetches hitting it afterwards.
+ */
+public class NotificationFanOutScheduler {
+  private static final Logger logger = LoggerFactory.getLogger(NotificationFanOutScheduler.class);
+  private static final String FAN_OUT_TYPE = "Apollo.LongPoll.FanOut";
+
+  private final BizConfig bizConfig;
+  private final ExecutorService executorService;
+  private final RateLimiter rateLimiter;
+  private volatile int currentRate;
+
+  public NotificationFanOutScheduler(BizConfig bizConfig) {
+    this.bizConfig = bizConfig;
+    this.executorService = Executors.newFixedThreadPool(Math.max(1, bizConfig.releaseMessageNotificationThreads()),
+        ApolloThreadFactory.create("NotificationFanOutScheduler", true));
+    this.rateLimiter = RateLimiter.create(Double.MAX_VALUE);
+  }
+
+  /**
+   * @param results the long polls to notify, e.g. the live view of the registry, copied once before being handed
+   *                over to the fan-out thread
+   */
+  public void schedule(String watchKey, Collection<DeferredResultWrapper> results,
+      ApolloConfigNotification notification) {
+    long scheduledAt = System.nanoTime();
+    List<DeferredResultWrapper> snapshot = ImmutableList.copyOf(results);
+    executorService.submit(() -> fanOut(watchKey, snapshot, notification, scheduledAt));
+  }
+
+  private void fanOut(String watchKey, List<DeferredResultWrapper> results,
+      ApolloConfigNotification notification, long scheduledAt) {
+    Transaction transaction = Tracer.newTransaction(FAN_OUT_TYPE, watchKey);
+    long[] latencies = new long[Math.max(16, results.size())];
+    int notified = 0;
+    try {
+      logger.debug("Async notify {} clients for key {}", results.size(), watchKey);
+      for (DeferredResultWrapper result : results) {
+        acquire();
+        logger.debug("Async notify {}", result);
+        result.setResult(notification);
+        if (notified == latencies.length) {
+          latencies = Arrays.copyOf(latencies, notified * 2);
+        }
+        latencies[notified++] = System.nanoTime() - scheduledAt;
+      }
+      transaction.setStatus(Transaction.SUCCESS);
+    } catch (Throwable ex) {
+      transaction.setStatus(ex);
+      logger.error("Notify clients for key {} failed", watchKey, ex);
+    } finally {
+      transaction.complete();
+      reportLatency(watchKey, latencies, notified);
+    }
+  }
+
+  private void acquire() {
+    //always positive, it is validated by BizConfig
+    int rate = bizConfig.releaseMessageNotificationRate();
+    if (rate != currentRate) {
+      currentRate = rate;
+      rateLimiter.setRate(rate);
+    }
+    rateLimiter.acquire();
+  }
+
+  private void reportLatency(String watchKey, long[] latencies, int count) {
+    if (count == 0) {
+      return;
+    }
+    Arrays.sort(latencies, 0, count);
+    String summary = String.format("count=%d&p50=%d&p90=%d&p99=%d&max=%d", count,
+        percentileInMillis(latencies, count, 50), percentileInMillis(latencies, count, 90),
+        percentileInMillis(latencies, count, 99), TimeUnit.NANOSECONDS.toMillis(latencies[count - 1]));
+    Tracer.logEvent(FAN_OUT_TYPE + ".Latency", watchKey, Transaction.SUCCESS, summary);
+    logger.info("Notified clients for key {}, latency in ms: {}", watchKey, summary);
+  }
+
+  private static long percentileInMillis(long[] sorted, int count, int percentile) {
+    int index = (int) Math.ceil(percentile / 100.0 * count) - 1;
+    return TimeUnit.NANOSECONDS.toMillis(sorted[Math.max(0, Math.min(index, count - 1))]);
+  }
+}
@@ -0,0 +1,71 @@
+package com.ctrip.framework.apollo.configservice.wrapper;
+
+import com.ctrip.framework.apollo.core.dto.ApolloConfig;
+import com.google.gson.Gson;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * An {@link ApolloConfig} together with its serialized forms, which are rendered on first use and then shared by
+ * all the requests for the same releases.
+ */
+public class ApolloConfigResponse {
+  private final ApolloConfig apolloConfig;
+  private volatile byte[] json;
+  private volatile byte[] gzippedJson;
+
+  public ApolloConfigResponse(ApolloConfig apolloConfig) {
+    this.apolloConfig = apolloConfig;
+  }
+
+  public ApolloConfig getApolloConfig() {
+    return apolloConfig;
+  }
+
+  public byte[] getJson(Gson gson) {
+    byte[] result = json;
+    if (result == null) {
+      result = gson.toJson(apolloConfig).getBytes(StandardCharsets.UTF_8);
+      json = result;
+    }
+    return result;
+  }
+
+  public byte[] getGzippedJson(Gson gson) {
+    byte[] result = gzippedJson;
+    if (result == null) {
+      result = gzip(getJson(gson));
+      gzippedJson = result;
+    }
+    return result;
+  }
+
+  /**
+   * @return the approximate memory footprint in bytes, used to weigh the cache entries
+   */
+  public int weight() {
+    int weight = 0;
+    if (apolloConfig.getConfigurations() != null) {
+      for (Map.Entry<String, String> entry : apolloConfig.getConfigurations().entrySet()) {
+        weight += entry.getKey().length() + (entry.getValue() == null ? 0 : entry.getValue().length());
+      }
+    }
+    // serialized forms are rendered lazily, reserve room for them
+    return weight * 3;
+  }
+
+  public static byte[] gzip(byte[] content) {
+    ByteArrayOutputStream bos = new ByteArrayOutputStream(Math.max(32, content.length / 4));
+    try (GZIPOutputStream gzip = new GZIPOutputStream(bos)) {
+      gzip.write(content);
+    } catch (IOException ex) {
+      throw new UncheckedIOException(ex);
+    }
+    return bos.toByteArray();
+  }
+}
@@ -1,6 +1,10 @@
 package com.ctrip.framework.apollo.configservice.controller;
 
 import com.ctrip.framework.apollo.biz.entity.Release;
+import com.ctrip.framework.apollo.biz.entity.ReleaseMessage;
+import com.ctrip.framework.apollo.biz.grayReleaseRule.GrayReleaseRulesHolder;
+import com.ctrip.framework.apollo.biz.message.Topics;
+import com.ctrip.framework.apollo.biz.service.ReleaseService;
 import com.ctrip.framework.apollo.common.entity.AppNamespace;
 import com.ctrip.framework.apollo.configservice.service.AppNamespaceServiceWithCache;
 import com.ctrip.framework.apollo.configservice.service.config.ConfigService;
@@ -12,6 +16,7 @@ import com.ctrip.framework.apollo.core.dto.ApolloNotificationMessages;
 import com.google.common.base.Joiner;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
 import com.google.gson.Gson;
 import com.google.gson.JsonSyntaxException;
 import org.junit.Before;
@@ -19,13 +24,26 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.test.util.ReflectionTestUtils;
 
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.*;
 
 /**
@@ -57,13 +75,17 @@ public class ConfigControllerTest {
   @Mock
   private InstanceConfigAuditUtil instanceConfigAuditUtil;
   @Mock
+  private GrayReleaseRulesHolder grayReleaseRulesHolder;
+  @Mock
+  private ReleaseService releaseService;
+  @Mock
   private HttpServletRequest someRequest;
   private Gson gson = new Gson();
 
   @Before
   public void setUp() throws Exception {
     configController = spy(new ConfigController(
-        configService, appNamespaceService, namespaceUtil, instanceConfigAuditUtil, gson
+        configService, appNamespaceService, namespaceUtil, instanceConfigAuditUtil, grayReleaseRulesHolder, releaseService, gson
     ));
 
     someAppId = "1";
@@ -114,6 +136,226 @@ public class ConfigControllerTest {
         someClientIp, someAppId, someClusterName, defaultNamespaceName, someServerSideNewReleaseKey);
   }
 
+  @Test
+  public void testQueryConfigWithCache() throws Exception {
+    String someClientSideReleaseKey = "1";
+    String someServerSideNewReleaseKey = "2";
+    HttpServletResponse someResponse = mock(HttpServletResponse.class);
+
+    when(configService.loadConfig(someAppId, someClientIp, someAppId, someClusterName, defaultNamespaceName,
+        someDataCenter, someNotificationMessages)).thenReturn(someRelease);
+    when(someRelease.getReleaseKey()).thenReturn(someServerSideNewReleaseKey);
+    when(someRelease.getNamespaceName()).thenReturn(defaultNamespaceName);
+
+    ApolloConfig result = configController.queryConfig(someAppId, someClusterName,
+        defaultNamespaceName, someDataCenter, someClientSideReleaseKey,
+        someClientIp, someMessagesAsString, someRequest, someResponse);
+    ApolloConfig anotherResult = configController.queryConfig(someAppId, someClusterName,
+        defaultNamespaceName, someDataCenter, someClientSideReleaseKey,
+        someClientIp, someMessagesAsString, someRequest, someResponse);
+
+    assertSame(result, anotherResult);
+    assertEquals("foo", result.getConfigurations().get("apollo.bar"));
+    verify(configController, times(1)).mergeReleaseConfigurations(anyList());
+    verify(instanceConfigAuditUtil, times(2)).audit(someAppId, someClusterName, someDataCenter,
+        someClientIp, someAppId, someClusterName, defaultNamespaceName, someServerSideNewReleaseKey);
+  }
+
+  @Test
+  public void testQueryConfigCacheInvalidatedByReleaseMessage() throws Exception {
+    String someClientSideReleaseKey = "1";
+    String someServerSideNewReleaseKey = "2";
+    HttpServletResponse someResponse = mock(HttpServletResponse.class);
+
+    when(configService.loadConfig(someAppId, someClientIp, someAppId, someClusterName, defaultNamespaceName,
+        someDataCenter, someNotificationMessages)).thenReturn(someRelease);
+    when(someRelease.getReleaseKey()).thenReturn(someServerSideNewReleaseKey);
+    when(someRelease.getNamespaceName()).thenReturn(defaultNamespaceName);
+
+    ApolloConfig result = configController.queryConfig(someAppId, someClusterName,
+        defaultNamespaceName, someDataCenter, someClientSideReleaseKey,
+        someClientIp, someMessagesAsString, someRequest, someResponse);
+
+    String someMessage = Joiner.on(ConfigConsts.CLUSTER_NAMESPACE_SEPARATOR)
+        .join(someAppId, someClusterName, defaultNamespaceName);
+    configController.handleMessage(new ReleaseMessage(someMessage), Topics.APOLLO_RELEASE_TOPIC);
+
+    ApolloConfig anotherResult = configController.queryConfig(someAppId, someClusterName,
+        defaultNamespaceName, someDataCenter, someClientSideReleaseKey,
+        someClientIp, someMessagesAsString, someRequest, someResponse);
+
+    assertEquals(result.getConfigurations(), anotherResult.getConfigurations());
+    verify(configController, times(2)).mergeReleaseConfigurations(anyList());
+  }
+
+  @Test
+  public void testQueryConfigCacheInvalidatedAfterConcurrentPuts() throws Exception {
+    String someClientSideReleaseKey = "1";
+    String someServerSideNewReleaseKey = "2";
+    HttpServletResponse someResponse = mock(HttpServletResponse.class);
+    int concurrency = 5;
+
+    when(configService.loadConfig(someAppId, someClientIp, someAppId, someClusterName, defaultNamespaceName,
+        someDataCenter, someNotificationMessages)).thenReturn(someRelease);
+    when(someRelease.getReleaseKey()).thenReturn(someServerSideNewReleaseKey);
+    when(someRelease.getNamespaceName()).thenReturn(defaultNamespaceName);
+    //all the requests miss the cache, so the same cache key is put concurrently and replaced
+    CyclicBarrier barrier = new CyclicBarrier(concurrency);
+    doAnswer(invocation -> {
+      barrier.await(5, TimeUnit.SECONDS);
+      return invocation.callRealMethod();
+    }).when(configController).mergeReleaseConfigurations(anyList());
+
+    ExecutorService executorService = Executors.newFixedThreadPool(concurrency);
+    try {
+      List<Future<ApolloConfig>> futures = Lists.newArrayList();
+      for (int i = 0; i < concurrency; i++) {
+        futures.add(executorService.submit(() -> configController.queryConfig(someAppId, someClusterName,
+            defaultNamespaceName, someDataCenter, someClientSideReleaseKey, someClientIp, someMessagesAsString,
+            someRequest, someResponse)));
+      }
+      for (Future<ApolloConfig> future : futures) {
+        assertEquals(someServerSideNewReleaseKey, future.get(5, TimeUnit.SECONDS).getReleaseKey());
+      }
+    } finally {
+      executorService.shutdownNow();
+    }
+
+    doCallRealMethod().when(configController).mergeReleaseConfigurations(anyList());
+    clearInvocations(configController);
+
+    String someMessage = Joiner.on(ConfigConsts.CLUSTER_NAMESPACE_SEPARATOR)
+        .join(someAppId, someClusterName, defaultNamespaceName);
+    configController.handleMessage(new ReleaseMessage(someMessage), Topics.APOLLO_RELEASE_TOPIC);
+
+    assertTrue(((Map<?, ?>) ReflectionTestUtils.getField(configController, "watchedKey2CacheKeys")).isEmpty());
+    assertTrue(((Map<?, ?>) ReflectionTestUtils.getField(configController, "cacheKey2WatchedKeys")).isEmpty());
+
+    configController.queryConfig(someAppId, someClusterName, defaultNamespaceName, someDataCenter,
+        someClientSideReleaseKey, someClientIp, someMessagesAsString, someRequest, someResponse);
+
+    verify(configController, times(1)).mergeReleaseConfigurations(anyList());
+  }
+
+  @Test
+  public void testQueryConfigWithGrayReleaseNotCached() throws Exception {
+    String someClientSideReleaseKey = "1";
+    String someServerSideNewReleaseKey = "2";
+    HttpServletResponse someResponse = mock(HttpServletResponse.class);
+
+    when(configService.loadConfig(someAppId, someClientIp, someAppId, someClusterName, defaultNamespaceName,
+        someDataCenter, someNotificationMessages)).thenReturn(someRelease);
+    when(someRelease.getReleaseKey()).thenReturn(someServerSideNewReleaseKey);
+    when(grayReleaseRulesHolder.hasGrayReleaseRule(someAppId, someClientIp, defaultNamespaceName)).thenReturn(true);
+
+    configController.queryConfig(someAppId, someClusterName, defaultNamespaceName, someDataCenter,
+        someClientSideReleaseKey, someClientIp, someMessagesAsString, someRequest, someResponse);
+    configController.queryConfig(someAppId, someClusterName, defaultNamespaceName, someDataCenter,
+        someClientSideReleaseKey, someClientIp, someMessagesAsString, someRequest, someResponse);
+
+    verify(configController, times(2)).mergeReleaseConfigurations(anyList());
+  }
+
+  @Test
+  public void testQueryConfigWithDelta() throws Exception {
+    String someClientSideReleaseKey = "1";
+    String someServerSideNewReleaseKey = "2";
+    ByteArrayOutputStream body = new ByteArrayOutputStream();
+    HttpServletResponse someResponse = mockResponseWritingTo(body);
+    Release someBaseRelease = new Release();
+    someBaseRelease.setAppId(someAppId);
+    someBaseRelease.setNamespaceName(defaultNamespaceName);
+    someBaseRelease.setReleaseKey(someClientSideReleaseKey);
+    someBaseRelease.setConfigurations("{\"apollo.bar\": \"bar\", \"apollo.deleted\": \"foo\"}");
+
+    when(configService.loadConfig(someAppId, someClientIp, someAppId, someClusterName, defaultNamespaceName,
+        someDataCenter, someNotificationMessages)).thenReturn(someRelease);
+    when(someRelease.getReleaseKey()).thenReturn(someServerSideNewReleaseKey);
+    when(someRelease.getNamespaceName()).thenReturn(defaultNamespaceName);
+    when(releaseService.findByReleaseKeys(Sets.newHashSet(someClientSideReleaseKey)))
+        .thenReturn(Lists.newArrayList(someBaseRelease));
+
+    configController.queryConfigAsResponse(someAppId, someClusterName, defaultNamespaceName, someDataCenter,
+        someClientSideReleaseKey, someClientIp, someMessagesAsString, true, someRequest, someResponse);
+
+    ApolloConfig result = gson.fromJson(new String(body.toByteArray(), StandardCharsets.UTF_8), ApolloConfig.class);
+
+    assertEquals(someServerSideNewReleaseKey, result.getReleaseKey());
+    assertEquals(someClientSideReleaseKey, result.getBaseReleaseKey());
+    assertEquals(ImmutableMap.of("apollo.bar", "foo"), result.getConfigurations());
+    assertEquals(Sets.newHashSet("apollo.deleted"), result.getDeletedKeys());
+  }
+
+  @Test
+  public void testQueryConfigWithDeltaFallbackToFull() throws Exception {
+    String someClientSideReleaseKey = "1";
+    String someServerSideNewReleaseKey = "2";
+    ByteArrayOutputStream body = new ByteArrayOutputStream();
+    HttpServletResponse someResponse = mockResponseWritingTo(body);
+
+    when(configService.loadConfig(someAppId, someClientIp, someAppId, someClusterName, defaultNamespaceName,
+        someDataCenter, someNotificationMessages)).thenReturn(someRelease);
+    when(someRelease.getReleaseKey()).thenReturn(someServerSideNewReleaseKey);
+    when(someRelease.getNamespaceName()).thenReturn(defaultNamespaceName);
+    when(releaseService.findByReleaseKeys(Sets.newHashSet(someClientSideReleaseKey)))
+        .thenReturn(Lists.newArrayList());
+
+    configController.queryConfigAsResponse(someAppId, someClusterName, defaultNamespaceName, someDataCenter,
+        someClientSideReleaseKey, someClientIp, someMessagesAsString, true, someRequest, someResponse);
+
+    ApolloConfig result = gson.fromJson(new String(body.toByteArray(), StandardCharsets.UTF_8), ApolloConfig.class);
+
+    assertEquals(someServerSideNewReleaseKey, result.getReleaseKey());
+    assertNull(result.getBaseReleaseKey());
+    assertNull(result.getDeletedKeys());
+    assertEquals("foo", result.getConfigurations().get("apollo.bar"));
+  }
+
+  @Test
+  public void testQueryConfigsInBatch() throws Exception {
+    String someServerSideReleaseKey = "2";
+    String somePublicServerSideReleaseKey = "3";
+    ByteArrayOutputStream body = new ByteArrayOutputStream();
+    HttpServletResponse someResponse = mockResponseWritingTo(body);
+    String somePublicAppId = "somePublicAppId";
+    AppNamespace somePublicAppNamespace = assemblePublicAppNamespace(somePublicAppId, somePublicNamespaceName);
+
+    when(configService.loadConfig(someAppId, someClientIp, someAppId, someClusterName, defaultNamespaceName,
+        someDataCenter, someNotificationMessages)).thenReturn(someRelease);
+    when(someRelease.getReleaseKey()).thenReturn(someServerSideReleaseKey);
+    when(appNamespaceService.findPublicNamespaceByName(somePublicNamespaceName)).thenReturn(somePublicAppNamespace);
+    when(configService.loadConfig(someAppId, someClientIp, somePublicAppId, someClusterName, somePublicNamespaceName,
+        someDataCenter, someNotificationMessages)).thenReturn(somePublicRelease);
+    when(somePublicRelease.getReleaseKey()).thenReturn(somePublicServerSideReleaseKey);
+
+    configController.queryConfigsAsResponse(someAppId, someClusterName,
+        String.join(",", defaultNamespaceName, somePublicNamespaceName), someDataCenter,
+        String.join(",", someServerSideReleaseKey, "-1"), someClientIp, someMessagesAsString, false,
+        someRequest, someResponse);
+
+    ApolloConfig[] result = gson.fromJson(new String(body.toByteArray(), StandardCharsets.UTF_8),
+        ApolloConfig[].class);
+
+    //the default namespace is not modified
+    assertEquals(1, result.length);
+    assertEquals(somePublicNamespaceName, result[0].getNamespaceName());
+    assertEquals(somePublicServerSideReleaseKey, result[0].getReleaseKey());
+    assertEquals("foo", result[0].getConfigurations().get("apollo.public.bar"));
+  }
+
+  @Test
+  public void testQueryConfigsInBatchWithMismatchedReleaseKeys() throws Exception {
+    HttpServletResponse someResponse = mock(HttpServletResponse.class);
+
+    configController.queryConfigsAsResponse(someAppId, someClusterName,
+        String.join(",", defaultNamespaceName, somePublicNamespaceName), someDataCenter, "1", someClientIp,
+        someMessagesAsString, false, someRequest, someResponse);
+
+    verify(someResponse, times(1)).sendError(eq(HttpServletResponse.SC_BAD_REQUEST), anyString());
+    verify(configService, never()).loadConfig(anyString(), anyString(), anyString(), anyString(), anyString(),
+        anyString(), any(ApolloNotificationMessages.class));
+  }
+
   @Test
   public void testQueryConfigFile() throws Exception {
     String someClientSideReleaseKey = "1";
@@ -449,6 +691,26 @@ public class ConfigControllerTest {
     assertNull(configController.transformMessages(someInvalidMessages));
   }
 
+  private HttpServletResponse mockResponseWritingTo(ByteArrayOutputStream body) throws Exception {
+    HttpServletResponse response = mock(HttpServletResponse.class);
+    when(response.getOutputStream()).thenReturn(new ServletOutputStream() {
+      @Override
+      public boolean isReady() {
+        return true;
+      }
+
+      @Override
+      public void setWriteListener(WriteListener writeListener) {
+      }
+
+      @Override
+      public void write(int b) {
+        body.write(b);
+      }
+    });
+    return response;
+  }
+
   private AppNamespace assemblePublicAppNamespace(String appId, String namespace) {
     return assembleAppNamespace(appId, namespace, true);
   }
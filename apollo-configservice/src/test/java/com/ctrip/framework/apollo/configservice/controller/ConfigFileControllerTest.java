@@ -8,14 +8,16 @@ import com.ctrip.framework.apollo.configservice.util.WatchKeysUtil;
 import com.ctrip.framework.apollo.core.dto.ApolloConfig;
 import com.google.common.cache.Cache;
 import com.google.common.collect.ImmutableMap;
-import com.google.common.collect.Lists;
-import com.google.common.collect.Multimap;
 import com.google.common.collect.Sets;
+import com.google.common.io.ByteStreams;
 import com.google.common.reflect.TypeToken;
 import com.google.gson.Gson;
+import java.io.ByteArrayInputStream;
 import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
 import java.util.Map;
 import java.util.Set;
+import java.util.zip.GZIPInputStream;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import org.junit.Before;
@@ -23,11 +25,15 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.test.util.ReflectionTestUtils;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.mock;
@@ -58,8 +64,8 @@ public class ConfigFileControllerTest {
   private HttpServletResponse someResponse;
   @Mock
   private HttpServletRequest someRequest;
-  Multimap<String, String> watchedKeys2CacheKey;
-  Multimap<String, String> cacheKey2WatchedKeys;
+  Map<String, Set<String>> watchedKeys2CacheKey;
+  Map<String, Set<String>> cacheKey2WatchedKeys;
 
   private static final Gson GSON = new Gson();
 
@@ -81,10 +87,10 @@ public class ConfigFileControllerTest {
         .thenReturn(false);
 
     watchedKeys2CacheKey =
-        (Multimap<String, String>) ReflectionTestUtils
+        (Map<String, Set<String>>) ReflectionTestUtils
             .getField(configFileController, "watchedKeys2CacheKey");
     cacheKey2WatchedKeys =
-        (Multimap<String, String>) ReflectionTestUtils
+        (Map<String, Set<String>>) ReflectionTestUtils
             .getField(configFileController, "cacheKey2WatchedKeys");
   }
 
@@ -114,23 +120,23 @@ public class ConfigFileControllerTest {
         .assembleAllWatchKeys(someAppId, someClusterName, someNamespace, someDataCenter))
         .thenReturn(watchKeys);
 
-    ResponseEntity<String> response =
+    ResponseEntity<byte[]> response =
         configFileController
             .queryConfigAsProperties(someAppId, someClusterName, someNamespace, someDataCenter,
                 someClientIp, someRequest, someResponse);
 
     assertEquals(2, watchedKeys2CacheKey.size());
-    assertEquals(2, cacheKey2WatchedKeys.size());
-    assertTrue(watchedKeys2CacheKey.containsEntry(someWatchKey, cacheKey));
-    assertTrue(watchedKeys2CacheKey.containsEntry(anotherWatchKey, cacheKey));
-    assertTrue(cacheKey2WatchedKeys.containsEntry(cacheKey, someWatchKey));
-    assertTrue(cacheKey2WatchedKeys.containsEntry(cacheKey, anotherWatchKey));
+    assertEquals(1, cacheKey2WatchedKeys.size());
+    assertEquals(Sets.newHashSet(cacheKey), watchedKeys2CacheKey.get(someWatchKey));
+    assertEquals(Sets.newHashSet(cacheKey), watchedKeys2CacheKey.get(anotherWatchKey));
+    assertEquals(watchKeys, cacheKey2WatchedKeys.get(cacheKey));
 
     assertEquals(HttpStatus.OK, response.getStatusCode());
-    assertTrue(response.getBody().contains(String.format("%s=%s", someKey, someValue)));
-    assertTrue(response.getBody().contains(String.format("%s=%s", anotherKey, anotherValue)));
+    String body = new String(response.getBody(), StandardCharsets.UTF_8);
+    assertTrue(body.contains(String.format("%s=%s", someKey, someValue)));
+    assertTrue(body.contains(String.format("%s=%s", anotherKey, anotherValue)));
 
-    ResponseEntity<String> anotherResponse =
+    ResponseEntity<byte[]> anotherResponse =
         configFileController
             .queryConfigAsProperties(someAppId, someClusterName, someNamespace, someDataCenter,
                 someClientIp, someRequest, someResponse);
@@ -163,13 +169,13 @@ public class ConfigFileControllerTest {
         .assembleAllWatchKeys(someAppId, someClusterName, someNamespace, someDataCenter))
         .thenReturn(watchKeys);
 
-    ResponseEntity<String> response =
+    ResponseEntity<byte[]> response =
         configFileController
             .queryConfigAsJson(someAppId, someClusterName, someNamespace, someDataCenter,
                 someClientIp, someRequest, someResponse);
 
     assertEquals(HttpStatus.OK, response.getStatusCode());
-    assertEquals(configurations, GSON.fromJson(response.getBody(), responseType));
+    assertEquals(configurations, GSON.fromJson(new String(response.getBody(), StandardCharsets.UTF_8), responseType));
   }
 
   @Test
@@ -190,12 +196,12 @@ public class ConfigFileControllerTest {
         .queryConfig(someAppId, someClusterName, someNamespace, someDataCenter, "-1", someClientIp, null,
             someRequest, someResponse)).thenReturn(someApolloConfig);
 
-    ResponseEntity<String> response =
+    ResponseEntity<byte[]> response =
         configFileController
             .queryConfigAsJson(someAppId, someClusterName, someNamespace, someDataCenter,
                 someClientIp, someRequest, someResponse);
 
-    ResponseEntity<String> anotherResponse =
+    ResponseEntity<byte[]> anotherResponse =
         configFileController
             .queryConfigAsJson(someAppId, someClusterName, someNamespace, someDataCenter,
                 someClientIp, someRequest, someResponse);
@@ -205,7 +211,7 @@ public class ConfigFileControllerTest {
             someRequest, someResponse);
 
     assertEquals(HttpStatus.OK, response.getStatusCode());
-    assertEquals(configurations, GSON.fromJson(response.getBody(), responseType));
+    assertEquals(configurations, GSON.fromJson(new String(response.getBody(), StandardCharsets.UTF_8), responseType));
     assertTrue(watchedKeys2CacheKey.isEmpty());
     assertTrue(cacheKey2WatchedKeys.isEmpty());
   }
@@ -221,20 +227,117 @@ public class ConfigFileControllerTest {
     ReleaseMessage someReleaseMessage = mock(ReleaseMessage.class);
     when(someReleaseMessage.getMessage()).thenReturn(someWatchKey);
 
-    Cache<String, String> cache =
-        (Cache<String, String>) ReflectionTestUtils.getField(configFileController, "localCache");
-    cache.put(someCacheKey, someValue);
-    cache.put(anotherCacheKey, someValue);
+    ConfigFileController.ConfigFile someConfigFile = new ConfigFileController.ConfigFile(
+        someValue.getBytes(StandardCharsets.UTF_8), null, "\"someETag\"");
 
-    watchedKeys2CacheKey.putAll(someWatchKey, Lists.newArrayList(someCacheKey, anotherCacheKey));
-    watchedKeys2CacheKey.putAll(anotherWatchKey, Lists.newArrayList(someCacheKey, anotherCacheKey));
+    Cache<String, ConfigFileController.ConfigFile> cache =
+        (Cache<String, ConfigFileController.ConfigFile>) ReflectionTestUtils
+            .getField(configFileController, "localCache");
+    cache.put(someCacheKey, someConfigFile);
+    cache.put(anotherCacheKey, someConfigFile);
 
-    cacheKey2WatchedKeys.putAll(someCacheKey, Lists.newArrayList(someWatchKey, anotherWatchKey));
-    cacheKey2WatchedKeys.putAll(anotherCacheKey, Lists.newArrayList(someWatchKey, anotherWatchKey));
+    watchedKeys2CacheKey.put(someWatchKey, Sets.newConcurrentHashSet(Sets.newHashSet(someCacheKey, anotherCacheKey)));
+    watchedKeys2CacheKey.put(anotherWatchKey,
+        Sets.newConcurrentHashSet(Sets.newHashSet(someCacheKey, anotherCacheKey)));
+
+    cacheKey2WatchedKeys.put(someCacheKey, Sets.newConcurrentHashSet(Sets.newHashSet(someWatchKey, anotherWatchKey)));
+    cacheKey2WatchedKeys.put(anotherCacheKey,
+        Sets.newConcurrentHashSet(Sets.newHashSet(someWatchKey, anotherWatchKey)));
 
     configFileController.handleMessage(someReleaseMessage, Topics.APOLLO_RELEASE_TOPIC);
 
     assertTrue(watchedKeys2CacheKey.isEmpty());
     assertTrue(cacheKey2WatchedKeys.isEmpty());
   }
+
+  @Test
+  public void testQueryConfigWithMatchedETag() throws Exception {
+    Map<String, String> configurations = ImmutableMap.of("someKey", "someValue");
+    ApolloConfig someApolloConfig = mock(ApolloConfig.class);
+    when(someApolloConfig.getConfigurations()).thenReturn(configurations);
+    when(someApolloConfig.getReleaseKey()).thenReturn("someReleaseKey");
+    when(configController
+        .queryConfig(someAppId, someClusterName, someNamespace, someDataCenter, "-1", someClientIp, null,
+            someRequest, someResponse)).thenReturn(someApolloConfig);
+    when(watchKeysUtil
+        .assembleAllWatchKeys(someAppId, someClusterName, someNamespace, someDataCenter))
+        .thenReturn(Sets.newHashSet("someWatchKey"));
+
+    ResponseEntity<byte[]> response =
+        configFileController
+            .queryConfigAsJson(someAppId, someClusterName, someNamespace, someDataCenter,
+                someClientIp, someRequest, someResponse);
+
+    String eTag = response.getHeaders().getETag();
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    assertNotNull(eTag);
+
+    when(someRequest.getHeader(HttpHeaders.IF_NONE_MATCH)).thenReturn("\"someOtherETag\", " + eTag);
+
+    ResponseEntity<byte[]> anotherResponse =
+        configFileController
+            .queryConfigAsJson(someAppId, someClusterName, someNamespace, someDataCenter,
+                someClientIp, someRequest, someResponse);
+
+    assertEquals(HttpStatus.NOT_MODIFIED, anotherResponse.getStatusCode());
+    assertEquals(eTag, anotherResponse.getHeaders().getETag());
+    assertNull(anotherResponse.getBody());
+    verify(configController, times(1))
+        .queryConfig(someAppId, someClusterName, someNamespace, someDataCenter, "-1", someClientIp, null,
+            someRequest, someResponse);
+  }
+
+  @Test
+  public void testQueryConfigWithGzip() throws Exception {
+    Type responseType = new TypeToken<Map<String, String>>(){}.getType();
+    StringBuilder someLargeValue = new StringBuilder();
+    for (int i = 0; i < 1000; i++) {
+      someLargeValue.append(i);
+    }
+    Map<String, String> configurations = ImmutableMap.of("someKey", someLargeValue.toString());
+    ApolloConfig someApolloConfig = mock(ApolloConfig.class);
+    when(someApolloConfig.getConfigurations()).thenReturn(configurations);
+    when(someApolloConfig.getReleaseKey()).thenReturn("someReleaseKey");
+    when(configController
+        .queryConfig(someAppId, someClusterName, someNamespace, someDataCenter, "-1", someClientIp, null,
+            someRequest, someResponse)).thenReturn(someApolloConfig);
+    when(watchKeysUtil
+        .assembleAllWatchKeys(someAppId, someClusterName, someNamespace, someDataCenter))
+        .thenReturn(Sets.newHashSet("someWatchKey"));
+    when(someRequest.getHeader(HttpHeaders.ACCEPT_ENCODING)).thenReturn("gzip, deflate");
+
+    ResponseEntity<byte[]> response =
+        configFileController
+            .queryConfigAsJson(someAppId, someClusterName, someNamespace, someDataCenter,
+                someClientIp, someRequest, someResponse);
+
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    assertEquals("gzip", response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+    String body = new String(ByteStreams.toByteArray(new GZIPInputStream(new ByteArrayInputStream(
+        response.getBody()))), StandardCharsets.UTF_8);
+    assertEquals(configurations, GSON.fromJson(body, responseType));
+
+    //the gzipped etag matches the same release
+    when(someRequest.getHeader(HttpHeaders.IF_NONE_MATCH)).thenReturn(response.getHeaders().getETag());
+
+    ResponseEntity<byte[]> anotherResponse =
+        configFileController
+            .queryConfigAsJson(someAppId, someClusterName, someNamespace, someDataCenter,
+                someClientIp, someRequest, someResponse);
+
+    assertEquals(HttpStatus.NOT_MODIFIED, anotherResponse.getStatusCode());
+  }
+
+  @Test
+  public void testMatchesETag() throws Exception {
+    String someETag = "\"someETag\"";
+
+    assertFalse(configFileController.matchesETag(null, someETag));
+    assertFalse(configFileController.matchesETag("\"anotherETag\"", someETag));
+    assertTrue(configFileController.matchesETag(someETag, someETag));
+    assertTrue(configFileController.matchesETag("W/" + someETag, someETag));
+    assertTrue(configFileController.matchesETag("\"someETag-gzip\"", someETag));
+    assertTrue(configFileController.matchesETag("\"anotherETag\", " + someETag, someETag));
+    assertTrue(configFileController.matchesETag("*", someETag));
+  }
 }
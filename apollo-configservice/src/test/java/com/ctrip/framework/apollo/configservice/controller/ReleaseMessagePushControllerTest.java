@@ -0,0 +1,68 @@
+package com.ctrip.framework.apollo.configservice.controller;
+
+import com.ctrip.framework.apollo.biz.config.BizConfig;
+import com.ctrip.framework.apollo.biz.message.ReleaseMessageScanner;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ReleaseMessagePushControllerTest {
+  @Mock
+  private ReleaseMessageScanner releaseMessageScanner;
+  @Mock
+  private BizConfig bizConfig;
+
+  private ReleaseMessagePushController releaseMessagePushController;
+
+  private long someMessageId;
+
+  @Before
+  public void setUp() throws Exception {
+    releaseMessagePushController = new ReleaseMessagePushController(releaseMessageScanner, bizConfig);
+
+    someMessageId = 1;
+  }
+
+  @Test
+  public void testPush() throws Exception {
+    when(bizConfig.getAdminServiceAccessTokens()).thenReturn("someToken, anotherToken");
+
+    ResponseEntity<Void> response = releaseMessagePushController.push(someMessageId, "anotherToken");
+
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    verify(releaseMessageScanner).onMessagePushed(someMessageId);
+  }
+
+  @Test
+  public void testPushWithInvalidToken() throws Exception {
+    when(bizConfig.getAdminServiceAccessTokens()).thenReturn("someToken");
+
+    assertEquals(HttpStatus.UNAUTHORIZED, releaseMessagePushController.push(someMessageId, "invalidToken")
+        .getStatusCode());
+    assertEquals(HttpStatus.UNAUTHORIZED, releaseMessagePushController.push(someMessageId, null)
+        .getStatusCode());
+
+    verify(releaseMessageScanner, never()).onMessagePushed(anyLong());
+  }
+
+  @Test
+  public void testPushWithoutTokenConfigured() throws Exception {
+    when(bizConfig.getAdminServiceAccessTokens()).thenReturn(null);
+
+    ResponseEntity<Void> response = releaseMessagePushController.push(someMessageId, "someToken");
+
+    assertEquals(HttpStatus.UNAUTHORIZED, response.getStatusCode());
+    verify(releaseMessageScanner, never()).onMessagePushed(anyLong());
+  }
+}
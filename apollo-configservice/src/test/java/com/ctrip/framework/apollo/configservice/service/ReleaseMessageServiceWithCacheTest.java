@@ -1,6 +1,5 @@
 package com.ctrip.framework.apollo.configservice.service;
 
-import com.ctrip.framework.apollo.biz.config.BizConfig;
 import com.ctrip.framework.apollo.biz.entity.ReleaseMessage;
 import com.ctrip.framework.apollo.biz.message.Topics;
 import com.ctrip.framework.apollo.biz.repository.ReleaseMessageRepository;
@@ -19,7 +18,6 @@ import java.util.List;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
-import static org.awaitility.Awaitility.await;
 import static org.junit.Assert.*;
 import static org.mockito.Mockito.*;
 
@@ -34,24 +32,11 @@ public class ReleaseMessageServiceWithCacheTest {
   @Mock
   private ReleaseMessageRepository releaseMessageRepository;
 
-  @Mock
-  private BizConfig bizConfig;
-
-  private int scanInterval;
-
-  private TimeUnit scanIntervalTimeUnit;
-
   @Before
-
   public void setUp() throws Exception {
     releaseMessageServiceWithCache = new ReleaseMessageServiceWithCache(
-        releaseMessageRepository, bizConfig
+        releaseMessageRepository
     );
-
-    scanInterval = 10;
-    scanIntervalTimeUnit = TimeUnit.MILLISECONDS;
-    when(bizConfig.releaseMessageCacheScanInterval()).thenReturn(scanInterval);
-    when(bizConfig.releaseMessageCacheScanIntervalTimeUnit()).thenReturn(scanIntervalTimeUnit);
   }
 
   @Test
@@ -83,7 +68,7 @@ public class ReleaseMessageServiceWithCacheTest {
 
     releaseMessageServiceWithCache.afterPropertiesSet();
 
-    verify(bizConfig).releaseMessageCacheScanInterval();
+    assertEquals(3, releaseMessageServiceWithCache.getMaxIdScanned());
 
     ReleaseMessage latestReleaseMsg =
         releaseMessageServiceWithCache
@@ -145,7 +130,7 @@ public class ReleaseMessageServiceWithCacheTest {
   }
 
   @Test
-  public void testNewReleaseMessagesBeforeHandleMessage() throws Exception {
+  public void testNoScanAfterStartup() throws Exception {
     String someMessageContent = "someMessage";
     long someMessageId = 1;
     ReleaseMessage someMessage = assembleReleaseMsg(someMessageId, someMessageContent);
@@ -155,37 +140,28 @@ public class ReleaseMessageServiceWithCacheTest {
 
     releaseMessageServiceWithCache.afterPropertiesSet();
 
-    ReleaseMessage latestReleaseMsg =
-        releaseMessageServiceWithCache
-            .findLatestReleaseMessageForMessages(Sets.newHashSet(someMessageContent));
-
-    List<ReleaseMessage> latestReleaseMsgGroupByMsgContent =
-        releaseMessageServiceWithCache
-            .findLatestReleaseMessagesGroupByMessages(Sets.newHashSet(someMessageContent));
+    TimeUnit.MILLISECONDS.sleep(100);
 
-    assertEquals(someMessageId, latestReleaseMsg.getId());
-    assertEquals(someMessageContent, latestReleaseMsg.getMessage());
-    assertEquals(latestReleaseMsg, latestReleaseMsgGroupByMsgContent.get(0));
-
-    long newMessageId = 2;
-    ReleaseMessage newMessage = assembleReleaseMsg(newMessageId, someMessageContent);
+    //new messages are only fed by the release message scanner
+    verify(releaseMessageRepository, times(1)).findFirst500ByIdGreaterThanOrderByIdAsc(anyLong());
+    assertEquals(someMessageId, releaseMessageServiceWithCache.getMaxIdScanned());
+  }
 
-    when(releaseMessageRepository.findFirst500ByIdGreaterThanOrderByIdAsc(someMessageId)).thenReturn(Lists
-        .newArrayList(newMessage));
+  @Test
+  public void testHandleOutdatedMessage() throws Exception {
+    String someMessageContent = "someMessage";
+    ReleaseMessage someMessage = assembleReleaseMsg(2, someMessageContent);
+    ReleaseMessage outdatedMessage = assembleReleaseMsg(1, someMessageContent);
 
-    await().atMost(scanInterval * 500, scanIntervalTimeUnit).untilAsserted(() -> {
-      ReleaseMessage newLatestReleaseMsg =
-          releaseMessageServiceWithCache
-              .findLatestReleaseMessageForMessages(Sets.newHashSet(someMessageContent));
+    when(releaseMessageRepository.findFirst500ByIdGreaterThanOrderByIdAsc(0L)).thenReturn(Lists.newArrayList
+        (someMessage));
 
-      List<ReleaseMessage> newLatestReleaseMsgGroupByMsgContent =
-          releaseMessageServiceWithCache
-              .findLatestReleaseMessagesGroupByMessages(Sets.newHashSet(someMessageContent));
+    releaseMessageServiceWithCache.afterPropertiesSet();
+    releaseMessageServiceWithCache.handleMessage(outdatedMessage, Topics.APOLLO_RELEASE_TOPIC);
 
-      assertEquals(newMessageId, newLatestReleaseMsg.getId());
-      assertEquals(someMessageContent, newLatestReleaseMsg.getMessage());
-      assertEquals(newLatestReleaseMsg, newLatestReleaseMsgGroupByMsgContent.get(0));
-    });
+    assertEquals(someMessage, releaseMessageServiceWithCache
+        .findLatestReleaseMessageForMessages(Sets.newHashSet(someMessageContent)));
+    assertEquals(2, releaseMessageServiceWithCache.getMaxIdScanned());
   }
 
   @Test
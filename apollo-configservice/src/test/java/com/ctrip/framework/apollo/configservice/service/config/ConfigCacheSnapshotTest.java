@@ -0,0 +1,96 @@
+package com.ctrip.framework.apollo.configservice.service.config;
+
+import com.ctrip.framework.apollo.biz.entity.Release;
+import com.google.common.collect.Lists;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ConfigCacheSnapshotTest {
+  private Path someDirectory;
+  private Path somePath;
+  private ConfigCacheSnapshot snapshot;
+
+  @Before
+  public void setUp() throws Exception {
+    someDirectory = Files.createTempDirectory("ConfigCacheSnapshotTest");
+    somePath = someDirectory.resolve("config-cache.snapshot");
+    snapshot = new ConfigCacheSnapshot(somePath);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    Files.deleteIfExists(somePath);
+    Files.deleteIfExists(someDirectory);
+  }
+
+  @Test
+  public void testWriteAndRead() throws Exception {
+    String someKey = "someAppId+someCluster+someNamespace";
+    String anotherKey = "anotherAppId+anotherCluster+anotherNamespace";
+    long someNotificationId = 1;
+    long anotherNotificationId = 2;
+    Release someRelease = assembleRelease(10, "someReleaseKey", "{\"someKey\":\"someValue\"}");
+
+    snapshot.write(Lists.newArrayList(new ConfigCacheSnapshot.Entry(someKey, someNotificationId, someRelease),
+        new ConfigCacheSnapshot.Entry(anotherKey, anotherNotificationId, null)));
+
+    List<ConfigCacheSnapshot.Entry> entries = snapshot.read();
+
+    assertEquals(2, entries.size());
+    assertEquals(someKey, entries.get(0).getKey());
+    assertEquals(someNotificationId, entries.get(0).getNotificationId());
+    assertEquals(someRelease.getId(), entries.get(0).getRelease().getId());
+    assertEquals(someRelease.getReleaseKey(), entries.get(0).getRelease().getReleaseKey());
+    assertEquals(someRelease.getConfigurations(), entries.get(0).getRelease().getConfigurations());
+    assertEquals(anotherKey, entries.get(1).getKey());
+    assertEquals(anotherNotificationId, entries.get(1).getNotificationId());
+    assertNull(entries.get(1).getRelease());
+    assertFalse(Files.exists(somePath.resolveSibling(somePath.getFileName() + ".tmp")));
+  }
+
+  @Test
+  public void testReadWithoutSnapshot() throws Exception {
+    assertTrue(snapshot.read().isEmpty());
+  }
+
+  @Test(expected = IOException.class)
+  public void testReadCorruptedSnapshot() throws Exception {
+    List<ConfigCacheSnapshot.Entry> entries = Lists.newArrayList();
+    for (int i = 0; i < 100; i++) {
+      entries.add(new ConfigCacheSnapshot.Entry("someKey" + i, i + 1,
+          assembleRelease(i, "someReleaseKey" + i, "{\"someKey\":\"someValue" + i + "\"}")));
+    }
+    snapshot.write(entries);
+
+    try (RandomAccessFile file = new RandomAccessFile(somePath.toFile(), "rw")) {
+      long position = file.length() / 2;
+      file.seek(position);
+      int value = file.read();
+      file.seek(position);
+      file.write(value ^ 0xFF);
+    }
+
+    snapshot.read();
+  }
+
+  private Release assembleRelease(long id, String releaseKey, String configurations) {
+    Release release = new Release();
+    release.setId(id);
+    release.setReleaseKey(releaseKey);
+    release.setConfigurations(configurations);
+    return release;
+  }
+}
@@ -1,7 +1,10 @@
 package com.ctrip.framework.apollo.configservice.service.config;
 
+import com.ctrip.framework.apollo.biz.config.BizConfig;
+import com.ctrip.framework.apollo.configservice.service.ReleaseMessageServiceWithCache;
 import com.ctrip.framework.apollo.core.dto.ApolloNotificationMessages;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
 
 import com.ctrip.framework.apollo.biz.entity.Release;
 import com.ctrip.framework.apollo.biz.entity.ReleaseMessage;
@@ -17,9 +20,13 @@ import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 import org.springframework.test.util.ReflectionTestUtils;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
+
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -39,6 +46,10 @@ public class ConfigServiceWithCacheTest {
   private Release someRelease;
   @Mock
   private ReleaseMessage someReleaseMessage;
+  @Mock
+  private ReleaseMessageServiceWithCache releaseMessageServiceWithCache;
+  @Mock
+  private BizConfig bizConfig;
 
   private String someAppId;
   private String someClusterName;
@@ -52,6 +63,9 @@ public class ConfigServiceWithCacheTest {
     configServiceWithCache = new ConfigServiceWithCache();
     ReflectionTestUtils.setField(configServiceWithCache, "releaseService", releaseService);
     ReflectionTestUtils.setField(configServiceWithCache, "releaseMessageService", releaseMessageService);
+    ReflectionTestUtils.setField(configServiceWithCache, "releaseMessageServiceWithCache",
+        releaseMessageServiceWithCache);
+    ReflectionTestUtils.setField(configServiceWithCache, "bizConfig", bizConfig);
 
     configServiceWithCache.initialize();
 
@@ -276,4 +290,62 @@ public class ConfigServiceWithCacheTest {
     verify(releaseMessageService, times(1)).findLatestReleaseMessageForMessages(Lists.newArrayList(someKey));
     verify(releaseService, times(1)).findLatestActiveRelease(someAppId, someClusterName, someNamespaceName);
   }
+
+  @Test
+  public void testLoadSnapshot() throws Exception {
+    Path someDirectory = Files.createTempDirectory("ConfigServiceWithCacheTest");
+    Path someSnapshotPath = someDirectory.resolve("config-cache.snapshot");
+    String anotherKey = ReleaseMessageKeyGenerator.generate(someAppId, someClusterName, "anotherNamespaceName");
+    long anotherNotificationId = 2;
+    long someReleaseId = 10;
+    Release someSnapshotRelease = new Release();
+    someSnapshotRelease.setId(someReleaseId);
+    Release anotherRelease = new Release();
+    ReleaseMessage someLatestReleaseMessage = mock(ReleaseMessage.class);
+    ReleaseMessage anotherLatestReleaseMessage = mock(ReleaseMessage.class);
+
+    new ConfigCacheSnapshot(someSnapshotPath).write(Lists.newArrayList(
+        new ConfigCacheSnapshot.Entry(someKey, someNotificationId, someSnapshotRelease),
+        new ConfigCacheSnapshot.Entry(anotherKey, anotherNotificationId, someSnapshotRelease)));
+
+    when(bizConfig.isConfigServiceCacheSnapshotEnabled()).thenReturn(true);
+    when(bizConfig.configServiceCacheSnapshotPath()).thenReturn(someSnapshotPath.toString());
+    when(bizConfig.configServiceCacheSnapshotIntervalInSecond()).thenReturn(Integer.MAX_VALUE);
+    when(someLatestReleaseMessage.getId()).thenReturn(someNotificationId);
+    //another namespace is released after the snapshot
+    when(anotherLatestReleaseMessage.getId()).thenReturn(anotherNotificationId + 1);
+    when(releaseMessageServiceWithCache.findLatestReleaseMessageForMessages(Sets.newHashSet(someKey)))
+        .thenReturn(someLatestReleaseMessage);
+    when(releaseMessageServiceWithCache.findLatestReleaseMessageForMessages(Sets.newHashSet(anotherKey)))
+        .thenReturn(anotherLatestReleaseMessage);
+    when(releaseMessageService.findLatestReleaseMessageForMessages(Lists.newArrayList(anotherKey)))
+        .thenReturn(anotherLatestReleaseMessage);
+    when(releaseService.findLatestActiveRelease(someAppId, someClusterName, "anotherNamespaceName"))
+        .thenReturn(anotherRelease);
+
+    try {
+      configServiceWithCache.initialize();
+
+      assertEquals(someReleaseId, configServiceWithCache.findLatestActiveRelease(someAppId, someClusterName,
+          someNamespaceName, someNotificationMessages).getId());
+      assertEquals(anotherRelease, configServiceWithCache.findLatestActiveRelease(someAppId, someClusterName,
+          "anotherNamespaceName", someNotificationMessages));
+
+      verify(releaseService, never()).findLatestActiveRelease(someAppId, someClusterName, someNamespaceName);
+      verify(releaseService, times(1)).findLatestActiveRelease(someAppId, someClusterName, "anotherNamespaceName");
+    } finally {
+      configServiceWithCache.stopSnapshot();
+      Files.deleteIfExists(someSnapshotPath);
+      Files.deleteIfExists(someDirectory);
+    }
+  }
+
+  @Test
+  public void testSnapshotWithoutPath() throws Exception {
+    when(bizConfig.isConfigServiceCacheSnapshotEnabled()).thenReturn(true);
+
+    configServiceWithCache.initialize();
+
+    assertNull(ReflectionTestUtils.getField(configServiceWithCache, "snapshotExecutorService"));
+  }
 }
@@ -0,0 +1,117 @@
+package com.ctrip.framework.apollo.configservice.util;
+
+import com.ctrip.framework.apollo.configservice.wrapper.DeferredResultWrapper;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collection;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class DeferredResultRegistryTest {
+  private DeferredResultRegistry registry;
+  private String someKey;
+  private String anotherKey;
+  private DeferredResultWrapper someResult;
+  private DeferredResultWrapper anotherResult;
+
+  @Before
+  public void setUp() throws Exception {
+    registry = new DeferredResultRegistry(4);
+    someKey = "someAppId+default+application";
+    anotherKey = "anotherAppId+default+application";
+    someResult = new DeferredResultWrapper(1000);
+    anotherResult = new DeferredResultWrapper(1000);
+  }
+
+  @Test
+  public void testRegisterAndUnregister() throws Exception {
+    registry.register(someKey, someResult);
+    registry.register(someKey, anotherResult);
+    registry.register(anotherKey, someResult);
+    registry.register(someKey, someResult);
+
+    assertEquals(3, registry.size());
+    assertEquals(2, registry.get(someKey).size());
+    assertTrue(registry.get(anotherKey).contains(someResult));
+
+    registry.unregister(someKey, someResult);
+    registry.unregister(anotherKey, someResult);
+    registry.unregister(anotherKey, someResult);
+
+    assertEquals(1, registry.size());
+    assertTrue(registry.containsKey(someKey));
+    assertFalse(registry.containsKey(anotherKey));
+    assertTrue(registry.get(anotherKey).isEmpty());
+  }
+
+  @Test
+  public void testWatchKeyIsCaseInsensitive() throws Exception {
+    registry.register(someKey.toUpperCase(), someResult);
+
+    assertTrue(registry.get(someKey).contains(someResult));
+
+    registry.unregister(someKey, someResult);
+
+    assertFalse(registry.containsKey(someKey.toUpperCase()));
+    assertEquals(0, registry.size());
+  }
+
+  @Test
+  public void testUnregisterWhileIterating() throws Exception {
+    registry.register(someKey, someResult);
+    registry.register(someKey, anotherResult);
+
+    Set<DeferredResultWrapper> results = registry.get(someKey);
+    int iterated = 0;
+    for (DeferredResultWrapper result : results) {
+      registry.unregister(someKey, result);
+      iterated++;
+    }
+
+    assertEquals(2, iterated);
+    assertEquals(0, registry.size());
+  }
+
+  @Test
+  public void testStripeGauges() throws Exception {
+    registry.register(someKey, someResult);
+    registry.register(anotherKey, someResult);
+    registry.register(anotherKey, anotherResult);
+
+    assertEquals(4, registry.stripes());
+
+    long parked = 0;
+    int watchKeys = 0;
+    for (int i = 0; i < registry.stripes(); i++) {
+      parked += registry.parkedInStripe(i);
+      watchKeys += registry.watchKeysInStripe(i);
+    }
+
+    assertEquals(3, parked);
+    assertEquals(2, watchKeys);
+  }
+
+  @Test
+  public void testBindStripeGauges() throws Exception {
+    MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    registry.bindTo(meterRegistry);
+
+    registry.register(someKey, someResult);
+    registry.register(anotherKey, someResult);
+    registry.register(anotherKey, anotherResult);
+
+    Collection<Gauge> parkedGauges = meterRegistry.find("apollo.long.poll.parked").gauges();
+    Collection<Gauge> watchKeysGauges = meterRegistry.find("apollo.long.poll.watch.keys").gauges();
+    assertEquals(registry.stripes(), parkedGauges.size());
+    assertEquals(registry.stripes(), watchKeysGauges.size());
+    assertEquals(3, parkedGauges.stream().mapToDouble(Gauge::value).sum(), 0);
+    assertEquals(2, watchKeysGauges.stream().mapToDouble(Gauge::value).sum(), 0);
+  }
+}
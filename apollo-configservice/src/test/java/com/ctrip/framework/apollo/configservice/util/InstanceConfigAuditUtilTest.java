@@ -10,9 +10,14 @@ import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 import org.springframework.test.util.ReflectionTestUtils;
 
+import com.google.common.collect.Lists;
+import java.util.Date;
+import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.*;
 
@@ -78,15 +83,89 @@ public class InstanceConfigAuditUtilTest {
     when(someInstance.getId()).thenReturn(someInstanceId);
     when(instanceService.createInstance(any(Instance.class))).thenReturn(someInstance);
 
-    instanceConfigAuditUtil.doAudit(someAuditModel);
+    instanceConfigAuditUtil.doAudits(Lists.newArrayList(someAuditModel));
 
     verify(instanceService, times(1)).findInstance(someAppId, someClusterName, someDataCenter,
         someIp);
     verify(instanceService, times(1)).createInstance(any(Instance.class));
-    verify(instanceService, times(1)).findInstanceConfig(someInstanceId, someConfigAppId,
-        someConfigNamespace);
-    verify(instanceService, times(1)).createInstanceConfig(any(InstanceConfig.class));
+    verify(instanceService, times(1)).findInstanceConfigs(someConfigAppId, someConfigNamespace,
+        Lists.newArrayList(someInstanceId));
+    verify(instanceService, times(1)).batchCreateInstanceConfigs(anyList());
   }
 
+  @Test
+  public void testDoAuditsWithExistingInstanceConfigs() throws Exception {
+    String anotherIp = "anotherIp";
+    String anotherReleaseKey = "anotherReleaseKey";
+    long someInstanceId = 1;
+    long anotherInstanceId = 2;
+    long someInstanceConfigId = 11;
+    long anotherInstanceConfigId = 12;
+    Instance someInstance = mock(Instance.class);
+    Instance anotherInstance = mock(Instance.class);
+    InstanceConfig someInstanceConfig = mock(InstanceConfig.class);
+    InstanceConfig anotherInstanceConfig = mock(InstanceConfig.class);
+
+    when(someInstance.getId()).thenReturn(someInstanceId);
+    when(anotherInstance.getId()).thenReturn(anotherInstanceId);
+    when(instanceService.findInstance(someAppId, someClusterName, someDataCenter, someIp))
+        .thenReturn(someInstance);
+    when(instanceService.findInstance(someAppId, someClusterName, someDataCenter, anotherIp))
+        .thenReturn(anotherInstance);
+    when(someInstanceConfig.getId()).thenReturn(someInstanceConfigId);
+    when(someInstanceConfig.getInstanceId()).thenReturn(someInstanceId);
+    when(someInstanceConfig.getReleaseKey()).thenReturn(anotherReleaseKey);
+    when(anotherInstanceConfig.getId()).thenReturn(anotherInstanceConfigId);
+    when(anotherInstanceConfig.getInstanceId()).thenReturn(anotherInstanceId);
+    when(anotherInstanceConfig.getReleaseKey()).thenReturn(anotherReleaseKey);
+    when(instanceService.findInstanceConfigs(someConfigAppId, someConfigNamespace,
+        Lists.newArrayList(someInstanceId, anotherInstanceId)))
+        .thenReturn(Lists.newArrayList(someInstanceConfig, anotherInstanceConfig));
+
+    InstanceConfigAuditUtil.InstanceConfigAuditModel anotherAuditModel =
+        new InstanceConfigAuditUtil.InstanceConfigAuditModel(someAppId, someClusterName,
+            someDataCenter, anotherIp, someConfigAppId, someConfigClusterName, someConfigNamespace,
+            someReleaseKey);
+
+    instanceConfigAuditUtil.doAudits(Lists.newArrayList(someAuditModel, anotherAuditModel));
+
+    verify(instanceService, times(1)).batchUpdateInstanceConfigReleaseKey(eq(someConfigClusterName),
+        eq(someReleaseKey), any(Date.class),
+        eq(Lists.newArrayList(someInstanceConfigId, anotherInstanceConfigId)));
+    verify(instanceService, never()).batchCreateInstanceConfigs(anyList());
+  }
 
+  @Test
+  public void testTakeCoalescedAudits() throws Exception {
+    String anotherReleaseKey = "anotherReleaseKey";
+    String someOtherConfigNamespace = "someOtherConfigNamespace";
+
+    instanceConfigAuditUtil.audit(someAppId, someClusterName, someDataCenter, someIp,
+        someConfigAppId, someConfigClusterName, someConfigNamespace, someReleaseKey);
+    instanceConfigAuditUtil.audit(someAppId, someClusterName, someDataCenter, someIp,
+        someConfigAppId, someConfigClusterName, someOtherConfigNamespace, someReleaseKey);
+    instanceConfigAuditUtil.audit(someAppId, someClusterName, someDataCenter, someIp,
+        someConfigAppId, someConfigClusterName, someConfigNamespace, anotherReleaseKey);
+
+    List<InstanceConfigAuditUtil.InstanceConfigAuditModel> coalesced = Lists.newArrayList(
+        instanceConfigAuditUtil.takeCoalescedAudits(1, TimeUnit.SECONDS));
+
+    assertEquals(2, coalesced.size());
+    assertEquals(someConfigNamespace, coalesced.get(0).getConfigNamespace());
+    assertEquals(anotherReleaseKey, coalesced.get(0).getReleaseKey());
+    assertEquals(someOtherConfigNamespace, coalesced.get(1).getConfigNamespace());
+    assertEquals(0, instanceConfigAuditUtil.getPendingAuditCount());
+  }
+
+  @Test
+  public void testAuditDroppedWhenQueueIsFull() throws Exception {
+    boolean result = true;
+    while (result) {
+      result = instanceConfigAuditUtil.audit(someAppId, someClusterName, someDataCenter,
+          someIp, someConfigAppId, someConfigClusterName, someConfigNamespace, someReleaseKey);
+    }
+
+    assertEquals(1, instanceConfigAuditUtil.getDroppedAuditCount());
+    assertEquals(audits.size(), instanceConfigAuditUtil.getPendingAuditCount());
+  }
 }
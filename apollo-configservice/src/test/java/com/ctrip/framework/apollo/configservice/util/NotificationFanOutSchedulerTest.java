@@ -0,0 +1,74 @@
+package com.ctrip.framework.apollo.configservice.util;
+
+import com.ctrip.framework.apollo.biz.config.BizConfig;
+import com.ctrip.framework.apollo.configservice.wrapper.DeferredResultWrapper;
+import com.ctrip.framework.apollo.core.dto.ApolloConfigNotification;
+import com.google.common.collect.Lists;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class NotificationFanOutSchedulerTest {
+  @Mock
+  private BizConfig bizConfig;
+
+  private NotificationFanOutScheduler scheduler;
+
+  private String someWatchKey;
+  private ApolloConfigNotification someNotification;
+
+  @Before
+  public void setUp() throws Exception {
+    when(bizConfig.releaseMessageNotificationThreads()).thenReturn(1);
+    when(bizConfig.releaseMessageNotificationRate()).thenReturn(Integer.MAX_VALUE);
+
+    scheduler = new NotificationFanOutScheduler(bizConfig);
+
+    someWatchKey = "someAppId+default+application";
+    someNotification = new ApolloConfigNotification("application", 1);
+  }
+
+  @Test
+  public void testScheduleNotifiesSnapshotOfResults() throws Exception {
+    //block the only fan-out thread, so the results are modified before they are notified
+    CountDownLatch blocker = new CountDownLatch(1);
+    DeferredResultWrapper blockingResult = new DeferredResultWrapper(1000) {
+      @Override
+      public void setResult(ApolloConfigNotification notification) {
+        try {
+          blocker.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+          Thread.currentThread().interrupt();
+        }
+        super.setResult(notification);
+      }
+    };
+    scheduler.schedule(someWatchKey, Lists.newArrayList(blockingResult), someNotification);
+
+    DeferredResultWrapper someResult = new DeferredResultWrapper(1000);
+    DeferredResultWrapper anotherResult = new DeferredResultWrapper(1000);
+    List<DeferredResultWrapper> results = Lists.newArrayList(someResult, anotherResult);
+    scheduler.schedule(someWatchKey, results, someNotification);
+
+    //e.g. the long polls completed and unregistered themselves
+    results.clear();
+    blocker.countDown();
+
+    await().atMost(5, TimeUnit.SECONDS).untilAsserted(() -> {
+      assertTrue(blockingResult.getResult().hasResult());
+      assertTrue(someResult.getResult().hasResult());
+      assertTrue(anotherResult.getResult().hasResult());
+    });
+  }
+}
@@ -1,6 +1,7 @@
 package com.ctrip.framework.apollo.core.dto;
 
 import java.util.Map;
+import java.util.Set;
 
 /**
  * @author Jason Song(song_s@ctrip.com)
@@ -17,6 +18,16 @@ public class ApolloConfig {
 
   private String releaseKey;
 
+  /**
+   * the release key the configurations are compared against, only set when this is a delta
+   */
+  private String baseReleaseKey;
+
+  /**
+   * the keys removed since the base release, only set when this is a delta
+   */
+  private Set<String> deletedKeys;
+
   public ApolloConfig() {
   }
 
@@ -50,6 +61,14 @@ public class ApolloConfig {
     return configurations;
   }
 
+  public String getBaseReleaseKey() {
+    return baseReleaseKey;
+  }
+
+  public Set<String> getDeletedKeys() {
+    return deletedKeys;
+  }
+
   public void setAppId(String appId) {
     this.appId = appId;
   }
@@ -70,6 +89,14 @@ public class ApolloConfig {
     this.configurations = configurations;
   }
 
+  public void setBaseReleaseKey(String baseReleaseKey) {
+    this.baseReleaseKey = baseReleaseKey;
+  }
+
+  public void setDeletedKeys(Set<String> deletedKeys) {
+    this.deletedKeys = deletedKeys;
+  }
+
   @Override
   public String toString() {
     final StringBuilder sb = new StringBuilder("ApolloConfig{");
@@ -78,6 +105,10 @@ public class ApolloConfig {
     sb.append(", namespaceName='").append(namespaceName).append('\'');
     sb.append(", configurations=").append(configurations);
     sb.append(", releaseKey='").append(releaseKey).append('\'');
+    if (baseReleaseKey != null) {
+      sb.append(", baseReleaseKey='").append(baseReleaseKey).append('\'');
+      sb.append(", deletedKeys=").append(deletedKeys);
+    }
     sb.append('}');
     return sb.toString();
   }
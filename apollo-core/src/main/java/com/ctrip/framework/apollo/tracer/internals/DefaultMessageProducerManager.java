@@ -3,6 +3,7 @@ package com.ctrip.framework.apollo.tracer.internals;
 import com.ctrip.framework.apollo.core.utils.ClassLoaderUtil;
 import com.ctrip.framework.apollo.tracer.internals.cat.CatMessageProducer;
 import com.ctrip.framework.apollo.tracer.internals.cat.CatNames;
+import com.ctrip.framework.apollo.tracer.internals.metrics.MetricsMessageProducerManager;
 import com.ctrip.framework.apollo.tracer.spi.MessageProducer;
 import com.ctrip.framework.apollo.tracer.spi.MessageProducerManager;
 
@@ -10,16 +11,28 @@ import com.ctrip.framework.apollo.tracer.spi.MessageProducerManager;
  * @author Jason Song(song_s@ctrip.com)
  */
 public class DefaultMessageProducerManager implements MessageProducerManager {
+  static final String METRICS_ENABLED = "apollo.tracer.metrics.enabled";
   private static MessageProducer producer;
 
   public DefaultMessageProducerManager() {
     if (ClassLoaderUtil.isClassPresent(CatNames.CAT_CLASS)) {
       producer = new CatMessageProducer();
+    } else if (isMetricsEnabled()) {
+      producer = new MetricsMessageProducerManager().getProducer();
     } else {
       producer = new NullMessageProducerManager().getProducer();
     }
   }
 
+  /**
+   * The metrics are aggregated in process when there is no CAT and -Dapollo.tracer.metrics.enabled=true, they are off by
+   * default as each transaction name takes a few KB for its latency histogram
+   */
+  private static boolean isMetricsEnabled() {
+    String enabled = System.getProperty(METRICS_ENABLED);
+    return enabled != null && Boolean.parseBoolean(enabled.trim());
+  }
+
   @Override
   public MessageProducer getProducer() {
     return producer;
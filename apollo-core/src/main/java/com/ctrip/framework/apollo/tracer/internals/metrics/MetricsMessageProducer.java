@@ -0,0 +1,41 @@
+package com.ctrip.framework.apollo.tracer.internals.metrics;
+
+import com.ctrip.framework.apollo.tracer.metrics.TracerMetrics;
+import com.ctrip.framework.apollo.tracer.spi.MessageProducer;
+import com.ctrip.framework.apollo.tracer.spi.Transaction;
+
+/**
+ * Aggregates the errors, events and transactions into {@link TracerMetrics}.
+ */
+public class MetricsMessageProducer implements MessageProducer {
+  private final TracerMetrics metrics;
+
+  public MetricsMessageProducer(TracerMetrics metrics) {
+    this.metrics = metrics;
+  }
+
+  @Override
+  public void logError(Throwable cause) {
+    metrics.recordError(cause);
+  }
+
+  @Override
+  public void logError(String message, Throwable cause) {
+    metrics.recordError(cause);
+  }
+
+  @Override
+  public void logEvent(String type, String name) {
+    metrics.recordEvent(type, name, true);
+  }
+
+  @Override
+  public void logEvent(String type, String name, String status, String nameValuePairs) {
+    metrics.recordEvent(type, name, Transaction.SUCCESS.equals(status));
+  }
+
+  @Override
+  public Transaction newTransaction(String type, String name) {
+    return new MetricsTransaction(metrics, type, name);
+  }
+}
@@ -0,0 +1,17 @@
+package com.ctrip.framework.apollo.tracer.internals.metrics;
+
+import com.ctrip.framework.apollo.tracer.metrics.TracerMetrics;
+import com.ctrip.framework.apollo.tracer.spi.MessageProducer;
+import com.ctrip.framework.apollo.tracer.spi.MessageProducerManager;
+
+/**
+ * The message producer manager which aggregates the messages into {@link TracerMetrics}.
+ */
+public class MetricsMessageProducerManager implements MessageProducerManager {
+  private static final MessageProducer producer = new MetricsMessageProducer(TracerMetrics.getInstance());
+
+  @Override
+  public MessageProducer getProducer() {
+    return producer;
+  }
+}
@@ -0,0 +1,48 @@
+package com.ctrip.framework.apollo.tracer.internals.metrics;
+
+import com.ctrip.framework.apollo.tracer.metrics.TracerMetrics;
+import com.ctrip.framework.apollo.tracer.spi.Transaction;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records the latency and status of the transaction when completed, the data added is ignored.
+ */
+public class MetricsTransaction implements Transaction {
+  private final TracerMetrics metrics;
+  private final String type;
+  private final String name;
+  private final long startNanos;
+  // the transaction is successful unless told otherwise
+  private boolean success = true;
+  private boolean completed;
+
+  public MetricsTransaction(TracerMetrics metrics, String type, String name) {
+    this.metrics = metrics;
+    this.type = type;
+    this.name = name;
+    this.startNanos = System.nanoTime();
+  }
+
+  @Override
+  public void setStatus(String status) {
+    success = SUCCESS.equals(status);
+  }
+
+  @Override
+  public void setStatus(Throwable e) {
+    success = false;
+  }
+
+  @Override
+  public void addData(String key, Object value) {
+  }
+
+  @Override
+  public void complete() {
+    if (completed) {
+      return;
+    }
+    completed = true;
+    metrics.recordTransaction(type, name, TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos), success);
+  }
+}
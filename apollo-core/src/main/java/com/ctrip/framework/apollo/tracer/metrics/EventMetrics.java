@@ -0,0 +1,26 @@
+package com.ctrip.framework.apollo.tracer.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The counts of the events of the same type and name.
+ */
+public class EventMetrics {
+  private final AtomicLong count = new AtomicLong();
+  private final AtomicLong failures = new AtomicLong();
+
+  void record(boolean success) {
+    count.incrementAndGet();
+    if (!success) {
+      failures.incrementAndGet();
+    }
+  }
+
+  public long getCount() {
+    return count.get();
+  }
+
+  public long getFailures() {
+    return failures.get();
+  }
+}
@@ -0,0 +1,197 @@
+package com.ctrip.framework.apollo.tracer.metrics;
+
+import com.google.common.base.Supplier;
+import com.google.common.collect.Maps;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The in-process metrics of the transactions, events and errors logged by {@link com.ctrip.framework.apollo.tracer.Tracer},
+ * when there is no CAT and they are enabled by -Dapollo.tracer.metrics.enabled=true.
+ *
+ * <p>The number of types and names is bounded, as some names are dynamic, e.g. the cache keys, the ones beyond the
+ * bound are aggregated into {@value #OTHERS}.</p>
+ *
+ * @see com.ctrip.framework.apollo.tracer.internals.metrics.MetricsMessageProducerManager
+ */
+public class TracerMetrics {
+  public static final String OTHERS = "Others";
+  private static final int MAX_TYPES = 200;
+  private static final int MAX_NAMES_PER_TYPE = 100;
+  private static final TracerMetrics INSTANCE = new TracerMetrics();
+  private static final Supplier<ConcurrentMap<String, TransactionMetrics>> TRANSACTIONS_OF_TYPE =
+      new Supplier<ConcurrentMap<String, TransactionMetrics>>() {
+        @Override
+        public ConcurrentMap<String, TransactionMetrics> get() {
+          return Maps.newConcurrentMap();
+        }
+      };
+  private static final Supplier<TransactionMetrics> TRANSACTION_METRICS = new Supplier<TransactionMetrics>() {
+    @Override
+    public TransactionMetrics get() {
+      return new TransactionMetrics();
+    }
+  };
+  private static final Supplier<ConcurrentMap<String, EventMetrics>> EVENTS_OF_TYPE =
+      new Supplier<ConcurrentMap<String, EventMetrics>>() {
+        @Override
+        public ConcurrentMap<String, EventMetrics> get() {
+          return Maps.newConcurrentMap();
+        }
+      };
+  private static final Supplier<EventMetrics> EVENT_METRICS = new Supplier<EventMetrics>() {
+    @Override
+    public EventMetrics get() {
+      return new EventMetrics();
+    }
+  };
+  private static final Supplier<AtomicLong> ERROR_COUNT = new Supplier<AtomicLong>() {
+    @Override
+    public AtomicLong get() {
+      return new AtomicLong();
+    }
+  };
+
+  private final ConcurrentMap<String, ConcurrentMap<String, TransactionMetrics>> transactions =
+      Maps.newConcurrentMap();
+  private final ConcurrentMap<String, ConcurrentMap<String, EventMetrics>> events = Maps.newConcurrentMap();
+  private final ConcurrentMap<String, AtomicLong> errors = Maps.newConcurrentMap();
+
+  TracerMetrics() {
+  }
+
+  public static TracerMetrics getInstance() {
+    return INSTANCE;
+  }
+
+  public void recordTransaction(String type, String name, long latencyInMicros, boolean success) {
+    type = type == null ? OTHERS : type;
+    name = name == null ? OTHERS : name;
+    ConcurrentMap<String, TransactionMetrics> metricsOfType = getOrCreate(transactions, type, MAX_TYPES,
+        TRANSACTIONS_OF_TYPE);
+    TransactionMetrics metrics = getOrCreate(metricsOfType, name, MAX_NAMES_PER_TYPE, TRANSACTION_METRICS);
+    metrics.record(latencyInMicros, success);
+  }
+
+  public void recordEvent(String type, String name, boolean success) {
+    type = type == null ? OTHERS : type;
+    name = name == null ? OTHERS : name;
+    ConcurrentMap<String, EventMetrics> metricsOfType = getOrCreate(events, type, MAX_TYPES, EVENTS_OF_TYPE);
+    EventMetrics metrics = getOrCreate(metricsOfType, name, MAX_NAMES_PER_TYPE, EVENT_METRICS);
+    metrics.record(success);
+  }
+
+  public void recordError(Throwable cause) {
+    String name = cause == null ? OTHERS : cause.getClass().getName();
+    getOrCreate(errors, name, MAX_TYPES, ERROR_COUNT).incrementAndGet();
+  }
+
+  /**
+   * @return type -> name -> metrics of the transactions
+   */
+  public Map<String, Map<String, TransactionMetrics>> getTransactions() {
+    return Collections.<String, Map<String, TransactionMetrics>>unmodifiableMap(transactions);
+  }
+
+  /**
+   * @return type -> name -> metrics of the events
+   */
+  public Map<String, Map<String, EventMetrics>> getEvents() {
+    return Collections.<String, Map<String, EventMetrics>>unmodifiableMap(events);
+  }
+
+  /**
+   * @return exception class name -> count of the errors
+   */
+  public Map<String, Long> getErrors() {
+    Map<String, Long> result = Maps.newTreeMap();
+    for (Map.Entry<String, AtomicLong> entry : errors.entrySet()) {
+      result.put(entry.getKey(), entry.getValue().get());
+    }
+    return result;
+  }
+
+  /**
+   * A snapshot of all the metrics, sorted by type and name, with the latencies in microseconds, e.g.
+   * <pre>
+   * {
+   *   "transactions": {"Apollo.ConfigService": {"queryConfig": {"count": 10, "failures": 0, "mean": 1024.5,
+   *     "p50": 991, "p90": 1535, "p99": 2047, "max": 2011}}},
+   *   "events": {"Apollo.Client.ConfigChanges": {"application": {"count": 1, "failures": 0}}},
+   *   "errors": {"com.ctrip.framework.apollo.exceptions.ApolloConfigException": 2}
+   * }
+   * </pre>
+   */
+  public Map<String, Object> snapshot() {
+    Map<String, Object> transactionsSnapshot = Maps.newTreeMap();
+    for (Map.Entry<String, ConcurrentMap<String, TransactionMetrics>> typeEntry : transactions.entrySet()) {
+      Map<String, Object> names = Maps.newTreeMap();
+      for (Map.Entry<String, TransactionMetrics> entry : typeEntry.getValue().entrySet()) {
+        TransactionMetrics metrics = entry.getValue();
+        LatencyHistogram latencies = metrics.getLatencies();
+        Map<String, Object> values = Maps.newLinkedHashMap();
+        values.put("count", metrics.getCount());
+        values.put("failures", metrics.getFailures());
+        values.put("mean", latencies.getMean());
+        values.put("p50", latencies.getPercentile(50));
+        values.put("p90", latencies.getPercentile(90));
+        values.put("p99", latencies.getPercentile(99));
+        values.put("max", latencies.getMax());
+        names.put(entry.getKey(), values);
+      }
+      transactionsSnapshot.put(typeEntry.getKey(), names);
+    }
+
+    Map<String, Object> eventsSnapshot = Maps.newTreeMap();
+    for (Map.Entry<String, ConcurrentMap<String, EventMetrics>> typeEntry : events.entrySet()) {
+      Map<String, Object> names = Maps.newTreeMap();
+      for (Map.Entry<String, EventMetrics> entry : typeEntry.getValue().entrySet()) {
+        Map<String, Object> values = Maps.newLinkedHashMap();
+        values.put("count", entry.getValue().getCount());
+        values.put("failures", entry.getValue().getFailures());
+        names.put(entry.getKey(), values);
+      }
+      eventsSnapshot.put(typeEntry.getKey(), names);
+    }
+
+    Map<String, Object> snapshot = Maps.newLinkedHashMap();
+    snapshot.put("transactions", transactionsSnapshot);
+    snapshot.put("events", eventsSnapshot);
+    snapshot.put("errors", getErrors());
+    return snapshot;
+  }
+
+  /**
+   * Remove all the metrics.
+   */
+  public void clear() {
+    transactions.clear();
+    events.clear();
+    errors.clear();
+  }
+
+  /**
+   * Get the value of the key, or of {@link #OTHERS} if the key is absent and there are too many keys already. The
+   * value is only created when it is going to be put into the map.
+   *
+   * @return the value in the map
+   */
+  private static <T> T getOrCreate(ConcurrentMap<String, T> map, String key, int maxSize, Supplier<T> factory) {
+    T value = map.get(key);
+    if (value != null) {
+      return value;
+    }
+    if (map.size() >= maxSize) {
+      key = OTHERS;
+      value = map.get(key);
+      if (value != null) {
+        return value;
+      }
+    }
+    T newValue = factory.get();
+    value = map.putIfAbsent(key, newValue);
+    return value == null ? newValue : value;
+  }
+}
@@ -0,0 +1,30 @@
+package com.ctrip.framework.apollo.tracer.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The latencies and failures of the transactions of the same type and name.
+ */
+public class TransactionMetrics {
+  private final LatencyHistogram latencies = new LatencyHistogram();
+  private final AtomicLong failures = new AtomicLong();
+
+  void record(long latencyInMicros, boolean success) {
+    latencies.record(latencyInMicros);
+    if (!success) {
+      failures.incrementAndGet();
+    }
+  }
+
+  public LatencyHistogram getLatencies() {
+    return latencies;
+  }
+
+  public long getCount() {
+    return latencies.getCount();
+  }
+
+  public long getFailures() {
+    return failures.get();
+  }
+}
@@ -1,8 +1,8 @@
 package com.ctrip.framework.apollo.tracer.internals;
 
-import com.ctrip.framework.apollo.tracer.spi.MessageProducerManager;
+import com.ctrip.framework.apollo.tracer.internals.metrics.MetricsMessageProducer;
 
-import org.junit.Before;
+import org.junit.After;
 import org.junit.Test;
 
 import static org.junit.Assert.*;
@@ -11,16 +11,21 @@ import static org.junit.Assert.*;
  * @author Jason Song(song_s@ctrip.com)
  */
 public class DefaultMessageProducerManagerTest {
-  private MessageProducerManager messageProducerManager;
 
-  @Before
-  public void setUp() throws Exception {
-    messageProducerManager = new DefaultMessageProducerManager();
+  @After
+  public void tearDown() throws Exception {
+    System.clearProperty(DefaultMessageProducerManager.METRICS_ENABLED);
   }
 
   @Test
   public void testGetProducer() throws Exception {
-    assertTrue(messageProducerManager.getProducer() instanceof NullMessageProducer);
+    assertTrue(new DefaultMessageProducerManager().getProducer() instanceof NullMessageProducer);
   }
 
-}
\ No newline at end of file
+  @Test
+  public void testGetProducerWithMetricsEnabled() throws Exception {
+    System.setProperty(DefaultMessageProducerManager.METRICS_ENABLED, "true");
+
+    assertTrue(new DefaultMessageProducerManager().getProducer() instanceof MetricsMessageProducer);
+  }
+}
@@ -0,0 +1,59 @@
+package com.ctrip.framework.apollo.tracer.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+  @Test
+  public void testBuckets() throws Exception {
+    long previousHighestValue = -1;
+    for (long value = 0; value < 100000; value++) {
+      int index = LatencyHistogram.bucketIndex(value);
+      long highestValue = LatencyHistogram.highestValueOf(index);
+      assertTrue(value <= highestValue);
+      assertTrue(highestValue - value <= value / 16);
+      if (value > previousHighestValue) {
+        assertEquals(previousHighestValue + 1, value);
+        previousHighestValue = highestValue;
+      }
+    }
+  }
+
+  @Test
+  public void testPercentiles() throws Exception {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (int i = 1; i <= 1000; i++) {
+      histogram.record(i);
+    }
+
+    assertEquals(1000, histogram.getCount());
+    assertEquals(500.5, histogram.getMean(), 0.001);
+    assertEquals(1000, histogram.getMax());
+    assertEquals(500, histogram.getPercentile(50), 500 / 16);
+    assertEquals(990, histogram.getPercentile(99), 990 / 16);
+    assertEquals(1000, histogram.getPercentile(100));
+  }
+
+  @Test
+  public void testEmpty() throws Exception {
+    LatencyHistogram histogram = new LatencyHistogram();
+
+    assertEquals(0, histogram.getCount());
+    assertEquals(0, histogram.getMean(), 0);
+    assertEquals(0, histogram.getPercentile(99));
+  }
+
+  @Test
+  public void testRecordOutOfRange() throws Exception {
+    LatencyHistogram histogram = new LatencyHistogram();
+    histogram.record(-1);
+    histogram.record(Long.MAX_VALUE);
+
+    assertEquals(2, histogram.getCount());
+    assertEquals(0, histogram.getPercentile(50));
+    assertEquals(Long.MAX_VALUE, histogram.getMax());
+  }
+}
@@ -0,0 +1,81 @@
+package com.ctrip.framework.apollo.tracer.metrics;
+
+import static org.junit.Assert.assertEquals;
+
+import com.ctrip.framework.apollo.tracer.internals.metrics.MetricsMessageProducer;
+import com.ctrip.framework.apollo.tracer.spi.MessageProducer;
+import com.ctrip.framework.apollo.tracer.spi.Transaction;
+import java.util.Map;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TracerMetricsTest {
+  private TracerMetrics tracerMetrics;
+  private MessageProducer producer;
+
+  @Before
+  public void setUp() throws Exception {
+    tracerMetrics = new TracerMetrics();
+    producer = new MetricsMessageProducer(tracerMetrics);
+  }
+
+  @Test
+  public void testTransactions() throws Exception {
+    String someType = "someType";
+    String someName = "someName";
+
+    Transaction someTransaction = producer.newTransaction(someType, someName);
+    someTransaction.setStatus(Transaction.SUCCESS);
+    someTransaction.complete();
+    Transaction anotherTransaction = producer.newTransaction(someType, someName);
+    anotherTransaction.setStatus(new RuntimeException());
+    anotherTransaction.complete();
+    // completed twice
+    anotherTransaction.complete();
+
+    TransactionMetrics metrics = tracerMetrics.getTransactions().get(someType).get(someName);
+    assertEquals(2, metrics.getCount());
+    assertEquals(1, metrics.getFailures());
+  }
+
+  @Test
+  public void testEventsAndErrors() throws Exception {
+    String someType = "someType";
+    String someName = "someName";
+
+    producer.logEvent(someType, someName);
+    producer.logEvent(someType, someName, "someErrorCode", null);
+    producer.logError(new IllegalStateException());
+    producer.logError("someMessage", new IllegalStateException());
+
+    EventMetrics metrics = tracerMetrics.getEvents().get(someType).get(someName);
+    assertEquals(2, metrics.getCount());
+    assertEquals(1, metrics.getFailures());
+    assertEquals(2, tracerMetrics.getErrors().get(IllegalStateException.class.getName()).longValue());
+  }
+
+  @Test
+  public void testTooManyNames() throws Exception {
+    String someType = "someType";
+    for (int i = 0; i < 1000; i++) {
+      producer.logEvent(someType, "someName" + i);
+    }
+
+    Map<String, EventMetrics> metrics = tracerMetrics.getEvents().get(someType);
+    assertEquals(101, metrics.size());
+    assertEquals(900, metrics.get(TracerMetrics.OTHERS).getCount());
+  }
+
+  @Test
+  public void testSnapshot() throws Exception {
+    producer.newTransaction("someType", "someName").complete();
+    producer.logEvent("anotherType", "anotherName");
+
+    Map<String, Object> snapshot = tracerMetrics.snapshot();
+
+    Map<?, ?> transactions = (Map<?, ?>) ((Map<?, ?>) snapshot.get("transactions")).get("someType");
+    assertEquals(1L, ((Map<?, ?>) transactions.get("someName")).get("count"));
+    Map<?, ?> events = (Map<?, ?>) ((Map<?, ?>) snapshot.get("events")).get("anotherType");
+    assertEquals(1L, ((Map<?, ?>) events.get("anotherName")).get("count"));
+  }
+}
@@ -16,18 +16,24 @@ import com.ctrip.framework.apollo.portal.service.RolePermissionService;
 import com.ctrip.framework.apollo.portal.spi.UserInfoHolder;
 import com.ctrip.framework.apollo.portal.spi.UserService;
 import com.ctrip.framework.apollo.portal.util.RoleUtils;
+import com.ctrip.framework.apollo.tracer.Tracer;
 import com.google.common.base.Charsets;
 import com.google.common.base.Joiner;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Strings;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.hash.Hashing;
 import org.apache.commons.lang.time.FastDateFormat;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 /**
  * @author Jason Song(song_s@ctrip.com)
@@ -37,6 +43,8 @@ public class ConsumerService {
 
   private static final FastDateFormat TIMESTAMP_FORMAT = FastDateFormat.getInstance("yyyyMMddHHmmss");
   private static final Joiner KEY_JOINER = Joiner.on("|");
+  private static final String TOKEN_CACHE_EVENT_TYPE = "Apollo.OpenApi.ConsumerTokenCache";
+  private static final int MAX_CACHED_TOKENS = 10000;
 
   private final UserInfoHolder userInfoHolder;
   private final ConsumerTokenRepository consumerTokenRepository;
@@ -46,6 +54,10 @@ public class ConsumerService {
   private final PortalConfig portalConfig;
   private final RolePermissionService rolePermissionService;
   private final UserService userService;
+  //store token -> the consumer token, with its consumer id and expires
+  private final Cache<String, ConsumerToken> consumerTokenCache;
+  //store the tokens not found, briefly, so that the storms of invalid tokens don't hit the database
+  private final Cache<String, Boolean> invalidTokenCache;
 
   public ConsumerService(
       final UserInfoHolder userInfoHolder,
@@ -64,6 +76,10 @@ public class ConsumerService {
     this.portalConfig = portalConfig;
     this.rolePermissionService = rolePermissionService;
     this.userService = userService;
+    this.consumerTokenCache = CacheBuilder.newBuilder().maximumSize(MAX_CACHED_TOKENS)
+        .expireAfterWrite(portalConfig.consumerTokenCacheExpireInSecond(), TimeUnit.SECONDS).build();
+    this.invalidTokenCache = CacheBuilder.newBuilder().maximumSize(MAX_CACHED_TOKENS)
+        .expireAfterWrite(portalConfig.consumerTokenNegativeCacheExpireInSecond(), TimeUnit.SECONDS).build();
   }
 
 
@@ -95,7 +111,9 @@ public class ConsumerService {
     ConsumerToken consumerToken = generateConsumerToken(consumer, expires);
     consumerToken.setId(0);
 
-    return consumerTokenRepository.save(consumerToken);
+    ConsumerToken savedConsumerToken = consumerTokenRepository.save(consumerToken);
+    invalidateConsumerToken(consumerToken.getToken());
+    return savedConsumerToken;
   }
 
   public ConsumerToken getConsumerTokenByAppId(String appId) {
@@ -111,11 +129,69 @@ public class ConsumerService {
     if (Strings.isNullOrEmpty(token)) {
       return null;
     }
+    if (portalConfig.isConsumerTokenCacheEnabled()) {
+      return getConsumerIdByTokenWithCache(token);
+    }
     ConsumerToken consumerToken = consumerTokenRepository.findTopByTokenAndExpiresAfter(token,
                                                                                         new Date());
     return consumerToken == null ? null : consumerToken.getConsumerId();
   }
 
+  /**
+   * The cached tokens are still checked against their expires, and the ones regenerated by this portal are invalidated
+   * once the change is committed, while the ones changed in database directly or by the other portals take effect when
+   * the cache expires, i.e. after consumer.token.cache.expire.seconds.
+   */
+  private Long getConsumerIdByTokenWithCache(String token) {
+    Date now = new Date();
+    ConsumerToken consumerToken = consumerTokenCache.getIfPresent(token);
+    if (consumerToken != null) {
+      if (consumerToken.getExpires() != null && consumerToken.getExpires().after(now)) {
+        Tracer.logEvent(TOKEN_CACHE_EVENT_TYPE, "hit");
+        return consumerToken.getConsumerId();
+      }
+      consumerTokenCache.invalidate(token);
+    }
+    if (invalidTokenCache.getIfPresent(token) != null) {
+      Tracer.logEvent(TOKEN_CACHE_EVENT_TYPE, "invalidHit");
+      return null;
+    }
+
+    Tracer.logEvent(TOKEN_CACHE_EVENT_TYPE, "miss");
+    consumerToken = consumerTokenRepository.findTopByTokenAndExpiresAfter(token, now);
+    if (consumerToken == null) {
+      invalidTokenCache.put(token, Boolean.TRUE);
+      return null;
+    }
+    consumerTokenCache.put(token, consumerToken);
+    return consumerToken.getConsumerId();
+  }
+
+  /**
+   * Make the change of the token, e.g. regenerated or revoked, take effect in this portal once it's committed. Evicting
+   * before the commit would let a concurrent lookup cache the token as it was.
+   */
+  public void invalidateConsumerToken(String token) {
+    if (Strings.isNullOrEmpty(token)) {
+      return;
+    }
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      evictConsumerToken(token);
+      return;
+    }
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+      @Override
+      public void afterCommit() {
+        evictConsumerToken(token);
+      }
+    });
+  }
+
+  private void evictConsumerToken(String token) {
+    consumerTokenCache.invalidate(token);
+    invalidTokenCache.invalidate(token);
+  }
+
   public Consumer getConsumerByConsumerId(long consumerId) {
     return consumerRepository.findById(consumerId).orElse(null);
   }
@@ -192,7 +268,9 @@ public class ConsumerService {
   public ConsumerToken createConsumerToken(ConsumerToken entity) {
     entity.setId(0); //for protection
 
-    return consumerTokenRepository.save(entity);
+    ConsumerToken savedConsumerToken = consumerTokenRepository.save(entity);
+    invalidateConsumerToken(entity.getToken());
+    return savedConsumerToken;
   }
 
   private ConsumerToken generateConsumerToken(Consumer consumer, Date expires) {
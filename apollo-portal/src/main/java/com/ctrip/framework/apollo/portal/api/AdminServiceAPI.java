@@ -63,6 +63,12 @@ public class AdminServiceAPI {
       return Arrays.asList(namespaceDTOs);
     }
 
+    public List<NamespaceViewDTO> findNamespaceViews(String appId, Env env, String clusterName) {
+      NamespaceViewDTO[] namespaceViews = restTemplate.get(env, "apps/{appId}/clusters/{clusterName}/namespace-views",
+          NamespaceViewDTO[].class, appId, clusterName);
+      return Arrays.asList(namespaceViews);
+    }
+
     public NamespaceDTO loadNamespace(String appId, Env env, String clusterName,
         String namespaceName) {
       return
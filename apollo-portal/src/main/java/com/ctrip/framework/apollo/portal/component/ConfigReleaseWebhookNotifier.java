@@ -1,40 +1,127 @@
 package com.ctrip.framework.apollo.portal.component;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 
+import java.util.Deque;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClientBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.http.HttpMessageConverters;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.stereotype.Component;
 import org.springframework.web.client.RestTemplate;
 
+import com.ctrip.framework.apollo.core.utils.ApolloThreadFactory;
+import com.ctrip.framework.apollo.portal.component.config.PortalConfig;
 import com.ctrip.framework.apollo.portal.entity.bo.ReleaseHistoryBO;
 import com.ctrip.framework.apollo.portal.environment.Env;
+import com.ctrip.framework.apollo.tracer.Tracer;
+import com.ctrip.framework.apollo.tracer.spi.Transaction;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Queues;
 
 /**
  * publish webHook
  *
+ * <p>The webhooks are delivered asynchronously, so a slow webhook server delays neither the emails and messages of
+ * the release nor the other webhook servers:</p>
+ * <ul>
+ *   <li>Each webhook server has its own bounded queue and concurrency limit.</li>
+ *   <li>The delivery threads serve the webhook servers in turn, one delivery per turn, and each delivery is bounded
+ *   by the connect and read timeouts. So a healthy webhook server waits for at most one delivery per delivery thread,
+ *   however many deliveries the slow ones have queued.</li>
+ *   <li>A failed delivery is retried with exponential backoff. It stays at the head of its queue, so the later
+ *   deliveries to the same webhook server wait for it and the releases arrive in order. With a concurrency limit
+ *   greater than 1, the deliveries to the same webhook server may overlap and arrive out of order.</li>
+ * </ul>
+ * <p>The latency and failures are logged as the {@value #WEBHOOK_TRANSACTION_TYPE} transactions.</p>
+ *
  * @author HuangSheng
  */
 @Component
 public class ConfigReleaseWebhookNotifier {
 
   private static final Logger logger = LoggerFactory.getLogger(ConfigReleaseWebhookNotifier.class);
+  private static final String WEBHOOK_TRANSACTION_TYPE = "Apollo.WebHook";
+  private static final long MAX_RETRY_DELAY_IN_MILLI = TimeUnit.MINUTES.toMillis(1);
+  private static final int MAX_BACKOFF_SHIFT = 16;
 
-  private final RestTemplateFactory restTemplateFactory;
+  private final HttpMessageConverters httpMessageConverters;
+  private final PortalConfig portalConfig;
+
+  //store webhook url -> the webhook server
+  private final ConcurrentMap<String, WebhookServer> webhookServers = Maps.newConcurrentMap();
+  //the webhook servers waiting for a delivery thread, each entry is worth one delivery
+  private final BlockingQueue<WebhookServer> readyServers = new LinkedBlockingQueue<>();
 
   private RestTemplate restTemplate;
+  private ExecutorService deliveryExecutorService;
+  private ScheduledExecutorService retryExecutorService;
+  private int maxConcurrencyPerUrl;
+  private int maxPendingPerUrl;
+  private int maxRetries;
+  private int retryInitialDelayInMilli;
+  private volatile boolean stopped;
 
-  public ConfigReleaseWebhookNotifier(RestTemplateFactory restTemplateFactory) {
-    this.restTemplateFactory = restTemplateFactory;
+  public ConfigReleaseWebhookNotifier(HttpMessageConverters httpMessageConverters, PortalConfig portalConfig) {
+    this.httpMessageConverters = httpMessageConverters;
+    this.portalConfig = portalConfig;
   }
 
   @PostConstruct
   public void init() {
-    // init restTemplate
-    restTemplate = restTemplateFactory.getObject();
+    int deliveryThreads = portalConfig.webHookDeliveryThreads();
+    maxConcurrencyPerUrl = portalConfig.webHookMaxConcurrencyPerUrl();
+    maxPendingPerUrl = portalConfig.webHookMaxPendingPerUrl();
+    maxRetries = portalConfig.webHookMaxRetries();
+    retryInitialDelayInMilli = portalConfig.webHookRetryInitialDelayInMilli();
+
+    // a dedicated restTemplate, so that slow webhook servers don't hold the connections to the admin services
+    CloseableHttpClient httpClient = HttpClientBuilder.create()
+        .setMaxConnPerRoute(maxConcurrencyPerUrl)
+        .setMaxConnTotal(Math.max(maxConcurrencyPerUrl, deliveryThreads))
+        .build();
+    HttpComponentsClientHttpRequestFactory requestFactory = new HttpComponentsClientHttpRequestFactory(httpClient);
+    requestFactory.setConnectionRequestTimeout(portalConfig.webHookConnectTimeout());
+    requestFactory.setConnectTimeout(portalConfig.webHookConnectTimeout());
+    requestFactory.setReadTimeout(portalConfig.webHookReadTimeout());
+    restTemplate = new RestTemplate(httpMessageConverters.getConverters());
+    restTemplate.setRequestFactory(requestFactory);
+
+    retryExecutorService = Executors.newSingleThreadScheduledExecutor(
+        ApolloThreadFactory.create("ConfigReleaseWebhookNotifier-Retry", true));
+    deliveryExecutorService = Executors.newFixedThreadPool(deliveryThreads,
+        ApolloThreadFactory.create("ConfigReleaseWebhookNotifier", true));
+    for (int i = 0; i < deliveryThreads; i++) {
+      deliveryExecutorService.execute(this::deliverInTurn);
+    }
+  }
+
+  @PreDestroy
+  public void destroy() {
+    stopped = true;
+    if (deliveryExecutorService != null) {
+      deliveryExecutorService.shutdownNow();
+    }
+    if (retryExecutorService != null) {
+      retryExecutorService.shutdownNow();
+    }
+    for (WebhookServer webhookServer : webhookServers.values()) {
+      webhookServer.discardPendingDeliveries();
+    }
   }
 
   public void notify(String[] webHookUrls, Env env, ReleaseHistoryBO releaseHistory) {
@@ -43,15 +130,147 @@ public class ConfigReleaseWebhookNotifier {
     }
 
     for (String webHookUrl : webHookUrls) {
-      HttpHeaders headers = new HttpHeaders();
-      headers.setContentType(MediaType.APPLICATION_JSON_UTF8);
-      HttpEntity entity = new HttpEntity(releaseHistory, headers);
-      String url = webHookUrl + "?env={env}";
+      webhookServers.computeIfAbsent(webHookUrl, WebhookServer::new)
+          .offer(new Delivery(env, releaseHistory));
+    }
+  }
+
+  private void deliverInTurn() {
+    while (!stopped && !Thread.currentThread().isInterrupted()) {
+      try {
+        readyServers.take().deliverNext();
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+      } catch (Throwable ex) {
+        logger.error("Deliver webHook failed", ex);
+      }
+    }
+  }
+
+  private class WebhookServer {
+    private final String webHookUrl;
+    private final Deque<Delivery> pendingDeliveries = Queues.newArrayDeque();
+    //the turns waiting in readyServers
+    private int turns;
+    private int inFlight;
+    private boolean backingOff;
+
+    WebhookServer(String webHookUrl) {
+      this.webHookUrl = webHookUrl;
+    }
+
+    void offer(Delivery delivery) {
+      synchronized (this) {
+        if (!stopped && pendingDeliveries.size() < maxPendingPerUrl) {
+          pendingDeliveries.offerLast(delivery);
+          scheduleTurns();
+          return;
+        }
+      }
+      Tracer.logEvent("Apollo.WebHook.Dropped", webHookUrl);
+      logger.error("Too many pending notifications or notifier stopped, dropped. webHook server url:{}, env:{}",
+          webHookUrl, delivery.env);
+    }
+
+    private void scheduleTurns() {
+      while (!stopped && !backingOff && inFlight + turns < maxConcurrencyPerUrl
+          && turns < pendingDeliveries.size()) {
+        turns++;
+        readyServers.offer(this);
+      }
+    }
+
+    void deliverNext() {
+      Delivery delivery;
+      synchronized (this) {
+        turns--;
+        delivery = backingOff ? null : pendingDeliveries.pollFirst();
+        if (delivery == null) {
+          return;
+        }
+        inFlight++;
+      }
+
+      Throwable failure = send(delivery);
+
+      synchronized (this) {
+        inFlight--;
+        if (failure != null && !stopped) {
+          retry(delivery, failure);
+        }
+        scheduleTurns();
+      }
+    }
+
+    private Throwable send(Delivery delivery) {
+      Transaction transaction = Tracer.newTransaction(WEBHOOK_TRANSACTION_TYPE, webHookUrl);
       try {
-        restTemplate.postForObject(url, entity, String.class, env);
-      } catch (Exception e) {
-        logger.error("Notify webHook server failed. webHook server url:{}", env, url, e);
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON_UTF8);
+        HttpEntity<ReleaseHistoryBO> entity = new HttpEntity<>(delivery.releaseHistory, headers);
+        restTemplate.postForObject(webHookUrl + "?env={env}", entity, String.class, delivery.env);
+        transaction.setStatus(Transaction.SUCCESS);
+        return null;
+      } catch (Throwable ex) {
+        transaction.setStatus(ex);
+        return ex;
+      } finally {
+        transaction.complete();
+      }
+    }
+
+    //guarded by this
+    private void retry(Delivery delivery, Throwable cause) {
+      if (delivery.attempts >= maxRetries) {
+        Tracer.logEvent("Apollo.WebHook.GiveUp", webHookUrl);
+        logger.error("Notify webHook server failed. webHook server url:{}, env:{}, attempts:{}", webHookUrl,
+            delivery.env, delivery.attempts + 1, cause);
+        return;
       }
+      long delay = Math.min(MAX_RETRY_DELAY_IN_MILLI,
+          (long) retryInitialDelayInMilli << Math.min(delivery.attempts, MAX_BACKOFF_SHIFT));
+      delivery.attempts++;
+      Tracer.logEvent("Apollo.WebHook.Retry", webHookUrl);
+      logger.warn("Notify webHook server failed, will retry in {} ms. webHook server url:{}, env:{}, reason:{}",
+          delay, webHookUrl, delivery.env, cause.getMessage());
+
+      // keep the failed delivery ahead of the later ones, and hold them back until it's retried
+      pendingDeliveries.offerFirst(delivery);
+      backingOff = true;
+      try {
+        retryExecutorService.schedule(this::resume, delay, TimeUnit.MILLISECONDS);
+      } catch (Throwable ex) {
+        // the executor is shut down
+        logger.error("Notify webHook server failed. webHook server url:{}, env:{}", webHookUrl, delivery.env, cause);
+      }
+    }
+
+    private synchronized void resume() {
+      backingOff = false;
+      scheduleTurns();
+    }
+
+    void discardPendingDeliveries() {
+      int discarded;
+      synchronized (this) {
+        discarded = pendingDeliveries.size();
+        pendingDeliveries.clear();
+      }
+      if (discarded > 0) {
+        logger.warn("Notifier stopped, discarded {} pending notifications. webHook server url:{}", discarded,
+            webHookUrl);
+      }
+    }
+  }
+
+  private static class Delivery {
+    private final Env env;
+    private final ReleaseHistoryBO releaseHistory;
+    private int attempts;
+
+    Delivery(Env env, ReleaseHistoryBO releaseHistory) {
+      this.env = env;
+      this.releaseHistory = releaseHistory;
     }
   }
 }
@@ -187,6 +187,20 @@ public class PortalConfig extends RefreshableConfig {
     return getValue("consumer.token.salt", "apollo-portal");
   }
 
+  public boolean isConsumerTokenCacheEnabled() {
+    return getBooleanProperty("consumer.token.cache.enabled", false);
+  }
+
+  public int consumerTokenCacheExpireInSecond() {
+    int expire = getIntProperty("consumer.token.cache.expire.seconds", 10);
+    return expire > 0 ? expire : 10;
+  }
+
+  public int consumerTokenNegativeCacheExpireInSecond() {
+    int expire = getIntProperty("consumer.token.negative.cache.expire.seconds", 5);
+    return expire > 0 ? expire : 5;
+  }
+
   public boolean isEmailEnabled() {
     return getBooleanProperty("email.enabled", false);
   }
@@ -243,6 +257,20 @@ public class PortalConfig extends RefreshableConfig {
     return getBooleanProperty(SystemRoleManagerService.MANAGE_APP_MASTER_LIMIT_SWITCH_KEY, false);
   }
 
+  public boolean isPermissionIndexEnabled() {
+    return getBooleanProperty("permission.index.enabled", false);
+  }
+
+  public int permissionIndexScanIntervalInSecond() {
+    int interval = getIntProperty("permission.index.scan.interval", 1);
+    return interval > 0 ? interval : 1;
+  }
+
+  public int permissionIndexRebuildIntervalInSecond() {
+    int interval = getIntProperty("permission.index.rebuild.interval", 60);
+    return interval > 0 ? interval : 60;
+  }
+
   public String getAdminServiceAccessTokens() {
     return getValue("admin-service.access.tokens");
   }
@@ -317,4 +345,59 @@ public class PortalConfig extends RefreshableConfig {
     return getArrayProperty("config.release.webhook.service.url", null);
   }
 
+  public int webHookDeliveryThreads() {
+    int threads = getIntProperty("config.release.webhook.delivery.threads", 5);
+    return threads > 0 ? threads : 5;
+  }
+
+  public int webHookMaxConcurrencyPerUrl() {
+    int concurrency = getIntProperty("config.release.webhook.max.concurrency.per.url", 1);
+    return concurrency > 0 ? concurrency : 1;
+  }
+
+  public int webHookMaxPendingPerUrl() {
+    int pending = getIntProperty("config.release.webhook.max.pending.per.url", 1000);
+    return pending > 0 ? pending : 1000;
+  }
+
+  public int webHookMaxRetries() {
+    int retries = getIntProperty("config.release.webhook.max.retries", 3);
+    return retries >= 0 ? retries : 3;
+  }
+
+  public int webHookRetryInitialDelayInMilli() {
+    int delay = getIntProperty("config.release.webhook.retry.initial.delay", 1000);
+    return delay > 0 ? delay : 1000;
+  }
+
+  public int webHookConnectTimeout() {
+    int timeout = getIntProperty("config.release.webhook.connect.timeout", 3000);
+    return timeout > 0 ? timeout : 3000;
+  }
+
+  public int webHookReadTimeout() {
+    int timeout = getIntProperty("config.release.webhook.read.timeout", 5000);
+    return timeout > 0 ? timeout : 5000;
+  }
+
+  public int configExportThreads() {
+    int threads = getIntProperty("config.export.threads", 8);
+    return threads > 0 ? threads : 8;
+  }
+
+  public int configExportMaxConcurrent() {
+    int maxConcurrent = getIntProperty("config.export.max.concurrent", 2);
+    return maxConcurrent > 0 ? maxConcurrent : 2;
+  }
+
+  public int configExportQueueCapacity() {
+    int capacity = getIntProperty("config.export.queue.capacity", 100);
+    return capacity > 0 ? capacity : 100;
+  }
+
+  public int configExportProgressInterval() {
+    int interval = getIntProperty("config.export.progress.interval", 1000);
+    return interval > 0 ? interval : 1000;
+  }
+
 }
@@ -19,10 +19,12 @@ import org.apache.commons.lang.time.DateFormatUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.annotation.Lazy;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpHeaders;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 /**
@@ -83,18 +85,21 @@ public class ConfigsExportController {
    * Export all configs in a compressed file.
    * Just export namespace which current exists read permission.
    * The permission check in service.
+   * Only export the namespaces modified after modifiedSince if it is specified, e.g. 20200101000000.
    */
   @GetMapping("/export")
-  public void exportAll(HttpServletRequest request, HttpServletResponse response) throws IOException {
+  public void exportAll(@RequestParam(value = "modifiedSince", required = false)
+                        @DateTimeFormat(pattern = "yyyyMMddHHmmss") Date modifiedSince,
+                        HttpServletRequest request, HttpServletResponse response) throws IOException {
     // filename must contain the information of time
     final String filename = "apollo_config_export_" + DateFormatUtils.format(new Date(), "yyyy_MMdd_HH_mm_ss") + ".zip";
     // log who download the configs
-    logger.info("Download configs, remote addr [{}], remote host [{}]. Filename is [{}]", request.getRemoteAddr(), request.getRemoteHost(), filename);
+    logger.info("Download configs, remote addr [{}], remote host [{}]. Filename is [{}], modified since [{}]", request.getRemoteAddr(), request.getRemoteHost(), filename, modifiedSince);
     // set downloaded filename
     response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment;filename=" + filename);
 
     try (OutputStream outputStream = response.getOutputStream()) {
-      configsExportService.exportAllTo(outputStream);
+      configsExportService.exportAllTo(outputStream, modifiedSince);
     }
   }
 
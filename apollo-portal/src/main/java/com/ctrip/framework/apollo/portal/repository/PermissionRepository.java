@@ -7,6 +7,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.PagingAndSortingRepository;
 
 import java.util.Collection;
+import java.util.Date;
 import java.util.List;
 
 /**
@@ -33,4 +34,17 @@ public interface PermissionRepository extends PagingAndSortingRepository<Permiss
   @Modifying
   @Query("UPDATE Permission SET IsDeleted=1, DataChange_LastModifiedBy = ?2 WHERE Id in ?1")
   Integer batchDelete(List<Long> permissionIds, String operator);
+
+  /**
+   * find the last modified time of the table, including the deleted rows
+   */
+  @Query(value = "SELECT MAX(DataChange_LastTime) FROM Permission", nativeQuery = true)
+  Date findLastModifiedTime();
+
+  /**
+   * find the rows modified since the time, including the deleted ones, in the order of modification
+   */
+  @Query(value = "SELECT * FROM Permission WHERE DataChange_LastTime >= ?1 ORDER BY DataChange_LastTime, Id",
+      nativeQuery = true)
+  List<Permission> findModifiedSince(Date time);
 }
@@ -7,6 +7,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.PagingAndSortingRepository;
 
 import java.util.Collection;
+import java.util.Date;
 import java.util.List;
 
 /**
@@ -32,4 +33,16 @@ public interface UserRoleRepository extends PagingAndSortingRepository<UserRole,
   @Query("UPDATE UserRole SET IsDeleted=1, DataChange_LastModifiedBy = ?2 WHERE RoleId in ?1")
   Integer batchDeleteByRoleIds(List<Long> roleIds, String operator);
 
+  /**
+   * find the last modified time of the table, including the deleted rows
+   */
+  @Query(value = "SELECT MAX(DataChange_LastTime) FROM UserRole", nativeQuery = true)
+  Date findLastModifiedTime();
+
+  /**
+   * find the rows modified since the time, including the deleted ones, in the order of modification
+   */
+  @Query(value = "SELECT * FROM UserRole WHERE DataChange_LastTime >= ?1 ORDER BY DataChange_LastTime, Id",
+      nativeQuery = true)
+  List<UserRole> findModifiedSince(Date time);
 }
@@ -15,6 +15,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.CollectionUtils;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Objects;
 import java.util.Set;
@@ -73,6 +74,13 @@ public class AppNamespaceService {
     return appNamespaceRepository.findByAppId(appId);
   }
 
+  /**
+   * the app namespaces of the app, together with the public app namespaces of the given names, in one query
+   */
+  public List<AppNamespace> findByAppIdOrPublicNames(String appId, Collection<String> namespaceNames) {
+    return appNamespaceRepository.findByAppIdOrNameInAndIsPublicTrue(appId, namespaceNames);
+  }
+
   @Transactional
   public void createDefaultAppNamespace(String appId) {
     if (!isAppNamespaceNameUnique(appId, ConfigConsts.NAMESPACE_APPLICATION)) {
@@ -2,24 +2,35 @@ package com.ctrip.framework.apollo.portal.service;
 
 import com.ctrip.framework.apollo.common.dto.ClusterDTO;
 import com.ctrip.framework.apollo.common.entity.App;
+import com.ctrip.framework.apollo.common.exception.BadRequestException;
 import com.ctrip.framework.apollo.core.enums.ConfigFileFormat;
+import com.ctrip.framework.apollo.core.utils.ApolloThreadFactory;
 import com.ctrip.framework.apollo.portal.component.PermissionValidator;
 import com.ctrip.framework.apollo.portal.component.PortalSettings;
+import com.ctrip.framework.apollo.portal.component.config.PortalConfig;
 import com.ctrip.framework.apollo.portal.entity.bo.ConfigBO;
+import com.ctrip.framework.apollo.portal.entity.bo.ItemBO;
 import com.ctrip.framework.apollo.portal.entity.bo.NamespaceBO;
 import com.ctrip.framework.apollo.portal.environment.Env;
 import com.ctrip.framework.apollo.portal.util.ConfigFileUtils;
+import com.ctrip.framework.apollo.tracer.Tracer;
+import com.ctrip.framework.apollo.tracer.spi.Transaction;
+import com.google.common.io.CountingOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
-import java.util.Collection;
+import java.util.Date;
 import java.util.List;
-import java.util.function.BiFunction;
-import java.util.function.BinaryOperator;
-import java.util.function.Consumer;
-import java.util.function.Function;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 import org.slf4j.Logger;
@@ -27,11 +38,25 @@ import org.slf4j.LoggerFactory;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
 
+/**
+ * Export the configs as a zip file.
+ *
+ * <p>The namespaces are loaded by a pool of producers, one task per app of each env, and handed over to the single zip
+ * writer through a bounded queue. So the number of namespaces in memory is bounded, and the producers wait when the
+ * download is slower than the admin services.</p>
+ *
+ * <p>Each export has its own pool, which is shut down when the export is done. So a slow export, e.g. one whose
+ * download is stalled, never holds the producers of the other exports.</p>
+ */
 @Service
 public class ConfigsExportService {
 
   private static final Logger logger = LoggerFactory.getLogger(ConfigsExportService.class);
 
+  private static final String EXPORT_TRANSACTION_TYPE = "Apollo.ConfigsExport";
+
+  private static final long POLL_TIMEOUT_IN_MILLI = 100;
+
   private final AppService appService;
 
   private final ClusterService clusterService;
@@ -42,45 +67,27 @@ public class ConfigsExportService {
 
   private final PermissionValidator permissionValidator;
 
+  private final PortalConfig portalConfig;
+
+  /**
+   * each export runs its own producers, so the concurrent exports are capped to bound the threads of all of them
+   */
+  private final Semaphore exportPermits;
+
   public ConfigsExportService(
       AppService appService,
       ClusterService clusterService,
       final @Lazy NamespaceService namespaceService,
       PortalSettings portalSettings,
-      PermissionValidator permissionValidator) {
+      PermissionValidator permissionValidator,
+      PortalConfig portalConfig) {
     this.appService = appService;
     this.clusterService = clusterService;
     this.namespaceService = namespaceService;
     this.portalSettings = portalSettings;
     this.permissionValidator = permissionValidator;
-  }
-
-  /**
-   * write multiple namespace to a zip. use {@link Stream#reduce(Object, BiFunction,
-   * BinaryOperator)} to forbid concurrent write.
-   *
-   * @param configBOStream namespace's stream
-   * @param outputStream receive zip file output stream
-   * @throws IOException if happen write problem
-   */
-  private static void writeAsZipOutputStream(
-      Stream<ConfigBO> configBOStream, OutputStream outputStream) throws IOException {
-    try (final ZipOutputStream zipOutputStream = new ZipOutputStream(outputStream)) {
-      final Consumer<ConfigBO> configBOConsumer =
-          configBO -> {
-            try {
-              // TODO, Stream.reduce will cause some problems. Is There other way to speed up the
-              // downloading?
-              synchronized (zipOutputStream) {
-                write2ZipOutputStream(zipOutputStream, configBO);
-              }
-            } catch (IOException e) {
-              logger.error("Write error. {}", configBO);
-              throw new IllegalStateException(e);
-            }
-          };
-      configBOStream.forEach(configBOConsumer);
-    }
+    this.portalConfig = portalConfig;
+    this.exportPermits = new Semaphore(portalConfig.configExportMaxConcurrent());
   }
 
   /**
@@ -117,31 +124,29 @@ public class ConfigsExportService {
     return zipOutputStream;
   }
 
-  /** @return the namespaces current user exists */
-  private Stream<ConfigBO> makeStreamBy(
-      final Env env, final String ownerName, final String appId, final String clusterName) {
-    final List<NamespaceBO> namespaceBOS =
-        namespaceService.findNamespaceBOs(appId, env, clusterName);
-    final Function<NamespaceBO, ConfigBO> function =
-        namespaceBO -> new ConfigBO(env, ownerName, appId, clusterName, namespaceBO);
-    return namespaceBOS.parallelStream().map(function);
-  }
-
-  private Stream<ConfigBO> makeStreamBy(final Env env, final String ownerName, final String appId) {
-    final List<ClusterDTO> clusterDTOS = clusterService.findClusters(env, appId);
-    final Function<ClusterDTO, Stream<ConfigBO>> function =
-        clusterDTO -> this.makeStreamBy(env, ownerName, appId, clusterDTO.getName());
-    return clusterDTOS.parallelStream().flatMap(function);
-  }
-
-  private Stream<ConfigBO> makeStreamBy(final Env env, final List<App> apps) {
-    final Function<App, Stream<ConfigBO>> function =
-        app -> this.makeStreamBy(env, app.getOwnerName(), app.getAppId());
-
-    return apps.parallelStream().flatMap(function);
+  /**
+   * @return whether the namespace or any of its items is modified after the time, the items without modified time,
+   * e.g. the deleted ones, are treated as modified
+   */
+  private static boolean isModifiedSince(NamespaceBO namespaceBO, Date modifiedSince) {
+    if (modifiedSince == null) {
+      return true;
+    }
+    Date namespaceModifiedTime = namespaceBO.getBaseInfo().getDataChangeLastModifiedTime();
+    if (namespaceModifiedTime == null || namespaceModifiedTime.after(modifiedSince)) {
+      return true;
+    }
+    for (ItemBO itemBO : namespaceBO.getItems()) {
+      Date itemModifiedTime = itemBO.getItem().getDataChangeLastModifiedTime();
+      if (itemModifiedTime == null || itemModifiedTime.after(modifiedSince)) {
+        return true;
+      }
+    }
+    return false;
   }
 
-  private Stream<ConfigBO> makeStreamBy(final Collection<Env> envs) {
+  /** @return the apps current user is admin of */
+  private List<App> findAppsExistPermission() {
     // get all apps
     final List<App> apps = appService.findAll();
 
@@ -158,9 +163,38 @@ public class ConfigsExportService {
         };
 
     // app admin permission filter
-    final List<App> appsExistPermission =
-        apps.stream().filter(isAppAdmin).collect(Collectors.toList());
-    return envs.parallelStream().flatMap(env -> this.makeStreamBy(env, appsExistPermission));
+    return apps.stream().filter(isAppAdmin).collect(Collectors.toList());
+  }
+
+  /**
+   * load the namespaces of all clusters of the app, and put them into the queue of the export.
+   */
+  private void produce(final Export export, final Env env, final App app) {
+    try {
+      final List<ClusterDTO> clusterDTOS = clusterService.findClusters(env, app.getAppId());
+      for (ClusterDTO clusterDTO : clusterDTOS) {
+        final List<NamespaceBO> namespaceBOS =
+            namespaceService.findNamespaceBOs(app.getAppId(), env, clusterDTO.getName());
+        for (NamespaceBO namespaceBO : namespaceBOS) {
+          if (!isModifiedSince(namespaceBO, export.modifiedSince)) {
+            export.skippedNamespaces.incrementAndGet();
+            continue;
+          }
+          if (!export.put(new ConfigBO(env, app.getOwnerName(), app.getAppId(), clusterDTO.getName(),
+              namespaceBO))) {
+            return;
+          }
+        }
+      }
+    } catch (Throwable ex) {
+      // the producers are interrupted when the export is aborted already
+      if (!export.aborted) {
+        logger.error("config export failed. env = {}, app = {}", env, app.getAppId(), ex);
+        export.abort(ex);
+      }
+    } finally {
+      export.remainingProducers.decrementAndGet();
+    }
   }
 
   /**
@@ -171,8 +205,159 @@ public class ConfigsExportService {
    * @throws IOException if happen write problem
    */
   public void exportAllTo(OutputStream outputStream) throws IOException {
+    exportAllTo(outputStream, null);
+  }
+
+  /**
+   * Export the projects which current user own them, and only the namespaces modified after the time. Permission
+   * check by {@link PermissionValidator#isAppAdmin(java.lang.String)}
+   *
+   * @param outputStream network file download stream to user
+   * @param modifiedSince export all namespaces if null
+   * @throws IOException if happen write problem
+   * @throws BadRequestException if there are config.export.max.concurrent exports running already
+   */
+  public void exportAllTo(OutputStream outputStream, Date modifiedSince) throws IOException {
+    if (!exportPermits.tryAcquire()) {
+      throw new BadRequestException("Too many configs exports are running, please try again later");
+    }
+    try {
+      doExportAllTo(outputStream, modifiedSince);
+    } finally {
+      exportPermits.release();
+    }
+  }
+
+  private void doExportAllTo(OutputStream outputStream, Date modifiedSince) throws IOException {
     final List<Env> activeEnvs = portalSettings.getActiveEnvs();
-    final Stream<ConfigBO> configBOStream = this.makeStreamBy(activeEnvs);
-    writeAsZipOutputStream(configBOStream, outputStream);
+    // the permission check depends on current user, so it is done before handing over to the producers
+    final List<App> appsExistPermission = findAppsExistPermission();
+
+    Transaction transaction = Tracer.newTransaction(EXPORT_TRANSACTION_TYPE,
+        modifiedSince == null ? "exportAll" : "exportModifiedSince");
+    final int producers = activeEnvs.size() * appsExistPermission.size();
+    final Export export = new Export(modifiedSince, portalConfig.configExportQueueCapacity(), producers);
+    final ExecutorService producerExecutorService = Executors.newFixedThreadPool(
+        Math.max(1, Math.min(portalConfig.configExportThreads(), producers)),
+        ApolloThreadFactory.create("ConfigsExportService", true));
+    try {
+      for (Env env : activeEnvs) {
+        for (App app : appsExistPermission) {
+          producerExecutorService.execute(() -> produce(export, env, app));
+        }
+      }
+      writeAsZipOutputStream(export, outputStream);
+      transaction.setStatus(Transaction.SUCCESS);
+    } catch (Throwable ex) {
+      transaction.setStatus(ex);
+      throw ex;
+    } finally {
+      // stop the producers if the export fails, e.g. the download is cancelled
+      export.abort(null);
+      producerExecutorService.shutdownNow();
+      transaction.complete();
+    }
+  }
+
+  /**
+   * write namespaces to a zip in current thread, until all the producers are done.
+   *
+   * @param export the namespaces to write
+   * @param outputStream receive zip file output stream
+   * @throws IOException if happen write problem
+   */
+  private void writeAsZipOutputStream(Export export, OutputStream outputStream) throws IOException {
+    final int progressInterval = portalConfig.configExportProgressInterval();
+    final CountingOutputStream countingOutputStream = new CountingOutputStream(outputStream);
+    try (final ZipOutputStream zipOutputStream = new ZipOutputStream(countingOutputStream)) {
+      while (true) {
+        export.checkFailure();
+        final ConfigBO configBO = export.poll();
+        if (configBO != null) {
+          write2ZipOutputStream(zipOutputStream, configBO);
+          if (export.exportedNamespaces.incrementAndGet() % progressInterval == 0) {
+            logProgress("Exporting configs", export, countingOutputStream.getCount());
+          }
+          continue;
+        }
+        // the producers put before they are done, so the queue is drained when all of them are done
+        if (export.remainingProducers.get() == 0 && export.queue.isEmpty()) {
+          break;
+        }
+      }
+      // the producers abort before they are done, so a failure is visible once all of them are done
+      export.checkFailure();
+    }
+    logProgress("Configs exported", export, countingOutputStream.getCount());
+  }
+
+  private static void logProgress(String message, Export export, long bytes) {
+    final long elapsedInMilli = Math.max(1, System.currentTimeMillis() - export.startTime);
+    final long exportedNamespaces = export.exportedNamespaces.get();
+    logger.info("{}, namespaces: {}, skipped namespaces: {}, remaining producers: {}, bytes: {}, elapsed: {} ms, "
+            + "throughput: {} namespaces/s, {} KB/s", message, exportedNamespaces, export.skippedNamespaces.get(),
+        export.remainingProducers.get(), bytes, elapsedInMilli, exportedNamespaces * 1000 / elapsedInMilli,
+        bytes * 1000 / 1024 / elapsedInMilli);
+  }
+
+  /**
+   * The state of one export, shared by its producers and its writer.
+   */
+  private static class Export {
+    private final Date modifiedSince;
+    private final BlockingQueue<ConfigBO> queue;
+    private final AtomicInteger remainingProducers;
+    private final AtomicLong exportedNamespaces = new AtomicLong();
+    private final AtomicLong skippedNamespaces = new AtomicLong();
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+    private final long startTime = System.currentTimeMillis();
+    private volatile boolean aborted;
+
+    Export(Date modifiedSince, int queueCapacity, int producers) {
+      this.modifiedSince = modifiedSince;
+      this.queue = new ArrayBlockingQueue<>(queueCapacity);
+      this.remainingProducers = new AtomicInteger(producers);
+    }
+
+    /**
+     * wait until there is space in the queue.
+     *
+     * @return false if the export is aborted
+     */
+    boolean put(ConfigBO configBO) throws InterruptedException {
+      while (!aborted) {
+        if (queue.offer(configBO, POLL_TIMEOUT_IN_MILLI, TimeUnit.MILLISECONDS)) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    ConfigBO poll() {
+      try {
+        return queue.poll(POLL_TIMEOUT_IN_MILLI, TimeUnit.MILLISECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("config export interrupted", e);
+      }
+    }
+
+    void abort(Throwable cause) {
+      if (cause != null) {
+        failure.compareAndSet(null, cause);
+      }
+      aborted = true;
+    }
+
+    void checkFailure() {
+      Throwable cause = failure.get();
+      if (cause == null) {
+        return;
+      }
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw new IllegalStateException("config export failed", cause);
+    }
   }
 }
@@ -3,6 +3,7 @@ package com.ctrip.framework.apollo.portal.service;
 import com.ctrip.framework.apollo.common.constants.GsonType;
 import com.ctrip.framework.apollo.common.dto.ItemDTO;
 import com.ctrip.framework.apollo.common.dto.NamespaceDTO;
+import com.ctrip.framework.apollo.common.dto.NamespaceViewDTO;
 import com.ctrip.framework.apollo.common.dto.ReleaseDTO;
 import com.ctrip.framework.apollo.common.entity.AppNamespace;
 import com.ctrip.framework.apollo.common.exception.BadRequestException;
@@ -20,16 +21,20 @@ import com.ctrip.framework.apollo.portal.environment.Env;
 import com.ctrip.framework.apollo.portal.spi.UserInfoHolder;
 import com.ctrip.framework.apollo.portal.util.RoleUtils;
 import com.ctrip.framework.apollo.tracer.Tracer;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import com.google.gson.Gson;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.annotation.Lazy;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.client.HttpClientErrorException;
 
 import java.util.*;
+import java.util.stream.Collectors;
 
 @Service
 public class NamespaceService {
@@ -131,7 +136,56 @@ public class NamespaceService {
    * load cluster all namespace info with items
    */
   public List<NamespaceBO> findNamespaceBOs(String appId, Env env, String clusterName) {
+    List<NamespaceViewDTO> namespaceViews;
+    try {
+      namespaceViews = namespaceAPI.findNamespaceViews(appId, env, clusterName);
+    } catch (HttpClientErrorException e) {
+      if (e.getStatusCode() != HttpStatus.NOT_FOUND) {
+        throw e;
+      }
+      //the admin service is not upgraded yet, load the namespaces one by one
+      return findNamespaceBOsOneByOne(appId, env, clusterName);
+    }
+    if (namespaceViews == null || namespaceViews.isEmpty()) {
+      throw new BadRequestException("namespaces not exist");
+    }
+
+    //load the app namespaces of all the namespaces with one query, instead of one or two queries per namespace
+    Set<String> namespaceNames = namespaceViews.stream()
+        .map(namespaceView -> namespaceView.getNamespace().getNamespaceName()).collect(Collectors.toSet());
+    Map<String, AppNamespace> appNamespaces = Maps.newTreeMap(String.CASE_INSENSITIVE_ORDER);
+    Map<String, AppNamespace> publicAppNamespaces = Maps.newTreeMap(String.CASE_INSENSITIVE_ORDER);
+    for (AppNamespace appNamespace : appNamespaceService.findByAppIdOrPublicNames(appId, namespaceNames)) {
+      if (appId.equalsIgnoreCase(appNamespace.getAppId())) {
+        appNamespaces.put(appNamespace.getName(), appNamespace);
+      }
+      if (appNamespace.isPublic()) {
+        publicAppNamespaces.putIfAbsent(appNamespace.getName(), appNamespace);
+      }
+    }
 
+    List<NamespaceBO> namespaceBOs = Lists.newArrayListWithCapacity(namespaceViews.size());
+    for (NamespaceViewDTO namespaceView : namespaceViews) {
+      NamespaceDTO namespace = namespaceView.getNamespace();
+      String namespaceName = namespace.getNamespaceName();
+      AppNamespace appNamespace = appNamespaces.get(namespaceName);
+      if (appNamespace == null) {
+        appNamespace = publicAppNamespaces.get(namespaceName);
+      }
+      try {
+        namespaceBOs.add(transformNamespace2BO(namespace, appNamespace, namespaceView.getLatestRelease(),
+            namespaceView.getItems(), namespaceView.getDeletedItems()));
+      } catch (Exception e) {
+        logger.error("parse namespace error. app id:{}, env:{}, clusterName:{}, namespace:{}",
+            appId, env, clusterName, namespaceName, e);
+        throw e;
+      }
+    }
+
+    return namespaceBOs;
+  }
+
+  private List<NamespaceBO> findNamespaceBOsOneByOne(String appId, Env env, String clusterName) {
     List<NamespaceDTO> namespaces = namespaceAPI.findNamespaceByCluster(appId, env, clusterName);
     if (namespaces == null || namespaces.size() == 0) {
       throw new BadRequestException("namespaces not exist");
@@ -205,29 +259,38 @@ public class NamespaceService {
   }
 
   private NamespaceBO transformNamespace2BO(Env env, NamespaceDTO namespace) {
-    NamespaceBO namespaceBO = new NamespaceBO();
-    namespaceBO.setBaseInfo(namespace);
-
     String appId = namespace.getAppId();
     String clusterName = namespace.getClusterName();
     String namespaceName = namespace.getNamespaceName();
 
-    fillAppNamespaceProperties(namespaceBO);
+    ReleaseDTO latestRelease = releaseService.loadLatestRelease(appId, env, clusterName, namespaceName);
+    List<ItemDTO> items = itemService.findItems(appId, env, clusterName, namespaceName);
+    List<ItemDTO> deletedItems = itemService.findDeletedItems(appId, env, clusterName, namespaceName);
+
+    return transformNamespace2BO(namespace, findAppNamespace(namespace), latestRelease, items, deletedItems);
+  }
+
+  private NamespaceBO transformNamespace2BO(NamespaceDTO namespace, AppNamespace appNamespace,
+      ReleaseDTO latestRelease, List<ItemDTO> items, List<ItemDTO> deletedItems) {
+    NamespaceBO namespaceBO = new NamespaceBO();
+    namespaceBO.setBaseInfo(namespace);
+
+    fillAppNamespaceProperties(namespaceBO, appNamespace);
 
     List<ItemBO> itemBOs = new LinkedList<>();
     namespaceBO.setItems(itemBOs);
 
     //latest Release
-    ReleaseDTO latestRelease;
     Map<String, String> releaseItems = new HashMap<>();
     Map<String, ItemDTO> deletedItemDTOs = new HashMap<>();
-    latestRelease = releaseService.loadLatestRelease(appId, env, clusterName, namespaceName);
     if (latestRelease != null) {
       releaseItems = GSON.fromJson(latestRelease.getConfigurations(), GsonType.CONFIG);
     }
 
     //not Release config items
-    List<ItemDTO> items = itemService.findItems(appId, env, clusterName, namespaceName);
+    if (items == null) {
+      items = Collections.emptyList();
+    }
     int modifiedItemCnt = 0;
     for (ItemDTO itemDTO : items) {
 
@@ -241,33 +304,39 @@ public class NamespaceService {
     }
 
     //deleted items
-    itemService.findDeletedItems(appId, env, clusterName, namespaceName).forEach(item -> {
-      deletedItemDTOs.put(item.getKey(),item);
-    });
+    if (deletedItems != null) {
+      deletedItems.forEach(item -> {
+        deletedItemDTOs.put(item.getKey(),item);
+      });
+    }
 
-    List<ItemBO> deletedItems = parseDeletedItems(items, releaseItems, deletedItemDTOs);
-    itemBOs.addAll(deletedItems);
-    modifiedItemCnt += deletedItems.size();
+    List<ItemBO> deletedItemBOs = parseDeletedItems(items, releaseItems, deletedItemDTOs);
+    itemBOs.addAll(deletedItemBOs);
+    modifiedItemCnt += deletedItemBOs.size();
 
     namespaceBO.setItemModifiedCnt(modifiedItemCnt);
 
     return namespaceBO;
   }
 
-  private void fillAppNamespaceProperties(NamespaceBO namespace) {
-
-    final NamespaceDTO namespaceDTO = namespace.getBaseInfo();
-    final String appId = namespaceDTO.getAppId();
-    final String clusterName = namespaceDTO.getClusterName();
-    final String namespaceName = namespaceDTO.getNamespaceName();
+  private AppNamespace findAppNamespace(NamespaceDTO namespace) {
     //先从当前appId下面找,包含私有的和公共的
     AppNamespace appNamespace =
         appNamespaceService
-            .findByAppIdAndName(appId, namespaceName);
+            .findByAppIdAndName(namespace.getAppId(), namespace.getNamespaceName());
     //再从公共的app namespace里面找
     if (appNamespace == null) {
-      appNamespace = appNamespaceService.findPublicAppNamespace(namespaceName);
+      appNamespace = appNamespaceService.findPublicAppNamespace(namespace.getNamespaceName());
     }
+    return appNamespace;
+  }
+
+  private void fillAppNamespaceProperties(NamespaceBO namespace, AppNamespace appNamespace) {
+
+    final NamespaceDTO namespaceDTO = namespace.getBaseInfo();
+    final String appId = namespaceDTO.getAppId();
+    final String clusterName = namespaceDTO.getClusterName();
+    final String namespaceName = namespaceDTO.getNamespaceName();
 
     final String format;
     final boolean isPublic;
@@ -4,6 +4,7 @@ import com.ctrip.framework.apollo.portal.service.RoleInitializationService;
 import com.ctrip.framework.apollo.portal.service.RolePermissionService;
 import com.ctrip.framework.apollo.portal.spi.defaultimpl.DefaultRoleInitializationService;
 import com.ctrip.framework.apollo.portal.spi.defaultimpl.DefaultRolePermissionService;
+import com.ctrip.framework.apollo.portal.spi.defaultimpl.RolePermissionIndex;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -21,4 +22,9 @@ public class RoleConfiguration {
     public RolePermissionService rolePermissionService() {
         return new DefaultRolePermissionService();
     }
+
+    @Bean
+    public RolePermissionIndex rolePermissionIndex() {
+        return new RolePermissionIndex();
+    }
 }
@@ -45,6 +45,8 @@ public class DefaultRolePermissionService implements RolePermissionService {
     private PortalConfig portalConfig;
     @Autowired
     private ConsumerRoleRepository consumerRoleRepository;
+    @Autowired
+    private RolePermissionIndex rolePermissionIndex;
 
     /**
      * Create role with permissions, note that role name should be unique
@@ -66,6 +68,7 @@ public class DefaultRolePermissionService implements RolePermissionService {
                 return rolePermission;
             }).collect(Collectors.toList());
             rolePermissionRepository.saveAll(rolePermissions);
+            rolePermissionIndex.onRolePermissionsCreated(createdRole.getId(), permissionIds);
         }
 
         return createdRole;
@@ -99,6 +102,7 @@ public class DefaultRolePermissionService implements RolePermissionService {
         }).collect(Collectors.toList());
 
         userRoleRepository.saveAll(toCreate);
+        rolePermissionIndex.onUserRolesAssigned(role.getId(), toAssignUserIds);
         return toAssignUserIds;
     }
 
@@ -120,6 +124,8 @@ public class DefaultRolePermissionService implements RolePermissionService {
         }
 
         userRoleRepository.saveAll(existedUserRoles);
+        rolePermissionIndex.onUserRolesRemoved(role.getId(),
+            existedUserRoles.stream().map(UserRole::getUserId).collect(Collectors.toList()));
     }
 
     /**
@@ -154,6 +160,14 @@ public class DefaultRolePermissionService implements RolePermissionService {
      * Check whether user has the permission
      */
     public boolean userHasPermission(String userId, String permissionType, String targetId) {
+        if (rolePermissionIndex.isEnabled()) {
+            Long permissionId = rolePermissionIndex.findPermissionId(permissionType, targetId);
+            if (permissionId == null) {
+                return false;
+            }
+            return isSuperAdmin(userId) || rolePermissionIndex.userHasPermission(userId, permissionId);
+        }
+
         Permission permission =
                 permissionRepository.findTopByPermissionTypeAndTargetId(permissionType, targetId);
         if (permission == null) {
@@ -213,7 +227,9 @@ public class DefaultRolePermissionService implements RolePermissionService {
         Preconditions.checkState(current == null,
                 "Permission with permissionType %s targetId %s already exists!", permissionType, targetId);
 
-        return permissionRepository.save(permission);
+        Permission createdPermission = permissionRepository.save(permission);
+        rolePermissionIndex.onPermissionsCreated(Collections.singleton(createdPermission));
+        return createdPermission;
     }
 
     /**
@@ -236,7 +252,10 @@ public class DefaultRolePermissionService implements RolePermissionService {
         }
 
         Iterable<Permission> results = permissionRepository.saveAll(permissions);
-        return StreamSupport.stream(results.spliterator(), false).collect(Collectors.toSet());
+        Set<Permission> createdPermissions =
+            StreamSupport.stream(results.spliterator(), false).collect(Collectors.toSet());
+        rolePermissionIndex.onPermissionsCreated(createdPermissions);
+        return createdPermissions;
     }
 
     @Transactional
@@ -250,6 +269,8 @@ public class DefaultRolePermissionService implements RolePermissionService {
 
             // 2. delete Role Permission
             rolePermissionRepository.batchDeleteByPermissionIds(permissionIds, operator);
+
+            rolePermissionIndex.onPermissionsDeleted(permissionIds);
         }
 
         List<Long> roleIds = roleRepository.findRoleIdsByAppId(appId);
@@ -263,6 +284,8 @@ public class DefaultRolePermissionService implements RolePermissionService {
 
             // 5. delete Consumer Role
             consumerRoleRepository.batchDeleteByRoleIds(roleIds, operator);
+
+            rolePermissionIndex.onRolesDeleted(roleIds);
         }
     }
 
@@ -277,6 +300,8 @@ public class DefaultRolePermissionService implements RolePermissionService {
 
             // 2. delete Role Permission
             rolePermissionRepository.batchDeleteByPermissionIds(permissionIds, operator);
+
+            rolePermissionIndex.onPermissionsDeleted(permissionIds);
         }
 
         List<Long> roleIds = roleRepository.findRoleIdsByAppIdAndNamespace(appId, namespaceName);
@@ -290,6 +315,8 @@ public class DefaultRolePermissionService implements RolePermissionService {
 
             // 5. delete Consumer Role
             consumerRoleRepository.batchDeleteByRoleIds(roleIds, operator);
+
+            rolePermissionIndex.onRolesDeleted(roleIds);
         }
     }
 }
@@ -0,0 +1,342 @@
+package com.ctrip.framework.apollo.portal.spi.defaultimpl;
+
+import com.ctrip.framework.apollo.common.entity.BaseEntity;
+import com.ctrip.framework.apollo.core.utils.ApolloThreadFactory;
+import com.ctrip.framework.apollo.portal.component.config.PortalConfig;
+import com.ctrip.framework.apollo.portal.entity.po.Permission;
+import com.ctrip.framework.apollo.portal.entity.po.RolePermission;
+import com.ctrip.framework.apollo.portal.entity.po.UserRole;
+import com.ctrip.framework.apollo.portal.repository.PermissionRepository;
+import com.ctrip.framework.apollo.portal.repository.RolePermissionRepository;
+import com.ctrip.framework.apollo.portal.repository.UserRoleRepository;
+import com.ctrip.framework.apollo.tracer.Tracer;
+import com.ctrip.framework.apollo.tracer.spi.Transaction;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory index of the permissions, role permissions and user roles, so that permission checks do not query the
+ * database.
+ *
+ * <p>The changes made by this portal are applied incrementally after their transactions commit. The changes made by
+ * the other portals are found by scanning the rows modified since the last scan, including the deleted ones, and only
+ * those rows are applied. The scan re-reads the rows of the last few seconds, as the modified time is in seconds and a
+ * transaction may commit after its rows are stamped. Applying a row again is harmless. The whole index is still
+ * rebuilt periodically in case some change is missed anyway.</p>
+ *
+ * <p>User ids, permission types and target ids are case insensitive, same as the database.</p>
+ */
+public class RolePermissionIndex implements InitializingBean, DisposableBean {
+  private static final Logger logger = LoggerFactory.getLogger(RolePermissionIndex.class);
+  private static final String TRANSACTION_TYPE = "Apollo.RolePermissionIndex";
+  private static final char PERMISSION_KEY_SEPARATOR = '\u0000';
+  private static final long SCAN_LOOKBACK_IN_MILLI = TimeUnit.SECONDS.toMillis(5);
+
+  @Autowired
+  private PermissionRepository permissionRepository;
+  @Autowired
+  private RolePermissionRepository rolePermissionRepository;
+  @Autowired
+  private UserRoleRepository userRoleRepository;
+  @Autowired
+  private PortalConfig portalConfig;
+
+  private volatile boolean enabled;
+  private volatile Index index = new Index();
+  //the max modified time of the rows applied, guarded by this
+  private Date permissionWatermark;
+  private Date rolePermissionWatermark;
+  private Date userRoleWatermark;
+  private ScheduledExecutorService scheduledExecutorService;
+
+  @Override
+  public void afterPropertiesSet() {
+    enabled = portalConfig.isPermissionIndexEnabled();
+    if (!enabled) {
+      return;
+    }
+    //block the startup process until the index is built
+    rebuild("initialize");
+
+    int scanInterval = portalConfig.permissionIndexScanIntervalInSecond();
+    int rebuildInterval = portalConfig.permissionIndexRebuildIntervalInSecond();
+    scheduledExecutorService = Executors.newScheduledThreadPool(1, ApolloThreadFactory
+        .create("RolePermissionIndex", true));
+    scheduledExecutorService.scheduleWithFixedDelay(this::scanChanges, scanInterval, scanInterval,
+        TimeUnit.SECONDS);
+    scheduledExecutorService.scheduleWithFixedDelay(() -> rebuild("rebuild"), rebuildInterval,
+        rebuildInterval, TimeUnit.SECONDS);
+  }
+
+  @Override
+  public void destroy() {
+    if (scheduledExecutorService != null) {
+      scheduledExecutorService.shutdownNow();
+    }
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * @return the id of the permission, or null if the permission doesn't exist
+   */
+  public Long findPermissionId(String permissionType, String targetId) {
+    return index.permissions.get(permissionKey(permissionType, targetId));
+  }
+
+  public boolean userHasPermission(String userId, long permissionId) {
+    Index current = index;
+    Set<Long> roleIds = current.userRoles.get(normalize(userId));
+    if (roleIds == null) {
+      return false;
+    }
+    for (Long roleId : roleIds) {
+      Set<Long> permissionIds = current.rolePermissions.get(roleId);
+      if (permissionIds != null && permissionIds.contains(permissionId)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  public void onPermissionsCreated(Collection<Permission> permissions) {
+    afterCommit(() -> {
+      for (Permission permission : permissions) {
+        index.permissions.put(permissionKey(permission.getPermissionType(), permission.getTargetId()),
+            permission.getId());
+      }
+    });
+  }
+
+  public void onRolePermissionsCreated(long roleId, Collection<Long> permissionIds) {
+    afterCommit(() -> add(index.rolePermissions, roleId, permissionIds));
+  }
+
+  public void onUserRolesAssigned(long roleId, Collection<String> userIds) {
+    afterCommit(() -> {
+      for (String userId : userIds) {
+        add(index.userRoles, normalize(userId), ImmutableSet.of(roleId));
+      }
+    });
+  }
+
+  public void onUserRolesRemoved(long roleId, Collection<String> userIds) {
+    afterCommit(() -> {
+      for (String userId : userIds) {
+        remove(index.userRoles, normalize(userId), roleId);
+      }
+    });
+  }
+
+  /**
+   * The roles of the deleted permissions are left to the next rebuild, as they could not be used without the
+   * permissions.
+   */
+  public void onPermissionsDeleted(Collection<Long> permissionIds) {
+    Set<Long> deleted = ImmutableSet.copyOf(permissionIds);
+    afterCommit(() -> index.permissions.values().removeIf(deleted::contains));
+  }
+
+  /**
+   * The user roles of the deleted roles are left to the next rebuild, as they could not be used without the role
+   * permissions.
+   */
+  public void onRolesDeleted(Collection<Long> roleIds) {
+    afterCommit(() -> index.rolePermissions.keySet().removeAll(roleIds));
+  }
+
+  private void afterCommit(Runnable change) {
+    if (!enabled) {
+      return;
+    }
+    Runnable synchronizedChange = () -> {
+      synchronized (this) {
+        change.run();
+      }
+    };
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      synchronizedChange.run();
+      return;
+    }
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+      @Override
+      public void afterCommit() {
+        synchronizedChange.run();
+      }
+    });
+  }
+
+  /**
+   * Apply the rows modified since the last scan. The deleted rows remove their entries, unless the same entry is
+   * added back by another row of the same scan.
+   */
+  private synchronized void scanChanges() {
+    try {
+      List<Permission> permissions = permissionRepository.findModifiedSince(scanFrom(permissionWatermark));
+      List<RolePermission> rolePermissions =
+          rolePermissionRepository.findModifiedSince(scanFrom(rolePermissionWatermark));
+      List<UserRole> userRoles = userRoleRepository.findModifiedSince(scanFrom(userRoleWatermark));
+
+      // the rows are in the order of modification, so a permission deleted and created again ends up created
+      for (Permission permission : permissions) {
+        String key = permissionKey(permission.getPermissionType(), permission.getTargetId());
+        if (permission.isDeleted()) {
+          index.permissions.remove(key, permission.getId());
+        } else {
+          index.permissions.put(key, permission.getId());
+        }
+      }
+
+      Map<Long, Map<Long, Boolean>> rolePermissionChanges = Maps.newHashMap();
+      for (RolePermission rolePermission : rolePermissions) {
+        rolePermissionChanges.computeIfAbsent(rolePermission.getRoleId(), key -> Maps.newHashMap())
+            .merge(rolePermission.getPermissionId(), !rolePermission.isDeleted(), Boolean::logicalOr);
+      }
+      rolePermissionChanges.forEach((roleId, changes) -> apply(index.rolePermissions, roleId, changes));
+
+      Map<String, Map<Long, Boolean>> userRoleChanges = Maps.newHashMap();
+      for (UserRole userRole : userRoles) {
+        userRoleChanges.computeIfAbsent(normalize(userRole.getUserId()), key -> Maps.newHashMap())
+            .merge(userRole.getRoleId(), !userRole.isDeleted(), Boolean::logicalOr);
+      }
+      userRoleChanges.forEach((userId, changes) -> apply(index.userRoles, userId, changes));
+
+      permissionWatermark = maxModifiedTime(permissionWatermark, permissions);
+      rolePermissionWatermark = maxModifiedTime(rolePermissionWatermark, rolePermissions);
+      userRoleWatermark = maxModifiedTime(userRoleWatermark, userRoles);
+
+      if (!permissions.isEmpty() || !rolePermissions.isEmpty() || !userRoles.isEmpty()) {
+        logger.debug("Role permission changes applied, permissions: {}, role permissions: {}, user roles: {}",
+            permissions.size(), rolePermissions.size(), userRoles.size());
+      }
+    } catch (Throwable ex) {
+      Tracer.logError(ex);
+      logger.error("Scan role permission changes failed", ex);
+    }
+  }
+
+  /**
+   * The changes committed while rebuilding wait for the lock, and are applied to the rebuilt index.
+   */
+  private synchronized void rebuild(String name) {
+    Transaction transaction = Tracer.newTransaction(TRANSACTION_TYPE, name);
+    try {
+      // read the last modified times first, so that the changes made while rebuilding are found by the next scan
+      Date currentPermissionWatermark = permissionRepository.findLastModifiedTime();
+      Date currentRolePermissionWatermark = rolePermissionRepository.findLastModifiedTime();
+      Date currentUserRoleWatermark = userRoleRepository.findLastModifiedTime();
+
+      Index rebuilt = new Index();
+      for (Permission permission : permissionRepository.findAll()) {
+        rebuilt.permissions.put(permissionKey(permission.getPermissionType(), permission.getTargetId()),
+            permission.getId());
+      }
+
+      Map<Long, Set<Long>> rolePermissions = Maps.newHashMap();
+      for (RolePermission rolePermission : rolePermissionRepository.findAll()) {
+        rolePermissions.computeIfAbsent(rolePermission.getRoleId(), key -> Sets.newHashSet())
+            .add(rolePermission.getPermissionId());
+      }
+      rolePermissions.forEach((roleId, permissionIds) ->
+          rebuilt.rolePermissions.put(roleId, ImmutableSet.copyOf(permissionIds)));
+
+      Map<String, Set<Long>> userRoles = Maps.newHashMap();
+      for (UserRole userRole : userRoleRepository.findAll()) {
+        userRoles.computeIfAbsent(normalize(userRole.getUserId()), key -> Sets.newHashSet())
+            .add(userRole.getRoleId());
+      }
+      userRoles.forEach((userId, roleIds) -> rebuilt.userRoles.put(userId, ImmutableSet.copyOf(roleIds)));
+
+      index = rebuilt;
+      permissionWatermark = currentPermissionWatermark;
+      rolePermissionWatermark = currentRolePermissionWatermark;
+      userRoleWatermark = currentUserRoleWatermark;
+      logger.debug("Role permission index rebuilt, permissions: {}, roles: {}, users: {}",
+          rebuilt.permissions.size(), rebuilt.rolePermissions.size(), rebuilt.userRoles.size());
+      transaction.setStatus(Transaction.SUCCESS);
+    } catch (Throwable ex) {
+      transaction.setStatus(ex);
+      logger.error("Rebuild role permission index failed", ex);
+    } finally {
+      transaction.complete();
+    }
+  }
+
+  private static Date scanFrom(Date watermark) {
+    return watermark == null ? new Date(0) : new Date(watermark.getTime() - SCAN_LOOKBACK_IN_MILLI);
+  }
+
+  private static Date maxModifiedTime(Date watermark, List<? extends BaseEntity> rows) {
+    Date max = watermark;
+    for (BaseEntity row : rows) {
+      Date modifiedTime = row.getDataChangeLastModifiedTime();
+      if (modifiedTime != null && (max == null || modifiedTime.after(max))) {
+        max = modifiedTime;
+      }
+    }
+    return max;
+  }
+
+  private static <K> void add(ConcurrentMap<K, Set<Long>> map, K key, Collection<Long> values) {
+    map.merge(key, ImmutableSet.copyOf(values),
+        (existing, added) -> ImmutableSet.<Long>builder().addAll(existing).addAll(added).build());
+  }
+
+  private static <K> void remove(ConcurrentMap<K, Set<Long>> map, K key, Long value) {
+    map.computeIfPresent(key, (k, existing) -> {
+      Set<Long> remaining = ImmutableSet.copyOf(Sets.difference(existing, ImmutableSet.of(value)));
+      return remaining.isEmpty() ? null : remaining;
+    });
+  }
+
+  /**
+   * @param changes value -> whether the value exists
+   */
+  private static <K> void apply(ConcurrentMap<K, Set<Long>> map, K key, Map<Long, Boolean> changes) {
+    changes.forEach((value, exists) -> {
+      if (exists) {
+        add(map, key, ImmutableSet.of(value));
+      } else {
+        remove(map, key, value);
+      }
+    });
+  }
+
+  private static String permissionKey(String permissionType, String targetId) {
+    return normalize(permissionType) + PERMISSION_KEY_SEPARATOR + normalize(targetId);
+  }
+
+  private static String normalize(String value) {
+    return value == null ? "" : value.toLowerCase(Locale.ROOT);
+  }
+
+  private static class Index {
+    //store permissionType + targetId -> permission id
+    private final ConcurrentMap<String, Long> permissions = Maps.newConcurrentMap();
+    //store role id -> permission ids
+    private final ConcurrentMap<Long, Set<Long>> rolePermissions = Maps.newConcurrentMap();
+    //store user id -> role ids
+    private final ConcurrentMap<String, Set<Long>> userRoles = Maps.newConcurrentMap();
+  }
+}
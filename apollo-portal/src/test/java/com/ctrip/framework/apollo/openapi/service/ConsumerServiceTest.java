@@ -20,6 +20,8 @@ import org.junit.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Spy;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.util.Calendar;
 import java.util.Date;
@@ -84,6 +86,82 @@ public class ConsumerServiceTest extends AbstractUnitTest {
                                                                                                 .class));
   }
 
+  @Test
+  public void testGetConsumerIdWithCache() throws Exception {
+    String someToken = "someToken";
+    String someInvalidToken = "someInvalidToken";
+    long someConsumerId = 1;
+    ConsumerToken someConsumerToken = new ConsumerToken();
+    someConsumerToken.setConsumerId(someConsumerId);
+    someConsumerToken.setToken(someToken);
+    someConsumerToken.setExpires(new Date(System.currentTimeMillis() + 60000));
+
+    when(portalConfig.isConsumerTokenCacheEnabled()).thenReturn(true);
+    when(portalConfig.consumerTokenCacheExpireInSecond()).thenReturn(60);
+    when(portalConfig.consumerTokenNegativeCacheExpireInSecond()).thenReturn(60);
+    when(consumerTokenRepository.findTopByTokenAndExpiresAfter(eq(someToken), any(Date.class)))
+        .thenReturn(someConsumerToken);
+    ConsumerService consumerServiceWithCache = new ConsumerService(userInfoHolder, consumerTokenRepository,
+        consumerRepository, null, consumerRoleRepository, portalConfig, rolePermissionService, userService);
+
+    assertEquals(someConsumerId, consumerServiceWithCache.getConsumerIdByToken(someToken).longValue());
+    assertEquals(someConsumerId, consumerServiceWithCache.getConsumerIdByToken(someToken).longValue());
+    assertNull(consumerServiceWithCache.getConsumerIdByToken(someInvalidToken));
+    assertNull(consumerServiceWithCache.getConsumerIdByToken(someInvalidToken));
+
+    verify(consumerTokenRepository, times(1)).findTopByTokenAndExpiresAfter(eq(someToken), any(Date.class));
+    verify(consumerTokenRepository, times(1)).findTopByTokenAndExpiresAfter(eq(someInvalidToken), any(Date.class));
+
+    consumerServiceWithCache.invalidateConsumerToken(someInvalidToken);
+    someConsumerToken.setExpires(new Date(System.currentTimeMillis() - 1));
+
+    assertNull(consumerServiceWithCache.getConsumerIdByToken(someInvalidToken));
+    verify(consumerTokenRepository, times(2)).findTopByTokenAndExpiresAfter(eq(someInvalidToken), any(Date.class));
+
+    // the cached token expires, and the database doesn't return it any more
+    when(consumerTokenRepository.findTopByTokenAndExpiresAfter(eq(someToken), any(Date.class))).thenReturn(null);
+    assertNull(consumerServiceWithCache.getConsumerIdByToken(someToken));
+  }
+
+  @Test
+  public void testInvalidateConsumerTokenAfterCommit() throws Exception {
+    String someToken = "someToken";
+    long someConsumerId = 1;
+    ConsumerToken someConsumerToken = new ConsumerToken();
+    someConsumerToken.setConsumerId(someConsumerId);
+    someConsumerToken.setToken(someToken);
+    someConsumerToken.setExpires(new Date(System.currentTimeMillis() + 60000));
+
+    when(portalConfig.isConsumerTokenCacheEnabled()).thenReturn(true);
+    when(portalConfig.consumerTokenCacheExpireInSecond()).thenReturn(60);
+    when(portalConfig.consumerTokenNegativeCacheExpireInSecond()).thenReturn(60);
+    when(consumerTokenRepository.findTopByTokenAndExpiresAfter(eq(someToken), any(Date.class)))
+        .thenReturn(someConsumerToken);
+    ConsumerService consumerServiceWithCache = new ConsumerService(userInfoHolder, consumerTokenRepository,
+        consumerRepository, null, consumerRoleRepository, portalConfig, rolePermissionService, userService);
+
+    assertEquals(someConsumerId, consumerServiceWithCache.getConsumerIdByToken(someToken).longValue());
+
+    TransactionSynchronizationManager.initSynchronization();
+    try {
+      consumerServiceWithCache.invalidateConsumerToken(someToken);
+
+      // not committed yet, so the cached token is still used
+      assertEquals(someConsumerId, consumerServiceWithCache.getConsumerIdByToken(someToken).longValue());
+      verify(consumerTokenRepository, times(1)).findTopByTokenAndExpiresAfter(eq(someToken), any(Date.class));
+
+      for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+        synchronization.afterCommit();
+      }
+    } finally {
+      TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    when(consumerTokenRepository.findTopByTokenAndExpiresAfter(eq(someToken), any(Date.class))).thenReturn(null);
+    assertNull(consumerServiceWithCache.getConsumerIdByToken(someToken));
+    verify(consumerTokenRepository, times(2)).findTopByTokenAndExpiresAfter(eq(someToken), any(Date.class));
+  }
+
   @Test
   public void testGetConsumerByConsumerId() throws Exception {
     long someConsumerId = 1;
@@ -0,0 +1,205 @@
+package com.ctrip.framework.apollo.portal.component;
+
+import com.ctrip.framework.apollo.portal.AbstractUnitTest;
+import com.ctrip.framework.apollo.portal.component.config.PortalConfig;
+import com.ctrip.framework.apollo.portal.entity.bo.ReleaseHistoryBO;
+import com.ctrip.framework.apollo.portal.environment.Env;
+import com.google.common.collect.Lists;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.springframework.boot.autoconfigure.http.HttpMessageConverters;
+import org.springframework.http.HttpEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+public class ConfigReleaseWebhookNotifierTest extends AbstractUnitTest {
+  @Mock
+  private PortalConfig portalConfig;
+  @Mock
+  private RestTemplate restTemplate;
+
+  private ConfigReleaseWebhookNotifier notifier;
+
+  private String someUrl;
+  private String anotherUrl;
+  private Env someEnv;
+  private List<String> deliveries;
+
+  @Before
+  public void setUp() throws Exception {
+    when(portalConfig.webHookDeliveryThreads()).thenReturn(2);
+    when(portalConfig.webHookMaxConcurrencyPerUrl()).thenReturn(1);
+    when(portalConfig.webHookMaxPendingPerUrl()).thenReturn(10);
+    when(portalConfig.webHookMaxRetries()).thenReturn(2);
+    when(portalConfig.webHookRetryInitialDelayInMilli()).thenReturn(100);
+    when(portalConfig.webHookConnectTimeout()).thenReturn(1000);
+    when(portalConfig.webHookReadTimeout()).thenReturn(1000);
+
+    someUrl = "http://someUrl";
+    anotherUrl = "http://anotherUrl";
+    someEnv = Env.DEV;
+    deliveries = Collections.synchronizedList(Lists.newArrayList());
+
+    notifier = new ConfigReleaseWebhookNotifier(new HttpMessageConverters(), portalConfig);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    notifier.destroy();
+  }
+
+  @Test
+  public void testNotify() throws Exception {
+    mockDelivery(someUrl, null, null);
+    mockDelivery(anotherUrl, null, null);
+    start();
+
+    notifier.notify(new String[]{someUrl, anotherUrl}, someEnv, assembleReleaseHistory(1));
+
+    await().atMost(5, TimeUnit.SECONDS).untilAsserted(() -> assertEquals(2, deliveries.size()));
+    assertTrue(deliveries.contains(someUrl + "#1"));
+    assertTrue(deliveries.contains(anotherUrl + "#1"));
+  }
+
+  @Test
+  public void testRetryWithBackoff() throws Exception {
+    AtomicInteger failures = new AtomicInteger(2);
+    mockDelivery(someUrl, failures, null);
+    start();
+
+    long start = System.currentTimeMillis();
+    notifier.notify(new String[]{someUrl}, someEnv, assembleReleaseHistory(1));
+
+    await().atMost(5, TimeUnit.SECONDS).untilAsserted(() -> assertEquals(3, deliveries.size()));
+    //retried after 100 ms and then 200 ms
+    assertTrue(System.currentTimeMillis() - start >= 300);
+  }
+
+  @Test
+  public void testGiveUpAfterMaxRetries() throws Exception {
+    mockDelivery(someUrl, new AtomicInteger(Integer.MAX_VALUE), null);
+    start();
+
+    notifier.notify(new String[]{someUrl}, someEnv, assembleReleaseHistory(1));
+
+    await().atMost(5, TimeUnit.SECONDS).untilAsserted(() -> assertEquals(3, deliveries.size()));
+    TimeUnit.MILLISECONDS.sleep(800);
+    assertEquals(3, deliveries.size());
+  }
+
+  @Test
+  public void testRetryKeepsOrder() throws Exception {
+    mockDelivery(someUrl, new AtomicInteger(1), null);
+    start();
+
+    notifier.notify(new String[]{someUrl}, someEnv, assembleReleaseHistory(1));
+    notifier.notify(new String[]{someUrl}, someEnv, assembleReleaseHistory(2));
+
+    await().atMost(5, TimeUnit.SECONDS).untilAsserted(() -> assertEquals(3, deliveries.size()));
+    assertEquals(Lists.newArrayList(someUrl + "#1", someUrl + "#1", someUrl + "#2"), deliveries);
+  }
+
+  @Test
+  public void testMaxPendingPerUrl() throws Exception {
+    CountDownLatch blocker = new CountDownLatch(1);
+    mockDelivery(someUrl, null, blocker);
+    start();
+
+    //the first one is being delivered, the next 10 are pending and the rest are dropped
+    notifier.notify(new String[]{someUrl}, someEnv, assembleReleaseHistory(1));
+    await().atMost(5, TimeUnit.SECONDS).untilAsserted(() -> assertEquals(1, deliveries.size()));
+    for (int i = 2; i <= 20; i++) {
+      notifier.notify(new String[]{someUrl}, someEnv, assembleReleaseHistory(i));
+    }
+    blocker.countDown();
+
+    await().atMost(5, TimeUnit.SECONDS).untilAsserted(() -> assertEquals(11, deliveries.size()));
+    TimeUnit.MILLISECONDS.sleep(200);
+    assertEquals(11, deliveries.size());
+    assertEquals(someUrl + "#11", deliveries.get(10));
+  }
+
+  @Test
+  public void testSlowUrlDoesNotStarveOthers() throws Exception {
+    when(portalConfig.webHookMaxConcurrencyPerUrl()).thenReturn(2);
+    when(restTemplate.postForObject(eq(someUrl + "?env={env}"), any(HttpEntity.class), eq(String.class),
+        any(Env.class))).thenAnswer(invocation -> {
+      HttpEntity<ReleaseHistoryBO> entity = invocation.getArgument(1);
+      deliveries.add(someUrl + "#" + entity.getBody().getId());
+      TimeUnit.MILLISECONDS.sleep(200);
+      return "";
+    });
+    mockDelivery(anotherUrl, null, null);
+    start();
+
+    for (int i = 1; i <= 5; i++) {
+      notifier.notify(new String[]{someUrl}, someEnv, assembleReleaseHistory(i));
+    }
+    notifier.notify(new String[]{anotherUrl}, someEnv, assembleReleaseHistory(1));
+
+    //the slow url holds both delivery threads, the other url takes the next turn instead of the slow url's backlog
+    await().atMost(5, TimeUnit.SECONDS).untilAsserted(() -> assertEquals(6, deliveries.size()));
+    assertTrue(deliveries.indexOf(anotherUrl + "#1") < deliveries.indexOf(someUrl + "#4"));
+  }
+
+  @Test
+  public void testDestroy() throws Exception {
+    CountDownLatch blocker = new CountDownLatch(1);
+    mockDelivery(someUrl, null, blocker);
+    start();
+
+    notifier.notify(new String[]{someUrl}, someEnv, assembleReleaseHistory(1));
+    await().atMost(5, TimeUnit.SECONDS).untilAsserted(() -> assertEquals(1, deliveries.size()));
+    notifier.notify(new String[]{someUrl}, someEnv, assembleReleaseHistory(2));
+
+    notifier.destroy();
+    blocker.countDown();
+    notifier.notify(new String[]{someUrl}, someEnv, assembleReleaseHistory(3));
+
+    TimeUnit.MILLISECONDS.sleep(200);
+    assertEquals(Lists.newArrayList(someUrl + "#1"), deliveries);
+  }
+
+  private void start() {
+    notifier.init();
+    ReflectionTestUtils.setField(notifier, "restTemplate", restTemplate);
+  }
+
+  private void mockDelivery(String url, AtomicInteger failures, CountDownLatch blocker) {
+    when(restTemplate.postForObject(eq(url + "?env={env}"), any(HttpEntity.class), eq(String.class), any(Env.class)))
+        .thenAnswer(invocation -> {
+          HttpEntity<ReleaseHistoryBO> entity = invocation.getArgument(1);
+          deliveries.add(url + "#" + entity.getBody().getId());
+          if (blocker != null) {
+            blocker.await(5, TimeUnit.SECONDS);
+          }
+          if (failures != null && failures.getAndDecrement() > 0) {
+            throw new ResourceAccessException("timeout");
+          }
+          return "";
+        });
+  }
+
+  private ReleaseHistoryBO assembleReleaseHistory(long id) {
+    ReleaseHistoryBO releaseHistory = new ReleaseHistoryBO();
+    releaseHistory.setId(id);
+    return releaseHistory;
+  }
+}
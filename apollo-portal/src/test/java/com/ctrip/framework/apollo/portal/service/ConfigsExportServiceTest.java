@@ -0,0 +1,262 @@
+package com.ctrip.framework.apollo.portal.service;
+
+import com.ctrip.framework.apollo.common.dto.ClusterDTO;
+import com.ctrip.framework.apollo.common.dto.ItemDTO;
+import com.ctrip.framework.apollo.common.dto.NamespaceDTO;
+import com.ctrip.framework.apollo.common.entity.App;
+import com.ctrip.framework.apollo.common.exception.BadRequestException;
+import com.ctrip.framework.apollo.core.enums.ConfigFileFormat;
+import com.ctrip.framework.apollo.portal.AbstractUnitTest;
+import com.ctrip.framework.apollo.portal.component.PermissionValidator;
+import com.ctrip.framework.apollo.portal.component.PortalSettings;
+import com.ctrip.framework.apollo.portal.component.config.PortalConfig;
+import com.ctrip.framework.apollo.portal.entity.bo.ItemBO;
+import com.ctrip.framework.apollo.portal.entity.bo.NamespaceBO;
+import com.ctrip.framework.apollo.portal.environment.Env;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+public class ConfigsExportServiceTest extends AbstractUnitTest {
+  private static final String SOME_OWNER = "someOwner";
+  private static final String SOME_CLUSTER = "default";
+
+  @Mock
+  private AppService appService;
+  @Mock
+  private ClusterService clusterService;
+  @Mock
+  private NamespaceService namespaceService;
+  @Mock
+  private PortalSettings portalSettings;
+  @Mock
+  private PermissionValidator permissionValidator;
+  @Mock
+  private PortalConfig portalConfig;
+
+  private ConfigsExportService configsExportService;
+
+  private Date someTime;
+
+  @Before
+  public void setUp() throws Exception {
+    when(portalConfig.configExportThreads()).thenReturn(2);
+    // a small queue, so that the producers have to wait for the writer
+    when(portalConfig.configExportQueueCapacity()).thenReturn(1);
+    when(portalConfig.configExportProgressInterval()).thenReturn(1);
+    when(portalConfig.configExportMaxConcurrent()).thenReturn(2);
+
+    configsExportService = new ConfigsExportService(appService, clusterService, namespaceService, portalSettings,
+        permissionValidator, portalConfig);
+
+    someTime = new Date();
+    Date someEarlierTime = new Date(someTime.getTime() - 10000);
+    Date someLaterTime = new Date(someTime.getTime() + 10000);
+
+    when(portalSettings.getActiveEnvs()).thenReturn(Lists.newArrayList(Env.DEV, Env.FAT));
+    when(appService.findAll()).thenReturn(Lists.newArrayList(assembleApp("app1"), assembleApp("app2"),
+        assembleApp("noPermissionApp")));
+    when(permissionValidator.isAppAdmin(anyString())).thenReturn(true);
+    when(permissionValidator.isAppAdmin("noPermissionApp")).thenReturn(false);
+    when(clusterService.findClusters(any(Env.class), anyString()))
+        .thenReturn(Collections.singletonList(assembleCluster(SOME_CLUSTER)));
+    when(namespaceService.findNamespaceBOs(anyString(), any(Env.class), eq(SOME_CLUSTER))).thenReturn(
+        Lists.newArrayList(assembleNamespaceBO("application", someEarlierTime, someEarlierTime),
+            assembleNamespaceBO("modifiedNamespace", someEarlierTime, someLaterTime)));
+  }
+
+  @Test
+  public void testExportAll() throws Exception {
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+    configsExportService.exportAllTo(outputStream);
+
+    Set<String> entries = readEntries(outputStream.toByteArray());
+    assertEquals(8, entries.size());
+    assertTrue(entries.contains(filePath("app1", Env.DEV, "application")));
+    assertTrue(entries.contains(filePath("app2", Env.FAT, "modifiedNamespace")));
+  }
+
+  @Test
+  public void testExportModifiedSince() throws Exception {
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+    configsExportService.exportAllTo(outputStream, someTime);
+
+    assertEquals(Sets.newHashSet(
+        filePath("app1", Env.DEV, "modifiedNamespace"), filePath("app1", Env.FAT, "modifiedNamespace"),
+        filePath("app2", Env.DEV, "modifiedNamespace"), filePath("app2", Env.FAT, "modifiedNamespace")),
+        readEntries(outputStream.toByteArray()));
+  }
+
+  @Test
+  public void testStalledExportDoesNotBlockOthers() throws Exception {
+    CountDownLatch stalled = new CountDownLatch(1);
+    CountDownLatch released = new CountDownLatch(1);
+    OutputStream stalledOutputStream = new OutputStream() {
+      @Override
+      public void write(int b) throws IOException {
+        stalled.countDown();
+        try {
+          released.await();
+        } catch (InterruptedException ex) {
+          Thread.currentThread().interrupt();
+          throw new IOException(ex);
+        }
+      }
+    };
+    ExecutorService executorService = Executors.newFixedThreadPool(2);
+    try {
+      //the producers of the stalled export wait for its writer, which waits for the download
+      Future<?> stalledExport = executorService.submit(() -> {
+        configsExportService.exportAllTo(stalledOutputStream);
+        return null;
+      });
+      assertTrue(stalled.await(5, TimeUnit.SECONDS));
+
+      ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+      Future<?> anotherExport = executorService.submit(() -> {
+        configsExportService.exportAllTo(outputStream);
+        return null;
+      });
+      anotherExport.get(5, TimeUnit.SECONDS);
+      assertEquals(8, readEntries(outputStream.toByteArray()).size());
+
+      released.countDown();
+      stalledExport.get(5, TimeUnit.SECONDS);
+    } finally {
+      released.countDown();
+      executorService.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testTooManyConcurrentExports() throws Exception {
+    when(portalConfig.configExportMaxConcurrent()).thenReturn(1);
+    configsExportService = new ConfigsExportService(appService, clusterService, namespaceService, portalSettings,
+        permissionValidator, portalConfig);
+    CountDownLatch stalled = new CountDownLatch(1);
+    CountDownLatch released = new CountDownLatch(1);
+    OutputStream stalledOutputStream = new OutputStream() {
+      @Override
+      public void write(int b) throws IOException {
+        stalled.countDown();
+        try {
+          released.await();
+        } catch (InterruptedException ex) {
+          Thread.currentThread().interrupt();
+          throw new IOException(ex);
+        }
+      }
+    };
+    ExecutorService executorService = Executors.newSingleThreadExecutor();
+    try {
+      Future<?> stalledExport = executorService.submit(() -> {
+        configsExportService.exportAllTo(stalledOutputStream);
+        return null;
+      });
+      assertTrue(stalled.await(5, TimeUnit.SECONDS));
+
+      try {
+        configsExportService.exportAllTo(new ByteArrayOutputStream());
+        fail();
+      } catch (BadRequestException ex) {
+        // expected
+      }
+
+      released.countDown();
+      stalledExport.get(5, TimeUnit.SECONDS);
+
+      //the permit is returned once the export is done
+      ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+      configsExportService.exportAllTo(outputStream);
+      assertEquals(8, readEntries(outputStream.toByteArray()).size());
+    } finally {
+      released.countDown();
+      executorService.shutdownNow();
+    }
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testExportWithProducerFailed() throws Exception {
+    when(clusterService.findClusters(Env.FAT, "app2")).thenThrow(new IllegalStateException("some failure"));
+
+    configsExportService.exportAllTo(new ByteArrayOutputStream());
+  }
+
+  private Set<String> readEntries(byte[] zip) throws Exception {
+    Set<String> entries = Sets.newHashSet();
+    try (ZipInputStream zipInputStream = new ZipInputStream(new ByteArrayInputStream(zip))) {
+      ZipEntry entry;
+      while ((entry = zipInputStream.getNextEntry()) != null) {
+        entries.add(entry.getName());
+      }
+    }
+    return entries;
+  }
+
+  private String filePath(String appId, Env env, String namespaceName) {
+    return String.join(File.separator, SOME_OWNER, appId, env.getName(),
+        appId + "+" + SOME_CLUSTER + "+" + namespaceName + ".properties");
+  }
+
+  private App assembleApp(String appId) {
+    App app = new App();
+    app.setAppId(appId);
+    app.setOwnerName(SOME_OWNER);
+    return app;
+  }
+
+  private ClusterDTO assembleCluster(String clusterName) {
+    ClusterDTO cluster = new ClusterDTO();
+    cluster.setName(clusterName);
+    return cluster;
+  }
+
+  private NamespaceBO assembleNamespaceBO(String namespaceName, Date namespaceModifiedTime, Date itemModifiedTime) {
+    NamespaceDTO baseInfo = new NamespaceDTO();
+    baseInfo.setNamespaceName(namespaceName);
+    baseInfo.setDataChangeLastModifiedTime(namespaceModifiedTime);
+
+    ItemDTO item = new ItemDTO();
+    item.setKey("k1");
+    item.setValue("v1");
+    item.setDataChangeLastModifiedTime(itemModifiedTime);
+    ItemBO itemBO = new ItemBO();
+    itemBO.setItem(item);
+    List<ItemBO> items = Lists.newArrayList(itemBO);
+
+    NamespaceBO namespaceBO = new NamespaceBO();
+    namespaceBO.setBaseInfo(baseInfo);
+    namespaceBO.setFormat(ConfigFileFormat.Properties.getValue());
+    namespaceBO.setItems(items);
+    return namespaceBO;
+  }
+}
@@ -2,6 +2,7 @@ package com.ctrip.framework.apollo.portal.service;
 
 import com.ctrip.framework.apollo.common.dto.ItemDTO;
 import com.ctrip.framework.apollo.common.dto.NamespaceDTO;
+import com.ctrip.framework.apollo.common.dto.NamespaceViewDTO;
 import com.ctrip.framework.apollo.common.dto.ReleaseDTO;
 import com.ctrip.framework.apollo.common.entity.AppNamespace;
 import com.ctrip.framework.apollo.common.exception.BadRequestException;
@@ -13,18 +14,25 @@ import com.ctrip.framework.apollo.portal.component.txtresolver.PropertyResolver;
 import com.ctrip.framework.apollo.portal.entity.bo.NamespaceBO;
 import com.ctrip.framework.apollo.portal.entity.bo.UserInfo;
 import com.ctrip.framework.apollo.portal.spi.UserInfoHolder;
+import com.google.common.collect.Sets;
 
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
 
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -63,6 +71,60 @@ public class NamespaceServiceTest extends AbstractUnitTest {
   @Test
   public void testFindNamespace() {
 
+    AppNamespace applicationAppNamespace = assembleAppNamespace(testAppId, testNamespaceName,
+        ConfigFileFormat.Properties, false);
+    AppNamespace hermesAppNamespace = assembleAppNamespace("someOtherAppId", "hermes", ConfigFileFormat.XML, true);
+
+    NamespaceDTO application = new NamespaceDTO();
+    application.setId(1);
+    application.setClusterName(testClusterName);
+    application.setAppId(testAppId);
+    application.setNamespaceName(testNamespaceName);
+
+    NamespaceDTO hermes = new NamespaceDTO();
+    hermes.setId(2);
+    hermes.setClusterName("default");
+    hermes.setAppId(testAppId);
+    hermes.setNamespaceName("hermes");
+
+    ReleaseDTO someRelease = new ReleaseDTO();
+    someRelease.setConfigurations("{\"a\":\"123\",\"b\":\"123\"}");
+
+    ItemDTO i1 = new ItemDTO("a", "123", "", 1);
+    ItemDTO i2 = new ItemDTO("b", "1", "", 2);
+    ItemDTO i3 = new ItemDTO("", "", "#dddd", 3);
+    ItemDTO i4 = new ItemDTO("c", "1", "", 4);
+    List<ItemDTO> someItems = Arrays.asList(i1, i2, i3, i4);
+
+    when(appNamespaceService.findByAppIdOrPublicNames(testAppId, Sets.newHashSet(testNamespaceName, "hermes")))
+        .thenReturn(Arrays.asList(applicationAppNamespace, hermesAppNamespace));
+    when(namespaceAPI.findNamespaceViews(testAppId, Env.DEV, testClusterName)).thenReturn(Arrays.asList(
+        assembleNamespaceView(application, someRelease, someItems),
+        assembleNamespaceView(hermes, someRelease, Collections.emptyList())));
+
+    List<NamespaceBO> namespaceVOs = namespaceService.findNamespaceBOs(testAppId, Env.DEV, testClusterName);
+    assertEquals(2, namespaceVOs.size());
+    NamespaceBO namespaceVO = namespaceVOs.get(0);
+    assertEquals(4, namespaceVO.getItems().size());
+    assertEquals("a", namespaceVO.getItems().get(0).getItem().getKey());
+    assertEquals(2, namespaceVO.getItemModifiedCnt());
+    assertEquals(testAppId, namespaceVO.getBaseInfo().getAppId());
+    assertEquals(testClusterName, namespaceVO.getBaseInfo().getClusterName());
+    assertEquals(testNamespaceName, namespaceVO.getBaseInfo().getNamespaceName());
+    assertEquals("hermes", namespaceVOs.get(1).getBaseInfo().getNamespaceName());
+    assertEquals(ConfigFileFormat.XML.getValue(), namespaceVOs.get(1).getFormat());
+    assertEquals("someOtherAppId", namespaceVOs.get(1).getParentAppId());
+    assertTrue(namespaceVOs.get(1).isPublic());
+
+    verify(releaseService, never()).loadLatestRelease(anyString(), any(), anyString(), anyString());
+    verify(itemService, never()).findItems(anyString(), any(), anyString(), anyString());
+    verify(appNamespaceService, never()).findByAppIdAndName(anyString(), anyString());
+    verify(appNamespaceService, never()).findPublicAppNamespace(anyString());
+  }
+
+  @Test
+  public void testFindNamespaceWithAdminServiceNotUpgraded() {
+
     AppNamespace applicationAppNamespace = mock(AppNamespace.class);
     AppNamespace hermesAppNamespace = mock(AppNamespace.class);
 
@@ -93,6 +155,8 @@ public class NamespaceServiceTest extends AbstractUnitTest {
     when(appNamespaceService.findByAppIdAndName(testAppId, testNamespaceName))
         .thenReturn(applicationAppNamespace);
     when(appNamespaceService.findPublicAppNamespace("hermes")).thenReturn(hermesAppNamespace);
+    when(namespaceAPI.findNamespaceViews(testAppId, Env.DEV, testClusterName))
+        .thenThrow(new HttpClientErrorException(HttpStatus.NOT_FOUND));
     when(namespaceAPI.findNamespaceByCluster(testAppId, Env.DEV, testClusterName)).thenReturn(namespaces);
     when(releaseService.loadLatestRelease(testAppId, Env.DEV, testClusterName,
                                           testNamespaceName)).thenReturn(someRelease);
@@ -226,4 +290,24 @@ public class NamespaceServiceTest extends AbstractUnitTest {
 
     return instance;
   }
+
+  private NamespaceViewDTO assembleNamespaceView(NamespaceDTO namespace, ReleaseDTO latestRelease,
+      List<ItemDTO> items) {
+    NamespaceViewDTO namespaceView = new NamespaceViewDTO();
+    namespaceView.setNamespace(namespace);
+    namespaceView.setLatestRelease(latestRelease);
+    namespaceView.setItems(items);
+    namespaceView.setDeletedItems(Collections.emptyList());
+    return namespaceView;
+  }
+
+  private AppNamespace assembleAppNamespace(String appId, String namespaceName, ConfigFileFormat format,
+      boolean isPublic) {
+    AppNamespace appNamespace = new AppNamespace();
+    appNamespace.setAppId(appId);
+    appNamespace.setName(namespaceName);
+    appNamespace.setFormat(format.getValue());
+    appNamespace.setPublic(isPublic);
+    return appNamespace;
+  }
 }
@@ -0,0 +1,199 @@
+package com.ctrip.framework.apollo.portal.spi.defaultImpl;
+
+import com.ctrip.framework.apollo.portal.AbstractUnitTest;
+import com.ctrip.framework.apollo.portal.component.config.PortalConfig;
+import com.ctrip.framework.apollo.portal.entity.po.Permission;
+import com.ctrip.framework.apollo.portal.entity.po.RolePermission;
+import com.ctrip.framework.apollo.portal.entity.po.UserRole;
+import com.ctrip.framework.apollo.portal.repository.PermissionRepository;
+import com.ctrip.framework.apollo.portal.repository.RolePermissionRepository;
+import com.ctrip.framework.apollo.portal.repository.UserRoleRepository;
+import com.ctrip.framework.apollo.portal.spi.defaultimpl.RolePermissionIndex;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Collections;
+import java.util.Date;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class RolePermissionIndexTest extends AbstractUnitTest {
+  private static final String SOME_USER = "someUser";
+  private static final String ANOTHER_USER = "anotherUser";
+  private static final String SOME_PERMISSION_TYPE = "ModifyNamespace";
+  private static final String SOME_TARGET_ID = "someApp+application";
+  private static final long SOME_PERMISSION_ID = 1;
+  private static final long ANOTHER_PERMISSION_ID = 2;
+  private static final long SOME_ROLE_ID = 10;
+  private static final long ANOTHER_ROLE_ID = 20;
+
+  @Mock
+  private PermissionRepository permissionRepository;
+  @Mock
+  private RolePermissionRepository rolePermissionRepository;
+  @Mock
+  private UserRoleRepository userRoleRepository;
+  @Mock
+  private PortalConfig portalConfig;
+  @InjectMocks
+  private RolePermissionIndex rolePermissionIndex;
+
+  @Before
+  public void setUp() throws Exception {
+    when(portalConfig.isPermissionIndexEnabled()).thenReturn(true);
+    when(portalConfig.permissionIndexScanIntervalInSecond()).thenReturn(3600);
+    when(portalConfig.permissionIndexRebuildIntervalInSecond()).thenReturn(3600);
+
+    when(permissionRepository.findAll()).thenReturn(Lists.newArrayList(
+        assemblePermission(SOME_PERMISSION_ID, SOME_PERMISSION_TYPE, SOME_TARGET_ID),
+        assemblePermission(ANOTHER_PERMISSION_ID, "ReleaseNamespace", SOME_TARGET_ID)));
+    when(rolePermissionRepository.findAll()).thenReturn(Lists.newArrayList(
+        assembleRolePermission(SOME_ROLE_ID, SOME_PERMISSION_ID),
+        assembleRolePermission(ANOTHER_ROLE_ID, ANOTHER_PERMISSION_ID)));
+    when(userRoleRepository.findAll()).thenReturn(Lists.newArrayList(
+        assembleUserRole(SOME_USER, SOME_ROLE_ID)));
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    rolePermissionIndex.destroy();
+  }
+
+  @Test
+  public void testUserHasPermission() throws Exception {
+    rolePermissionIndex.afterPropertiesSet();
+
+    assertTrue(rolePermissionIndex.isEnabled());
+    assertEquals(SOME_PERMISSION_ID, (long) rolePermissionIndex.findPermissionId(SOME_PERMISSION_TYPE, SOME_TARGET_ID));
+    assertEquals(SOME_PERMISSION_ID,
+        (long) rolePermissionIndex.findPermissionId(SOME_PERMISSION_TYPE.toUpperCase(), SOME_TARGET_ID));
+    assertNull(rolePermissionIndex.findPermissionId(SOME_PERMISSION_TYPE, "someOtherTarget"));
+
+    assertTrue(rolePermissionIndex.userHasPermission(SOME_USER, SOME_PERMISSION_ID));
+    assertTrue(rolePermissionIndex.userHasPermission(SOME_USER.toUpperCase(), SOME_PERMISSION_ID));
+    assertFalse(rolePermissionIndex.userHasPermission(SOME_USER, ANOTHER_PERMISSION_ID));
+    assertFalse(rolePermissionIndex.userHasPermission(ANOTHER_USER, SOME_PERMISSION_ID));
+  }
+
+  @Test
+  public void testApplyChanges() throws Exception {
+    rolePermissionIndex.afterPropertiesSet();
+
+    rolePermissionIndex.onUserRolesAssigned(ANOTHER_ROLE_ID, Sets.newHashSet(SOME_USER, ANOTHER_USER));
+
+    assertTrue(rolePermissionIndex.userHasPermission(SOME_USER, SOME_PERMISSION_ID));
+    assertTrue(rolePermissionIndex.userHasPermission(SOME_USER, ANOTHER_PERMISSION_ID));
+    assertTrue(rolePermissionIndex.userHasPermission(ANOTHER_USER, ANOTHER_PERMISSION_ID));
+
+    rolePermissionIndex.onUserRolesRemoved(SOME_ROLE_ID, Collections.singleton(SOME_USER));
+
+    assertFalse(rolePermissionIndex.userHasPermission(SOME_USER, SOME_PERMISSION_ID));
+    assertTrue(rolePermissionIndex.userHasPermission(SOME_USER, ANOTHER_PERMISSION_ID));
+
+    long newPermissionId = 3;
+    long newRoleId = 30;
+    rolePermissionIndex.onPermissionsCreated(
+        Collections.singleton(assemblePermission(newPermissionId, SOME_PERMISSION_TYPE, "anotherApp+application")));
+    rolePermissionIndex.onRolePermissionsCreated(newRoleId, Collections.singleton(newPermissionId));
+    rolePermissionIndex.onUserRolesAssigned(newRoleId, Collections.singleton(ANOTHER_USER));
+
+    assertEquals(newPermissionId,
+        (long) rolePermissionIndex.findPermissionId(SOME_PERMISSION_TYPE, "anotherApp+application"));
+    assertTrue(rolePermissionIndex.userHasPermission(ANOTHER_USER, newPermissionId));
+
+    rolePermissionIndex.onPermissionsDeleted(Collections.singletonList(newPermissionId));
+    rolePermissionIndex.onRolesDeleted(Collections.singletonList(ANOTHER_ROLE_ID));
+
+    assertNull(rolePermissionIndex.findPermissionId(SOME_PERMISSION_TYPE, "anotherApp+application"));
+    assertFalse(rolePermissionIndex.userHasPermission(ANOTHER_USER, ANOTHER_PERMISSION_ID));
+  }
+
+  @Test
+  public void testScanChanges() throws Exception {
+    Date someTime = new Date();
+    when(permissionRepository.findLastModifiedTime()).thenReturn(someTime);
+    when(rolePermissionRepository.findLastModifiedTime()).thenReturn(someTime);
+    when(userRoleRepository.findLastModifiedTime()).thenReturn(someTime);
+    rolePermissionIndex.afterPropertiesSet();
+
+    long newPermissionId = 3;
+    //the revocation is in the same second as the last change, and the assignment is deleted and made again
+    UserRole revokedUserRole = assembleUserRole(SOME_USER, SOME_ROLE_ID);
+    revokedUserRole.setDeleted(true);
+    revokedUserRole.setDataChangeLastModifiedTime(someTime);
+    UserRole reassignedUserRole = assembleUserRole(ANOTHER_USER, SOME_ROLE_ID);
+    reassignedUserRole.setDeleted(true);
+    reassignedUserRole.setDataChangeLastModifiedTime(someTime);
+    UserRole assignedUserRole = assembleUserRole(ANOTHER_USER, SOME_ROLE_ID);
+    Date someLaterTime = new Date(someTime.getTime() + 1000);
+    assignedUserRole.setDataChangeLastModifiedTime(someLaterTime);
+    Permission deletedPermission = assemblePermission(ANOTHER_PERMISSION_ID, "ReleaseNamespace", SOME_TARGET_ID);
+    deletedPermission.setDeleted(true);
+    Date someScanFrom = new Date(someTime.getTime() - 5000);
+    when(permissionRepository.findModifiedSince(someScanFrom)).thenReturn(Lists.newArrayList(deletedPermission,
+        assemblePermission(newPermissionId, "ReleaseNamespace", SOME_TARGET_ID)));
+    when(rolePermissionRepository.findModifiedSince(someScanFrom)).thenReturn(Lists.newArrayList(
+        assembleRolePermission(SOME_ROLE_ID, newPermissionId)));
+    when(userRoleRepository.findModifiedSince(someScanFrom)).thenReturn(Lists.newArrayList(revokedUserRole,
+        reassignedUserRole, assignedUserRole));
+
+    ReflectionTestUtils.invokeMethod(rolePermissionIndex, "scanChanges");
+
+    assertFalse(rolePermissionIndex.userHasPermission(SOME_USER, SOME_PERMISSION_ID));
+    assertTrue(rolePermissionIndex.userHasPermission(ANOTHER_USER, SOME_PERMISSION_ID));
+    assertTrue(rolePermissionIndex.userHasPermission(ANOTHER_USER, newPermissionId));
+    assertEquals(newPermissionId, (long) rolePermissionIndex.findPermissionId("ReleaseNamespace", SOME_TARGET_ID));
+    //only the changed rows are loaded
+    verify(userRoleRepository, times(1)).findAll();
+
+    //the next scan starts from the last change applied
+    ReflectionTestUtils.invokeMethod(rolePermissionIndex, "scanChanges");
+
+    verify(userRoleRepository, times(1)).findModifiedSince(new Date(someLaterTime.getTime() - 5000));
+  }
+
+  @Test
+  public void testDisabled() throws Exception {
+    when(portalConfig.isPermissionIndexEnabled()).thenReturn(false);
+
+    rolePermissionIndex.afterPropertiesSet();
+    rolePermissionIndex.onUserRolesAssigned(SOME_ROLE_ID, Collections.singleton(SOME_USER));
+
+    assertFalse(rolePermissionIndex.isEnabled());
+    assertFalse(rolePermissionIndex.userHasPermission(SOME_USER, SOME_PERMISSION_ID));
+  }
+
+  private Permission assemblePermission(long id, String permissionType, String targetId) {
+    Permission permission = new Permission();
+    permission.setId(id);
+    permission.setPermissionType(permissionType);
+    permission.setTargetId(targetId);
+    return permission;
+  }
+
+  private RolePermission assembleRolePermission(long roleId, long permissionId) {
+    RolePermission rolePermission = new RolePermission();
+    rolePermission.setRoleId(roleId);
+    rolePermission.setPermissionId(permissionId);
+    return rolePermission;
+  }
+
+  private UserRole assembleUserRole(String userId, long roleId) {
+    UserRole userRole = new UserRole();
+    userRole.setUserId(userId);
+    userRole.setRoleId(roleId);
+    return userRole;
+  }
+}